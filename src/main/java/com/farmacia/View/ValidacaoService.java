@@ -56,6 +56,10 @@ public class ValidacaoService {
         if (preco.compareTo(BigDecimal.ZERO) <= 0) {
             throw new ValidacaoException("Preço deve ser maior que zero");
         }
+
+        if (preco.stripTrailingZeros().scale() > 2) {
+            throw new ValidacaoException("Preço deve ter no máximo 2 casas decimais");
+        }
     }
 
     public static void validarCNPJ(String cnpj) throws ValidacaoException {
@@ -0,0 +1,17 @@
+package com.farmacia.api;
+
+/**
+ * Erro de requisição com o status HTTP a devolver ao cliente
+ */
+public class ErroHttp extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public ErroHttp(int status, String mensagem) {
+        super(mensagem);
+        this.status = status;
+    }
+
+    public int getStatus() { return status; }
+}
@@ -0,0 +1,80 @@
+package com.farmacia.api;
+
+import com.farmacia.eventos.EventoAlteracao;
+import com.farmacia.eventos.FluxoAlteracoes;
+import com.farmacia.service.MedicamentoService;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rota GET de /api/alteracoes?apos=SEQ&amp;limite=N&amp;espera=MS: eventos do fluxo de alterações com
+ * sequência maior que {@code apos}. Sem eventos novos, espera até {@code espera} ms por um
+ * (consulta longa); o cliente continua pedindo a partir de {@code ultima}.
+ */
+public class ManipuladorAlteracoes extends ManipuladorJson {
+    private static final int LIMITE_PADRAO = 100;
+    private static final int LIMITE_MAXIMO = 1000;
+    private static final int ESPERA_MAXIMA_MS = 30000;
+
+    private final MedicamentoService service;
+
+    public ManipuladorAlteracoes(MedicamentoService service) {
+        this.service = service;
+    }
+
+    @Override
+    protected RespostaHttp processar(HttpExchange troca) throws Exception {
+        if (!troca.getRequestMethod().equals("GET")) {
+            throw metodoNaoPermitido(troca);
+        }
+        if (segmentos(troca).length != 0) {
+            throw new ErroHttp(404, "Recurso não encontrado");
+        }
+
+        FluxoAlteracoes fluxo = service.fluxoAlteracoes();
+        if (fluxo == null) {
+            throw new ErroHttp(404, "Fluxo de alterações desativado");
+        }
+
+        Map<String, String> parametros = parametros(troca);
+        String apos = parametros.get("apos");
+        int limite = Math.min(inteiro(parametros, "limite", LIMITE_PADRAO), LIMITE_MAXIMO);
+        int espera = Math.min(inteiro(parametros, "espera", 0), ESPERA_MAXIMA_MS);
+        if (limite <= 0 || espera < 0) {
+            throw new ErroHttp(400, "Parâmetros 'limite' e 'espera' devem ser positivos");
+        }
+
+        FluxoAlteracoes.Assinatura assinatura;
+        try {
+            assinatura = apos == null ? fluxo.assinar("api") : fluxo.assinar("api", Long.parseLong(apos.trim()));
+        } catch (NumberFormatException e) {
+            throw new ErroHttp(400, "Parâmetro 'apos' deve ser numérico");
+        }
+
+        try {
+            List<EventoAlteracao> eventos = assinatura.drenar(limite);
+            if (eventos.isEmpty() && espera > 0) {
+                EventoAlteracao primeiro = assinatura.proximo(espera);
+                if (primeiro != null) {
+                    eventos.add(primeiro);
+                    eventos.addAll(assinatura.drenar(limite - 1));
+                }
+            }
+
+            List<Object> itens = new ArrayList<>();
+            for (EventoAlteracao evento : eventos) {
+                itens.add(evento.paraMapa());
+            }
+            Map<String, Object> corpo = new LinkedHashMap<>();
+            corpo.put("itens", itens);
+            corpo.put("ultima", assinatura.getCursor());
+            return RespostaHttp.ok(corpo);
+        } finally {
+            assinatura.cancelar();
+        }
+    }
+}
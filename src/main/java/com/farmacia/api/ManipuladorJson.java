@@ -0,0 +1,122 @@
+package com.farmacia.api;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.exception.ValidacaoException;
+import com.farmacia.json.Json;
+import com.farmacia.log.Log;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base dos manipuladores HTTP: converte o retorno em JSON e as exceções em status HTTP
+ * (validação → 400, não encontrado → 404, persistência → 500)
+ */
+public abstract class ManipuladorJson implements HttpHandler {
+    private static final Log LOG = Log.para(ManipuladorJson.class);
+
+    protected abstract RespostaHttp processar(HttpExchange troca) throws Exception;
+
+    @Override
+    public void handle(HttpExchange troca) throws IOException {
+        RespostaHttp resposta;
+        try {
+            resposta = processar(troca);
+        } catch (ErroHttp e) {
+            resposta = erro(e.getStatus(), e.getMessage());
+        } catch (ValidacaoException | IllegalArgumentException e) {
+            resposta = erro(400, e.getMessage());
+        } catch (PersistenciaException e) {
+            LOG.erro("Erro de persistência na API", e, "caminho", troca.getRequestURI().getPath());
+            resposta = erro(500, e.getMessage());
+        } catch (Exception e) {
+            LOG.erro("Erro inesperado na API", e, "caminho", troca.getRequestURI().getPath());
+            resposta = erro(500, "Erro interno");
+        }
+
+        enviar(troca, resposta);
+    }
+
+    private static RespostaHttp erro(int status, String mensagem) {
+        Map<String, Object> corpo = new HashMap<>();
+        corpo.put("erro", mensagem);
+        return new RespostaHttp(status, corpo);
+    }
+
+    private static void enviar(HttpExchange troca, RespostaHttp resposta) throws IOException {
+        try (troca) {
+            if (resposta.getCorpo() == null) {
+                troca.sendResponseHeaders(resposta.getStatus(), -1);
+                return;
+            }
+
+            byte[] bytes = Json.escrever(resposta.getCorpo()).getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            troca.sendResponseHeaders(resposta.getStatus(), bytes.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(bytes);
+            }
+        }
+    }
+
+    // ========== AUXILIARES ==========
+
+    protected static Map<String, Object> lerCorpo(HttpExchange troca) throws IOException, ErroHttp {
+        try (InputStream entrada = troca.getRequestBody()) {
+            String texto = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            if (texto.isBlank()) {
+                throw new ErroHttp(400, "Corpo da requisição vazio");
+            }
+            return Json.lerObjeto(texto);
+        }
+    }
+
+    protected static Map<String, String> parametros(HttpExchange troca) {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = troca.getRequestURI().getRawQuery();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String chave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(chave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    protected static int inteiro(Map<String, String> parametros, String chave, int padrao) throws ErroHttp {
+        String valor = parametros.get(chave);
+        if (valor == null || valor.isEmpty()) {
+            return padrao;
+        }
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new ErroHttp(400, "Parâmetro '" + chave + "' deve ser numérico");
+        }
+    }
+
+    /**
+     * Segmentos do caminho após o prefixo do contexto (ex.: /api/medicamentos/ABC1234 → ["ABC1234"])
+     */
+    protected static String[] segmentos(HttpExchange troca) {
+        String caminho = troca.getRequestURI().getPath();
+        String contexto = troca.getHttpContext().getPath();
+        String resto = caminho.length() > contexto.length() ? caminho.substring(contexto.length()) : "";
+        resto = resto.replaceAll("^/+|/+$", "");
+        return resto.isEmpty() ? new String[0] : resto.split("/");
+    }
+
+    protected static ErroHttp metodoNaoPermitido(HttpExchange troca) {
+        return new ErroHttp(405, "Método não permitido: " + troca.getRequestMethod());
+    }
+}
@@ -0,0 +1,175 @@
+package com.farmacia.api;
+
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.Pagina;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+import com.farmacia.service.MedicamentoService;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rotas de /api/medicamentos:
+ * <pre>
+ * GET    /api/medicamentos?ordem=codigo&amp;apos=COD&amp;tamanho=50   página por chave
+ * POST   /api/medicamentos                                  cadastro
+ * GET    /api/medicamentos/{codigo}                         consulta
+ * PUT    /api/medicamentos/{codigo}                         atualização
+ * DELETE /api/medicamentos/{codigo}                         exclusão
+ * POST   /api/medicamentos/{codigo}/movimentacoes           {"quantidade": n} entrada (+) ou saída (-)
+ * POST   /api/medicamentos/{codigo}/lotes                   {"numero", "dataValidade", "quantidade"} entrada de lote
+ * </pre>
+ */
+public class ManipuladorMedicamentos extends ManipuladorJson {
+    private static final int TAMANHO_PADRAO = 50;
+    private static final int TAMANHO_MAXIMO = 1000;
+
+    private final MedicamentoService service;
+
+    public ManipuladorMedicamentos(MedicamentoService service) {
+        this.service = service;
+    }
+
+    @Override
+    protected RespostaHttp processar(HttpExchange troca) throws Exception {
+        String[] segmentos = segmentos(troca);
+        String metodo = troca.getRequestMethod();
+
+        if (segmentos.length == 0) {
+            switch (metodo) {
+                case "GET": return listar(troca);
+                case "POST": return cadastrar(troca);
+                default: throw metodoNaoPermitido(troca);
+            }
+        }
+
+        String codigo = segmentos[0].toUpperCase();
+
+        if (segmentos.length == 1) {
+            switch (metodo) {
+                case "GET": return consultar(codigo);
+                case "PUT": return atualizar(troca, codigo);
+                case "DELETE": return excluir(codigo);
+                default: throw metodoNaoPermitido(troca);
+            }
+        }
+
+        if (segmentos.length == 2 && segmentos[1].equals("movimentacoes")) {
+            if (!metodo.equals("POST")) {
+                throw metodoNaoPermitido(troca);
+            }
+            return movimentar(troca, codigo);
+        }
+
+        if (segmentos.length == 2 && segmentos[1].equals("lotes")) {
+            if (!metodo.equals("POST")) {
+                throw metodoNaoPermitido(troca);
+            }
+            return receberLote(troca, codigo);
+        }
+
+        throw new ErroHttp(404, "Recurso não encontrado");
+    }
+
+    private RespostaHttp listar(HttpExchange troca) throws Exception {
+        Map<String, String> parametros = parametros(troca);
+        OrdemListagem ordem = ordem(parametros.get("ordem"));
+        int tamanho = Math.min(inteiro(parametros, "tamanho", TAMANHO_PADRAO), TAMANHO_MAXIMO);
+        if (tamanho <= 0) {
+            throw new ErroHttp(400, "Parâmetro 'tamanho' deve ser positivo");
+        }
+
+        // O cursor é o código do último item da página anterior
+        Medicamento apos = null;
+        String codigoApos = parametros.get("apos");
+        if (codigoApos != null && !codigoApos.isEmpty()) {
+            apos = service.consultar(codigoApos);
+            if (apos == null) {
+                throw new ErroHttp(400, "Cursor inválido: medicamento " + codigoApos + " não existe mais");
+            }
+        }
+
+        Pagina pagina = service.listarPagina(ordem, apos, tamanho);
+
+        List<Object> itens = new ArrayList<>(pagina.getItens().size());
+        for (Medicamento m : pagina.getItens()) {
+            itens.add(MedicamentoJson.paraMapa(m));
+        }
+
+        Map<String, Object> corpo = new LinkedHashMap<>();
+        corpo.put("itens", itens);
+        corpo.put("total", pagina.getTotal());
+        corpo.put("temProxima", pagina.isTemProxima());
+        corpo.put("proximo", pagina.isTemProxima() && pagina.getUltimo() != null ? pagina.getUltimo().getCodigo() : null);
+        return RespostaHttp.ok(corpo);
+    }
+
+    private static OrdemListagem ordem(String valor) throws ErroHttp {
+        if (valor == null || valor.isEmpty()) {
+            return OrdemListagem.CODIGO;
+        }
+        try {
+            return OrdemListagem.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ErroHttp(400, "Ordem inválida: " + valor);
+        }
+    }
+
+    private RespostaHttp cadastrar(HttpExchange troca) throws Exception {
+        Medicamento medicamento = MedicamentoJson.deMapa(lerCorpo(troca));
+        service.cadastrar(medicamento);
+        return RespostaHttp.criado(MedicamentoJson.paraMapa(medicamento));
+    }
+
+    private RespostaHttp consultar(String codigo) throws Exception {
+        Medicamento medicamento = service.consultar(codigo);
+        if (medicamento == null) {
+            throw new ErroHttp(404, "Medicamento não encontrado: " + codigo);
+        }
+        return RespostaHttp.ok(MedicamentoJson.paraMapa(medicamento));
+    }
+
+    private RespostaHttp atualizar(HttpExchange troca, String codigo) throws Exception {
+        Medicamento medicamento = MedicamentoJson.deMapa(lerCorpo(troca));
+        medicamento.setCodigo(codigo);
+        if (service.consultar(codigo) == null) {
+            throw new ErroHttp(404, "Medicamento não encontrado: " + codigo);
+        }
+        service.atualizar(medicamento);
+        return RespostaHttp.ok(MedicamentoJson.paraMapa(medicamento));
+    }
+
+    private RespostaHttp excluir(String codigo) throws Exception {
+        if (service.consultar(codigo) == null) {
+            throw new ErroHttp(404, "Medicamento não encontrado: " + codigo);
+        }
+        service.excluir(codigo);
+        return RespostaHttp.semConteudo();
+    }
+
+    private RespostaHttp movimentar(HttpExchange troca, String codigo) throws Exception {
+        Object quantidade = lerCorpo(troca).get("quantidade");
+        if (!(quantidade instanceof Long) || (Long) quantidade < Integer.MIN_VALUE || (Long) quantidade > Integer.MAX_VALUE) {
+            throw new ErroHttp(400, "Campo 'quantidade' deve ser um inteiro");
+        }
+        if (service.consultar(codigo) == null) {
+            throw new ErroHttp(404, "Medicamento não encontrado: " + codigo);
+        }
+        Medicamento atualizado = service.movimentarEstoque(codigo, ((Long) quantidade).intValue());
+        return RespostaHttp.ok(MedicamentoJson.paraMapa(atualizado));
+    }
+
+    private RespostaHttp receberLote(HttpExchange troca, String codigo) throws Exception {
+        Lote lote = MedicamentoJson.loteDeMapa(lerCorpo(troca));
+        if (service.consultar(codigo) == null) {
+            throw new ErroHttp(404, "Medicamento não encontrado: " + codigo);
+        }
+        Medicamento atualizado = service.receberLote(codigo, lote);
+        return RespostaHttp.ok(MedicamentoJson.paraMapa(atualizado));
+    }
+}
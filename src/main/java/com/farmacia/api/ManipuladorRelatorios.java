@@ -0,0 +1,55 @@
+package com.farmacia.api;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.relatorio.FormatadorRelatorios;
+import com.farmacia.relatorio.TipoRelatorio;
+import com.farmacia.service.InstantaneoRelatorios;
+import com.farmacia.service.MedicamentoService;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rotas GET de /api/relatorios/{nome}: vencimento, estoque-baixo, ruptura, valor-por-fornecedor,
+ * controlados e estatisticas; /api/relatorios devolve todos de um mesmo instantâneo do catálogo
+ */
+public class ManipuladorRelatorios extends ManipuladorJson {
+    private final MedicamentoService service;
+
+    public ManipuladorRelatorios(MedicamentoService service) {
+        this.service = service;
+    }
+
+    @Override
+    protected RespostaHttp processar(HttpExchange troca) throws Exception {
+        if (!troca.getRequestMethod().equals("GET")) {
+            throw metodoNaoPermitido(troca);
+        }
+
+        String[] segmentos = segmentos(troca);
+        if (segmentos.length == 0) {
+            return RespostaHttp.ok(todos());
+        }
+        if (segmentos.length != 1) {
+            throw new ErroHttp(404, "Relatório não encontrado");
+        }
+
+        TipoRelatorio tipo = TipoRelatorio.porNome(segmentos[0]);
+        if (tipo == null) {
+            throw new ErroHttp(404, "Relatório não encontrado: " + segmentos[0]);
+        }
+        return RespostaHttp.ok(FormatadorRelatorios.paraJson(tipo.gerar(service)));
+    }
+
+    private Map<String, Object> todos() throws PersistenciaException {
+        InstantaneoRelatorios instantaneo = service.instantaneoRelatorios();
+        Map<String, Object> corpo = new LinkedHashMap<>();
+        corpo.put("geradoEm", instantaneo.getGeradoEm().toString());
+        corpo.put("versaoCatalogo", instantaneo.getVersaoCatalogo());
+        for (TipoRelatorio tipo : TipoRelatorio.values()) {
+            corpo.put(tipo.getNome(), FormatadorRelatorios.paraJson(tipo.extrair(instantaneo)));
+        }
+        return corpo;
+    }
+}
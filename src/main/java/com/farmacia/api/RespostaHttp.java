@@ -0,0 +1,29 @@
+package com.farmacia.api;
+
+/**
+ * Status e corpo (serializado como JSON) de uma resposta
+ */
+public class RespostaHttp {
+    private final int status;
+    private final Object corpo;
+
+    public RespostaHttp(int status, Object corpo) {
+        this.status = status;
+        this.corpo = corpo;
+    }
+
+    public static RespostaHttp ok(Object corpo) {
+        return new RespostaHttp(200, corpo);
+    }
+
+    public static RespostaHttp criado(Object corpo) {
+        return new RespostaHttp(201, corpo);
+    }
+
+    public static RespostaHttp semConteudo() {
+        return new RespostaHttp(204, null);
+    }
+
+    public int getStatus() { return status; }
+    public Object getCorpo() { return corpo; }
+}
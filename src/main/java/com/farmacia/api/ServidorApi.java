@@ -0,0 +1,134 @@
+package com.farmacia.api;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.replicacao.ModoConfirmacao;
+import com.farmacia.replicacao.ServidorReplicacao;
+import com.farmacia.service.MedicamentoService;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modo servidor (sem interface gráfica): expõe as operações do MedicamentoService em HTTP/JSON
+ * no localhost. Cada requisição roda em uma thread virtual quando a JVM oferece (Java 21+);
+ * nas versões anteriores usa um pool fixo de threads.
+ *
+ * Com {@code farmacia.replicacao.porta} também envia as alterações às réplicas de leitura
+ * ({@link ServidorReplicacao}).
+ *
+ * Uso: java -cp ... com.farmacia.api.ServidorApi [porta]
+ */
+public class ServidorApi {
+    private static final Log LOG = Log.para(ServidorApi.class);
+
+    private final MedicamentoService service;
+    private final int porta;
+    private HttpServer servidor;
+    private ExecutorService executor;
+
+    public ServidorApi(MedicamentoService service, int porta) {
+        this.service = service;
+        this.porta = porta;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : Configuracao.portaApi();
+
+        MedicamentoService service = new MedicamentoService();
+        ServidorApi servidor = new ServidorApi(service, porta);
+        servidor.iniciar();
+        ServidorReplicacao replicacao = null;
+        if (Configuracao.portaReplicacao() > 0) {
+            replicacao = new ServidorReplicacao(service, Configuracao.enderecoReplicacao(),
+                    Configuracao.portaReplicacao(), ModoConfirmacao.de(Configuracao.modoReplicacao()),
+                    Configuracao.esperaReplicacaoMs());
+            replicacao.iniciar();
+        }
+        Metricas.iniciarDespejoPeriodico();
+
+        ServidorReplicacao replicacaoIniciada = replicacao;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (replicacaoIniciada != null) {
+                replicacaoIniciada.parar();
+            }
+            servidor.parar();
+            Metricas.despejar();
+            Log.descarregar(2000);
+        }, "parada-servidor-api"));
+    }
+
+    public synchronized void iniciar() throws IOException {
+        // Cabeçalho e corpo saem em escritas separadas: sem TCP_NODELAY, Nagle + ACK atrasado somam ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        servidor.createContext("/api/medicamentos", new ManipuladorMedicamentos(service));
+        servidor.createContext("/api/relatorios", new ManipuladorRelatorios(service));
+        servidor.createContext("/api/alteracoes", new ManipuladorAlteracoes(service));
+        servidor.createContext("/api/metricas", troca -> {
+            byte[] corpo = Metricas.resumo().getBytes(StandardCharsets.UTF_8);
+            try (troca; OutputStream saida = troca.getResponseBody()) {
+                troca.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                troca.sendResponseHeaders(200, corpo.length);
+                saida.write(corpo);
+            }
+        });
+
+        executor = criarExecutor();
+        servidor.setExecutor(executor);
+        servidor.start();
+
+        LOG.info("Servidor da API iniciado", "endereco", "http://" + servidor.getAddress().getHostString()
+                + ":" + getPorta(), "executor", executor.getClass().getSimpleName());
+    }
+
+    public synchronized void parar() {
+        if (servidor == null) {
+            return;
+        }
+        servidor.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        servidor = null;
+        LOG.info("Servidor da API parado");
+    }
+
+    /**
+     * Porta efetivamente em uso (útil quando criado com porta 0)
+     */
+    public synchronized int getPorta() {
+        return servidor != null ? servidor.getAddress().getPort() : porta;
+    }
+
+    /**
+     * Uma thread virtual por requisição quando disponível (obtida por reflexão para compilar em Java 17)
+     */
+    static ExecutorService criarExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger contador = new AtomicInteger();
+            return Executors.newFixedThreadPool(Configuracao.threadsApi(), r -> {
+                Thread t = new Thread(r, "api-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
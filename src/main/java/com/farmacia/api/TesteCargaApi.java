@@ -0,0 +1,149 @@
+package com.farmacia.api;
+
+import com.farmacia.json.Json;
+import com.farmacia.metricas.Histograma;
+import com.farmacia.service.MedicamentoService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Teste de carga da API: mede vazão e latência (p50/p99) com número crescente de clientes simultâneos.
+ * Mistura de requisições: 90% consulta por código, 8% relatório de estoque baixo, 2% movimentação
+ * de estoque (entrada seguida da saída correspondente, preservando o estoque).
+ *
+ * Uso: java -cp ... com.farmacia.api.TesteCargaApi [segundosPorEtapa] [clientes,...] [urlBase]
+ * Sem urlBase, sobe um servidor local em porta livre com o repositório configurado.
+ */
+public class TesteCargaApi {
+
+    public static void main(String[] args) throws Exception {
+        int segundos = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String[] etapas = (args.length > 1 ? args[1] : "1,2,4,8,16,32,64").split(",");
+
+        ServidorApi servidorLocal = null;
+        String urlBase;
+        if (args.length > 2) {
+            urlBase = args[2];
+        } else {
+            servidorLocal = new ServidorApi(new MedicamentoService(), 0);
+            servidorLocal.iniciar();
+            urlBase = "http://127.0.0.1:" + servidorLocal.getPorta();
+        }
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        try {
+            List<String> codigos = carregarCodigos(cliente, urlBase);
+            if (codigos.isEmpty()) {
+                System.err.println("Catálogo vazio: cadastre medicamentos antes do teste de carga");
+                return;
+            }
+
+            System.out.println("Teste de carga em " + urlBase + " (" + codigos.size() + " códigos, "
+                    + segundos + "s por etapa)");
+            System.out.println("clientes    req/s     p50(ms)   p99(ms)   max(ms)   erros");
+
+            for (String etapa : etapas) {
+                executarEtapa(cliente, urlBase, codigos, Integer.parseInt(etapa.trim()), segundos);
+            }
+        } finally {
+            if (servidorLocal != null) {
+                servidorLocal.parar();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> carregarCodigos(HttpClient cliente, String urlBase) throws Exception {
+        HttpResponse<String> resposta = cliente.send(
+                HttpRequest.newBuilder(URI.create(urlBase + "/api/medicamentos?tamanho=1000")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Listagem falhou: HTTP " + resposta.statusCode() + " " + resposta.body());
+        }
+
+        List<String> codigos = new ArrayList<>();
+        for (Object item : (List<Object>) Json.lerObjeto(resposta.body()).get("itens")) {
+            codigos.add((String) ((Map<String, Object>) item).get("codigo"));
+        }
+        return codigos;
+    }
+
+    private static void executarEtapa(HttpClient cliente, String urlBase, List<String> codigos,
+                                      int clientes, int segundos) throws InterruptedException {
+        Histograma latencias = new Histograma();
+        LongAdder erros = new LongAdder();
+        long fim = System.nanoTime() + segundos * 1_000_000_000L;
+
+        List<Thread> threads = new ArrayList<>(clientes);
+        for (int i = 0; i < clientes; i++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                while (System.nanoTime() < fim) {
+                    String codigo = codigos.get(aleatorio.nextInt(codigos.size()));
+                    int sorteio = aleatorio.nextInt(100);
+                    if (sorteio < 90) {
+                        medir(cliente, get(urlBase + "/api/medicamentos/" + codigo), latencias, erros);
+                    } else if (sorteio < 98) {
+                        medir(cliente, get(urlBase + "/api/relatorios/estoque-baixo"), latencias, erros);
+                    } else {
+                        String url = urlBase + "/api/medicamentos/" + codigo + "/movimentacoes";
+                        if (medir(cliente, post(url, "{\"quantidade\": 1}"), latencias, erros)) {
+                            medir(cliente, post(url, "{\"quantidade\": -1}"), latencias, erros);
+                        }
+                    }
+                }
+            }, "carga-" + i);
+            threads.add(t);
+            t.start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        double vazao = latencias.getContagem() / (double) segundos;
+        System.out.printf("%8d %9.0f %11.2f %9.2f %9.2f %7d%n", clientes, vazao,
+                latencias.percentil(50) / 1e6, latencias.percentil(99) / 1e6,
+                latencias.getMaximo() / 1e6, erros.sum());
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).build();
+    }
+
+    private static HttpRequest post(String url, String corpo) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private static boolean medir(HttpClient cliente, HttpRequest requisicao, Histograma latencias, LongAdder erros) {
+        long inicio = System.nanoTime();
+        try {
+            HttpResponse<byte[]> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+            latencias.registrar(System.nanoTime() - inicio);
+            if (resposta.statusCode() >= 400) {
+                erros.increment();
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            erros.increment();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package com.farmacia.cli;
+
+import com.farmacia.compras.GeradorPedidos;
+import com.farmacia.compras.PedidoCompra;
+import com.farmacia.config.Configuracao;
+import com.farmacia.controlados.LivroControlados;
+import com.farmacia.controlados.MovimentoControlado;
+import com.farmacia.dao.FabricaRepositorio;
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.RepositorioLojas;
+import com.farmacia.duplicados.DetectorDuplicados;
+import com.farmacia.duplicados.GrupoDuplicados;
+import com.farmacia.eventos.DiarioAlteracoes;
+import com.farmacia.eventos.EventoAlteracao;
+import com.farmacia.eventos.LeitorDiario;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.exception.ValidacaoException;
+import com.farmacia.exportacao.ExportacaoOrdenada;
+import com.farmacia.exportacao.ResultadoExportacao;
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.log.Log;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+import com.farmacia.relatorio.FormatadorRelatorios;
+import com.farmacia.relatorio.FormatoSaida;
+import com.farmacia.relatorio.TipoRelatorio;
+import com.farmacia.replicacao.ReplicaLeitura;
+import com.farmacia.service.InstantaneoRede;
+import com.farmacia.service.InstantaneoRelatorios;
+import com.farmacia.service.MedicamentoService;
+import com.farmacia.service.RedeLojas;
+import com.farmacia.service.ResultadoImportacao;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modo lote pela linha de comando, sem JavaFX: relatórios, importação, exportação e compactação.
+ * Não carrega classes gráficas nem publica MBeans, partindo em poucas centenas de milissegundos;
+ * executado a partir do JAR, é compatível com arquivos AppCDS (-XX:SharedArchiveFile).
+ *
+ * <pre>
+ * relatorio &lt;nome|todos&gt; [--formato texto|csv|json] [--saida arquivo]
+ * rede &lt;nome|todos&gt; [--lojas diretorio] [--formato texto|csv|json] [--saida arquivo]
+ * exportar &lt;arquivo&gt; [--formato csv|json] [--ordem codigo|nome|validade]
+ * importar &lt;arquivo.csv|arquivo.json&gt;
+ * compactar
+ * lotes consolidar | lotes listar &lt;codigo&gt; | lotes receber &lt;codigo&gt; &lt;numero&gt; &lt;validade&gt; &lt;quantidade&gt;
+ * alteracoes [--apos sequencia] [--consumidor nome] [--seguir intervaloMs]
+ * controlados [--codigo codigo] [--de data] [--ate data] [--saida arquivo] | controlados verificar
+ * pedidos [--saida diretorio]
+ * duplicados [--limiar 0.6] [--formato texto|json] [--saida arquivo]
+ * replica --primario host:porta [--destino arquivo.csv]
+ * </pre>
+ * Opção global: --repositorio tipo[:caminho] (ex.: embarcado:data/medicamentos)
+ */
+public class LinhaComando {
+    private static final int SAIDA_OK = 0;
+    private static final int SAIDA_ERRO = 1;
+    private static final int SAIDA_USO = 2;
+    private static final int LOTE_ALTERACOES = 1000;
+    private static final String DIRETORIO_PEDIDOS = "data/pedidos";
+    private static final String DESTINO_REPLICA = "data/replica.csv";
+    private static final long INTERVALO_REPLICA_MS = 5000;
+
+    private final Map<String, String> opcoes = new LinkedHashMap<>();
+    private final List<String> argumentos = new ArrayList<>();
+
+    public static void main(String[] args) {
+        // Antes de qualquer classe que leia a configuração: saída de dados limpa em System.out
+        padrao("farmacia.log.consoleErro", "true");
+        padrao("farmacia.metricas.jmx", "false");
+        // Comandos de execução única: cada leitura confere o arquivo, sem thread de vigia
+        padrao("farmacia.csv.vigiar", "false");
+
+        int codigo;
+        try {
+            codigo = new LinhaComando(args).executar();
+        } finally {
+            Log.descarregar(1000);
+        }
+        System.exit(codigo);
+    }
+
+    private static void padrao(String chave, String valor) {
+        if (System.getProperty(chave) == null) {
+            System.setProperty(chave, valor);
+        }
+    }
+
+    LinhaComando(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                opcoes.put(args[i].substring(2), args[++i]);
+            } else {
+                argumentos.add(args[i]);
+            }
+        }
+    }
+
+    int executar() {
+        if (argumentos.isEmpty()) {
+            return uso();
+        }
+
+        // Só os comandos que gravam disputam a liderança do CSV: os de leitura não tiram a vez
+        // da aplicação aberta no mesmo arquivo
+        if (!gravaNoRepositorio()) {
+            padrao("farmacia.csv.lideranca", "false");
+        }
+
+        try {
+            if (argumentos.get(0).equals("rede")) {
+                return rede();
+            }
+            if (argumentos.get(0).equals("alteracoes")) {
+                return alteracoes();
+            }
+            if (argumentos.get(0).equals("controlados")) {
+                return controlados();
+            }
+            if (argumentos.get(0).equals("replica")) {
+                return replica();
+            }
+
+            MedicamentoService service = opcoes.containsKey("repositorio")
+                    ? new MedicamentoService(FabricaRepositorio.criarPorEspecificacao(opcoes.get("repositorio")))
+                    : new MedicamentoService();
+
+            switch (argumentos.get(0)) {
+                case "relatorio": return relatorio(service, null);
+                case "exportar": return exportar(service);
+                case "importar": return importar(service);
+                case "compactar": return compactar(service);
+                case "lotes": return lotes(service);
+                case "pedidos": return pedidos(service);
+                case "duplicados": return duplicados(service);
+                default: return uso();
+            }
+        } catch (PersistenciaException | ValidacaoException | IOException | IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return SAIDA_ERRO;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SAIDA_ERRO;
+        }
+    }
+
+    // ========== COMANDOS ==========
+
+    /**
+     * Relatórios de uma loja; com {@code instantaneo} informado, os dados vêm dele em vez do service
+     */
+    private int relatorio(MedicamentoService service, InstantaneoRelatorios instantaneo)
+            throws PersistenciaException, IOException {
+        if (argumentos.size() < 2) {
+            return uso();
+        }
+        FormatoSaida formato = formato(FormatoSaida.TEXTO);
+        if (formato == null) {
+            return uso();
+        }
+
+        String nome = argumentos.get(1);
+        List<TipoRelatorio> tipos = new ArrayList<>();
+        if (nome.equals("todos")) {
+            tipos.addAll(List.of(TipoRelatorio.values()));
+        } else if (TipoRelatorio.porNome(nome) != null) {
+            tipos.add(TipoRelatorio.porNome(nome));
+        } else {
+            System.err.println("Relatório desconhecido: " + nome);
+            return uso();
+        }
+
+        // "todos": uma só leitura do catálogo e uma só passada para todos os relatórios
+        if (instantaneo == null && tipos.size() > 1) {
+            instantaneo = service.instantaneoRelatorios();
+        }
+
+        try (Writer saida = abrirSaida(opcoes.get("saida"))) {
+            if (formato == FormatoSaida.JSON && tipos.size() > 1) {
+                saida.write('{');
+                for (int i = 0; i < tipos.size(); i++) {
+                    StringBuilder chave = new StringBuilder(i > 0 ? "," : "");
+                    Json.escreverTexto(tipos.get(i).getNome(), chave);
+                    saida.append(chave).append(':');
+                    FormatadorRelatorios.escreverJson(tipos.get(i).extrair(instantaneo), saida);
+                }
+                saida.write("}\n");
+            } else {
+                for (TipoRelatorio tipo : tipos) {
+                    if (tipos.size() > 1) {
+                        saida.write(formato == FormatoSaida.CSV ? "# " + tipo.getNome() + "\n" : "\n");
+                    }
+                    Object dados = instantaneo != null ? tipo.extrair(instantaneo) : tipo.gerar(service);
+                    FormatadorRelatorios.escrever(tipo, dados, formato, saida);
+                }
+            }
+        }
+        return SAIDA_OK;
+    }
+
+    /**
+     * Relatórios consolidados da rede de lojas (cada loja calculada em paralelo)
+     */
+    private int rede() throws PersistenciaException, IOException {
+        if (argumentos.size() < 2) {
+            return uso();
+        }
+
+        RedeLojas rede = new RedeLojas(RepositorioLojas.abrir(opcoes.getOrDefault("lojas", Configuracao.diretorioLojas())));
+        try {
+            InstantaneoRede instantaneo = rede.instantaneoRelatorios();
+            for (Map.Entry<String, InstantaneoRelatorios> loja : instantaneo.getPorLoja().entrySet()) {
+                System.err.println("Loja " + loja.getKey() + ": "
+                        + loja.getValue().getEstatisticas().get("totalMedicamentos") + " medicamentos, "
+                        + loja.getValue().getEstoqueBaixo().size() + " com estoque baixo, "
+                        + loja.getValue().getProximosVencimento().size() + " próximos ao vencimento");
+            }
+            return relatorio(null, instantaneo.getRede());
+        } finally {
+            rede.fechar();
+        }
+    }
+
+    /**
+     * Eventos do diário de alterações em JSON, um por linha, sem abrir o repositório (pode rodar ao
+     * lado da aplicação). Com --consumidor, a posição é confirmada após cada lote e a próxima
+     * execução continua dela; com --seguir, continua acompanhando o diário.
+     */
+    private int alteracoes() throws PersistenciaException, IOException, InterruptedException {
+        String arquivo = FabricaRepositorio.arquivoDiario(opcoes.get("repositorio"));
+        String consumidor = opcoes.get("consumidor");
+        File arquivoCursor = consumidor == null ? null : DiarioAlteracoes.arquivoCursor(arquivo, consumidor);
+
+        long apos = opcoes.containsKey("apos") ? Long.parseLong(opcoes.get("apos"))
+                : arquivoCursor != null ? DiarioAlteracoes.lerCursor(arquivoCursor) : 0;
+        long intervalo = opcoes.containsKey("seguir") ? Long.parseLong(opcoes.get("seguir")) : 0;
+
+        LeitorDiario leitor = new LeitorDiario(arquivo, apos);
+        try (Writer saida = abrirSaida(opcoes.get("saida"))) {
+            while (true) {
+                List<EventoAlteracao> lote = leitor.ler(LOTE_ALTERACOES);
+                for (EventoAlteracao evento : lote) {
+                    saida.write(Json.escrever(evento.paraMapa()));
+                    saida.write('\n');
+                }
+                saida.flush();
+                if (arquivoCursor != null && !lote.isEmpty()) {
+                    DiarioAlteracoes.gravarCursor(arquivoCursor, leitor.getApos());
+                }
+
+                if (lote.size() < LOTE_ALTERACOES) {
+                    if (intervalo <= 0) {
+                        break;
+                    }
+                    Thread.sleep(intervalo);
+                }
+            }
+        }
+        return SAIDA_OK;
+    }
+
+    /**
+     * Movimentos do livro de controlados em JSON, um por linha, lidos direto do livro sem abrir o
+     * repositório (pode rodar ao lado da aplicação). Datas inclusivas; "verificar" confere os
+     * CRCs e a sequência do livro inteiro.
+     */
+    private int controlados() throws PersistenciaException, IOException {
+        LivroControlados livro = LivroControlados.abrirLeitura(FabricaRepositorio.diretorioControlados(opcoes.get("repositorio")));
+        if (argumentos.size() == 2 && argumentos.get(1).equals("verificar")) {
+            long movimentos = livro.verificar();
+            System.err.println("Livro de controlados íntegro: " + movimentos + " movimentos em "
+                    + livro.quantidadeSegmentos() + " segmentos");
+            return SAIDA_OK;
+        }
+        if (argumentos.size() != 1) {
+            return uso();
+        }
+
+        String codigo = opcoes.get("codigo");
+        LocalDate de = opcoes.containsKey("de") ? LocalDate.parse(opcoes.get("de")) : null;
+        LocalDate ate = opcoes.containsKey("ate") ? LocalDate.parse(opcoes.get("ate")) : null;
+        List<MovimentoControlado> movimentos = livro.consultar(codigo == null ? null : codigo.toUpperCase(),
+                de == null ? null : de.atStartOfDay(), ate == null ? null : ate.plusDays(1).atStartOfDay());
+        try (Writer saida = abrirSaida(opcoes.get("saida"))) {
+            for (MovimentoControlado movimento : movimentos) {
+                saida.write(Json.escrever(movimento.paraMapa()));
+                saida.write('\n');
+            }
+        }
+        return SAIDA_OK;
+    }
+
+    /**
+     * Réplica de leitura de um servidor da API com replicação: mantém o CSV de destino em dia com
+     * o primário até o processo ser encerrado, retomando do cursor gravado ao lado do destino
+     */
+    private int replica() throws PersistenciaException, InterruptedException {
+        String primario = opcoes.get("primario");
+        int separador = primario == null ? -1 : primario.lastIndexOf(':');
+        if (argumentos.size() != 1 || separador <= 0) {
+            return uso();
+        }
+        String host = primario.substring(0, separador);
+        int porta = Integer.parseInt(primario.substring(separador + 1));
+
+        String arquivo = opcoes.getOrDefault("destino", DESTINO_REPLICA);
+        MedicamentoDAO destino = new MedicamentoDAO(arquivo);
+        if (!destino.disputarLideranca()) {
+            System.err.println("Outro processo já grava em " + arquivo);
+            return SAIDA_ERRO;
+        }
+        ReplicaLeitura replica = new ReplicaLeitura(host, porta, destino, arquivo + ReplicaLeitura.SUFIXO_CURSOR);
+        replica.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            replica.parar();
+            destino.fechar();
+        }, "parada-replica"));
+
+        long informada = -1;
+        while (true) {
+            long aplicada = replica.getAplicada();
+            if (aplicada != informada) {
+                System.err.println("Réplica em " + arquivo + ": sequência " + aplicada);
+                informada = aplicada;
+            }
+            Thread.sleep(INTERVALO_REPLICA_MS);
+        }
+    }
+
+    private boolean gravaNoRepositorio() {
+        String comando = argumentos.get(0);
+        return comando.equals("importar") || comando.equals("compactar")
+                || (comando.equals("lotes") && argumentos.size() > 1 && argumentos.get(1).equals("consolidar"));
+    }
+
+    private int exportar(MedicamentoService service)
+            throws PersistenciaException, IOException, InterruptedException {
+        if (argumentos.size() < 2) {
+            return uso();
+        }
+        String arquivo = argumentos.get(1);
+        FormatoSaida formato = formato(arquivo.toLowerCase().endsWith(".json") ? FormatoSaida.JSON : FormatoSaida.CSV);
+        if (formato == null || formato == FormatoSaida.TEXTO) {
+            return uso();
+        }
+
+        if (opcoes.containsKey("ordem")) {
+            return exportarOrdenado(service, arquivo, formato);
+        }
+
+        // Instantâneo: a exportação não segura nem enxerga pela metade as escritas concorrentes
+        List<Medicamento> medicamentos = service.instantaneoCatalogo().getTodos();
+        if (formato == FormatoSaida.CSV) {
+            new MedicamentoDAO(arquivo).salvarTodos(medicamentos);
+        } else {
+            try (Writer saida = abrirSaida(arquivo)) {
+                FormatadorRelatorios.escreverJson(medicamentos, saida);
+                saida.write('\n');
+            }
+        }
+
+        System.err.println("Exportados " + medicamentos.size() + " medicamentos para " + arquivo);
+        return SAIDA_OK;
+    }
+
+    /**
+     * Exportação em ordem direto do armazenamento, sem carregar o catálogo: com memória limitada
+     * (farmacia.exportacao.memoria), catálogos de qualquer tamanho
+     */
+    private int exportarOrdenado(MedicamentoService service, String arquivo, FormatoSaida formato)
+            throws PersistenciaException, IOException, InterruptedException {
+        if (arquivo.toLowerCase().endsWith(MedicamentoDAO.EXTENSAO_COMPRIMIDA)) {
+            System.err.println("Exportação ordenada grava CSV sem compressão ou JSON");
+            return SAIDA_ERRO;
+        }
+        OrdemListagem ordem;
+        try {
+            ordem = OrdemListagem.valueOf(opcoes.get("ordem").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ordem desconhecida: " + opcoes.get("ordem"));
+            return uso();
+        }
+        ExportacaoOrdenada exportacao = new ExportacaoOrdenada(ordem, Configuracao.memoriaExportacaoMb() << 20,
+                Configuracao.threadsExportacao(), new File(Configuracao.diretorioTemporarioExportacao()));
+
+        ResultadoExportacao resultado;
+        try (Writer saida = abrirSaida(arquivo)) {
+            resultado = exportacao.exportar(service::percorrerArmazenamento, formato, saida);
+        }
+        System.err.println("Exportados " + resultado.getMedicamentos() + " medicamentos para " + arquivo
+                + " por " + ordem.name().toLowerCase() + " (" + resultado.getCorridas() + " corridas em disco)");
+        return SAIDA_OK;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int importar(MedicamentoService service) throws PersistenciaException, IOException {
+        if (argumentos.size() < 2) {
+            return uso();
+        }
+        String arquivo = argumentos.get(1);
+        if (!new File(arquivo).isFile()) {
+            System.err.println("Arquivo não encontrado: " + arquivo);
+            return SAIDA_ERRO;
+        }
+
+        List<Medicamento> lote = new ArrayList<>();
+        if (arquivo.toLowerCase().endsWith(".json")) {
+            Object conteudo = Json.ler(Files.readString(Paths.get(arquivo), StandardCharsets.UTF_8));
+            if (conteudo instanceof Map) {
+                conteudo = ((Map<String, Object>) conteudo).get("itens");
+            }
+            if (!(conteudo instanceof List)) {
+                throw new IllegalArgumentException("JSON deve ser uma lista de medicamentos ou um objeto com \"itens\"");
+            }
+            for (Object item : (List<Object>) conteudo) {
+                lote.add(MedicamentoJson.deMapa((Map<String, Object>) item));
+            }
+        } else {
+            lote.addAll(new MedicamentoDAO(arquivo).carregarTodos());
+        }
+
+        ResultadoImportacao resultado = service.importar(lote);
+        for (String rejeitado : resultado.getRejeitados()) {
+            System.err.println("Rejeitado " + rejeitado);
+        }
+        System.err.println("Importação concluída: " + resultado);
+        return resultado.getRejeitados().isEmpty() ? SAIDA_OK : SAIDA_ERRO;
+    }
+
+    private int compactar(MedicamentoService service) throws PersistenciaException {
+        service.compactarRepositorio();
+        System.err.println("Repositório compactado: " + service.descricaoRepositorio());
+        return SAIDA_OK;
+    }
+
+    private int lotes(MedicamentoService service)
+            throws PersistenciaException, ValidacaoException, IOException {
+        String acao = argumentos.size() > 1 ? argumentos.get(1) : "";
+        if (acao.equals("consolidar") && argumentos.size() == 2) {
+            int absorvidos = service.consolidarLotes();
+            System.err.println(absorvidos == 0 ? "Nenhum código repetido"
+                    : "Registros consolidados em lotes: " + absorvidos);
+            return SAIDA_OK;
+        }
+        if (acao.equals("listar") && argumentos.size() == 3) {
+            return imprimirLotes(service.consultar(argumentos.get(2).toUpperCase()));
+        }
+        if (acao.equals("receber") && argumentos.size() == 6) {
+            Lote lote = new Lote(argumentos.get(3), LocalDate.parse(argumentos.get(4)),
+                    Integer.parseInt(argumentos.get(5)));
+            return imprimirLotes(service.receberLote(argumentos.get(2).toUpperCase(), lote));
+        }
+        return uso();
+    }
+
+    private int imprimirLotes(Medicamento medicamento) throws IOException {
+        if (medicamento == null) {
+            System.err.println("Medicamento não encontrado");
+            return SAIDA_ERRO;
+        }
+        try (Writer saida = abrirSaida(null)) {
+            saida.write(medicamento + ": " + medicamento.getQuantidadeEstoque() + " un.\n");
+            for (Lote lote : medicamento.getLotes()) {
+                saida.write("  " + lote + "\n");
+            }
+        }
+        return SAIDA_OK;
+    }
+
+    /**
+     * Pedidos de compra de reposição: um CSV por fornecedor no diretório (padrão data/pedidos)
+     * e um resumo por fornecedor na saída
+     */
+    private int pedidos(MedicamentoService service) throws PersistenciaException, IOException {
+        if (argumentos.size() != 1) {
+            return uso();
+        }
+        List<PedidoCompra> pedidos = service.pedidosCompra();
+        File diretorio = new File(opcoes.getOrDefault("saida", DIRETORIO_PEDIDOS));
+        GeradorPedidos.gravar(pedidos, diretorio);
+
+        try (Writer saida = abrirSaida(null)) {
+            for (PedidoCompra pedido : pedidos) {
+                saida.write(pedido.nomeArquivo() + ": " + pedido + "\n");
+            }
+        }
+        System.err.println(pedidos.size() + " pedidos gravados em " + diretorio.getPath());
+        return SAIDA_OK;
+    }
+
+    /**
+     * Grupos de possíveis produtos duplicados, para revisão do cadastro: em texto, um grupo por
+     * bloco; em JSON, um grupo por linha
+     */
+    private int duplicados(MedicamentoService service) throws PersistenciaException, IOException {
+        FormatoSaida formato = formato(FormatoSaida.TEXTO);
+        if (argumentos.size() != 1 || formato == null || formato == FormatoSaida.CSV) {
+            return uso();
+        }
+        double limiar = opcoes.containsKey("limiar") ? Double.parseDouble(opcoes.get("limiar")) : DetectorDuplicados.LIMIAR_PADRAO;
+        if (limiar <= 0 || limiar > 1) {
+            throw new IllegalArgumentException("Limiar deve estar entre 0 (exclusive) e 1: " + limiar);
+        }
+
+        List<GrupoDuplicados> grupos = service.relatorioDuplicados(limiar);
+        long medicamentos = 0;
+        try (Writer saida = abrirSaida(opcoes.get("saida"))) {
+            for (GrupoDuplicados grupo : grupos) {
+                medicamentos += grupo.getMedicamentos().size();
+                if (formato == FormatoSaida.JSON) {
+                    Map<String, Object> mapa = new LinkedHashMap<>();
+                    mapa.put("chave", grupo.getChave());
+                    mapa.put("similaridade", Math.round(grupo.getSimilaridade() * 100) / 100.0);
+                    List<Object> itens = new ArrayList<>();
+                    for (Medicamento medicamento : grupo.getMedicamentos()) {
+                        itens.add(MedicamentoJson.paraMapa(medicamento));
+                    }
+                    mapa.put("medicamentos", itens);
+                    saida.write(Json.escrever(mapa));
+                    saida.write('\n');
+                } else {
+                    saida.write(grupo + "\n");
+                    for (Medicamento medicamento : grupo.getMedicamentos()) {
+                        saida.write("  " + medicamento.getCodigo() + "  " + medicamento.getNome() + " ("
+                                + medicamento.getPrincipioAtivo() + ")\n");
+                    }
+                }
+            }
+        }
+        System.err.println(grupos.size() + " grupos de possíveis duplicados, " + medicamentos + " medicamentos");
+        return SAIDA_OK;
+    }
+
+    // ========== AUXILIARES ==========
+
+    private FormatoSaida formato(FormatoSaida padrao) {
+        String nome = opcoes.get("formato");
+        return nome == null ? padrao : FormatoSaida.porNome(nome);
+    }
+
+    /**
+     * Saída em fluxo (UTF-8, com buffer): o arquivo informado ou System.out (que não é fechado)
+     */
+    private static Writer abrirSaida(String arquivo) throws IOException {
+        if (arquivo != null) {
+            return Files.newBufferedWriter(Paths.get(arquivo), StandardCharsets.UTF_8);
+        }
+        return new BufferedWriter(new OutputStreamWriter(new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int inicio, int tamanho) throws IOException {
+                out.write(b, inicio, tamanho);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static int uso() {
+        StringBuilder nomes = new StringBuilder();
+        for (TipoRelatorio tipo : TipoRelatorio.values()) {
+            nomes.append(nomes.length() == 0 ? "" : "|").append(tipo.getNome());
+        }
+        System.err.println("Uso: LinhaComando [--repositorio tipo[:caminho]] <comando>\n"
+                + "  relatorio <" + nomes + "|todos> [--formato texto|csv|json] [--saida arquivo]\n"
+                + "  rede <" + nomes + "|todos> [--lojas diretorio] [--formato texto|csv|json] [--saida arquivo]\n"
+                + "  exportar <arquivo.csv|arquivo.json> [--formato csv|json] [--ordem codigo|nome|validade]\n"
+                + "  importar <arquivo.csv|arquivo.json>\n"
+                + "  compactar\n"
+                + "  lotes consolidar | lotes listar <codigo> | lotes receber <codigo> <numero> <validade> <quantidade>\n"
+                + "  alteracoes [--apos sequencia] [--consumidor nome] [--seguir intervaloMs] [--saida arquivo]\n"
+                + "  controlados [--codigo codigo] [--de data] [--ate data] [--saida arquivo] | controlados verificar\n"
+                + "  pedidos [--saida diretorio]\n"
+                + "  duplicados [--limiar 0.6] [--formato texto|json] [--saida arquivo]\n"
+                + "  replica --primario host:porta [--destino arquivo.csv]");
+        return SAIDA_USO;
+    }
+}
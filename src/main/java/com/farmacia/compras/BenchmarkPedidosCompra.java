@@ -0,0 +1,137 @@
+package com.farmacia.compras;
+
+import com.farmacia.historico.HistoricoEstoque;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark do gerador de pedidos de compra: catálogo sintético (um quinto com controle por lote,
+ * fornecedores distintos com a mesma razão social) com duas semanas de histórico de consumo em
+ * memória; mede a geração sequencial e a paralela (melhor de várias rodadas) e a gravação dos
+ * arquivos num diretório temporário, apagado no fim.
+ *
+ * Uso: BenchmarkPedidosCompra [itens] [fornecedores]
+ */
+public class BenchmarkPedidosCompra {
+    private static final int RODADAS = 5;
+    private static final int DIAS_HISTORICO = 14;
+
+    public static void main(String[] args) throws Exception {
+        int itens = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int quantidadeFornecedores = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        LocalDate hoje = LocalDate.now();
+        Random aleatorio = new Random(42);
+
+        List<Fornecedor> fornecedores = new ArrayList<>();
+        for (int i = 0; i < quantidadeFornecedores; i++) {
+            // Razões sociais repetidas de propósito: o agrupamento é pelo CNPJ
+            fornecedores.add(new Fornecedor(String.format("%014d", 10_000_000_000_000L + i),
+                    "Distribuidora " + (i % 50), "", "", "", ""));
+        }
+
+        List<Medicamento> catalogo = new ArrayList<>(itens);
+        HistoricoEstoque historico = HistoricoEstoque.emMemoria(HistoricoEstoque.JANELA_PADRAO,
+                HistoricoEstoque.PRAZO_PADRAO);
+        int[] consumo = new int[itens];
+        for (int i = 0; i < itens; i++) {
+            int estoque = aleatorio.nextInt(300);
+            Medicamento m = new Medicamento(String.format("MED%07d", i), "Medicamento " + i, "", "",
+                    hoje.plusDays(aleatorio.nextInt(400)), estoque, 1250, false,
+                    fornecedores.get(aleatorio.nextInt(quantidadeFornecedores)));
+            if (i % 5 == 0) {
+                m.setLotes(List.of(new Lote("A", hoje.plusDays(3), estoque / 2),
+                        new Lote("B", hoje.plusDays(200), estoque - estoque / 2)));
+            }
+            catalogo.add(m);
+            consumo[i] = aleatorio.nextInt(10);
+        }
+
+        long inicio = System.nanoTime();
+        for (int d = DIAS_HISTORICO; d >= 1; d--) {
+            Map<String, Integer> niveis = new HashMap<>(itens * 2);
+            for (int i = 0; i < itens; i++) {
+                Medicamento m = catalogo.get(i);
+                niveis.put(m.getCodigo(), m.getQuantidadeEstoque() + d * consumo[i]);
+            }
+            historico.registrar(niveis, hoje.minusDays(d));
+        }
+        System.out.printf("%d itens, %d fornecedores (histórico de %d dias montado em %.1fs)%n%n",
+                itens, quantidadeFornecedores, DIAS_HISTORICO, (System.nanoTime() - inicio) / 1e9);
+
+        GeradorPedidos gerador = new GeradorPedidos(m -> historico.prever(m, hoje, 5), hoje,
+                HistoricoEstoque.PRAZO_PADRAO, GeradorPedidos.COBERTURA_PADRAO);
+        long sequencial = Long.MAX_VALUE;
+        long paralelo = Long.MAX_VALUE;
+        List<PedidoCompra> pedidos = null;
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            inicio = System.nanoTime();
+            List<PedidoCompra> sequenciais = gerador.gerar(catalogo, false);
+            sequencial = Math.min(sequencial, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            pedidos = gerador.gerar(catalogo, true);
+            paralelo = Math.min(paralelo, System.nanoTime() - inicio);
+
+            if (!iguais(sequenciais, pedidos)) {
+                throw new IllegalStateException("Geração paralela difere da sequencial");
+            }
+        }
+        int linhas = 0;
+        for (PedidoCompra pedido : pedidos) {
+            linhas += pedido.getItens().size();
+        }
+        System.out.printf("pedidos: %d, itens: %d%n", pedidos.size(), linhas);
+        System.out.printf("geração sequencial: %.0fms, paralela: %.0fms (%d núcleos)%n",
+                sequencial / 1e6, paralelo / 1e6, Runtime.getRuntime().availableProcessors());
+
+        File diretorio = Files.createTempDirectory("farmacia-pedidos").toFile();
+        try {
+            inicio = System.nanoTime();
+            List<File> arquivos = GeradorPedidos.gravar(pedidos, diretorio);
+            long bytes = 0;
+            for (File arquivo : arquivos) {
+                bytes += arquivo.length();
+            }
+            System.out.printf("gravação: %d arquivos, %.1f MB em %.0fms%n",
+                    arquivos.size(), bytes / 1e6, (System.nanoTime() - inicio) / 1e6);
+        } finally {
+            File[] arquivos = diretorio.listFiles();
+            if (arquivos != null) {
+                for (File arquivo : arquivos) {
+                    arquivo.delete();
+                }
+            }
+            diretorio.delete();
+        }
+    }
+
+    private static boolean iguais(List<PedidoCompra> a, List<PedidoCompra> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            List<ItemPedido> x = a.get(i).getItens();
+            List<ItemPedido> y = b.get(i).getItens();
+            if (!a.get(i).getCnpj().equals(b.get(i).getCnpj()) || x.size() != y.size()) {
+                return false;
+            }
+            for (int j = 0; j < x.size(); j++) {
+                if (x.get(j).getMedicamento() != y.get(j).getMedicamento()
+                        || x.get(j).getQuantidade() != y.get(j).getQuantidade()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+package com.farmacia.compras;
+
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Gera os pedidos de compra de reposição, um por fornecedor (CNPJ).
+ * <p>
+ * Um medicamento entra no pedido quando o estoque útil (o que não vence antes de a reposição
+ * chegar, no fim do prazo) fica abaixo do ponto de pedido da {@link PrevisaoRuptura}; a quantidade
+ * pedida leva o estoque útil ao ponto de pedido mais o consumo de {@code cobertura} dias. Sem
+ * histórico de consumo, o pedido só completa o limite fixo.
+ * <p>
+ * O catálogo é agrupado por CNPJ numa passada paralela (pool fork-join comum); cada pedido tem os
+ * itens em ordem de código e a lista sai em ordem de CNPJ, igual à versão sequencial.
+ */
+public final class GeradorPedidos {
+    static final String PREFIXO_ARQUIVO = "pedido-";
+    /** Dias de consumo cobertos por um pedido, além do ponto de pedido */
+    public static final int COBERTURA_PADRAO = 30;
+
+    private static final Comparator<ItemPedido> POR_CODIGO = Comparator.comparing(i -> i.getMedicamento().getCodigo());
+
+    private final Function<Medicamento, PrevisaoRuptura> previsor;
+    private final LocalDate hoje;
+    private final int prazo;
+    private final int cobertura;
+
+    public GeradorPedidos(Function<Medicamento, PrevisaoRuptura> previsor, LocalDate hoje, int prazo, int cobertura) {
+        this.previsor = previsor;
+        this.hoje = hoje;
+        this.prazo = prazo;
+        this.cobertura = cobertura;
+    }
+
+    /**
+     * Pedidos do catálogo, em ordem de CNPJ (medicamentos sem CNPJ ficam de fora)
+     */
+    public List<PedidoCompra> gerar(List<Medicamento> catalogo, boolean paralelo) {
+        Stream<Medicamento> fluxo = paralelo ? catalogo.parallelStream() : catalogo.stream();
+        Map<String, List<ItemPedido>> porCnpj = fluxo
+                .filter(m -> cnpj(m) != null)
+                .map(this::item)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingByConcurrent(i -> cnpj(i.getMedicamento())));
+
+        Stream<Map.Entry<String, List<ItemPedido>>> grupos = paralelo
+                ? porCnpj.entrySet().parallelStream()
+                : porCnpj.entrySet().stream();
+        return grupos
+                .map(grupo -> pedido(grupo.getKey(), grupo.getValue()))
+                .sorted(Comparator.comparing(PedidoCompra::getCnpj))
+                .collect(Collectors.toList());
+    }
+
+    private PedidoCompra pedido(String cnpj, List<ItemPedido> itens) {
+        List<ItemPedido> ordenados = new ArrayList<>(itens);
+        ordenados.sort(POR_CODIGO);
+        Fornecedor fornecedor = ordenados.get(0).getMedicamento().getFornecedor();
+        return new PedidoCompra(cnpj, fornecedor, hoje, ordenados);
+    }
+
+    /**
+     * Item de pedido do medicamento; null se o estoque útil cobre o ponto de pedido
+     */
+    ItemPedido item(Medicamento medicamento) {
+        PrevisaoRuptura previsao = previsor.apply(medicamento);
+        int util = estoqueUtil(medicamento, hoje.plusDays(prazo));
+        if (util >= previsao.getPontoPedido()) {
+            return null;
+        }
+        int alvo = previsao.getPontoPedido() + (int) Math.ceil(previsao.getConsumoDiario() * cobertura);
+        return new ItemPedido(medicamento, util, previsao.getPontoPedido(), previsao.getConsumoDiario(), alvo - util);
+    }
+
+    /**
+     * Estoque com validade posterior à data (por lote, quando há controle por lote)
+     */
+    static int estoqueUtil(Medicamento medicamento, LocalDate data) {
+        if (!medicamento.temLotes()) {
+            return medicamento.getDataValidade().isAfter(data) ? medicamento.getQuantidadeEstoque() : 0;
+        }
+        int util = 0;
+        for (Lote lote : medicamento.getLotes()) {
+            if (lote.getDataValidade().isAfter(data)) {
+                util += lote.getQuantidade();
+            }
+        }
+        return util;
+    }
+
+    private static String cnpj(Medicamento medicamento) {
+        Fornecedor fornecedor = medicamento.getFornecedor();
+        if (fornecedor == null || fornecedor.getCnpj() == null) {
+            return null;
+        }
+        String cnpj = fornecedor.getCnpj();
+        StringBuilder digitos = null;
+        for (int i = 0; i < cnpj.length(); i++) {
+            char c = cnpj.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digitos != null) {
+                    digitos.append(c);
+                }
+            } else if (digitos == null) {
+                // Formatado (pontos, barra, hífen): só então monta a cópia com os dígitos
+                digitos = new StringBuilder(14).append(cnpj, 0, i);
+            }
+        }
+        String resultado = digitos == null ? cnpj : digitos.toString();
+        return resultado.isEmpty() ? null : resultado;
+    }
+
+    // ========== ARQUIVOS ==========
+
+    /**
+     * Grava um arquivo CSV por pedido no diretório (cada um por troca atômica) e apaga os pedidos
+     * de uma geração anterior que não se repetiram
+     *
+     * @return arquivos gravados, na ordem dos pedidos
+     */
+    public static List<File> gravar(List<PedidoCompra> pedidos, File diretorio) throws IOException {
+        Files.createDirectories(diretorio.toPath());
+        List<File> arquivos = new ArrayList<>(pedidos.size());
+        Set<String> nomes = new HashSet<>();
+        for (PedidoCompra pedido : pedidos) {
+            File arquivo = new File(diretorio, pedido.nomeArquivo());
+            File temporario = new File(diretorio, pedido.nomeArquivo() + ".tmp");
+            try (Writer saida = Files.newBufferedWriter(temporario.toPath(), StandardCharsets.UTF_8)) {
+                pedido.escreverCsv(saida);
+            }
+            Files.move(temporario.toPath(), arquivo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            arquivos.add(arquivo);
+            nomes.add(arquivo.getName());
+        }
+
+        File[] anteriores = diretorio.listFiles((dir, nome) -> nome.startsWith(PREFIXO_ARQUIVO)
+                && nome.endsWith(".csv") && !nomes.contains(nome));
+        if (anteriores != null) {
+            for (File anterior : anteriores) {
+                Files.delete(anterior.toPath());
+            }
+        }
+        return arquivos;
+    }
+}
@@ -0,0 +1,46 @@
+package com.farmacia.compras;
+
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Medicamento;
+
+/**
+ * Linha de um pedido de compra: quantidade a pedir de um medicamento e os números que a
+ * justificam (estoque útil, ponto de pedido e consumo diário). Imutável.
+ */
+public final class ItemPedido {
+    private final Medicamento medicamento;
+    private final int estoqueUtil;
+    private final int pontoPedido;
+    private final double consumoDiario;
+    private final int quantidade;
+
+    ItemPedido(Medicamento medicamento, int estoqueUtil, int pontoPedido, double consumoDiario, int quantidade) {
+        this.medicamento = medicamento;
+        this.estoqueUtil = estoqueUtil;
+        this.pontoPedido = pontoPedido;
+        this.consumoDiario = consumoDiario;
+        this.quantidade = quantidade;
+    }
+
+    public Medicamento getMedicamento() { return medicamento; }
+
+    /**
+     * Estoque que não vence antes da reposição chegar
+     */
+    public int getEstoqueUtil() { return estoqueUtil; }
+    public int getPontoPedido() { return pontoPedido; }
+    public double getConsumoDiario() { return consumoDiario; }
+    public int getQuantidade() { return quantidade; }
+
+    /**
+     * Valor estimado da linha em centavos, pelo preço cadastrado
+     */
+    public long getValorCentavos() {
+        return Dinheiro.multiplicar(medicamento.getPrecoCentavos(), quantidade);
+    }
+
+    @Override
+    public String toString() {
+        return medicamento.getCodigo() + " x" + quantidade;
+    }
+}
@@ -0,0 +1,96 @@
+package com.farmacia.compras;
+
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Fornecedor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Pedido de compra de um fornecedor (identificado pelo CNPJ, só dígitos), com os itens em ordem
+ * de código. Imutável.
+ */
+public final class PedidoCompra {
+    static final String CABECALHO = "codigo;nome;quantidade;estoqueUtil;pontoPedido;consumoDiario;precoUnitario;valor";
+
+    private final String cnpj;
+    private final Fornecedor fornecedor;
+    private final LocalDate data;
+    private final List<ItemPedido> itens;
+    private final int quantidadeTotal;
+    private final long valorTotalCentavos;
+
+    PedidoCompra(String cnpj, Fornecedor fornecedor, LocalDate data, List<ItemPedido> itens) {
+        this.cnpj = cnpj;
+        this.fornecedor = fornecedor;
+        this.data = data;
+        this.itens = List.copyOf(itens);
+        int quantidade = 0;
+        long valor = 0;
+        for (ItemPedido item : itens) {
+            quantidade += item.getQuantidade();
+            valor = Dinheiro.somar(valor, item.getValorCentavos());
+        }
+        this.quantidadeTotal = quantidade;
+        this.valorTotalCentavos = valor;
+    }
+
+    public String getCnpj() { return cnpj; }
+
+    /**
+     * Dados do fornecedor como cadastrados no primeiro item (em ordem de código)
+     */
+    public Fornecedor getFornecedor() { return fornecedor; }
+    public LocalDate getData() { return data; }
+    public List<ItemPedido> getItens() { return itens; }
+    public int getQuantidadeTotal() { return quantidadeTotal; }
+    public long getValorTotalCentavos() { return valorTotalCentavos; }
+
+    /**
+     * Nome do arquivo do pedido: {@code pedido-<cnpj>.csv}
+     */
+    public String nomeArquivo() {
+        return GeradorPedidos.PREFIXO_ARQUIVO + cnpj + ".csv";
+    }
+
+    /**
+     * Pedido em CSV: uma linha de comentário com fornecedor e data, cabeçalho e um item por linha
+     */
+    public void escreverCsv(Writer saida) throws IOException {
+        saida.write("# Pedido de compra " + data + " - " + fornecedor.getRazaoSocial() + " (CNPJ " + cnpj + ")\n");
+        saida.write(CABECALHO);
+        saida.write('\n');
+        StringBuilder linha = new StringBuilder(128);
+        for (ItemPedido item : itens) {
+            linha.setLength(0);
+            linha.append(item.getMedicamento().getCodigo()).append(';')
+                    .append(item.getMedicamento().getNome()).append(';')
+                    .append(item.getQuantidade()).append(';')
+                    .append(item.getEstoqueUtil()).append(';')
+                    .append(item.getPontoPedido()).append(';')
+                    .append(duasCasas(item.getConsumoDiario())).append(';')
+                    .append(Dinheiro.formatar(item.getMedicamento().getPrecoCentavos())).append(';')
+                    .append(Dinheiro.formatar(item.getValorCentavos())).append('\n');
+            saida.append(linha);
+        }
+    }
+
+    /**
+     * Valor com duas casas e ponto decimal, sem o custo de {@code String.format} por linha
+     */
+    static String duasCasas(double valor) {
+        long centesimos = Math.round(valor * 100);
+        String sinal = centesimos < 0 ? "-" : "";
+        centesimos = Math.abs(centesimos);
+        long resto = centesimos % 100;
+        return sinal + centesimos / 100 + (resto < 10 ? ".0" : ".") + resto;
+    }
+
+    @Override
+    public String toString() {
+        return fornecedor.getRazaoSocial() + " (" + cnpj + "): " + itens.size() + " itens, "
+                + quantidadeTotal + " un., R$ " + Dinheiro.formatar(valorTotalCentavos);
+    }
+}
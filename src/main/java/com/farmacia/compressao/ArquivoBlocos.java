@@ -0,0 +1,125 @@
+package com.farmacia.compressao;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Leitura de um arquivo gravado por {@link SaidaBlocos}, com acesso direto a cada bloco pelo
+ * índice do fim do arquivo. A leitura de blocos é segura entre threads (leitura posicional),
+ * o que permite descomprimir e interpretar os blocos em paralelo.
+ * <p>
+ * Formato: assinatura e tamanho de bloco (8 bytes), os blocos comprimidos, o índice (posição,
+ * tamanho comprimido, tamanho original e CRC32 de cada bloco) e o rodapé (posição do índice,
+ * quantidade de blocos e assinatura).
+ */
+public class ArquivoBlocos implements Closeable {
+    static final int ASSINATURA = 0x465A4231; // "FZB1"
+    static final int TAMANHO_CABECALHO = 8;
+    private static final int TAMANHO_RODAPE = 16;
+    private static final int TAMANHO_ENTRADA = 20;
+
+    private final File arquivo;
+    private final FileChannel canal;
+    private final long[] posicoes;
+    private final int[] comprimidos;
+    private final int[] originais;
+    private final int[] crcs;
+
+    private ArquivoBlocos(File arquivo, FileChannel canal) throws IOException {
+        this.arquivo = arquivo;
+        this.canal = canal;
+
+        long tamanho = canal.size();
+        if (tamanho < TAMANHO_CABECALHO + TAMANHO_RODAPE || lerInt(0) != ASSINATURA) {
+            throw new IOException("Arquivo em blocos inválido: " + arquivo.getPath());
+        }
+        ByteBuffer rodape = ler(tamanho - TAMANHO_RODAPE, TAMANHO_RODAPE);
+        long posicaoIndice = rodape.getLong();
+        int quantidade = rodape.getInt();
+        if (rodape.getInt() != ASSINATURA || quantidade < 0
+                || posicaoIndice + (long) quantidade * TAMANHO_ENTRADA != tamanho - TAMANHO_RODAPE) {
+            throw new IOException("Índice de blocos inválido (arquivo incompleto?): " + arquivo.getPath());
+        }
+
+        posicoes = new long[quantidade];
+        comprimidos = new int[quantidade];
+        originais = new int[quantidade];
+        crcs = new int[quantidade];
+        ByteBuffer indice = ler(posicaoIndice, quantidade * TAMANHO_ENTRADA);
+        for (int i = 0; i < quantidade; i++) {
+            posicoes[i] = indice.getLong();
+            comprimidos[i] = indice.getInt();
+            originais[i] = indice.getInt();
+            crcs[i] = indice.getInt();
+        }
+    }
+
+    public static ArquivoBlocos abrir(File arquivo) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+        try {
+            return new ArquivoBlocos(arquivo, canal);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    public int quantidadeBlocos() {
+        return posicoes.length;
+    }
+
+    /**
+     * Tamanho dos dados descomprimidos
+     */
+    public long tamanhoOriginal() {
+        long total = 0;
+        for (int original : originais) {
+            total += original;
+        }
+        return total;
+    }
+
+    /**
+     * Conteúdo descomprimido do bloco (verificado pelo CRC32)
+     */
+    public byte[] lerBloco(int bloco) throws IOException {
+        ByteBuffer comprimido = ler(posicoes[bloco], comprimidos[bloco]);
+        byte[] dados;
+        try {
+            dados = CodecLz.descomprimir(comprimido.array(), 0, comprimidos[bloco], originais[bloco]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bloco " + bloco + " corrompido em " + arquivo.getPath(), e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        if ((int) crc.getValue() != crcs[bloco]) {
+            throw new IOException("Bloco " + bloco + " com CRC inválido em " + arquivo.getPath());
+        }
+        return dados;
+    }
+
+    private int lerInt(long posicao) throws IOException {
+        return ler(posicao, 4).getInt();
+    }
+
+    private ByteBuffer ler(long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        while (buffer.hasRemaining()) {
+            int lidos = canal.read(buffer, posicao + buffer.position());
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do arquivo em blocos: " + arquivo.getPath());
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
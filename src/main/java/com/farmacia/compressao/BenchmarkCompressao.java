@@ -0,0 +1,123 @@
+package com.farmacia.compressao;
+
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark do CSV comprimido em blocos contra o CSV simples: tamanho em disco e tempo de
+ * carga (mediana de várias cargas completas pelo {@link MedicamentoDAO}), além da vazão do codec.
+ * A cópia comprimida é gravada num diretório temporário e apagada no fim.
+ *
+ * Uso: BenchmarkCompressao &lt;arquivo.csv&gt; [cargas]
+ */
+public class BenchmarkCompressao {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: BenchmarkCompressao <arquivo.csv> [cargas]");
+            System.exit(2);
+        }
+        File original = new File(args[0]);
+        int cargas = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+
+        File diretorio = Files.createTempDirectory("farmacia-compressao").toFile();
+        File simples = new File(diretorio, "medicamentos.csv");
+        File comprimido = new File(diretorio, "medicamentos" + MedicamentoDAO.EXTENSAO_COMPRIMIDA);
+        try {
+            List<Medicamento> medicamentos = new MedicamentoDAO(original.getPath()).carregarTodos();
+            new MedicamentoDAO(simples.getPath()).salvarTodos(medicamentos);
+
+            long inicio = System.nanoTime();
+            new MedicamentoDAO(comprimido.getPath()).salvarTodos(medicamentos);
+            long gravacao = System.nanoTime() - inicio;
+
+            List<Medicamento> lidos = new MedicamentoDAO(comprimido.getPath()).carregarTodos();
+            if (!mesmoConteudo(medicamentos, lidos)) {
+                System.err.println("Conteúdo descomprimido difere do original");
+                System.exit(1);
+            }
+
+            System.out.printf("%d medicamentos, %d cargas (mediana), %d threads no pool comum%n%n",
+                    medicamentos.size(), cargas, Runtime.getRuntime().availableProcessors());
+            System.out.printf("%-14s %14s %10s %12s%n", "formato", "bytes", "taxa", "carga p50");
+            long tempoSimples = medianaCarga(simples, cargas);
+            long tempoComprimido = medianaCarga(comprimido, cargas);
+            System.out.printf("%-14s %14d %10s %10.1fms%n", "csv", simples.length(), "1.00", tempoSimples / 1e6);
+            System.out.printf("%-14s %14d %10.2f %10.1fms%n", "csv em blocos", comprimido.length(),
+                    (double) simples.length() / comprimido.length(), tempoComprimido / 1e6);
+
+            byte[] dados = Files.readAllBytes(simples.toPath());
+            medirCodec(dados);
+            System.out.printf("%ngravação comprimida: %.1fms%n", gravacao / 1e6);
+        } finally {
+            simples.delete();
+            comprimido.delete();
+            diretorio.delete();
+        }
+    }
+
+    private static long medianaCarga(File arquivo, int cargas) throws Exception {
+        // Aquecimento: JIT e cache de disco
+        new MedicamentoDAO(arquivo.getPath()).carregarTodos();
+
+        List<Long> tempos = new ArrayList<>();
+        for (int i = 0; i < cargas; i++) {
+            MedicamentoDAO dao = new MedicamentoDAO(arquivo.getPath());
+            long inicio = System.nanoTime();
+            dao.carregarTodos();
+            tempos.add(System.nanoTime() - inicio);
+        }
+        Collections.sort(tempos);
+        return tempos.get(tempos.size() / 2);
+    }
+
+    /**
+     * Vazão do codec sobre os dados em blocos do tamanho padrão (melhor de várias rodadas,
+     * as primeiras servem de aquecimento)
+     */
+    private static void medirCodec(byte[] dados) {
+        int bloco = SaidaBlocos.TAMANHO_BLOCO_PADRAO;
+        long compressao = Long.MAX_VALUE;
+        long descompressao = Long.MAX_VALUE;
+
+        for (int rodada = 0; rodada < 8; rodada++) {
+            List<byte[]> comprimidos = new ArrayList<>();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < dados.length; i += bloco) {
+                comprimidos.add(CodecLz.comprimir(dados, i, Math.min(bloco, dados.length - i)));
+            }
+            compressao = Math.min(compressao, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            int posicao = 0;
+            for (byte[] comprimido : comprimidos) {
+                int tamanho = Math.min(bloco, dados.length - posicao);
+                CodecLz.descomprimir(comprimido, 0, comprimido.length, tamanho);
+                posicao += tamanho;
+            }
+            descompressao = Math.min(descompressao, System.nanoTime() - inicio);
+        }
+
+        double megabytes = dados.length / (1024.0 * 1024.0);
+        System.out.printf("%ncodec: compressão %.0f MB/s, descompressão %.0f MB/s%n",
+                megabytes / (compressao / 1e9), megabytes / (descompressao / 1e9));
+    }
+
+    private static boolean mesmoConteudo(List<Medicamento> a, List<Medicamento> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).toCSV().equals(b.get(i).toCSV())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+package com.farmacia.compressao;
+
+import java.util.Arrays;
+
+/**
+ * Compressor da família LZ (no estilo do LZ4), sem dependências: procura repetições de ao menos
+ * 4 bytes numa janela de 64 KB com uma tabela de hash e grava sequências de
+ * (literais, deslocamento, comprimento). Privilegia velocidade em vez da taxa de compressão.
+ * <p>
+ * Formato de cada sequência: um byte de controle (4 bits para o número de literais e 4 bits
+ * para o comprimento da repetição menos 4; o valor 15 continua em bytes seguintes, somando 255
+ * por byte até um byte menor que 255), os literais, o deslocamento da repetição (2 bytes,
+ * little-endian) e a continuação do comprimento. A última sequência tem só literais.
+ */
+public final class CodecLz {
+    private static final int REPETICAO_MINIMA = 4;
+    private static final int BITS_HASH = 14;
+    private static final int DESLOCAMENTO_MAXIMO = 65535;
+    // Os últimos bytes do bloco vão sempre como literais (simplifica os limites do compressor)
+    private static final int FIM_LITERAIS = 5;
+
+    private CodecLz() {
+    }
+
+    /**
+     * Maior tamanho possível do resultado da compressão de {@code tamanho} bytes
+     */
+    public static int limiteComprimido(int tamanho) {
+        return tamanho + tamanho / 255 + 16;
+    }
+
+    /**
+     * Comprime {@code tamanho} bytes de {@code origem} a partir de {@code inicio}
+     */
+    public static byte[] comprimir(byte[] origem, int inicio, int tamanho) {
+        byte[] destino = new byte[limiteComprimido(tamanho)];
+        int saida = 0;
+        int fim = inicio + tamanho;
+        int ancora = inicio;
+
+        if (tamanho > REPETICAO_MINIMA + FIM_LITERAIS) {
+            int[] tabela = new int[1 << BITS_HASH];
+            int limite = fim - FIM_LITERAIS - REPETICAO_MINIMA;
+            int i = inicio;
+
+            while (i <= limite) {
+                int sequencia = lerInt(origem, i);
+                int h = hash(sequencia);
+                // Posições guardadas com +1: zero indica entrada vazia
+                int candidata = tabela[h] - 1;
+                tabela[h] = i + 1;
+
+                if (candidata < inicio || i - candidata > DESLOCAMENTO_MAXIMO || lerInt(origem, candidata) != sequencia) {
+                    // Sem repetição: avança mais depressa em trechos longos sem repetições
+                    i += 1 + ((i - ancora) >> 6);
+                    continue;
+                }
+
+                // Estende a repetição para trás sobre os literais pendentes e para frente
+                while (i > ancora && candidata > inicio && origem[i - 1] == origem[candidata - 1]) {
+                    i--;
+                    candidata--;
+                }
+                int comprimento = REPETICAO_MINIMA;
+                int maximo = fim - FIM_LITERAIS - i;
+                while (comprimento < maximo && origem[i + comprimento] == origem[candidata + comprimento]) {
+                    comprimento++;
+                }
+
+                saida = escreverSequencia(destino, saida, origem, ancora, i - ancora, i - candidata, comprimento);
+                i += comprimento;
+                ancora = i;
+                if (i - 2 >= inicio && i - 2 <= limite) {
+                    tabela[hash(lerInt(origem, i - 2))] = i - 2 + 1;
+                }
+            }
+        }
+
+        saida = escreverLiterais(destino, saida, origem, ancora, fim - ancora);
+        return Arrays.copyOf(destino, saida);
+    }
+
+    /**
+     * Descomprime um bloco produzido por {@link #comprimir}
+     *
+     * @param tamanhoOriginal tamanho exato dos dados descomprimidos
+     * @throws IllegalArgumentException se o bloco estiver corrompido
+     */
+    public static byte[] descomprimir(byte[] origem, int inicio, int tamanho, int tamanhoOriginal) {
+        byte[] destino = new byte[tamanhoOriginal];
+        int fim = inicio + tamanho;
+        int i = inicio;
+        int saida = 0;
+
+        try {
+            while (i < fim) {
+                int controle = origem[i++] & 0xFF;
+
+                int literais = controle >>> 4;
+                if (literais == 15) {
+                    int b;
+                    do {
+                        b = origem[i++] & 0xFF;
+                        literais += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(origem, i, destino, saida, literais);
+                i += literais;
+                saida += literais;
+                if (i >= fim) {
+                    break; // última sequência: só literais
+                }
+
+                int deslocamento = (origem[i] & 0xFF) | ((origem[i + 1] & 0xFF) << 8);
+                i += 2;
+                int comprimento = (controle & 0x0F);
+                if (comprimento == 15) {
+                    int b;
+                    do {
+                        b = origem[i++] & 0xFF;
+                        comprimento += b;
+                    } while (b == 255);
+                }
+                comprimento += REPETICAO_MINIMA;
+
+                int de = saida - deslocamento;
+                if (deslocamento == 0 || de < 0) {
+                    throw new IllegalArgumentException("Bloco comprimido corrompido: deslocamento inválido");
+                }
+                if (deslocamento >= comprimento) {
+                    System.arraycopy(destino, de, destino, saida, comprimento);
+                    saida += comprimento;
+                } else {
+                    // Repetição sobreposta (ex.: sequência de um mesmo byte): copia byte a byte
+                    for (int k = 0; k < comprimento; k++) {
+                        destino[saida++] = destino[de + k];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Bloco comprimido corrompido", e);
+        }
+
+        if (saida != tamanhoOriginal) {
+            throw new IllegalArgumentException("Bloco comprimido corrompido: esperados "
+                    + tamanhoOriginal + " bytes, obtidos " + saida);
+        }
+        return destino;
+    }
+
+    private static int escreverSequencia(byte[] destino, int saida, byte[] origem, int inicioLiterais,
+                                         int literais, int deslocamento, int comprimento) {
+        int restante = comprimento - REPETICAO_MINIMA;
+        int posicaoControle = saida++;
+        int controle = (Math.min(literais, 15) << 4) | Math.min(restante, 15);
+        destino[posicaoControle] = (byte) controle;
+
+        saida = escreverContinuacao(destino, saida, literais);
+        System.arraycopy(origem, inicioLiterais, destino, saida, literais);
+        saida += literais;
+
+        destino[saida++] = (byte) deslocamento;
+        destino[saida++] = (byte) (deslocamento >>> 8);
+        return escreverContinuacao(destino, saida, restante);
+    }
+
+    private static int escreverLiterais(byte[] destino, int saida, byte[] origem, int inicioLiterais, int literais) {
+        destino[saida++] = (byte) (Math.min(literais, 15) << 4);
+        saida = escreverContinuacao(destino, saida, literais);
+        System.arraycopy(origem, inicioLiterais, destino, saida, literais);
+        return saida + literais;
+    }
+
+    /**
+     * Bytes de continuação de um comprimento que não coube nos 4 bits do controle
+     */
+    private static int escreverContinuacao(byte[] destino, int saida, int valor) {
+        if (valor < 15) {
+            return saida;
+        }
+        valor -= 15;
+        while (valor >= 255) {
+            destino[saida++] = (byte) 255;
+            valor -= 255;
+        }
+        destino[saida++] = (byte) valor;
+        return saida;
+    }
+
+    private static int lerInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequencia) {
+        return (sequencia * -1640531535) >>> (32 - BITS_HASH);
+    }
+}
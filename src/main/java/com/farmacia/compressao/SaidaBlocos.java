@@ -0,0 +1,132 @@
+package com.farmacia.compressao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Grava um arquivo em blocos comprimidos com {@link CodecLz} (formato lido por {@link ArquivoBlocos}).
+ * Os blocos terminam sempre num fim de linha, então cada bloco pode ser descomprimido e
+ * interpretado sozinho; o índice dos blocos vai no fim do arquivo, gravado por {@link #concluir()}.
+ */
+public class SaidaBlocos extends OutputStream {
+    public static final int TAMANHO_BLOCO_PADRAO = 128 * 1024;
+
+    private final DataOutputStream destino;
+    private final int tamanhoBloco;
+    private final ByteArrayOutputStream indice = new ByteArrayOutputStream();
+    private final DataOutputStream saidaIndice = new DataOutputStream(indice);
+    private byte[] buffer;
+    private int usados;
+    private long posicao;
+    private int blocos;
+    private boolean concluido;
+
+    public SaidaBlocos(OutputStream destino) throws IOException {
+        this(destino, TAMANHO_BLOCO_PADRAO);
+    }
+
+    public SaidaBlocos(OutputStream destino, int tamanhoBloco) throws IOException {
+        this.destino = new DataOutputStream(destino);
+        this.tamanhoBloco = tamanhoBloco;
+        this.buffer = new byte[tamanhoBloco];
+        this.destino.writeInt(ArquivoBlocos.ASSINATURA);
+        this.destino.writeInt(tamanhoBloco);
+        this.posicao = ArquivoBlocos.TAMANHO_CABECALHO;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (usados == buffer.length) {
+            esvaziar();
+        }
+        buffer[usados++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] dados, int inicio, int tamanho) throws IOException {
+        while (tamanho > 0) {
+            if (usados == buffer.length) {
+                esvaziar();
+            }
+            int parte = Math.min(tamanho, buffer.length - usados);
+            System.arraycopy(dados, inicio, buffer, usados, parte);
+            usados += parte;
+            inicio += parte;
+            tamanho -= parte;
+        }
+    }
+
+    /**
+     * Buffer cheio: grava como bloco tudo até o último fim de linha. Se não houver nenhum
+     * (linha maior que o bloco), o buffer cresce até a linha terminar.
+     */
+    private void esvaziar() throws IOException {
+        int corte = usados;
+        while (corte > 0 && buffer[corte - 1] != '\n') {
+            corte--;
+        }
+        if (corte == 0) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            return;
+        }
+
+        gravarBloco(buffer, corte);
+        System.arraycopy(buffer, corte, buffer, 0, usados - corte);
+        usados -= corte;
+        if (buffer.length > tamanhoBloco && usados <= tamanhoBloco) {
+            buffer = Arrays.copyOf(buffer, tamanhoBloco);
+        }
+    }
+
+    private void gravarBloco(byte[] dados, int tamanho) throws IOException {
+        byte[] comprimido = CodecLz.comprimir(dados, 0, tamanho);
+        CRC32 crc = new CRC32();
+        crc.update(dados, 0, tamanho);
+
+        destino.write(comprimido);
+        saidaIndice.writeLong(posicao);
+        saidaIndice.writeInt(comprimido.length);
+        saidaIndice.writeInt(tamanho);
+        saidaIndice.writeInt((int) crc.getValue());
+        posicao += comprimido.length;
+        blocos++;
+    }
+
+    /**
+     * Grava o último bloco e o índice. Depois disso não se pode mais escrever.
+     */
+    public void concluir() throws IOException {
+        if (concluido) {
+            return;
+        }
+        concluido = true;
+        if (usados > 0) {
+            gravarBloco(buffer, usados);
+            usados = 0;
+        }
+        long posicaoIndice = posicao;
+        indice.writeTo(destino);
+        destino.writeLong(posicaoIndice);
+        destino.writeInt(blocos);
+        destino.writeInt(ArquivoBlocos.ASSINATURA);
+        destino.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        destino.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            concluir();
+        } finally {
+            destino.close();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.farmacia.config;
+
+import com.farmacia.log.Nivel;
+
+/**
+ * Parâmetros de configuração do sistema, lidos de propriedades de sistema (-Dchave=valor)
+ */
+public final class Configuracao {
+
+    private Configuracao() {}
+
+    /**
+     * Tipo de repositório: "csv" (padrão) ou "embarcado"
+     */
+    public static String tipoRepositorio() {
+        return System.getProperty("farmacia.repositorio", "csv").trim().toLowerCase();
+    }
+
+    /**
+     * Arquivo do repositório CSV
+     */
+    public static String arquivoCsv() {
+        return System.getProperty("farmacia.csv.arquivo", "data/medicamentos.csv");
+    }
+
+    /**
+     * Vigia o diretório do repositório CSV e aplica as alterações feitas no arquivo por outros programas
+     */
+    public static boolean vigiarCsv() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.csv.vigiar", "true"));
+    }
+
+    /**
+     * Tempo, em milissegundos, sem novos eventos no arquivo vigiado antes de aplicar a alteração externa
+     */
+    public static long esperaVigiaCsvMs() {
+        return lerLong("farmacia.csv.vigiar.espera", 500);
+    }
+
+    /**
+     * Disputa a liderança do repositório CSV: com outro processo gravando no mesmo arquivo, este
+     * abre como seguidor, somente leitura
+     */
+    public static boolean liderancaCsv() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.csv.lideranca", "true"));
+    }
+
+    /**
+     * Caminho (sem extensão) do banco do repositório embarcado
+     */
+    public static String bancoEmbarcado() {
+        return System.getProperty("farmacia.embarcado.banco", "data/medicamentos");
+    }
+
+    /**
+     * Diretório da rede de lojas (um arquivo CSV, ou um diretório, por loja)
+     */
+    public static String diretorioLojas() {
+        return System.getProperty("farmacia.lojas.diretorio", "data/lojas");
+    }
+
+    /**
+     * Publica as alterações do catálogo no fluxo de alterações, com diário durável ao lado dos dados
+     */
+    public static boolean alteracoesAtivas() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.alteracoes.ativo", "true"));
+    }
+
+    /**
+     * Eventos de alteração mantidos em memória (anel) para as assinaturas
+     */
+    public static int capacidadeAlteracoes() {
+        return (int) lerLong("farmacia.alteracoes.capacidade", 4096);
+    }
+
+    /**
+     * Espera máxima, em milissegundos, de quem altera o catálogo por uma assinatura atrasada
+     */
+    public static long esperaAlteracoesMs() {
+        return lerLong("farmacia.alteracoes.espera", 2000);
+    }
+
+    /**
+     * Força cada evento do diário de alterações para o disco (fsync)
+     */
+    public static boolean sincronizarAlteracoes() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.alteracoes.sincronizar", "false"));
+    }
+
+    /**
+     * Registra os movimentos de medicamentos controlados no livro de controlados, ao lado dos dados
+     */
+    public static boolean controladosAtivos() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.controlados.ativo", "true"));
+    }
+
+    /**
+     * Força cada gravação do livro de controlados para o disco (fsync)
+     */
+    public static boolean sincronizarControlados() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.controlados.sincronizar", "false"));
+    }
+
+    /**
+     * Tamanho, em bytes, a partir do qual o livro de controlados começa um novo segmento
+     */
+    public static long tamanhoSegmentoControlados() {
+        return lerLong("farmacia.controlados.segmento", 16L * 1024 * 1024);
+    }
+
+    /**
+     * Registra o histórico diário de estoque usado na previsão de ruptura, ao lado dos dados
+     */
+    public static boolean historicoAtivo() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.historico.ativo", "true"));
+    }
+
+    /**
+     * Dias fechados do histórico usados no cálculo do consumo diário
+     */
+    public static int janelaConsumo() {
+        return (int) Math.max(1, lerLong("farmacia.historico.janela", 28));
+    }
+
+    /**
+     * Prazo de reposição, em dias, coberto pelo ponto de pedido
+     */
+    public static int prazoReposicao() {
+        return (int) Math.max(1, lerLong("farmacia.historico.prazo", 7));
+    }
+
+    /**
+     * Intervalo, em segundos, do despejo periódico de métricas (0 desativa)
+     */
+    public static long intervaloDespejoMetricas() {
+        return lerLong("farmacia.metricas.intervalo", 60);
+    }
+
+    /**
+     * Arquivo onde o despejo periódico de métricas é gravado
+     */
+    public static String arquivoMetricas() {
+        return System.getProperty("farmacia.metricas.arquivo", "data/metricas.txt");
+    }
+
+    /**
+     * Publica as métricas como MBeans JMX (desligado na linha de comando para acelerar a partida)
+     */
+    public static boolean metricasJmx() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.metricas.jmx", "true"));
+    }
+
+    /**
+     * Nível mínimo dos eventos de log (DEBUG, INFO, AVISO ou ERRO)
+     */
+    public static Nivel nivelLog() {
+        try {
+            return Nivel.valueOf(System.getProperty("farmacia.log.nivel", "INFO").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Nivel.INFO;
+        }
+    }
+
+    /**
+     * Arquivo de log (vazio desativa a gravação em arquivo)
+     */
+    public static String arquivoLog() {
+        return System.getProperty("farmacia.log.arquivo", "data/farmacia.log");
+    }
+
+    /**
+     * Envia todo o log de console para System.err, deixando System.out livre para a saída de dados
+     */
+    public static boolean logConsoleEmErro() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.log.consoleErro", "false"));
+    }
+
+    /**
+     * Capacidade da fila do log assíncrono
+     */
+    public static int capacidadeFilaLog() {
+        return (int) lerLong("farmacia.log.fila", 8192);
+    }
+
+    /**
+     * Máximo de repetições por segundo de uma mesma mensagem limitada
+     */
+    public static int limiteLogRepetido() {
+        return (int) lerLong("farmacia.log.limiteRepetidas", 10);
+    }
+
+    /**
+     * Orçamento de memória, em MB, da exportação ordenada; acima dele, corridas vão para o disco
+     */
+    public static long memoriaExportacaoMb() {
+        return lerLong("farmacia.exportacao.memoria", 64);
+    }
+
+    /**
+     * Porções ordenadas e gravadas ao mesmo tempo na exportação ordenada
+     */
+    public static int threadsExportacao() {
+        return (int) lerLong("farmacia.exportacao.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Diretório das corridas temporárias da exportação ordenada
+     */
+    public static String diretorioTemporarioExportacao() {
+        return System.getProperty("farmacia.exportacao.temporario", System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Porta do servidor HTTP da API (escuta apenas em localhost)
+     */
+    public static int portaApi() {
+        return (int) lerLong("farmacia.api.porta", 8080);
+    }
+
+    /**
+     * Threads do executor da API quando a JVM não oferece threads virtuais (anteriores ao Java 21)
+     */
+    public static int threadsApi() {
+        return (int) lerLong("farmacia.api.threads", 64);
+    }
+
+    /**
+     * Porta em que o servidor da API envia as alterações às réplicas de leitura (0 = sem replicação)
+     */
+    public static int portaReplicacao() {
+        return (int) lerLong("farmacia.replicacao.porta", 0);
+    }
+
+    /**
+     * Interface de escuta da replicação; o protocolo não tem autenticação nem criptografia
+     */
+    public static String enderecoReplicacao() {
+        return System.getProperty("farmacia.replicacao.endereco", "127.0.0.1");
+    }
+
+    /**
+     * Confirmação da replicação: "assincrono" ou "sincrono" (a escrita espera uma réplica)
+     */
+    public static String modoReplicacao() {
+        return System.getProperty("farmacia.replicacao.modo", "assincrono");
+    }
+
+    /**
+     * Espera máxima, em milissegundos, de uma escrita pela confirmação de uma réplica no modo síncrono
+     */
+    public static long esperaReplicacaoMs() {
+        return lerLong("farmacia.replicacao.espera", 2000);
+    }
+
+    /**
+     * Imprime os marcos de partida em System.out (lidos pelo benchmark de partida)
+     */
+    public static boolean imprimirMarcosPartida() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.partida.imprimir", "false"));
+    }
+
+    /**
+     * Encerra a aplicação assim que o catálogo termina de abrir (benchmark e treino do AppCDS)
+     */
+    public static boolean sairAposPartida() {
+        return Boolean.parseBoolean(System.getProperty("farmacia.partida.sair", "false"));
+    }
+
+    private static long lerLong(String chave, long padrao) {
+        String valor = System.getProperty(chave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return padrao;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            return padrao;
+        }
+    }
+}
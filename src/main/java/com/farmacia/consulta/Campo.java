@@ -0,0 +1,70 @@
+package com.farmacia.consulta;
+
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Campos de Medicamento e Fornecedor que podem ser filtrados, ordenados e projetados
+ * (inclui o campo calculado valorEstoque = preço × quantidade)
+ */
+public enum Campo {
+    CODIGO("codigo", String.class, Medicamento::getCodigo),
+    NOME("nome", String.class, Medicamento::getNome),
+    DESCRICAO("descricao", String.class, Medicamento::getDescricao),
+    PRINCIPIO_ATIVO("principioAtivo", String.class, Medicamento::getPrincipioAtivo),
+    DATA_VALIDADE("dataValidade", LocalDate.class, Medicamento::getDataValidade),
+    QUANTIDADE_ESTOQUE("quantidadeEstoque", Integer.class, Medicamento::getQuantidadeEstoque),
+    PRECO("preco", Dinheiro.class, m -> Dinheiro.deCentavos(m.getPrecoCentavos())),
+    CONTROLADO("controlado", Boolean.class, Medicamento::isControlado),
+    FORNECEDOR_CNPJ("cnpj", String.class, m -> fornecedor(m, Fornecedor::getCnpj)),
+    FORNECEDOR_RAZAO_SOCIAL("razaoSocial", String.class, m -> fornecedor(m, Fornecedor::getRazaoSocial)),
+    FORNECEDOR_TELEFONE("telefone", String.class, m -> fornecedor(m, Fornecedor::getTelefone)),
+    FORNECEDOR_EMAIL("email", String.class, m -> fornecedor(m, Fornecedor::getEmail)),
+    FORNECEDOR_CIDADE("cidade", String.class, m -> fornecedor(m, Fornecedor::getCidade)),
+    FORNECEDOR_ESTADO("estado", String.class, m -> fornecedor(m, Fornecedor::getEstado)),
+    VALOR_ESTOQUE("valorEstoque", Dinheiro.class, m -> Dinheiro.deCentavos(m.getValorEstoqueCentavos()));
+
+    private final String nome;
+    private final Class<?> tipo;
+    private final Function<Medicamento, Object> extrator;
+
+    Campo(String nome, Class<?> tipo, Function<Medicamento, Object> extrator) {
+        this.nome = nome;
+        this.tipo = tipo;
+        this.extrator = extrator;
+    }
+
+    /**
+     * Nome do campo (igual à coluna do CSV)
+     */
+    public String getNome() { return nome; }
+
+    public Class<?> getTipo() { return tipo; }
+
+    /**
+     * Lê o valor do campo no medicamento
+     */
+    public Object valor(Medicamento medicamento) {
+        return extrator.apply(medicamento);
+    }
+
+    /**
+     * Localiza o campo pelo nome da coluna (ex.: "dataValidade")
+     */
+    public static Campo porNome(String nome) {
+        for (Campo campo : values()) {
+            if (campo.nome.equalsIgnoreCase(nome) || campo.name().equalsIgnoreCase(nome)) {
+                return campo;
+            }
+        }
+        throw new IllegalArgumentException("Campo desconhecido: " + nome);
+    }
+
+    private static Object fornecedor(Medicamento m, Function<Fornecedor, String> getter) {
+        return m.getFornecedor() == null ? null : getter.apply(m.getFornecedor());
+    }
+}
@@ -0,0 +1,72 @@
+package com.farmacia.consulta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consulta ad hoc sobre o catálogo: filtros (combinados com E), ordenação, paginação e projeção.
+ * <pre>
+ * Consulta.nova()
+ *         .onde(Filtro.igual(Campo.CONTROLADO, true))
+ *         .onde(Filtro.igual(Campo.FORNECEDOR_ESTADO, "SP"))
+ *         .onde(Filtro.menor(Campo.QUANTIDADE_ESTOQUE, 20))
+ *         .ordenarPor(Campo.VALOR_ESTOQUE, false)
+ *         .limite(50);
+ * </pre>
+ */
+public class Consulta {
+    private final List<Filtro> filtros = new ArrayList<>();
+    private final List<Ordenacao> ordenacoes = new ArrayList<>();
+    private final List<Campo> projecao = new ArrayList<>();
+    private int deslocamento = 0;
+    private int limite = -1;
+
+    public static Consulta nova() {
+        return new Consulta();
+    }
+
+    public Consulta onde(Filtro filtro) {
+        filtros.add(filtro);
+        return this;
+    }
+
+    public Consulta ordenarPor(Campo campo) {
+        return ordenarPor(campo, true);
+    }
+
+    public Consulta ordenarPor(Campo campo, boolean crescente) {
+        ordenacoes.add(new Ordenacao(campo, crescente));
+        return this;
+    }
+
+    public Consulta deslocamento(int deslocamento) {
+        if (deslocamento < 0) {
+            throw new IllegalArgumentException("Deslocamento não pode ser negativo");
+        }
+        this.deslocamento = deslocamento;
+        return this;
+    }
+
+    /**
+     * Máximo de linhas retornadas (negativo = sem limite)
+     */
+    public Consulta limite(int limite) {
+        this.limite = limite;
+        return this;
+    }
+
+    public Consulta projetar(Campo... campos) {
+        projecao.addAll(Arrays.asList(campos));
+        return this;
+    }
+
+    public List<Filtro> getFiltros() { return Collections.unmodifiableList(filtros); }
+    public List<Ordenacao> getOrdenacoes() { return Collections.unmodifiableList(ordenacoes); }
+    public List<Campo> getProjecao() { return Collections.unmodifiableList(projecao); }
+    public int getDeslocamento() { return deslocamento; }
+    public int getLimite() { return limite; }
+
+    public boolean temLimite() { return limite >= 0; }
+}
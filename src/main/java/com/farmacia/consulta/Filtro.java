@@ -0,0 +1,153 @@
+package com.farmacia.consulta;
+
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Predicado sobre um campo: campo, operador e valor(es). Comparações de texto não diferenciam maiúsculas.
+ */
+public class Filtro {
+    private final Campo campo;
+    private final Operador operador;
+    private final Object valor;
+    private final Object valorFinal;
+
+    private Filtro(Campo campo, Operador operador, Object valor, Object valorFinal) {
+        if (campo == null || operador == null || valor == null) {
+            throw new IllegalArgumentException("Filtro requer campo, operador e valor");
+        }
+        if ((operador == Operador.CONTEM || operador == Operador.COMECA_COM) && campo.getTipo() != String.class) {
+            throw new IllegalArgumentException("Operador " + operador.getSimbolo() + " só se aplica a campos de texto");
+        }
+
+        this.campo = campo;
+        this.operador = operador;
+        this.valor = converter(campo, valor);
+        this.valorFinal = operador == Operador.ENTRE ? converter(campo, valorFinal) : null;
+
+        if (operador == Operador.ENTRE && this.valorFinal == null) {
+            throw new IllegalArgumentException("Operador ENTRE requer dois valores");
+        }
+    }
+
+    // ========== FÁBRICAS ==========
+
+    public static Filtro igual(Campo campo, Object valor) { return new Filtro(campo, Operador.IGUAL, valor, null); }
+
+    public static Filtro diferente(Campo campo, Object valor) { return new Filtro(campo, Operador.DIFERENTE, valor, null); }
+
+    public static Filtro menor(Campo campo, Object valor) { return new Filtro(campo, Operador.MENOR, valor, null); }
+
+    public static Filtro menorOuIgual(Campo campo, Object valor) { return new Filtro(campo, Operador.MENOR_IGUAL, valor, null); }
+
+    public static Filtro maior(Campo campo, Object valor) { return new Filtro(campo, Operador.MAIOR, valor, null); }
+
+    public static Filtro maiorOuIgual(Campo campo, Object valor) { return new Filtro(campo, Operador.MAIOR_IGUAL, valor, null); }
+
+    public static Filtro entre(Campo campo, Object inicio, Object fim) { return new Filtro(campo, Operador.ENTRE, inicio, fim); }
+
+    public static Filtro contem(Campo campo, String trecho) { return new Filtro(campo, Operador.CONTEM, trecho, null); }
+
+    public static Filtro comecaCom(Campo campo, String prefixo) { return new Filtro(campo, Operador.COMECA_COM, prefixo, null); }
+
+    public static Filtro de(Campo campo, Operador operador, Object valor, Object valorFinal) {
+        return new Filtro(campo, operador, valor, valorFinal);
+    }
+
+    public Campo getCampo() { return campo; }
+    public Operador getOperador() { return operador; }
+    public Object getValor() { return valor; }
+    public Object getValorFinal() { return valorFinal; }
+
+    /**
+     * Avalia o filtro sobre um medicamento
+     */
+    public boolean testar(Medicamento medicamento) {
+        Object atual = campo.valor(medicamento);
+        if (atual == null) {
+            return false;
+        }
+
+        switch (operador) {
+            case IGUAL:
+                return comparar(atual, valor) == 0;
+            case DIFERENTE:
+                return comparar(atual, valor) != 0;
+            case MENOR:
+                return comparar(atual, valor) < 0;
+            case MENOR_IGUAL:
+                return comparar(atual, valor) <= 0;
+            case MAIOR:
+                return comparar(atual, valor) > 0;
+            case MAIOR_IGUAL:
+                return comparar(atual, valor) >= 0;
+            case ENTRE:
+                return comparar(atual, valor) >= 0 && comparar(atual, valorFinal) <= 0;
+            case CONTEM:
+                return minusculo(atual).contains(minusculo(valor));
+            case COMECA_COM:
+                return minusculo(atual).startsWith(minusculo(valor));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compara dois valores do mesmo campo (texto sem diferenciar maiúsculas)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int comparar(Object a, Object b) {
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).compareToIgnoreCase((String) b);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static String minusculo(Object valor) {
+        return valor.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static Object converter(Campo campo, Object valor) {
+        if (valor == null) {
+            return null;
+        }
+
+        Class<?> tipo = campo.getTipo();
+        if (tipo.isInstance(valor)) {
+            return valor;
+        }
+
+        try {
+            if (tipo == Integer.class) {
+                return valor instanceof Number ? ((Number) valor).intValue() : Integer.parseInt(valor.toString().trim());
+            }
+            if (tipo == Dinheiro.class) {
+                return Dinheiro.deCentavos(Dinheiro.parse(valor.toString()));
+            }
+            if (tipo == LocalDate.class) {
+                return LocalDate.parse(valor.toString().trim());
+            }
+            if (tipo == Boolean.class) {
+                return Boolean.parseBoolean(valor.toString().trim());
+            }
+            if (tipo == String.class) {
+                return valor.toString();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Valor inválido para o campo " + campo.getNome() + ": " + valor, e);
+        }
+
+        throw new IllegalArgumentException("Valor inválido para o campo " + campo.getNome() + ": " + valor);
+    }
+
+    @Override
+    public String toString() {
+        if (operador == Operador.ENTRE) {
+            return campo.getNome() + " ENTRE " + valor + " E " + valorFinal;
+        }
+        return campo.getNome() + " " + operador.getSimbolo() + " " + valor;
+    }
+}
@@ -0,0 +1,24 @@
+package com.farmacia.consulta;
+
+/**
+ * Operadores de comparação aceitos pelos filtros
+ */
+public enum Operador {
+    IGUAL("="),
+    DIFERENTE("<>"),
+    MENOR("<"),
+    MENOR_IGUAL("<="),
+    MAIOR(">"),
+    MAIOR_IGUAL(">="),
+    ENTRE("ENTRE"),
+    CONTEM("CONTÉM"),
+    COMECA_COM("COMEÇA COM");
+
+    private final String simbolo;
+
+    Operador(String simbolo) {
+        this.simbolo = simbolo;
+    }
+
+    public String getSimbolo() { return simbolo; }
+}
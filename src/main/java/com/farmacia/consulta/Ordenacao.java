@@ -0,0 +1,41 @@
+package com.farmacia.consulta;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.Comparator;
+
+/**
+ * Chave de ordenação: campo e direção
+ */
+public class Ordenacao {
+    private final Campo campo;
+    private final boolean crescente;
+
+    public Ordenacao(Campo campo, boolean crescente) {
+        this.campo = campo;
+        this.crescente = crescente;
+    }
+
+    public Campo getCampo() { return campo; }
+    public boolean isCrescente() { return crescente; }
+
+    /**
+     * Comparador desta chave (valores nulos por último)
+     */
+    public Comparator<Medicamento> comparador() {
+        return (m1, m2) -> {
+            Object v1 = campo.valor(m1);
+            Object v2 = campo.valor(m2);
+            if (v1 == null || v2 == null) {
+                return v1 == null ? (v2 == null ? 0 : 1) : -1;
+            }
+            int comparacao = Filtro.comparar(v1, v2);
+            return crescente ? comparacao : -comparacao;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return campo.getNome() + (crescente ? " ASC" : " DESC");
+    }
+}
@@ -0,0 +1,232 @@
+package com.farmacia.consulta;
+
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.model.Medicamento;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Planejador simples: escolhe o índice mais seletivo (código, validade, estoque ou fornecedor)
+ * entre os filtros da consulta; sem índice aplicável, faz varredura (paralela em catálogos grandes).
+ * Quando a ordenação coincide com um índice, percorre o índice em ordem e encerra cedo no limite.
+ */
+public final class PlanejadorConsulta {
+    /** A partir deste tamanho de catálogo as varreduras usam parallel streams */
+    static final int LIMIAR_PARALELO = 20_000;
+
+    private PlanejadorConsulta() {}
+
+    /**
+     * Escolhe o plano de execução da consulta
+     */
+    public static PlanoConsulta planejar(Consulta consulta, CatalogoIndexado catalogo) {
+        Filtro melhorFiltro = null;
+        long melhorEstimativa = Long.MAX_VALUE;
+
+        for (Filtro filtro : consulta.getFiltros()) {
+            long estimativa = estimar(filtro, catalogo);
+            if (estimativa >= 0 && estimativa < melhorEstimativa) {
+                melhorFiltro = filtro;
+                melhorEstimativa = estimativa;
+            }
+        }
+
+        Ordenacao ordem = consulta.getOrdenacoes().size() == 1 ? consulta.getOrdenacoes().get(0) : null;
+        Campo campoOrdem = ordem != null && acessoOrdenado(ordem.getCampo()) != null ? ordem.getCampo() : null;
+
+        // Índice pouco seletivo em catálogo grande: a varredura paralela sai mais barata
+        if (melhorFiltro != null && catalogo.tamanho() >= LIMIAR_PARALELO
+                && melhorEstimativa > catalogo.tamanho() / 2 && melhorFiltro.getCampo() != campoOrdem) {
+            melhorFiltro = null;
+        }
+
+        List<Filtro> residuais = new ArrayList<>(consulta.getFiltros());
+        residuais.remove(melhorFiltro);
+
+        if (melhorFiltro != null) {
+            boolean ordemDoIndice = melhorFiltro.getCampo() == campoOrdem;
+            return new PlanoConsulta(acessoDoCampo(melhorFiltro.getCampo()), melhorFiltro, residuais,
+                    melhorEstimativa, catalogo.tamanho(), ordemDoIndice);
+        }
+
+        // Sem filtro indexável: se a ordenação tem índice e há limite, percorre o índice e para cedo
+        if (campoOrdem != null && consulta.temLimite()) {
+            return new PlanoConsulta(acessoOrdenado(campoOrdem), null, residuais,
+                    catalogo.tamanho(), catalogo.tamanho(), true);
+        }
+
+        PlanoConsulta.Acesso varredura = catalogo.tamanho() >= LIMIAR_PARALELO
+                ? PlanoConsulta.Acesso.VARREDURA_PARALELA
+                : PlanoConsulta.Acesso.VARREDURA;
+        return new PlanoConsulta(varredura, null, residuais, catalogo.tamanho(), catalogo.tamanho(), false);
+    }
+
+    /**
+     * Planeja e executa a consulta
+     */
+    public static ResultadoConsulta executar(Consulta consulta, CatalogoIndexado catalogo) {
+        PlanoConsulta plano = planejar(consulta, catalogo);
+
+        Predicate<Medicamento> residual = m -> true;
+        for (Filtro filtro : plano.getResiduais()) {
+            residual = residual.and(filtro::testar);
+        }
+
+        Stream<Medicamento> fluxo;
+        if (plano.isOrdemDoIndice()) {
+            boolean crescente = consulta.getOrdenacoes().get(0).isCrescente();
+            fluxo = candidatos(plano, catalogo, crescente).filter(residual);
+        } else {
+            fluxo = candidatos(plano, catalogo, true).filter(residual);
+
+            Comparator<Medicamento> comparador = comparador(consulta.getOrdenacoes());
+            if (comparador != null) {
+                fluxo = fluxo.sorted(comparador);
+            }
+        }
+
+        if (consulta.getDeslocamento() > 0) {
+            fluxo = fluxo.skip(consulta.getDeslocamento());
+        }
+        if (consulta.temLimite()) {
+            fluxo = fluxo.limit(consulta.getLimite());
+        }
+
+        return new ResultadoConsulta(fluxo.collect(Collectors.toList()), consulta.getProjecao(), plano);
+    }
+
+    // ========== ÍNDICES ==========
+
+    /**
+     * Quantidade de candidatos que o índice devolveria para o filtro, ou -1 se não houver índice aplicável
+     */
+    private static long estimar(Filtro filtro, CatalogoIndexado catalogo) {
+        switch (filtro.getCampo()) {
+            case CODIGO: {
+                NavigableMap<String, Medicamento> faixa = faixa(catalogo.indiceCodigo(), filtro);
+                return faixa == null ? -1 : faixa.size();
+            }
+            case DATA_VALIDADE:
+                return somarListas(faixa(catalogo.indiceValidade(), filtro));
+            case QUANTIDADE_ESTOQUE:
+                return somarListas(faixa(catalogo.indiceEstoque(), filtro));
+            case FORNECEDOR_CNPJ:
+                if (filtro.getOperador() != Operador.IGUAL) {
+                    return -1;
+                }
+                return catalogo.indiceFornecedor().getOrDefault((String) filtro.getValor(), List.of()).size();
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Fluxo preguiçoso dos candidatos do caminho de acesso (permite encerrar cedo no limite)
+     */
+    private static Stream<Medicamento> candidatos(PlanoConsulta plano, CatalogoIndexado catalogo, boolean crescente) {
+        Filtro filtro = plano.getFiltroIndice();
+
+        switch (plano.getAcesso()) {
+            case INDICE_CODIGO: {
+                NavigableMap<String, Medicamento> mapa = filtro == null
+                        ? catalogo.indiceCodigo()
+                        : faixa(catalogo.indiceCodigo(), filtro);
+                return (crescente ? mapa : mapa.descendingMap()).values().stream();
+            }
+            case INDICE_VALIDADE:
+                return achatar(filtro == null ? catalogo.indiceValidade() : faixa(catalogo.indiceValidade(), filtro), crescente);
+            case INDICE_ESTOQUE:
+                return achatar(filtro == null ? catalogo.indiceEstoque() : faixa(catalogo.indiceEstoque(), filtro), crescente);
+            case INDICE_FORNECEDOR:
+                return catalogo.indiceFornecedor().getOrDefault((String) filtro.getValor(), List.of()).stream();
+            case VARREDURA_PARALELA:
+                return catalogo.getTodos().parallelStream();
+            default:
+                return catalogo.getTodos().stream();
+        }
+    }
+
+    /**
+     * Sub-mapa do índice que satisfaz o filtro, ou null se o operador não é atendido por faixa
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> NavigableMap<K, V> faixa(NavigableMap<K, V> mapa, Filtro filtro) {
+        K valor = (K) filtro.getValor();
+
+        switch (filtro.getOperador()) {
+            case IGUAL:
+                return mapa.subMap(valor, true, valor, true);
+            case MENOR:
+                return mapa.headMap(valor, false);
+            case MENOR_IGUAL:
+                return mapa.headMap(valor, true);
+            case MAIOR:
+                return mapa.tailMap(valor, false);
+            case MAIOR_IGUAL:
+                return mapa.tailMap(valor, true);
+            case ENTRE: {
+                K fim = (K) filtro.getValorFinal();
+                if (Filtro.comparar(valor, fim) > 0) {
+                    return Collections.emptyNavigableMap();
+                }
+                return mapa.subMap(valor, true, fim, true);
+            }
+            case COMECA_COM:
+                return mapa.subMap(valor, true, (K) (valor.toString() + Character.MAX_VALUE), true);
+            default:
+                return null;
+        }
+    }
+
+    private static <K> long somarListas(NavigableMap<K, List<Medicamento>> faixa) {
+        if (faixa == null) {
+            return -1;
+        }
+        long total = 0;
+        for (List<Medicamento> lista : faixa.values()) {
+            total += lista.size();
+        }
+        return total;
+    }
+
+    private static <K> Stream<Medicamento> achatar(NavigableMap<K, List<Medicamento>> faixa, boolean crescente) {
+        return (crescente ? faixa : faixa.descendingMap()).values().stream().flatMap(List::stream);
+    }
+
+    private static PlanoConsulta.Acesso acessoDoCampo(Campo campo) {
+        switch (campo) {
+            case CODIGO: return PlanoConsulta.Acesso.INDICE_CODIGO;
+            case DATA_VALIDADE: return PlanoConsulta.Acesso.INDICE_VALIDADE;
+            case QUANTIDADE_ESTOQUE: return PlanoConsulta.Acesso.INDICE_ESTOQUE;
+            case FORNECEDOR_CNPJ: return PlanoConsulta.Acesso.INDICE_FORNECEDOR;
+            default: throw new IllegalArgumentException("Campo sem índice: " + campo);
+        }
+    }
+
+    /**
+     * Índice que pode ser percorrido na ordem do campo (o de fornecedor não é ordenado)
+     */
+    private static PlanoConsulta.Acesso acessoOrdenado(Campo campo) {
+        switch (campo) {
+            case CODIGO: return PlanoConsulta.Acesso.INDICE_CODIGO;
+            case DATA_VALIDADE: return PlanoConsulta.Acesso.INDICE_VALIDADE;
+            case QUANTIDADE_ESTOQUE: return PlanoConsulta.Acesso.INDICE_ESTOQUE;
+            default: return null;
+        }
+    }
+
+    private static Comparator<Medicamento> comparador(List<Ordenacao> ordenacoes) {
+        Comparator<Medicamento> comparador = null;
+        for (Ordenacao ordenacao : ordenacoes) {
+            comparador = comparador == null ? ordenacao.comparador() : comparador.thenComparing(ordenacao.comparador());
+        }
+        return comparador;
+    }
+}
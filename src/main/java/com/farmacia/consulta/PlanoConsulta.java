@@ -0,0 +1,67 @@
+package com.farmacia.consulta;
+
+import java.util.List;
+
+/**
+ * Plano escolhido pelo {@link PlanejadorConsulta}: caminho de acesso, filtro atendido pelo índice,
+ * filtros residuais e forma de ordenação
+ */
+public class PlanoConsulta {
+
+    public enum Acesso {
+        INDICE_CODIGO,
+        INDICE_VALIDADE,
+        INDICE_ESTOQUE,
+        INDICE_FORNECEDOR,
+        VARREDURA,
+        VARREDURA_PARALELA
+    }
+
+    private final Acesso acesso;
+    private final Filtro filtroIndice;
+    private final List<Filtro> residuais;
+    private final long candidatos;
+    private final long tamanhoCatalogo;
+    private final boolean ordemDoIndice;
+
+    PlanoConsulta(Acesso acesso, Filtro filtroIndice, List<Filtro> residuais,
+                  long candidatos, long tamanhoCatalogo, boolean ordemDoIndice) {
+        this.acesso = acesso;
+        this.filtroIndice = filtroIndice;
+        this.residuais = List.copyOf(residuais);
+        this.candidatos = candidatos;
+        this.tamanhoCatalogo = tamanhoCatalogo;
+        this.ordemDoIndice = ordemDoIndice;
+    }
+
+    public Acesso getAcesso() { return acesso; }
+    public Filtro getFiltroIndice() { return filtroIndice; }
+    public List<Filtro> getResiduais() { return residuais; }
+    public long getCandidatos() { return candidatos; }
+    public boolean isOrdemDoIndice() { return ordemDoIndice; }
+
+    public boolean usaIndice() {
+        return acesso != Acesso.VARREDURA && acesso != Acesso.VARREDURA_PARALELA;
+    }
+
+    /**
+     * Descrição textual do plano (equivalente a um EXPLAIN)
+     */
+    public String explicar() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Acesso: ").append(acesso);
+        if (filtroIndice != null) {
+            sb.append(" [").append(filtroIndice).append(']');
+        }
+        sb.append('\n');
+        sb.append("Candidatos estimados: ").append(candidatos).append(" de ").append(tamanhoCatalogo).append('\n');
+        sb.append("Filtros residuais: ").append(residuais.isEmpty() ? "nenhum" : residuais.toString()).append('\n');
+        sb.append("Ordenação: ").append(ordemDoIndice ? "pela ordem do índice" : "em memória").append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explicar();
+    }
+}
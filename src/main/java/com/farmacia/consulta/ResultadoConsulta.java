@@ -0,0 +1,43 @@
+package com.farmacia.consulta;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linhas retornadas por uma consulta, com o plano utilizado
+ */
+public class ResultadoConsulta {
+    private final List<Medicamento> medicamentos;
+    private final List<Campo> projecao;
+    private final PlanoConsulta plano;
+
+    ResultadoConsulta(List<Medicamento> medicamentos, List<Campo> projecao, PlanoConsulta plano) {
+        this.medicamentos = List.copyOf(medicamentos);
+        this.projecao = projecao.isEmpty() ? Arrays.asList(Campo.values()) : List.copyOf(projecao);
+        this.plano = plano;
+    }
+
+    public List<Medicamento> getMedicamentos() { return medicamentos; }
+    public PlanoConsulta getPlano() { return plano; }
+    public int tamanho() { return medicamentos.size(); }
+
+    /**
+     * Linhas projetadas nos campos solicitados (todos, se a consulta não definiu projeção)
+     */
+    public List<Map<String, Object>> projetar() {
+        List<Map<String, Object>> linhas = new ArrayList<>(medicamentos.size());
+        for (Medicamento m : medicamentos) {
+            Map<String, Object> linha = new LinkedHashMap<>();
+            for (Campo campo : projecao) {
+                linha.put(campo.getNome(), campo.valor(m));
+            }
+            linhas.add(linha);
+        }
+        return linhas;
+    }
+}
@@ -0,0 +1,105 @@
+package com.farmacia.controlados;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark do livro de controlados: vazão de gravação de movimentos avulsos (um por dispensação,
+ * com e sem fsync), tempo de reabertura e uma auditoria "um código num mês" pelos índices contra
+ * a varredura de todo o histórico. Os movimentos são distribuídos ao longo de um ano; o livro é
+ * gravado num diretório temporário e apagado no fim.
+ *
+ * Uso: BenchmarkLivroControlados [movimentos] [codigos]
+ */
+public class BenchmarkLivroControlados {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int MOVIMENTOS_FSYNC = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int codigos = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        File diretorio = Files.createTempDirectory("farmacia-controlados").toFile();
+        try {
+            long intervalo = 365L * 24 * 3600 * 1000 / quantidade;
+
+            LivroControlados livro = LivroControlados.abrir(diretorio.getPath(), false,
+                    LivroControlados.TAMANHO_SEGMENTO_PADRAO);
+            long inicio = System.nanoTime();
+            for (int i = 0; i < quantidade; i++) {
+                livro.registrar(List.of(movimento(i, codigos)), INICIO.plusNanos(i * intervalo * 1_000_000));
+            }
+            long gravacao = System.nanoTime() - inicio;
+            livro.fechar();
+            System.out.printf("%d movimentos, %d códigos%n%n", quantidade, codigos);
+            System.out.printf("gravação sem fsync: %.0f movimentos/s%n", quantidade / (gravacao / 1e9));
+            medirFsync();
+
+            inicio = System.nanoTime();
+            livro = LivroControlados.abrirLeitura(diretorio.getPath());
+            long abertura = System.nanoTime() - inicio;
+            System.out.printf("reabertura: %.1fms (%d segmentos)%n%n", abertura / 1e6, livro.quantidadeSegmentos());
+
+            String codigo = codigo(7, codigos);
+            LocalDateTime marco = LocalDateTime.of(2024, 3, 1, 0, 0);
+            LocalDateTime abril = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+            long indice = Long.MAX_VALUE;
+            long varredura = Long.MAX_VALUE;
+            int encontrados = 0;
+            long conferidos = 0;
+            for (int rodada = 0; rodada < 5; rodada++) {
+                inicio = System.nanoTime();
+                encontrados = livro.consultar(codigo, marco, abril).size();
+                indice = Math.min(indice, System.nanoTime() - inicio);
+
+                inicio = System.nanoTime();
+                conferidos = livro.verificar();
+                varredura = Math.min(varredura, System.nanoTime() - inicio);
+            }
+            System.out.printf("auditoria %s em março: %d movimentos em %.2fms (índices)%n",
+                    codigo, encontrados, indice / 1e6);
+            System.out.printf("varredura do histórico: %d movimentos em %.1fms%n", conferidos, varredura / 1e6);
+            livro.fechar();
+        } finally {
+            apagar(diretorio);
+        }
+    }
+
+    private static void medirFsync() throws Exception {
+        File diretorio = Files.createTempDirectory("farmacia-controlados-fsync").toFile();
+        try {
+            LivroControlados livro = LivroControlados.abrir(diretorio.getPath(), true,
+                    LivroControlados.TAMANHO_SEGMENTO_PADRAO);
+            long inicio = System.nanoTime();
+            for (int i = 0; i < MOVIMENTOS_FSYNC; i++) {
+                livro.registrar(List.of(movimento(i, 100)));
+            }
+            long gravacao = System.nanoTime() - inicio;
+            livro.fechar();
+            System.out.printf("gravação com fsync: %.0f movimentos/s%n", MOVIMENTOS_FSYNC / (gravacao / 1e9));
+        } finally {
+            apagar(diretorio);
+        }
+    }
+
+    private static MovimentoControlado movimento(int i, int codigos) {
+        boolean entrada = i % 10 == 0;
+        return new MovimentoControlado(0, null, entrada ? TipoMovimento.ENTRADA : TipoMovimento.SAIDA,
+                codigo(i, codigos), "Clonazepam 2mg", "L" + (i / 5000), entrada ? 50 : -1, 1000 - i % 1000);
+    }
+
+    private static String codigo(int i, int codigos) {
+        return String.format("MED%04d", i % codigos);
+    }
+
+    private static void apagar(File diretorio) throws Exception {
+        try (Stream<Path> caminhos = Files.walk(diretorio.toPath())) {
+            caminhos.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
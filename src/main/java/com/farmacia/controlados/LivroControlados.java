@@ -0,0 +1,425 @@
+package com.farmacia.controlados;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Livro de movimentos de medicamentos controlados: registro só de acréscimo, com CRC32 por
+ * movimento, dividido em segmentos de tamanho limitado num diretório ({@code <sequencia>.seg}).
+ * Cada segmento tem índices por instante e por código, então uma auditoria ("todos os movimentos
+ * do MED0042 em março") lê só os segmentos do período e, dentro deles, só os registros do
+ * código, sem percorrer o histórico.
+ * <p>
+ * Os instantes nunca recuam (um relógio atrasado repete o último instante), o que mantém os
+ * segmentos e os índices em ordem de tempo. Na abertura, um registro incompleto ou corrompido
+ * no fim do último segmento (queda durante a gravação) é descartado; nos segmentos selados,
+ * qualquer falha é tratada como corrupção do livro.
+ */
+public class LivroControlados {
+    private static final Log LOG = Log.para(LivroControlados.class);
+
+    public static final long TAMANHO_SEGMENTO_PADRAO = 16L * 1024 * 1024;
+    private static final String EXTENSAO_SEGMENTO = ".seg";
+    // Buffer das leituras posicionais (um registro típico tem menos de 100 bytes)
+    private static final int TAMANHO_LEITURA = 512;
+
+    private final File diretorio;
+    private final boolean somenteLeitura;
+    private final boolean sincronizar;
+    private final long tamanhoSegmento;
+    private final List<SegmentoLivro> segmentos = new ArrayList<>();
+    private FileChannel canal;
+    private long ultimaSequencia;
+    private long ultimoInstante = Long.MIN_VALUE;
+
+    private LivroControlados(File diretorio, boolean somenteLeitura, boolean sincronizar, long tamanhoSegmento) {
+        this.diretorio = diretorio;
+        this.somenteLeitura = somenteLeitura;
+        this.sincronizar = sincronizar;
+        this.tamanhoSegmento = tamanhoSegmento;
+    }
+
+    /**
+     * Abre (ou cria) o livro para gravação
+     *
+     * @param sincronizar força cada gravação para o disco (fsync)
+     */
+    public static LivroControlados abrir(String diretorio, boolean sincronizar, long tamanhoSegmento)
+            throws PersistenciaException {
+        LivroControlados livro = new LivroControlados(new File(diretorio), false, sincronizar, tamanhoSegmento);
+        livro.diretorio.mkdirs();
+        livro.carregar();
+        return livro;
+    }
+
+    /**
+     * Abre o livro só para consulta (pode rodar ao lado da aplicação que grava): enxerga os
+     * movimentos gravados até a abertura e não altera nenhum arquivo
+     */
+    public static LivroControlados abrirLeitura(String diretorio) throws PersistenciaException {
+        LivroControlados livro = new LivroControlados(new File(diretorio), true, false, TAMANHO_SEGMENTO_PADRAO);
+        livro.carregar();
+        return livro;
+    }
+
+    private void carregar() throws PersistenciaException {
+        File[] arquivos = diretorio.listFiles((d, nome) -> nome.endsWith(EXTENSAO_SEGMENTO));
+        if (arquivos == null) {
+            arquivos = new File[0];
+        }
+        // Nomes com a sequência inicial em 20 dígitos: a ordem alfabética é a ordem do livro
+        Arrays.sort(arquivos);
+
+        try {
+            for (int i = 0; i < arquivos.length; i++) {
+                boolean ultimo = i == arquivos.length - 1;
+                SegmentoLivro segmento = abrirSegmento(arquivos[i], ultimo);
+                if (segmento.primeiraSequencia != ultimaSequencia + 1) {
+                    throw new PersistenciaException("Livro de controlados com lacuna: esperada a sequência "
+                            + (ultimaSequencia + 1) + ", o segmento " + arquivos[i].getName() + " começa em "
+                            + segmento.primeiraSequencia);
+                }
+                segmentos.add(segmento);
+                ultimaSequencia = segmento.ultimaSequencia;
+                if (segmento.registros > 0) {
+                    ultimoInstante = segmento.ultimoInstante;
+                }
+            }
+
+            if (!somenteLeitura) {
+                if (segmentos.isEmpty()) {
+                    novoSegmento();
+                } else {
+                    canal = FileChannel.open(atual().arquivo.toPath(), StandardOpenOption.WRITE);
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao abrir o livro de controlados " + diretorio.getPath(), e);
+        }
+    }
+
+    private SegmentoLivro abrirSegmento(File arquivo, boolean ultimo) throws IOException, PersistenciaException {
+        String nome = arquivo.getName();
+        long primeira;
+        try {
+            primeira = Long.parseLong(nome.substring(0, nome.length() - EXTENSAO_SEGMENTO.length()));
+        } catch (NumberFormatException e) {
+            throw new PersistenciaException("Segmento com nome inválido no livro de controlados: " + nome);
+        }
+        SegmentoLivro segmento = new SegmentoLivro(arquivo, primeira);
+
+        if (!ultimo && segmento.carregarIndice()) {
+            return segmento;
+        }
+
+        long tamanhoArquivo = arquivo.length();
+        if (tamanhoArquivo < SegmentoLivro.TAMANHO_CABECALHO || lerAssinatura(arquivo) != SegmentoLivro.ASSINATURA) {
+            // Só o segmento recém-criado pode estar sem cabeçalho (queda logo após a criação)
+            if (!ultimo || tamanhoArquivo > SegmentoLivro.TAMANHO_CABECALHO) {
+                throw new PersistenciaException("Segmento inválido no livro de controlados: " + nome);
+            }
+            if (!somenteLeitura) {
+                escreverCabecalho(arquivo);
+            }
+            return segmento;
+        }
+
+        long valido = SegmentoLivro.varrer(arquivo, SegmentoLivro.TAMANHO_CABECALHO, tamanhoArquivo,
+                (movimento, posicao, bytes) -> {
+                    if (movimento.getSequencia() != segmento.ultimaSequencia + 1) {
+                        return false;
+                    }
+                    segmento.indexar(movimento, posicao, bytes);
+                    return true;
+                });
+
+        if (valido < tamanhoArquivo) {
+            if (!ultimo) {
+                throw new PersistenciaException("Segmento corrompido no livro de controlados: " + nome
+                        + " (registro inválido na posição " + valido + ")");
+            }
+            if (!somenteLeitura) {
+                LOG.aviso("Cauda inválida do livro de controlados descartada", "arquivo", arquivo.getPath(),
+                        "bytes", tamanhoArquivo - valido, "ultimaSequencia", segmento.ultimaSequencia);
+                try (FileChannel truncar = FileChannel.open(arquivo.toPath(), StandardOpenOption.WRITE)) {
+                    truncar.truncate(valido);
+                }
+            }
+        }
+        if (!ultimo && !somenteLeitura) {
+            segmento.gravarIndice();
+        }
+        return segmento;
+    }
+
+    private static int lerAssinatura(File arquivo) throws IOException {
+        try (FileChannel leitura = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SegmentoLivro.TAMANHO_CABECALHO);
+            while (buffer.hasRemaining()) {
+                if (leitura.read(buffer, buffer.position()) < 0) {
+                    return 0;
+                }
+            }
+            return buffer.getInt(0);
+        }
+    }
+
+    private static void escreverCabecalho(File arquivo) throws IOException {
+        try (FileChannel escrita = FileChannel.open(arquivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            escrita.truncate(0);
+            ByteBuffer cabecalho = ByteBuffer.allocate(SegmentoLivro.TAMANHO_CABECALHO).putInt(SegmentoLivro.ASSINATURA);
+            cabecalho.flip();
+            while (cabecalho.hasRemaining()) {
+                escrita.write(cabecalho, cabecalho.position());
+            }
+            escrita.force(true);
+        }
+    }
+
+    private SegmentoLivro atual() {
+        return segmentos.get(segmentos.size() - 1);
+    }
+
+    /**
+     * Sela o segmento atual (se houver) e começa outro na sequência seguinte
+     */
+    private void novoSegmento() throws IOException {
+        if (canal != null) {
+            canal.force(true);
+            canal.close();
+            canal = null;
+            atual().gravarIndice();
+        }
+        File arquivo = new File(diretorio, String.format("%020d%s", ultimaSequencia + 1, EXTENSAO_SEGMENTO));
+        escreverCabecalho(arquivo);
+        segmentos.add(new SegmentoLivro(arquivo, ultimaSequencia + 1));
+        canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.WRITE);
+    }
+
+    // ========== GRAVAÇÃO ==========
+
+    /**
+     * Grava os movimentos (na ordem da lista) com uma só escrita e, se configurado, um só fsync.
+     * A sequência e o instante de cada movimento são atribuídos aqui; devolve os movimentos como
+     * gravados.
+     */
+    public List<MovimentoControlado> registrar(List<MovimentoControlado> movimentos) throws PersistenciaException {
+        return registrar(movimentos, LocalDateTime.now());
+    }
+
+    synchronized List<MovimentoControlado> registrar(List<MovimentoControlado> movimentos, LocalDateTime agora)
+            throws PersistenciaException {
+        if (somenteLeitura) {
+            throw new PersistenciaException("Livro de controlados aberto só para leitura");
+        }
+        if (canal == null) {
+            throw new PersistenciaException("Livro de controlados fechado");
+        }
+        List<MovimentoControlado> gravados = new ArrayList<>(movimentos.size());
+        if (movimentos.isEmpty()) {
+            return gravados;
+        }
+
+        try {
+            if (atual().tamanho >= tamanhoSegmento) {
+                novoSegmento();
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao iniciar segmento do livro de controlados", e);
+        }
+
+        LocalDateTime instante = SegmentoLivro.milissegundos(agora) < ultimoInstante
+                ? SegmentoLivro.instante(ultimoInstante) : agora.truncatedTo(ChronoUnit.MILLIS);
+        List<byte[]> registros = new ArrayList<>(movimentos.size());
+        int total = 0;
+        for (int i = 0; i < movimentos.size(); i++) {
+            MovimentoControlado gravado = movimentos.get(i).registrado(ultimaSequencia + 1 + i, instante);
+            byte[] registro = SegmentoLivro.codificar(gravado);
+            gravados.add(gravado);
+            registros.add(registro);
+            total += registro.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] registro : registros) {
+            buffer.put(registro);
+        }
+        buffer.flip();
+
+        SegmentoLivro segmento = atual();
+        long posicao = segmento.tamanho;
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer, posicao + buffer.position());
+            }
+            if (sincronizar) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            // Descarta o que tiver sido escrito pela metade: a próxima gravação começa no mesmo ponto
+            try {
+                canal.truncate(segmento.tamanho);
+            } catch (IOException ignorada) {
+                // na próxima abertura a cauda inválida é descartada
+            }
+            throw new PersistenciaException("Erro ao gravar no livro de controlados", e);
+        }
+
+        for (int i = 0; i < gravados.size(); i++) {
+            segmento.indexar(gravados.get(i), posicao, registros.get(i).length);
+            posicao += registros.get(i).length;
+        }
+        ultimaSequencia += gravados.size();
+        ultimoInstante = SegmentoLivro.milissegundos(instante);
+        return gravados;
+    }
+
+    // ========== CONSULTA ==========
+
+    /**
+     * Movimentos com instante em [de, ate), em ordem de sequência. Com código informado, só os
+     * do código (pelos índices por código); sem código, todos os do período. Datas nulas deixam
+     * o intervalo aberto.
+     */
+    public List<MovimentoControlado> consultar(String codigo, LocalDateTime de, LocalDateTime ate)
+            throws PersistenciaException {
+        long inicio = de == null ? Long.MIN_VALUE : SegmentoLivro.milissegundos(de);
+        long fim = ate == null ? Long.MAX_VALUE : SegmentoLivro.milissegundos(ate);
+
+        // O plano (o que ler de cada segmento) é montado sob o lock; a leitura fica fora dele
+        List<SegmentoLivro> lidos = new ArrayList<>();
+        List<long[]> planos = new ArrayList<>();
+        synchronized (this) {
+            for (SegmentoLivro segmento : segmentos) {
+                if (!segmento.sobrepoe(inicio, fim)) {
+                    continue;
+                }
+                long[] plano = codigo != null ? segmento.posicoesDoCodigo(codigo, inicio, fim)
+                        : new long[] {segmento.posicaoInicial(inicio), segmento.tamanho};
+                if (plano.length > 0) {
+                    lidos.add(segmento);
+                    planos.add(plano);
+                }
+            }
+        }
+
+        List<MovimentoControlado> movimentos = new ArrayList<>();
+        for (int i = 0; i < lidos.size(); i++) {
+            SegmentoLivro segmento = lidos.get(i);
+            long[] plano = planos.get(i);
+            try {
+                if (codigo != null) {
+                    lerPosicoes(segmento.arquivo, plano, movimentos);
+                } else {
+                    boolean[] fimDoPeriodo = {false};
+                    long posicaoFinal = SegmentoLivro.varrer(segmento.arquivo, plano[0], plano[1], (movimento, posicao, bytes) -> {
+                        long instante = SegmentoLivro.milissegundos(movimento.getInstante());
+                        if (instante >= fim) {
+                            fimDoPeriodo[0] = true;
+                            return false;
+                        }
+                        if (instante >= inicio) {
+                            movimentos.add(movimento);
+                        }
+                        return true;
+                    });
+                    if (posicaoFinal < plano[1] && !fimDoPeriodo[0]) {
+                        throw new IOException("Registro corrompido na posição " + posicaoFinal);
+                    }
+                }
+            } catch (IOException e) {
+                throw new PersistenciaException("Erro ao ler o livro de controlados: " + segmento.arquivo.getPath(), e);
+            }
+        }
+        return movimentos;
+    }
+
+    private static void lerPosicoes(File arquivo, long[] posicoes, List<MovimentoControlado> destino) throws IOException {
+        try (FileChannel leitura = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_LEITURA);
+            for (long posicao : posicoes) {
+                destino.add(SegmentoLivro.lerRegistro(leitura, posicao, buffer));
+            }
+        }
+    }
+
+    /**
+     * Confere o livro inteiro: CRC32 de cada registro, sequência sem lacunas e instantes em ordem.
+     * Devolve a quantidade de movimentos conferidos.
+     *
+     * @throws PersistenciaException na primeira falha encontrada
+     */
+    public long verificar() throws PersistenciaException {
+        List<SegmentoLivro> copia;
+        List<Long> tamanhos = new ArrayList<>();
+        synchronized (this) {
+            copia = new ArrayList<>(segmentos);
+            for (SegmentoLivro segmento : copia) {
+                tamanhos.add(segmento.tamanho);
+            }
+        }
+
+        long[] esperado = {1};
+        long[] instanteAnterior = {Long.MIN_VALUE};
+        for (int i = 0; i < copia.size(); i++) {
+            SegmentoLivro segmento = copia.get(i);
+            long tamanho = tamanhos.get(i);
+            long valido;
+            try {
+                valido = SegmentoLivro.varrer(segmento.arquivo, SegmentoLivro.TAMANHO_CABECALHO, tamanho,
+                        (movimento, posicao, bytes) -> {
+                            long instante = SegmentoLivro.milissegundos(movimento.getInstante());
+                            if (movimento.getSequencia() != esperado[0] || instante < instanteAnterior[0]) {
+                                return false;
+                            }
+                            esperado[0]++;
+                            instanteAnterior[0] = instante;
+                            return true;
+                        });
+            } catch (IOException e) {
+                throw new PersistenciaException("Erro ao ler o livro de controlados: " + segmento.arquivo.getPath(), e);
+            }
+            if (valido < tamanho) {
+                throw new PersistenciaException("Livro de controlados inválido em " + segmento.arquivo.getName()
+                        + ", posição " + valido + " (esperada a sequência " + esperado[0] + ")");
+            }
+        }
+        return esperado[0] - 1;
+    }
+
+    public synchronized long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    public synchronized int quantidadeSegmentos() {
+        return segmentos.size();
+    }
+
+    public String getDiretorio() {
+        return diretorio.getPath();
+    }
+
+    public synchronized void fechar() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.force(true);
+            canal.close();
+        } catch (IOException e) {
+            LOG.aviso("Erro ao fechar o livro de controlados", "diretorio", diretorio.getPath(), "erro", e.getMessage());
+        }
+        canal = null;
+    }
+}
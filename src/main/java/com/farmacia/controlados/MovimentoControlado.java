@@ -0,0 +1,69 @@
+package com.farmacia.controlados;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Movimento de estoque de um medicamento controlado, como gravado no livro: sequência (crescente,
+ * sem lacunas), instante, tipo, código, nome, lote (vazio se o medicamento não é controlado por
+ * lote), quantidade movimentada (negativa nas saídas) e o estoque total do medicamento depois do
+ * movimento.
+ */
+public final class MovimentoControlado {
+    private final long sequencia;
+    private final LocalDateTime instante;
+    private final TipoMovimento tipo;
+    private final String codigo;
+    private final String nome;
+    private final String lote;
+    private final int quantidade;
+    private final int saldo;
+
+    public MovimentoControlado(long sequencia, LocalDateTime instante, TipoMovimento tipo, String codigo,
+                               String nome, String lote, int quantidade, int saldo) {
+        this.sequencia = sequencia;
+        this.instante = instante;
+        this.tipo = tipo;
+        this.codigo = codigo;
+        this.nome = nome == null ? "" : nome;
+        this.lote = lote == null ? "" : lote;
+        this.quantidade = quantidade;
+        this.saldo = saldo;
+    }
+
+    public long getSequencia() { return sequencia; }
+    public LocalDateTime getInstante() { return instante; }
+    public TipoMovimento getTipo() { return tipo; }
+    public String getCodigo() { return codigo; }
+    public String getNome() { return nome; }
+    public String getLote() { return lote; }
+    public int getQuantidade() { return quantidade; }
+    public int getSaldo() { return saldo; }
+
+    /**
+     * O mesmo movimento com a sequência e o instante atribuídos pelo livro
+     */
+    MovimentoControlado registrado(long novaSequencia, LocalDateTime novoInstante) {
+        return new MovimentoControlado(novaSequencia, novoInstante, tipo, codigo, nome, lote, quantidade, saldo);
+    }
+
+    public Map<String, Object> paraMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("seq", sequencia);
+        mapa.put("instante", instante.toString());
+        mapa.put("tipo", tipo.name());
+        mapa.put("codigo", codigo);
+        mapa.put("nome", nome);
+        mapa.put("lote", lote.isEmpty() ? null : lote);
+        mapa.put("quantidade", quantidade);
+        mapa.put("saldo", saldo);
+        return mapa;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequencia + " " + instante + " " + tipo + " " + codigo
+                + (lote.isEmpty() ? "" : " lote " + lote) + " " + quantidade + " (saldo " + saldo + ")";
+    }
+}
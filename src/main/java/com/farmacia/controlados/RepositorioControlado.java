@@ -0,0 +1,259 @@
+package com.farmacia.controlados;
+
+import com.farmacia.dao.AlteracaoArquivo;
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.OuvinteArquivo;
+import com.farmacia.dao.Pagina;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Repositório que registra no {@link LivroControlados} cada movimento de estoque de medicamentos
+ * controlados feito pelo repositório decorado, comparando o medicamento antes e depois de cada
+ * escrita bem-sucedida (um movimento por lote alterado). A substituição completa
+ * ({@link #salvarTodos}) vira uma só gravação no livro, assim como cada lote de alterações feitas
+ * no arquivo por outro programa ({@link #vigiar}). Leituras passam direto.
+ * <p>
+ * O movimento é gravado depois da escrita no repositório: se a gravação no livro falhar, a
+ * escrita já feita permanece e o erro é propagado (e registrado no log) para quem chamou.
+ */
+public class RepositorioControlado implements MedicamentoRepository {
+    private static final Log LOG = Log.para(RepositorioControlado.class);
+
+    private final MedicamentoRepository repositorio;
+    private final LivroControlados livro;
+
+    public RepositorioControlado(MedicamentoRepository repositorio, LivroControlados livro) {
+        this.repositorio = repositorio;
+        this.livro = livro;
+    }
+
+    public LivroControlados getLivro() {
+        return livro;
+    }
+
+    /**
+     * Repositório decorado
+     */
+    public MedicamentoRepository getRepositorio() {
+        return repositorio;
+    }
+
+    // ========== ESCRITAS (registradas) ==========
+
+    @Override
+    public synchronized void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException {
+        Map<String, Medicamento> anteriores = new HashMap<>();
+        for (Medicamento m : repositorio.catalogo().getTodos()) {
+            if (m.isControlado()) {
+                anteriores.putIfAbsent(m.getCodigo(), m);
+            }
+        }
+
+        repositorio.salvarTodos(medicamentos);
+
+        List<MovimentoControlado> movimentos = new ArrayList<>();
+        for (Medicamento novo : medicamentos) {
+            movimentos.addAll(movimentos(anteriores.remove(novo.getCodigo()), novo));
+        }
+        for (Medicamento removido : anteriores.values()) {
+            movimentos.addAll(movimentos(removido, null));
+        }
+        registrar(movimentos);
+    }
+
+    @Override
+    public synchronized void adicionar(Medicamento medicamento) throws PersistenciaException {
+        repositorio.adicionar(medicamento);
+        registrar(movimentos(null, medicamento));
+    }
+
+    @Override
+    public synchronized void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException {
+        Medicamento anterior = repositorio.buscarPorCodigo(medicamentoAtualizado.getCodigo());
+        repositorio.atualizar(medicamentoAtualizado);
+        registrar(movimentos(anterior, medicamentoAtualizado));
+    }
+
+    @Override
+    public synchronized boolean remover(String codigo) throws PersistenciaException {
+        Medicamento anterior = repositorio.buscarPorCodigo(codigo);
+        boolean removido = repositorio.remover(codigo);
+        if (removido) {
+            registrar(movimentos(anterior, null));
+        }
+        return removido;
+    }
+
+    @Override
+    public boolean vigiar(OuvinteArquivo ouvinte) throws PersistenciaException {
+        return repositorio.vigiar(alteracoes -> {
+            List<MovimentoControlado> movimentos = new ArrayList<>();
+            for (AlteracaoArquivo alteracao : alteracoes) {
+                movimentos.addAll(movimentos(alteracao.getAntes(), alteracao.getDepois()));
+            }
+            registrar(movimentos);
+            ouvinte.alterado(alteracoes);
+        });
+    }
+
+    private void registrar(List<MovimentoControlado> movimentos) throws PersistenciaException {
+        try {
+            livro.registrar(movimentos);
+        } catch (PersistenciaException e) {
+            LOG.erro("Movimento de controlado não registrado no livro", e, "movimentos", movimentos.size());
+            throw e;
+        }
+    }
+
+    /**
+     * Movimentos entre o estado anterior e o novo de um medicamento (qualquer um pode ser nulo).
+     * Só contam os estados em que o medicamento é controlado: passar a ser controlado é um
+     * cadastro no livro e deixar de ser, uma exclusão. Sequência e instante ficam para o livro.
+     */
+    static List<MovimentoControlado> movimentos(Medicamento antes, Medicamento depois) {
+        Medicamento anterior = antes != null && antes.isControlado() ? antes : null;
+        Medicamento novo = depois != null && depois.isControlado() ? depois : null;
+        List<MovimentoControlado> movimentos = new ArrayList<>();
+        if (anterior == null && novo == null) {
+            return movimentos;
+        }
+
+        Medicamento referencia = novo != null ? novo : anterior;
+        int saldo = novo == null ? 0 : novo.getQuantidadeEstoque();
+        Map<String, Integer> saldosAntes = saldosPorLote(anterior, novo);
+        Map<String, Integer> saldosDepois = saldosPorLote(novo, anterior);
+
+        if (anterior == null || novo == null) {
+            TipoMovimento tipo = anterior == null ? TipoMovimento.CADASTRO : TipoMovimento.EXCLUSAO;
+            Map<String, Integer> saldos = anterior == null ? saldosDepois : saldosAntes;
+            int sinal = anterior == null ? 1 : -1;
+            for (Map.Entry<String, Integer> lote : saldos.entrySet()) {
+                if (lote.getValue() != 0) {
+                    movimentos.add(movimento(tipo, referencia, lote.getKey(), sinal * lote.getValue(), saldo));
+                }
+            }
+            if (movimentos.isEmpty()) {
+                // O cadastro (ou a exclusão) fica no livro mesmo sem estoque
+                movimentos.add(movimento(tipo, referencia, "", 0, saldo));
+            }
+            return movimentos;
+        }
+
+        TreeSet<String> lotes = new TreeSet<>(saldosAntes.keySet());
+        lotes.addAll(saldosDepois.keySet());
+        for (String lote : lotes) {
+            int diferenca = saldosDepois.getOrDefault(lote, 0) - saldosAntes.getOrDefault(lote, 0);
+            if (diferenca != 0) {
+                movimentos.add(movimento(diferenca > 0 ? TipoMovimento.ENTRADA : TipoMovimento.SAIDA,
+                        referencia, lote, diferenca, saldo));
+            }
+        }
+        return movimentos;
+    }
+
+    /**
+     * Estoque por número de lote (lote vazio para medicamentos sem lotes). Se só o outro estado
+     * tem lotes, o estoque sem lote conta como o lote {@value Medicamento#LOTE_INICIAL}, como faz
+     * o primeiro recebimento de lote.
+     */
+    private static Map<String, Integer> saldosPorLote(Medicamento medicamento, Medicamento outro) {
+        Map<String, Integer> saldos = new TreeMap<>();
+        if (medicamento == null) {
+            return saldos;
+        }
+        if (medicamento.temLotes()) {
+            for (Lote lote : medicamento.getLotes()) {
+                saldos.merge(lote.getNumero(), lote.getQuantidade(), Integer::sum);
+            }
+        } else {
+            boolean outroComLotes = outro != null && outro.temLotes();
+            saldos.put(outroComLotes ? Medicamento.LOTE_INICIAL : "", medicamento.getQuantidadeEstoque());
+        }
+        return saldos;
+    }
+
+    private static MovimentoControlado movimento(TipoMovimento tipo, Medicamento medicamento, String lote,
+                                                 int quantidade, int saldo) {
+        return new MovimentoControlado(0, null, tipo, medicamento.getCodigo(), medicamento.getNome(),
+                lote, quantidade, saldo);
+    }
+
+    // ========== LEITURAS ==========
+
+    @Override
+    public List<Medicamento> carregarTodos() throws PersistenciaException {
+        return repositorio.carregarTodos();
+    }
+
+    @Override
+    public Medicamento buscarPorCodigo(String codigo) throws PersistenciaException {
+        return repositorio.buscarPorCodigo(codigo);
+    }
+
+    @Override
+    public boolean existeCodigo(String codigo) throws PersistenciaException {
+        return repositorio.existeCodigo(codigo);
+    }
+
+    @Override
+    public CatalogoIndexado catalogo() throws PersistenciaException {
+        return repositorio.catalogo();
+    }
+
+    @Override
+    public int contar() throws PersistenciaException {
+        return repositorio.contar();
+    }
+
+    @Override
+    public List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException {
+        return repositorio.listarJanela(ordem, inicio, tamanho);
+    }
+
+    @Override
+    public Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException {
+        return repositorio.listarApos(ordem, apos, tamanho);
+    }
+
+    @Override
+    public String descricao() {
+        return repositorio.descricao();
+    }
+
+    @Override
+    public void compactar() throws PersistenciaException {
+        repositorio.compactar();
+    }
+
+    @Override
+    public void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        repositorio.percorrer(consumidor);
+    }
+
+    @Override
+    public boolean isSomenteLeitura() {
+        return repositorio.isSomenteLeitura();
+    }
+
+    @Override
+    public void fechar() throws PersistenciaException {
+        try {
+            repositorio.fechar();
+        } finally {
+            livro.fechar();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.farmacia.controlados;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Um segmento do livro de controlados: arquivo só de acréscimo com os movimentos de um intervalo
+ * de sequências, e os índices do segmento em memória (pontos esparsos instante -> posição e, por
+ * código, os instantes e posições de cada movimento). Ao ser selado, o segmento grava os índices
+ * num arquivo ao lado; na abertura seguinte eles são lidos de lá em vez de varrer o segmento.
+ * <p>
+ * Formato: assinatura (4 bytes) e os registros, cada um com o tamanho do conteúdo, o CRC32 do
+ * conteúdo e o conteúdo (sequência, instante em milissegundos, tipo, código, nome, lote,
+ * quantidade e saldo).
+ */
+final class SegmentoLivro {
+    static final int ASSINATURA = 0x464C4331; // "FLC1"
+    static final int TAMANHO_CABECALHO = 4;
+    private static final int ASSINATURA_INDICE = 0x464C4931; // "FLI1"
+    private static final int TAMANHO_CABECALHO_REGISTRO = 8;
+    // Maior conteúdo aceito na leitura: acima disso o registro é tratado como corrompido
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 16;
+    // Um ponto do índice de tempo a cada N registros
+    private static final int INTERVALO_TEMPO = 64;
+
+    final File arquivo;
+    final long primeiraSequencia;
+    long ultimaSequencia;
+    long primeiroInstante = Long.MAX_VALUE;
+    long ultimoInstante = Long.MIN_VALUE;
+    long tamanho = TAMANHO_CABECALHO;
+    int registros;
+
+    private long[] temposIndice = new long[16];
+    private long[] posicoesIndice = new long[16];
+    private int pontosIndice;
+    private final Map<String, Postagens> porCodigo = new HashMap<>();
+
+    SegmentoLivro(File arquivo, long primeiraSequencia) {
+        this.arquivo = arquivo;
+        this.primeiraSequencia = primeiraSequencia;
+        this.ultimaSequencia = primeiraSequencia - 1;
+    }
+
+    File arquivoIndice() {
+        return indiceDe(arquivo);
+    }
+
+    static File indiceDe(File segmento) {
+        String nome = segmento.getName();
+        return new File(segmento.getParentFile(), nome.substring(0, nome.lastIndexOf('.')) + ".idx");
+    }
+
+    /**
+     * Acrescenta aos índices o movimento gravado em {@code posicao}, ocupando {@code bytes}
+     */
+    void indexar(MovimentoControlado movimento, long posicao, int bytes) {
+        long instante = milissegundos(movimento.getInstante());
+        if (registros % INTERVALO_TEMPO == 0) {
+            if (pontosIndice == temposIndice.length) {
+                temposIndice = Arrays.copyOf(temposIndice, pontosIndice * 2);
+                posicoesIndice = Arrays.copyOf(posicoesIndice, pontosIndice * 2);
+            }
+            temposIndice[pontosIndice] = instante;
+            posicoesIndice[pontosIndice] = posicao;
+            pontosIndice++;
+        }
+        porCodigo.computeIfAbsent(movimento.getCodigo(), c -> new Postagens()).adicionar(instante, posicao);
+
+        primeiroInstante = Math.min(primeiroInstante, instante);
+        ultimoInstante = instante;
+        ultimaSequencia = movimento.getSequencia();
+        tamanho = posicao + bytes;
+        registros++;
+    }
+
+    boolean sobrepoe(long de, long ate) {
+        return registros > 0 && primeiroInstante < ate && ultimoInstante >= de;
+    }
+
+    /**
+     * Posições dos movimentos do código com instante em [de, ate), em ordem
+     */
+    long[] posicoesDoCodigo(String codigo, long de, long ate) {
+        Postagens postagens = porCodigo.get(codigo);
+        if (postagens == null) {
+            return new long[0];
+        }
+        int inicio = postagens.primeiroAPartirDe(de);
+        int fim = postagens.primeiroAPartirDe(ate);
+        return Arrays.copyOfRange(postagens.posicoes, inicio, Math.max(inicio, fim));
+    }
+
+    /**
+     * Posição a partir da qual estão os movimentos com instante maior ou igual a {@code de}
+     */
+    long posicaoInicial(long de) {
+        int baixo = 0;
+        int alto = pontosIndice - 1;
+        int ponto = -1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (temposIndice[meio] < de) {
+                ponto = meio;
+                baixo = meio + 1;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return ponto < 0 ? TAMANHO_CABECALHO : posicoesIndice[ponto];
+    }
+
+    // ========== REGISTROS ==========
+
+    /**
+     * Registro completo (tamanho, CRC32 e conteúdo) do movimento
+     */
+    static byte[] codificar(MovimentoControlado movimento) {
+        byte[] codigo = movimento.getCodigo().getBytes(StandardCharsets.UTF_8);
+        byte[] nome = movimento.getNome().getBytes(StandardCharsets.UTF_8);
+        byte[] lote = movimento.getLote().getBytes(StandardCharsets.UTF_8);
+        int conteudo = 8 + 8 + 1 + 2 + codigo.length + 2 + nome.length + 2 + lote.length + 4 + 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CABECALHO_REGISTRO + conteudo);
+        buffer.putInt(conteudo);
+        buffer.putInt(0);
+        buffer.putLong(movimento.getSequencia());
+        buffer.putLong(milissegundos(movimento.getInstante()));
+        buffer.put((byte) movimento.getTipo().ordinal());
+        colocarTexto(buffer, codigo);
+        colocarTexto(buffer, nome);
+        colocarTexto(buffer, lote);
+        buffer.putInt(movimento.getQuantidade());
+        buffer.putInt(movimento.getSaldo());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), TAMANHO_CABECALHO_REGISTRO, conteudo);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static void colocarTexto(ByteBuffer buffer, byte[] texto) {
+        buffer.putShort((short) texto.length);
+        buffer.put(texto);
+    }
+
+    /**
+     * Lê o conteúdo de um registro, conferindo o CRC32
+     *
+     * @throws IllegalArgumentException se o conteúdo não confere com o CRC ou está mal formado
+     */
+    static MovimentoControlado decodificar(byte[] dados, int inicio, int tamanho, int crcEsperado) {
+        CRC32 crc = new CRC32();
+        crc.update(dados, inicio, tamanho);
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IllegalArgumentException("CRC inválido");
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(dados, inicio, tamanho);
+            long sequencia = buffer.getLong();
+            LocalDateTime instante = instante(buffer.getLong());
+            TipoMovimento tipo = TipoMovimento.values()[buffer.get()];
+            String codigo = lerTexto(buffer);
+            String nome = lerTexto(buffer);
+            String lote = lerTexto(buffer);
+            return new MovimentoControlado(sequencia, instante, tipo, codigo, nome, lote, buffer.getInt(), buffer.getInt());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Registro mal formado", e);
+        }
+    }
+
+    private static String lerTexto(ByteBuffer buffer) {
+        byte[] texto = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lê o registro que começa em {@code posicao} (leitura posicional, segura entre threads)
+     */
+    static MovimentoControlado lerRegistro(FileChannel canal, long posicao, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        lerAte(canal, buffer, posicao, TAMANHO_CABECALHO_REGISTRO);
+        int conteudo = buffer.getInt(0);
+        int crc = buffer.getInt(4);
+        if (conteudo <= 0 || conteudo > TAMANHO_MAXIMO_REGISTRO) {
+            throw new IOException("Registro com tamanho inválido na posição " + posicao);
+        }
+        if (buffer.position() < TAMANHO_CABECALHO_REGISTRO + conteudo) {
+            if (buffer.capacity() < TAMANHO_CABECALHO_REGISTRO + conteudo) {
+                ByteBuffer maior = ByteBuffer.allocate(TAMANHO_CABECALHO_REGISTRO + conteudo);
+                buffer.flip();
+                maior.put(buffer);
+                buffer = maior;
+            }
+            lerAte(canal, buffer, posicao, TAMANHO_CABECALHO_REGISTRO + conteudo);
+        }
+        try {
+            return decodificar(buffer.array(), TAMANHO_CABECALHO_REGISTRO, conteudo, crc);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Registro corrompido na posição " + posicao + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lê a partir de {@code posicao} até o buffer ter ao menos {@code minimo} bytes (ou encher)
+     */
+    private static void lerAte(FileChannel canal, ByteBuffer buffer, long posicao, int minimo) throws IOException {
+        while (buffer.position() < minimo) {
+            int lidos = canal.read(buffer, posicao + buffer.position());
+            if (lidos < 0) {
+                throw new EOFException("Registro incompleto na posição " + posicao);
+            }
+        }
+    }
+
+    /**
+     * Percorre os registros de {@code inicio} até {@code fim} em ordem. Para no primeiro registro
+     * incompleto ou corrompido e devolve a posição logo depois do último registro válido.
+     */
+    static long varrer(File arquivo, long inicio, long fim, Visitante visitante) throws IOException {
+        long posicao = inicio;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+             InputStream entrada = new BufferedInputStream(Channels.newInputStream(canal.position(inicio)), 1 << 16)) {
+            DataInputStream dados = new DataInputStream(entrada);
+            byte[] conteudo = new byte[256];
+            while (posicao + TAMANHO_CABECALHO_REGISTRO <= fim) {
+                int tamanho = dados.readInt();
+                int crc = dados.readInt();
+                if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_REGISTRO
+                        || posicao + TAMANHO_CABECALHO_REGISTRO + tamanho > fim) {
+                    break;
+                }
+                if (conteudo.length < tamanho) {
+                    conteudo = new byte[tamanho];
+                }
+                dados.readFully(conteudo, 0, tamanho);
+
+                MovimentoControlado movimento;
+                try {
+                    movimento = decodificar(conteudo, 0, tamanho, crc);
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+                if (!visitante.visitar(movimento, posicao, TAMANHO_CABECALHO_REGISTRO + tamanho)) {
+                    return posicao;
+                }
+                posicao += TAMANHO_CABECALHO_REGISTRO + tamanho;
+            }
+        } catch (EOFException e) {
+            // Registro incompleto no fim: a posição válida é a do último registro lido inteiro
+        }
+        return posicao;
+    }
+
+    /**
+     * Recebe os registros de {@link #varrer}; devolve false para interromper
+     */
+    interface Visitante {
+        boolean visitar(MovimentoControlado movimento, long posicao, int bytes) throws IOException;
+    }
+
+    // ========== ÍNDICE PERSISTIDO ==========
+
+    /**
+     * Grava os índices do segmento (substituição atômica), com CRC32 no fim
+     */
+    void gravarIndice() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream saida = new DataOutputStream(bytes);
+        saida.writeInt(ASSINATURA_INDICE);
+        saida.writeLong(tamanho);
+        saida.writeLong(ultimaSequencia);
+        saida.writeLong(primeiroInstante);
+        saida.writeLong(ultimoInstante);
+        saida.writeInt(registros);
+        saida.writeInt(pontosIndice);
+        for (int i = 0; i < pontosIndice; i++) {
+            saida.writeLong(temposIndice[i]);
+            saida.writeLong(posicoesIndice[i]);
+        }
+        saida.writeInt(porCodigo.size());
+        for (Map.Entry<String, Postagens> entrada : porCodigo.entrySet()) {
+            saida.writeUTF(entrada.getKey());
+            Postagens postagens = entrada.getValue();
+            saida.writeInt(postagens.quantidade);
+            for (int i = 0; i < postagens.quantidade; i++) {
+                saida.writeLong(postagens.instantes[i]);
+                saida.writeLong(postagens.posicoes[i]);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        saida.writeInt((int) crc.getValue());
+
+        File destino = arquivoIndice();
+        File temporario = new File(destino.getPath() + ".tmp");
+        Files.write(temporario.toPath(), bytes.toByteArray());
+        Files.move(temporario.toPath(), destino.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carrega os índices gravados por {@link #gravarIndice()}. Devolve false (e o segmento deve
+     * ser varrido) se o arquivo não existe, está corrompido ou não corresponde ao segmento.
+     */
+    boolean carregarIndice() {
+        File origem = arquivoIndice();
+        if (!origem.isFile()) {
+            return false;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(origem.toPath());
+            if (bytes.length < 4) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+                return false;
+            }
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+            if (entrada.readInt() != ASSINATURA_INDICE || entrada.readLong() != arquivo.length()) {
+                return false;
+            }
+            ultimaSequencia = entrada.readLong();
+            primeiroInstante = entrada.readLong();
+            ultimoInstante = entrada.readLong();
+            registros = entrada.readInt();
+            pontosIndice = entrada.readInt();
+            temposIndice = new long[Math.max(pontosIndice, 1)];
+            posicoesIndice = new long[Math.max(pontosIndice, 1)];
+            for (int i = 0; i < pontosIndice; i++) {
+                temposIndice[i] = entrada.readLong();
+                posicoesIndice[i] = entrada.readLong();
+            }
+            int codigos = entrada.readInt();
+            for (int c = 0; c < codigos; c++) {
+                String codigo = entrada.readUTF();
+                int quantidade = entrada.readInt();
+                Postagens postagens = new Postagens(quantidade);
+                for (int i = 0; i < quantidade; i++) {
+                    postagens.adicionar(entrada.readLong(), entrada.readLong());
+                }
+                porCodigo.put(codigo, postagens);
+            }
+            tamanho = arquivo.length();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // ========== AUXILIARES ==========
+
+    static long milissegundos(LocalDateTime instante) {
+        return instante.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime instante(long milissegundos) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(milissegundos), ZoneOffset.UTC);
+    }
+
+    /**
+     * Instantes e posições dos movimentos de um código no segmento, em ordem de gravação
+     */
+    private static final class Postagens {
+        long[] instantes;
+        long[] posicoes;
+        int quantidade;
+
+        Postagens() {
+            this(4);
+        }
+
+        Postagens(int capacidade) {
+            instantes = new long[Math.max(capacidade, 1)];
+            posicoes = new long[Math.max(capacidade, 1)];
+        }
+
+        void adicionar(long instante, long posicao) {
+            if (quantidade == instantes.length) {
+                instantes = Arrays.copyOf(instantes, quantidade * 2);
+                posicoes = Arrays.copyOf(posicoes, quantidade * 2);
+            }
+            instantes[quantidade] = instante;
+            posicoes[quantidade] = posicao;
+            quantidade++;
+        }
+
+        /**
+         * Índice do primeiro movimento com instante maior ou igual a {@code instante}
+         */
+        int primeiroAPartirDe(long instante) {
+            int baixo = 0;
+            int alto = quantidade;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (instantes[meio] < instante) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+    }
+}
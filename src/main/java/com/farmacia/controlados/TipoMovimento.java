@@ -0,0 +1,13 @@
+package com.farmacia.controlados;
+
+/**
+ * Tipos de movimento do livro de controlados. CADASTRO e EXCLUSAO marcam a entrada e a saída do
+ * medicamento do controle (inclusão, exclusão ou mudança do campo controlado); os demais são
+ * movimentações de estoque.
+ */
+public enum TipoMovimento {
+    CADASTRO,
+    ENTRADA,
+    SAIDA,
+    EXCLUSAO
+}
@@ -0,0 +1,163 @@
+package com.farmacia.controller;
+
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.model.Medicamento;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lista somente leitura para a TableView que busca os itens em janelas (páginas) conforme a
+ * rolagem, mantendo em cache apenas as páginas recentes e pré-carregando as vizinhas em segundo plano.
+ * Assim a abertura da tela custa uma contagem e uma página, independente do tamanho do catálogo.
+ */
+public class ListaPaginada extends ObservableListBase<Medicamento> {
+    private static final Log LOG = Log.para(ListaPaginada.class);
+    private static final int TAMANHO_PAGINA = 200;
+    private static final int PAGINAS_EM_CACHE = 20;
+    private static final ExecutorService PRE_CARGA = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pre-carga-tabela");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Origem das janelas: devolve os itens [inicio, inicio + tamanho) na ordem crescente
+     */
+    @FunctionalInterface
+    public interface FontePaginas {
+        List<Medicamento> buscar(int inicio, int tamanho) throws PersistenciaException;
+    }
+
+    private final FontePaginas fonte;
+    private final int total;
+    private final OrdemListagem ordem;
+    private final boolean decrescente;
+    private final Set<Integer> emCarga = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, List<Medicamento>> paginas =
+            new LinkedHashMap<>(PAGINAS_EM_CACHE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Medicamento>> maisAntiga) {
+                    return size() > PAGINAS_EM_CACHE;
+                }
+            };
+
+    public ListaPaginada(int total, OrdemListagem ordem, boolean decrescente, FontePaginas fonte) {
+        this.total = total;
+        this.ordem = ordem;
+        this.decrescente = decrescente;
+        this.fonte = fonte;
+    }
+
+    public OrdemListagem getOrdem() { return ordem; }
+    public boolean isDecrescente() { return decrescente; }
+
+    @Override
+    public int size() {
+        return total;
+    }
+
+    @Override
+    public Medicamento get(int indice) {
+        if (indice < 0 || indice >= total) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fora de 0.." + (total - 1));
+        }
+
+        int posicao = decrescente ? total - 1 - indice : indice;
+        int numeroPagina = posicao / TAMANHO_PAGINA;
+
+        List<Medicamento> pagina = obterPagina(numeroPagina);
+        preCarregar(decrescente ? numeroPagina - 1 : numeroPagina + 1);
+
+        int deslocamento = posicao % TAMANHO_PAGINA;
+        return pagina != null && deslocamento < pagina.size() ? pagina.get(deslocamento) : null;
+    }
+
+    /**
+     * Troca, nas páginas em cache, o item de mesmo código pelo informado (que deve ocupar a mesma
+     * posição na ordem da listagem). Deve ser chamado na thread da interface.
+     *
+     * @return false se o item não estiver em nenhuma página em cache
+     */
+    public boolean substituir(Medicamento medicamento) {
+        int posicao = -1;
+        Medicamento anterior = null;
+        synchronized (paginas) {
+            for (Map.Entry<Integer, List<Medicamento>> pagina : paginas.entrySet()) {
+                List<Medicamento> itens = pagina.getValue();
+                for (int i = 0; i < itens.size(); i++) {
+                    if (itens.get(i).getCodigo().equals(medicamento.getCodigo())) {
+                        List<Medicamento> copia = new ArrayList<>(itens);
+                        anterior = copia.set(i, medicamento);
+                        pagina.setValue(copia);
+                        posicao = pagina.getKey() * TAMANHO_PAGINA + i;
+                        break;
+                    }
+                }
+                if (anterior != null) {
+                    break;
+                }
+            }
+        }
+        if (anterior == null) {
+            return false;
+        }
+
+        beginChange();
+        nextSet(decrescente ? total - 1 - posicao : posicao, anterior);
+        endChange();
+        return true;
+    }
+
+    private List<Medicamento> obterPagina(int numeroPagina) {
+        synchronized (paginas) {
+            List<Medicamento> pagina = paginas.get(numeroPagina);
+            if (pagina != null) {
+                return pagina;
+            }
+        }
+        return carregar(numeroPagina);
+    }
+
+    private List<Medicamento> carregar(int numeroPagina) {
+        try {
+            List<Medicamento> pagina = fonte.buscar(numeroPagina * TAMANHO_PAGINA, TAMANHO_PAGINA);
+            synchronized (paginas) {
+                paginas.put(numeroPagina, pagina);
+            }
+            return pagina;
+        } catch (PersistenciaException e) {
+            LOG.erro("Erro ao carregar página da listagem", e, "pagina", numeroPagina);
+            return null;
+        }
+    }
+
+    private void preCarregar(int numeroPagina) {
+        if (numeroPagina < 0 || numeroPagina * TAMANHO_PAGINA >= total) {
+            return;
+        }
+        synchronized (paginas) {
+            if (paginas.containsKey(numeroPagina)) {
+                return;
+            }
+        }
+        if (emCarga.add(numeroPagina)) {
+            PRE_CARGA.execute(() -> {
+                try {
+                    carregar(numeroPagina);
+                } finally {
+                    emCarga.remove(numeroPagina);
+                }
+            });
+        }
+    }
+}
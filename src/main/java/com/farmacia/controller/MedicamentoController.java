@@ -1,24 +1,49 @@
 package com.farmacia.controller;
 
+import com.farmacia.config.Configuracao;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.eventos.EventoAlteracao;
+import com.farmacia.eventos.FluxoAlteracoes;
+import com.farmacia.eventos.TipoAlteracao;
 import com.farmacia.exception.PersistenciaException;
 import com.farmacia.exception.ValidacaoException;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MarcosPartida;
+import com.farmacia.model.Dinheiro;
 import com.farmacia.model.Fornecedor;
 import com.farmacia.model.Medicamento;
+import com.farmacia.relatorio.FormatadorRelatorios;
+import com.farmacia.relatorio.FormatoSaida;
+import com.farmacia.relatorio.LayoutColunas;
+import com.farmacia.relatorio.RenderizadorTexto;
+import com.farmacia.relatorio.TipoRelatorio;
 import com.farmacia.service.MedicamentoService;
+import com.farmacia.View.ValidacaoService;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
+import java.io.File;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MedicamentoController {
 
+    private static final Log LOG = Log.para(MedicamentoController.class);
+
     // ========== COMPONENTES DA ABA CADASTRO ==========
     @FXML private TextField txtCodigo;
     @FXML private TextField txtNome;
@@ -53,46 +78,165 @@ public class MedicamentoController {
 
     // ========== COMPONENTES DA ABA RELATÓRIOS ==========
     @FXML private ComboBox<String> cmbRelatorios;
-    @FXML private TextArea txtRelatorio;
+    @FXML private ListView<String> lstRelatorio;
 
     // Service
     private MedicamentoService service;
     private ObservableList<Medicamento> listaMedicamentos;
     private Medicamento medicamentoSelecionado;
+    private OrdemListagem ordemListagem = OrdemListagem.CODIGO;
+    private boolean listagemDecrescente = false;
+
+    // Alterações recebidas do fluxo, aplicadas em lote na thread da interface
+    private FluxoAlteracoes.Assinatura assinaturaAlteracoes;
+    private final Queue<EventoAlteracao> alteracoesPendentes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean aplicacaoAgendada = new AtomicBoolean();
 
     /**
      * Método chamado automaticamente após carregar o FXML
      */
     @FXML
     public void initialize() {
-        System.out.println("=== INICIALIZANDO CONTROLLER ===");
+        LOG.debug("Inicializando controller");
 
-        service = new MedicamentoService();
         listaMedicamentos = FXCollections.observableArrayList();
 
         configurarTabela();
         configurarComboRelatorios();
-        carregarDados();
         configurarEventos();
 
-        lblMensagem.setText("✓ Sistema pronto para uso!");
-        lblMensagem.setStyle("-fx-text-fill: green;");
+        // A janela aparece antes do catálogo: repositório e índices são abertos em segundo plano
+        tabelaMedicamentos.setPlaceholder(new Label("Carregando catálogo..."));
+        lblMensagem.setText("Carregando catálogo...");
+        lblMensagem.setStyle("-fx-text-fill: gray;");
+        abrirCatalogo();
+
+        LOG.info("Controller inicializado");
+    }
+
+    /**
+     * Abre o repositório e monta o catálogo indexado fora da thread da interface;
+     * ao terminar, exibe a listagem e libera as ações
+     */
+    private void abrirCatalogo() {
+        Thread abertura = new Thread(() -> {
+            try {
+                MedicamentoService novo = new MedicamentoService();
+                novo.contarMedicamentos();
+                Platform.runLater(() -> catalogoAberto(novo));
+            } catch (PersistenciaException e) {
+                Platform.runLater(() -> {
+                    LOG.erro("Erro ao abrir repositório de medicamentos", e);
+                    tabelaMedicamentos.setPlaceholder(new Label("Catálogo indisponível"));
+                    if (Configuracao.sairAposPartida()) {
+                        Platform.exit();
+                        return;
+                    }
+                    mostrarErro("Erro ao abrir repositório de medicamentos: " + e.getMessage());
+                });
+            }
+        }, "abertura-catalogo");
+        abertura.setDaemon(true);
+        abertura.start();
+    }
+
+    private void catalogoAberto(MedicamentoService novo) {
+        service = novo;
+        tabelaMedicamentos.setPlaceholder(new Label("Nenhum medicamento cadastrado"));
+        carregarDados();
+        assinarAlteracoes();
+
+        if (service.isSomenteLeitura()) {
+            // Outra instância grava no mesmo arquivo: esta acompanha as gravações dela
+            lblMensagem.setText("Somente leitura: outra instância está gravando neste catálogo");
+            lblMensagem.setStyle("-fx-text-fill: darkorange;");
+        } else {
+            lblMensagem.setText("✓ Sistema pronto para uso!");
+            lblMensagem.setStyle("-fx-text-fill: green;");
+        }
+        MarcosPartida.marcar(MarcosPartida.CATALOGO_PRONTO);
+
+        if (Configuracao.sairAposPartida()) {
+            Platform.exit();
+        }
+    }
 
-        System.out.println("=== CONTROLLER INICIALIZADO COM SUCESSO ===");
+    /**
+     * A listagem acompanha o fluxo de alterações do catálogo em vez de recarregar após cada ação
+     */
+    private void assinarAlteracoes() {
+        FluxoAlteracoes fluxo = service.fluxoAlteracoes();
+        if (fluxo == null) {
+            return;
+        }
+        assinaturaAlteracoes = fluxo.ouvir("interface", evento -> {
+            alteracoesPendentes.add(evento);
+            if (aplicacaoAgendada.compareAndSet(false, true)) {
+                Platform.runLater(this::aplicarAlteracoes);
+            }
+        });
+    }
+
+    /**
+     * Aplica as alterações pendentes: atualizações que não mudam a posição na ordem atual trocam
+     * só a linha; inserções, exclusões e mudanças de posição recarregam a contagem e as páginas
+     */
+    private void aplicarAlteracoes() {
+        aplicacaoAgendada.set(false);
+        boolean recarregar = false;
+        List<Medicamento> atualizados = new ArrayList<>();
+
+        EventoAlteracao evento;
+        while ((evento = alteracoesPendentes.poll()) != null) {
+            if (evento.getTipo() != TipoAlteracao.ATUALIZACAO
+                    || ordemListagem.comparador().compare(evento.getAntes(), evento.getDepois()) != 0) {
+                recarregar = true;
+            } else {
+                atualizados.add(evento.getDepois());
+            }
+        }
+
+        if (recarregar) {
+            carregarDados();
+        } else if (tabelaMedicamentos.getItems() instanceof ListaPaginada) {
+            ListaPaginada lista = (ListaPaginada) tabelaMedicamentos.getItems();
+            for (Medicamento medicamento : atualizados) {
+                lista.substituir(medicamento);
+            }
+        }
+    }
+
+    /**
+     * Recarrega a listagem após uma ação, quando ela não acompanha o fluxo de alterações
+     */
+    private void recarregarSemFluxo() {
+        if (assinaturaAlteracoes == null) {
+            carregarDados();
+        }
+    }
+
+    /**
+     * Indica se o catálogo já foi aberto; caso contrário, avisa o usuário
+     */
+    private boolean catalogoDisponivel() {
+        if (service == null) {
+            mostrarErro("O catálogo ainda está sendo carregado. Aguarde um instante.");
+            return false;
+        }
+        return true;
     }
 
     /**
      * Configura as colunas da tabela
      */
     private void configurarTabela() {
-        System.out.println("Configurando tabela...");
-
         colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
         colNome.setCellValueFactory(new PropertyValueFactory<>("nome"));
         colPrincipioAtivo.setCellValueFactory(new PropertyValueFactory<>("principioAtivo"));
         colValidade.setCellValueFactory(new PropertyValueFactory<>("dataValidade"));
         colQuantidade.setCellValueFactory(new PropertyValueFactory<>("quantidadeEstoque"));
-        colPreco.setCellValueFactory(new PropertyValueFactory<>("preco"));
+        colPreco.setCellValueFactory(cellData -> new javafx.beans.property.SimpleObjectProperty<>(
+                Dinheiro.paraBigDecimal(cellData.getValue().getPrecoCentavos())));
         colControlado.setCellValueFactory(new PropertyValueFactory<>("controlado"));
 
         // Configurar coluna fornecedor para exibir razão social
@@ -111,7 +255,7 @@ public class MedicamentoController {
                 if (empty || preco == null) {
                     setText(null);
                 } else {
-                    setText(String.format("R$ %.2f", preco));
+                    setText("R$ " + LayoutColunas.decimal(preco, 2));
                 }
             }
         });
@@ -129,20 +273,52 @@ public class MedicamentoController {
             }
         });
 
+        // Somente as colunas com ordem de listagem paginada são ordenáveis
+        colPrincipioAtivo.setSortable(false);
+        colQuantidade.setSortable(false);
+        colPreco.setSortable(false);
+        colControlado.setSortable(false);
+        colFornecedor.setSortable(false);
+        tabelaMedicamentos.setSortPolicy(this::ordenarTabela);
+
         tabelaMedicamentos.setItems(listaMedicamentos);
     }
 
+    /**
+     * Ordena a tabela: na listagem paginada a ordenação é feita pela fonte (recarregando as páginas);
+     * em resultados de busca, pela política padrão
+     */
+    private boolean ordenarTabela(TableView<Medicamento> tabela) {
+        if (!(tabela.getItems() instanceof ListaPaginada)) {
+            return TableView.DEFAULT_SORT_POLICY.call(tabela);
+        }
+
+        OrdemListagem ordem = OrdemListagem.CODIGO;
+        boolean decrescente = false;
+        if (!tabela.getSortOrder().isEmpty()) {
+            TableColumn<Medicamento, ?> coluna = tabela.getSortOrder().get(0);
+            ordem = coluna == colNome ? OrdemListagem.NOME
+                    : coluna == colValidade ? OrdemListagem.VALIDADE
+                    : OrdemListagem.CODIGO;
+            decrescente = coluna.getSortType() == TableColumn.SortType.DESCENDING;
+        }
+
+        ListaPaginada atual = (ListaPaginada) tabela.getItems();
+        if (atual.getOrdem() != ordem || atual.isDecrescente() != decrescente) {
+            ordemListagem = ordem;
+            listagemDecrescente = decrescente;
+            carregarDados();
+        }
+        return true;
+    }
+
     /**
      * Configura o ComboBox de relatórios
      */
     private void configurarComboRelatorios() {
-        cmbRelatorios.getItems().addAll(
-                "Medicamentos Próximos ao Vencimento (30 dias)",
-                "Medicamentos com Estoque Baixo (menos de 5)",
-                "Valor Total do Estoque por Fornecedor",
-                "Medicamentos Controlados vs Não Controlados",
-                "Estatísticas Gerais"
-        );
+        for (TipoRelatorio tipo : TipoRelatorio.values()) {
+            cmbRelatorios.getItems().add(tipo.getTitulo());
+        }
     }
 
     /**
@@ -161,18 +337,19 @@ public class MedicamentoController {
     }
 
     /**
-     * Carrega todos os medicamentos do banco
+     * Carrega a listagem paginada: só a contagem é obtida agora, as páginas vêm sob demanda
      */
     private void carregarDados() {
-        System.out.println("Carregando dados do CSV...");
+        LOG.debug("Carregando dados");
         try {
-            List<Medicamento> medicamentos = service.listarTodos();
-            listaMedicamentos.clear();
-            listaMedicamentos.addAll(medicamentos);
-            lblTotalRegistros.setText("Total de registros: " + medicamentos.size());
-            System.out.println("Dados carregados: " + medicamentos.size() + " medicamentos");
+            int total = service.contarMedicamentos();
+            OrdemListagem ordem = ordemListagem;
+            tabelaMedicamentos.setItems(new ListaPaginada(total, ordem, listagemDecrescente,
+                    (inicio, tamanho) -> service.listarJanela(ordem, inicio, tamanho)));
+            lblTotalRegistros.setText("Total de registros: " + total);
+            LOG.info("Dados carregados", "total", total);
         } catch (PersistenciaException e) {
-            System.err.println("Erro ao carregar: " + e.getMessage());
+            LOG.erro("Erro ao carregar medicamentos", e);
             mostrarErro("Erro ao carregar medicamentos: " + e.getMessage());
         }
     }
@@ -187,7 +364,7 @@ public class MedicamentoController {
         txtPrincipioAtivo.setText(med.getPrincipioAtivo());
         dpDataValidade.setValue(med.getDataValidade());
         txtQuantidade.setText(String.valueOf(med.getQuantidadeEstoque()));
-        txtPreco.setText(med.getPreco().toString());
+        txtPreco.setText(Dinheiro.paraBigDecimal(med.getPrecoCentavos()).toPlainString());
         chkControlado.setSelected(med.isControlado());
 
         Fornecedor forn = med.getFornecedor();
@@ -203,41 +380,37 @@ public class MedicamentoController {
 
     @FXML
     private void handleSalvar() {
-        System.out.println("=== INÍCIO handleSalvar ===");
+        if (!catalogoDisponivel()) {
+            return;
+        }
 
         try {
-            System.out.println("Obtendo medicamento do formulário...");
             Medicamento medicamento = obterMedicamentoDoFormulario();
-            System.out.println("Medicamento obtido: " + medicamento.getCodigo());
 
             // Verificar se é atualização ou novo cadastro
             if (medicamentoSelecionado != null &&
                     medicamentoSelecionado.getCodigo().equals(medicamento.getCodigo())) {
-                System.out.println("Atualizando medicamento...");
                 service.atualizar(medicamento);
+                LOG.info("Medicamento atualizado", "codigo", medicamento.getCodigo());
                 mostrarSucesso("Medicamento atualizado com sucesso!");
             } else {
-                System.out.println("Cadastrando novo medicamento...");
                 service.cadastrar(medicamento);
+                LOG.info("Medicamento cadastrado", "codigo", medicamento.getCodigo());
                 mostrarSucesso("Medicamento cadastrado com sucesso!");
             }
 
             limparFormulario();
-            carregarDados();
+            recarregarSemFluxo();
             medicamentoSelecionado = null;
 
-            System.out.println("=== FIM handleSalvar - SUCESSO ===");
-
         } catch (ValidacaoException e) {
-            System.err.println("ERRO DE VALIDAÇÃO: " + e.getMessage());
+            LOG.aviso("Erro de validação ao salvar", "erro", e.getMessage());
             mostrarErro("Erro de validação: " + e.getMessage());
         } catch (PersistenciaException e) {
-            System.err.println("ERRO DE PERSISTÊNCIA: " + e.getMessage());
-            e.printStackTrace();
+            LOG.erro("Erro de persistência ao salvar", e);
             mostrarErro("Erro ao salvar: " + e.getMessage());
         } catch (Exception e) {
-            System.err.println("ERRO INESPERADO: " + e.getMessage());
-            e.printStackTrace();
+            LOG.erro("Erro inesperado ao salvar", e);
             mostrarErro("Erro inesperado: " + e.getMessage());
         }
     }
@@ -252,6 +425,10 @@ public class MedicamentoController {
 
     @FXML
     private void handleExcluir() {
+        if (!catalogoDisponivel()) {
+            return;
+        }
+
         String codigo = txtCodigo.getText().trim();
 
         if (codigo.isEmpty()) {
@@ -272,7 +449,7 @@ public class MedicamentoController {
                 service.excluir(codigo);
                 mostrarSucesso("Medicamento excluído com sucesso!");
                 limparFormulario();
-                carregarDados();
+                recarregarSemFluxo();
                 medicamentoSelecionado = null;
             } catch (ValidacaoException | PersistenciaException e) {
                 mostrarErro("Erro ao excluir: " + e.getMessage());
@@ -282,6 +459,10 @@ public class MedicamentoController {
 
     @FXML
     private void handleBuscar() {
+        if (!catalogoDisponivel()) {
+            return;
+        }
+
         String codigo = txtBusca.getText().trim();
 
         if (codigo.isEmpty()) {
@@ -295,6 +476,7 @@ public class MedicamentoController {
             if (medicamento != null) {
                 listaMedicamentos.clear();
                 listaMedicamentos.add(medicamento);
+                tabelaMedicamentos.setItems(listaMedicamentos);
                 lblTotalRegistros.setText("Total de registros: 1");
                 tabelaMedicamentos.getSelectionModel().select(medicamento);
                 mostrarSucesso("Medicamento encontrado!");
@@ -308,6 +490,10 @@ public class MedicamentoController {
 
     @FXML
     private void handleAtualizarListagem() {
+        if (!catalogoDisponivel()) {
+            return;
+        }
+
         txtBusca.clear();
         carregarDados();
         mostrarSucesso("Listagem atualizada!");
@@ -315,150 +501,105 @@ public class MedicamentoController {
 
     @FXML
     private void handleGerarRelatorio() {
-        String relatorioSelecionado = cmbRelatorios.getValue();
+        if (!catalogoDisponivel()) {
+            return;
+        }
 
-        if (relatorioSelecionado == null) {
-            mostrarErro("Selecione um relatório");
+        TipoRelatorio tipo = relatorioSelecionado();
+        if (tipo == null) {
             return;
         }
 
-        try {
-            StringBuilder relatorio = new StringBuilder();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-
-            switch (relatorioSelecionado) {
-                case "Medicamentos Próximos ao Vencimento (30 dias)":
-                    List<Medicamento> proximosVencimento = service.relatorioProximosVencimento();
-
-                    relatorio.append("=".repeat(80)).append("\n");
-                    relatorio.append("RELATÓRIO: MEDICAMENTOS PRÓXIMOS AO VENCIMENTO\n");
-                    relatorio.append("Período: Próximos 30 dias\n");
-                    relatorio.append("Data de geração: ").append(LocalDate.now().format(formatter)).append("\n");
-                    relatorio.append("=".repeat(80)).append("\n\n");
-
-                    if (proximosVencimento.isEmpty()) {
-                        relatorio.append("Nenhum medicamento próximo ao vencimento.\n");
-                    } else {
-                        relatorio.append(String.format("Total de medicamentos: %d\n\n", proximosVencimento.size()));
-                        relatorio.append(String.format("%-10s %-30s %-15s %-12s\n",
-                                "CÓDIGO", "NOME", "VALIDADE", "ESTOQUE"));
-                        relatorio.append("-".repeat(80)).append("\n");
-
-                        for (Medicamento med : proximosVencimento) {
-                            relatorio.append(String.format("%-10s %-30s %-15s %-12d\n",
-                                    med.getCodigo(),
-                                    med.getNome().substring(0, Math.min(30, med.getNome().length())),
-                                    med.getDataValidade().format(formatter),
-                                    med.getQuantidadeEstoque()));
-                        }
-                    }
-                    break;
-
-                case "Medicamentos com Estoque Baixo (menos de 5)":
-                    List<Medicamento> estoqueBaixo = service.relatorioEstoqueBaixo();
-
-                    relatorio.append("=".repeat(80)).append("\n");
-                    relatorio.append("RELATÓRIO: MEDICAMENTOS COM ESTOQUE BAIXO\n");
-                    relatorio.append("Critério: Quantidade < 5 unidades\n");
-                    relatorio.append("Data de geração: ").append(LocalDate.now().format(formatter)).append("\n");
-                    relatorio.append("=".repeat(80)).append("\n\n");
-
-                    if (estoqueBaixo.isEmpty()) {
-                        relatorio.append("Nenhum medicamento com estoque baixo.\n");
-                    } else {
-                        relatorio.append(String.format("Total de medicamentos: %d\n\n", estoqueBaixo.size()));
-                        relatorio.append(String.format("%-10s %-30s %-12s %-15s\n",
-                                "CÓDIGO", "NOME", "ESTOQUE", "PREÇO"));
-                        relatorio.append("-".repeat(80)).append("\n");
-
-                        for (Medicamento med : estoqueBaixo) {
-                            relatorio.append(String.format("%-10s %-30s %-12d R$ %10.2f\n",
-                                    med.getCodigo(),
-                                    med.getNome().substring(0, Math.min(30, med.getNome().length())),
-                                    med.getQuantidadeEstoque(),
-                                    med.getPreco()));
-                        }
-                    }
-                    break;
-
-                case "Valor Total do Estoque por Fornecedor":
-                    Map<String, BigDecimal> valorPorFornecedor = service.relatorioValorTotalPorFornecedor();
-
-                    relatorio.append("=".repeat(80)).append("\n");
-                    relatorio.append("RELATÓRIO: VALOR TOTAL DO ESTOQUE POR FORNECEDOR\n");
-                    relatorio.append("Data de geração: ").append(LocalDate.now().format(formatter)).append("\n");
-                    relatorio.append("=".repeat(80)).append("\n\n");
-
-                    if (valorPorFornecedor.isEmpty()) {
-                        relatorio.append("Nenhum dado disponível.\n");
-                    } else {
-                        relatorio.append(String.format("%-40s %20s\n", "FORNECEDOR", "VALOR TOTAL"));
-                        relatorio.append("-".repeat(80)).append("\n");
-
-                        BigDecimal total = BigDecimal.ZERO;
-                        for (Map.Entry<String, BigDecimal> entry : valorPorFornecedor.entrySet()) {
-                            relatorio.append(String.format("%-40s R$ %15.2f\n",
-                                    entry.getKey().substring(0, Math.min(40, entry.getKey().length())),
-                                    entry.getValue()));
-                            total = total.add(entry.getValue());
-                        }
-
-                        relatorio.append("-".repeat(80)).append("\n");
-                        relatorio.append(String.format("%-40s R$ %15.2f\n", "TOTAL GERAL:", total));
-                    }
-                    break;
-
-                case "Medicamentos Controlados vs Não Controlados":
-                    Map<String, Long> controlados = service.relatorioControladosVsNaoControlados();
-
-                    relatorio.append("=".repeat(80)).append("\n");
-                    relatorio.append("RELATÓRIO: MEDICAMENTOS CONTROLADOS VS NÃO CONTROLADOS\n");
-                    relatorio.append("Data de geração: ").append(LocalDate.now().format(formatter)).append("\n");
-                    relatorio.append("=".repeat(80)).append("\n\n");
-
-                    long totalControlados = controlados.getOrDefault("Controlados", 0L);
-                    long totalNaoControlados = controlados.getOrDefault("Não Controlados", 0L);
-                    long totalGeral = totalControlados + totalNaoControlados;
-
-                    relatorio.append(String.format("%-30s %10s %15s\n", "CATEGORIA", "QUANTIDADE", "PERCENTUAL"));
-                    relatorio.append("-".repeat(80)).append("\n");
-                    relatorio.append(String.format("%-30s %10d %14.1f%%\n",
-                            "Controlados",
-                            totalControlados,
-                            totalGeral > 0 ? (totalControlados * 100.0 / totalGeral) : 0));
-                    relatorio.append(String.format("%-30s %10d %14.1f%%\n",
-                            "Não Controlados",
-                            totalNaoControlados,
-                            totalGeral > 0 ? (totalNaoControlados * 100.0 / totalGeral) : 0));
-                    relatorio.append("-".repeat(80)).append("\n");
-                    relatorio.append(String.format("%-30s %10d %14s\n", "TOTAL:", totalGeral, "100.0%"));
-                    break;
-
-                case "Estatísticas Gerais":
-                    Map<String, Object> estatisticas = service.relatorioEstatisticas();
-
-                    relatorio.append("=".repeat(80)).append("\n");
-                    relatorio.append("RELATÓRIO: ESTATÍSTICAS GERAIS DO ESTOQUE\n");
-                    relatorio.append("Data de geração: ").append(LocalDate.now().format(formatter)).append("\n");
-                    relatorio.append("=".repeat(80)).append("\n\n");
-
-                    relatorio.append(String.format("Total de Medicamentos Cadastrados: %d\n",
-                            estatisticas.get("totalMedicamentos")));
-                    relatorio.append(String.format("Quantidade Total em Estoque: %d unidades\n",
-                            estatisticas.get("quantidadeTotalEstoque")));
-                    relatorio.append(String.format("Valor Total do Estoque: R$ %.2f\n",
-                            estatisticas.get("valorTotalEstoque")));
-                    relatorio.append(String.format("Preço Médio dos Medicamentos: R$ %.2f\n",
-                            estatisticas.get("precoMedio")));
-                    break;
+        // Os dados saem fora da thread da interface; cada linha é formatada quando o visualizador a desenha
+        Task<List<String>> geracao = new Task<>() {
+            @Override
+            protected List<String> call() throws Exception {
+                return RenderizadorTexto.linhas(tipo, tipo.gerar(service));
             }
-
-            txtRelatorio.setText(relatorio.toString());
+        };
+        geracao.setOnSucceeded(evento -> {
+            lstRelatorio.setItems(FXCollections.observableList(geracao.getValue()));
+            lstRelatorio.scrollTo(0);
             mostrarSucesso("Relatório gerado com sucesso!");
+        });
+        geracao.setOnFailed(evento -> {
+            LOG.erro("Erro ao gerar relatório", geracao.getException(), "relatorio", tipo.getNome());
+            mostrarErro("Erro ao gerar relatório: " + geracao.getException().getMessage());
+        });
+        lblMensagem.setText("Gerando relatório...");
+        lblMensagem.setStyle("-fx-text-fill: gray;");
+        executar(geracao, "gerar-relatorio");
+    }
 
-        } catch (PersistenciaException e) {
-            mostrarErro("Erro ao gerar relatório: " + e.getMessage());
+    /**
+     * Exporta o relatório selecionado para arquivo (texto, CSV ou JSON, pela extensão escolhida),
+     * escrevendo em fluxo direto no disco
+     */
+    @FXML
+    private void handleExportarRelatorio() {
+        if (!catalogoDisponivel()) {
+            return;
         }
+
+        TipoRelatorio tipo = relatorioSelecionado();
+        if (tipo == null) {
+            return;
+        }
+
+        FileChooser seletor = new FileChooser();
+        seletor.setTitle("Exportar relatório");
+        seletor.setInitialFileName(tipo.getNome() + ".txt");
+        seletor.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Texto (*.txt)", "*.txt"),
+                new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON (*.json)", "*.json"));
+
+        File arquivo = seletor.showSaveDialog(lstRelatorio.getScene().getWindow());
+        if (arquivo == null) {
+            return;
+        }
+
+        String nome = arquivo.getName().toLowerCase();
+        FormatoSaida formato = nome.endsWith(".csv") ? FormatoSaida.CSV
+                : nome.endsWith(".json") ? FormatoSaida.JSON
+                : FormatoSaida.TEXTO;
+
+        Task<Void> exportacao = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                try (Writer saida = Files.newBufferedWriter(arquivo.toPath(), StandardCharsets.UTF_8)) {
+                    FormatadorRelatorios.escrever(tipo, tipo.gerar(service), formato, saida);
+                }
+                return null;
+            }
+        };
+        exportacao.setOnSucceeded(evento -> mostrarSucesso("Relatório exportado para " + arquivo.getName()));
+        exportacao.setOnFailed(evento -> {
+            LOG.erro("Erro ao exportar relatório", exportacao.getException(), "arquivo", arquivo.getPath());
+            mostrarErro("Erro ao exportar relatório: " + exportacao.getException().getMessage());
+        });
+        lblMensagem.setText("Exportando relatório...");
+        lblMensagem.setStyle("-fx-text-fill: gray;");
+        executar(exportacao, "exportar-relatorio");
+    }
+
+    /**
+     * Executa a tarefa numa thread própria (daemon); o resultado volta à interface pelos tratadores da tarefa
+     */
+    private static void executar(Task<?> tarefa, String nome) {
+        Thread thread = new Thread(tarefa, nome);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private TipoRelatorio relatorioSelecionado() {
+        String relatorioSelecionado = cmbRelatorios.getValue();
+
+        if (relatorioSelecionado == null) {
+            mostrarErro("Selecione um relatório");
+            return null;
+        }
+        return TipoRelatorio.porTitulo(relatorioSelecionado);
     }
 
     // ========== MÉTODOS AUXILIARES ==========
@@ -467,7 +608,8 @@ public class MedicamentoController {
      * Obtém medicamento a partir dos campos do formulário
      */
     private Medicamento obterMedicamentoDoFormulario() throws Exception {
-        System.out.println("Criando fornecedor...");
+        BigDecimal preco = new BigDecimal(txtPreco.getText().trim());
+        ValidacaoService.validarPreco(preco);
 
         Fornecedor fornecedor = new Fornecedor(
                 txtCnpj.getText().trim(),
@@ -478,8 +620,6 @@ public class MedicamentoController {
                 txtEstado.getText().trim()
         );
 
-        System.out.println("Criando medicamento...");
-
         return new Medicamento(
                 txtCodigo.getText().trim().toUpperCase(),
                 txtNome.getText().trim(),
@@ -487,7 +627,7 @@ public class MedicamentoController {
                 txtPrincipioAtivo.getText().trim(),
                 dpDataValidade.getValue(),
                 Integer.parseInt(txtQuantidade.getText().trim()),
-                new BigDecimal(txtPreco.getText().trim()),
+                Dinheiro.de(preco),
                 chkControlado.isSelected(),
                 fornecedor
         );
@@ -0,0 +1,36 @@
+package com.farmacia.dao;
+
+import com.farmacia.model.Medicamento;
+
+/**
+ * Alteração de um medicamento feita no arquivo por outro programa, achada comparando o catálogo
+ * publicado com o arquivo relido: valores antes e depois (null na inclusão e na exclusão,
+ * respectivamente). Os medicamentos são os do catálogo e não devem ser modificados.
+ */
+public final class AlteracaoArquivo {
+    private final Medicamento antes;
+    private final Medicamento depois;
+
+    AlteracaoArquivo(Medicamento antes, Medicamento depois) {
+        this.antes = antes;
+        this.depois = depois;
+    }
+
+    /**
+     * Medicamento antes da alteração (null na inclusão)
+     */
+    public Medicamento getAntes() { return antes; }
+
+    /**
+     * Medicamento depois da alteração (null na exclusão)
+     */
+    public Medicamento getDepois() { return depois; }
+
+    public String getCodigo() {
+        return depois != null ? depois.getCodigo() : antes.getCodigo();
+    }
+
+    public boolean isInclusao() { return antes == null; }
+
+    public boolean isExclusao() { return depois == null; }
+}
@@ -0,0 +1,268 @@
+package com.farmacia.dao;
+
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Visão imutável do catálogo em memória com índices por código, validade, estoque e fornecedor (CNPJ).
+ * É reconstruída pelo DAO sempre que o arquivo muda. Escritas pontuais derivam uma nova versão
+ * ({@link #comInclusao}, {@link #comAtualizacao}, {@link #semMedicamento}) que compartilha com a
+ * anterior tudo o que não mudou; quem ainda lê a versão anterior continua vendo-a inteira.
+ */
+public class CatalogoIndexado {
+    private final List<Medicamento> todos;
+    private final NavigableMap<String, Medicamento> porCodigo;
+    private final NavigableMap<LocalDate, List<Medicamento>> porValidade;
+    private final NavigableMap<Integer, List<Medicamento>> porEstoque;
+    private final Map<String, List<Medicamento>> porFornecedor;
+    private final Map<OrdemListagem, List<Medicamento>> ordenados = new EnumMap<>(OrdemListagem.class);
+
+    public CatalogoIndexado(List<Medicamento> medicamentos) {
+        TreeMap<String, Medicamento> codigo = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        TreeMap<LocalDate, List<Medicamento>> validade = new TreeMap<>();
+        TreeMap<Integer, List<Medicamento>> estoque = new TreeMap<>();
+        Map<String, List<Medicamento>> fornecedor = new HashMap<>();
+
+        for (Medicamento m : medicamentos) {
+            codigo.putIfAbsent(m.getCodigo(), m);
+            if (m.getDataValidade() != null) {
+                validade.computeIfAbsent(m.getDataValidade(), d -> new ArrayList<>()).add(m);
+            }
+            estoque.computeIfAbsent(m.getQuantidadeEstoque(), q -> new ArrayList<>()).add(m);
+            if (m.getFornecedor() != null && m.getFornecedor().getCnpj() != null) {
+                fornecedor.computeIfAbsent(m.getFornecedor().getCnpj(), c -> new ArrayList<>()).add(m);
+            }
+        }
+
+        this.todos = Collections.unmodifiableList(new ArrayList<>(medicamentos));
+        this.porCodigo = Collections.unmodifiableNavigableMap(codigo);
+        this.porValidade = Collections.unmodifiableNavigableMap(validade);
+        this.porEstoque = Collections.unmodifiableNavigableMap(estoque);
+        this.porFornecedor = Collections.unmodifiableMap(fornecedor);
+    }
+
+    private CatalogoIndexado(List<Medicamento> todos, NavigableMap<String, Medicamento> porCodigo,
+                             NavigableMap<LocalDate, List<Medicamento>> porValidade,
+                             NavigableMap<Integer, List<Medicamento>> porEstoque,
+                             Map<String, List<Medicamento>> porFornecedor) {
+        this.todos = Collections.unmodifiableList(todos);
+        this.porCodigo = Collections.unmodifiableNavigableMap(porCodigo);
+        this.porValidade = Collections.unmodifiableNavigableMap(porValidade);
+        this.porEstoque = Collections.unmodifiableNavigableMap(porEstoque);
+        this.porFornecedor = Collections.unmodifiableMap(porFornecedor);
+    }
+
+    // ========== VERSÕES DERIVADAS (cópia na escrita) ==========
+
+    /**
+     * Nova versão com o medicamento acrescentado ao fim
+     */
+    public CatalogoIndexado comInclusao(Medicamento novo) {
+        return derivar(null, novo);
+    }
+
+    /**
+     * Nova versão com o medicamento de mesmo código substituído (na mesma posição)
+     */
+    public CatalogoIndexado comAtualizacao(Medicamento atualizado) {
+        Medicamento antigo = buscarPorCodigo(atualizado.getCodigo());
+        return antigo == null ? derivar(null, atualizado) : derivar(antigo, atualizado);
+    }
+
+    /**
+     * Nova versão sem o medicamento do código informado
+     */
+    public CatalogoIndexado semMedicamento(String codigo) {
+        Medicamento antigo = buscarPorCodigo(codigo);
+        return antigo == null ? this : derivar(antigo, null);
+    }
+
+    /**
+     * Copia só a estrutura afetada: a lista e o índice por código são copiados (cópia linear, sem
+     * reordenar), os índices por validade, estoque e fornecedor copiam apenas o mapa e as listas das
+     * chaves alteradas, e as listagens já ordenadas recebem a alteração por busca binária.
+     */
+    private CatalogoIndexado derivar(Medicamento antigo, Medicamento novo) {
+        List<Medicamento> lista = new ArrayList<>(todos.size() + 1);
+        lista.addAll(todos);
+        int posicao = antigo == null ? -1 : posicaoPorIdentidade(lista, antigo);
+        if (novo == null) {
+            lista.remove(posicao);
+        } else if (posicao >= 0) {
+            lista.set(posicao, novo);
+        } else {
+            lista.add(novo);
+        }
+
+        // Códigos repetidos no arquivo: o índice por código não basta para derivar, reconstrói
+        if (todos.size() != porCodigo.size()) {
+            return new CatalogoIndexado(lista);
+        }
+
+        TreeMap<String, Medicamento> codigo = new TreeMap<>(porCodigo);
+        if (antigo != null) {
+            codigo.remove(antigo.getCodigo());
+        }
+        if (novo != null) {
+            codigo.put(novo.getCodigo(), novo);
+        }
+
+        TreeMap<LocalDate, List<Medicamento>> validade = new TreeMap<>(porValidade);
+        TreeMap<Integer, List<Medicamento>> estoque = new TreeMap<>(porEstoque);
+        Map<String, List<Medicamento>> fornecedor = new HashMap<>(porFornecedor);
+        reindexar(validade, antigo == null ? null : antigo.getDataValidade(),
+                novo == null ? null : novo.getDataValidade(), antigo, novo);
+        reindexar(estoque, antigo == null ? null : antigo.getQuantidadeEstoque(),
+                novo == null ? null : novo.getQuantidadeEstoque(), antigo, novo);
+        reindexar(fornecedor, cnpj(antigo), cnpj(novo), antigo, novo);
+
+        CatalogoIndexado derivado = new CatalogoIndexado(lista, codigo, validade, estoque, fornecedor);
+        synchronized (ordenados) {
+            for (Map.Entry<OrdemListagem, List<Medicamento>> entrada : ordenados.entrySet()) {
+                derivado.ordenados.put(entrada.getKey(),
+                        Collections.unmodifiableList(reordenar(entrada.getValue(), entrada.getKey(), antigo, novo)));
+            }
+        }
+        return derivado;
+    }
+
+    private static int posicaoPorIdentidade(List<Medicamento> lista, Medicamento procurado) {
+        for (int i = 0; i < lista.size(); i++) {
+            if (lista.get(i) == procurado) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String cnpj(Medicamento m) {
+        return m == null || m.getFornecedor() == null ? null : m.getFornecedor().getCnpj();
+    }
+
+    /**
+     * Troca as listas das chaves afetadas por cópias alteradas (as listas da versão anterior não mudam).
+     * Se a chave não mudou, o medicamento é substituído na mesma posição da lista.
+     */
+    private static <K> void reindexar(Map<K, List<Medicamento>> indice, K chaveAntiga, K chaveNova,
+                                      Medicamento antigo, Medicamento novo) {
+        if (chaveAntiga != null) {
+            List<Medicamento> copia = new ArrayList<>(indice.getOrDefault(chaveAntiga, Collections.emptyList()));
+            int posicao = posicaoPorIdentidade(copia, antigo);
+            if (chaveAntiga.equals(chaveNova) && posicao >= 0) {
+                copia.set(posicao, novo);
+                indice.put(chaveAntiga, copia);
+                return;
+            }
+            if (posicao >= 0) {
+                copia.remove(posicao);
+            }
+            if (copia.isEmpty()) {
+                indice.remove(chaveAntiga);
+            } else {
+                indice.put(chaveAntiga, copia);
+            }
+        }
+        if (chaveNova != null) {
+            List<Medicamento> atual = indice.getOrDefault(chaveNova, Collections.emptyList());
+            List<Medicamento> copia = new ArrayList<>(atual.size() + 1);
+            copia.addAll(atual);
+            copia.add(novo);
+            indice.put(chaveNova, copia);
+        }
+    }
+
+    private static List<Medicamento> reordenar(List<Medicamento> ordenada, OrdemListagem ordem,
+                                               Medicamento antigo, Medicamento novo) {
+        List<Medicamento> lista = new ArrayList<>(ordenada.size() + 1);
+        lista.addAll(ordenada);
+        if (antigo != null) {
+            int posicao = Collections.binarySearch(lista, antigo, ordem.comparador());
+            if (posicao < 0 || lista.get(posicao) != antigo) {
+                posicao = posicaoPorIdentidade(lista, antigo);
+            }
+            if (posicao >= 0) {
+                lista.remove(posicao);
+            }
+        }
+        if (novo != null) {
+            int posicao = Collections.binarySearch(lista, novo, ordem.comparador());
+            lista.add(posicao >= 0 ? posicao : -posicao - 1, novo);
+        }
+        return lista;
+    }
+
+    /**
+     * Todos os medicamentos, na ordem do arquivo
+     */
+    public List<Medicamento> getTodos() { return todos; }
+
+    public int tamanho() { return todos.size(); }
+
+    public Medicamento buscarPorCodigo(String codigo) {
+        return codigo == null ? null : porCodigo.get(codigo);
+    }
+
+    /**
+     * Índice por código (ordem alfabética, sem diferenciar maiúsculas)
+     */
+    public NavigableMap<String, Medicamento> indiceCodigo() { return porCodigo; }
+
+    /**
+     * Índice por data de validade
+     */
+    public NavigableMap<LocalDate, List<Medicamento>> indiceValidade() { return porValidade; }
+
+    /**
+     * Índice por quantidade em estoque
+     */
+    public NavigableMap<Integer, List<Medicamento>> indiceEstoque() { return porEstoque; }
+
+    /**
+     * Índice por CNPJ do fornecedor
+     */
+    public Map<String, List<Medicamento>> indiceFornecedor() { return porFornecedor; }
+
+    /**
+     * Medicamentos na ordem de listagem informada (ordenados sob demanda, uma vez por catálogo)
+     */
+    public List<Medicamento> ordenadosPor(OrdemListagem ordem) {
+        synchronized (ordenados) {
+            return ordenados.computeIfAbsent(ordem, o -> {
+                List<Medicamento> lista = new ArrayList<>(todos);
+                lista.sort(o.comparador());
+                return Collections.unmodifiableList(lista);
+            });
+        }
+    }
+
+    /**
+     * Janela [inicio, inicio + tamanho) da listagem ordenada
+     */
+    public List<Medicamento> janela(OrdemListagem ordem, int inicio, int tamanho) {
+        List<Medicamento> lista = ordenadosPor(ordem);
+        int de = Math.max(0, Math.min(inicio, lista.size()));
+        int ate = Math.min(lista.size(), de + Math.max(0, tamanho));
+        return lista.subList(de, ate);
+    }
+
+    /**
+     * Posição do primeiro item estritamente posterior a {@code apos} na ordem informada
+     * (busca binária; {@code apos} não precisa mais existir no catálogo)
+     */
+    public int posicaoApos(OrdemListagem ordem, Medicamento apos) {
+        if (apos == null) {
+            return 0;
+        }
+        int posicao = Collections.binarySearch(ordenadosPor(ordem), apos, ordem.comparador());
+        return posicao >= 0 ? posicao + 1 : -posicao - 1;
+    }
+}
@@ -0,0 +1,181 @@
+package com.farmacia.dao;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.controlados.LivroControlados;
+import com.farmacia.controlados.RepositorioControlado;
+import com.farmacia.eventos.DiarioAlteracoes;
+import com.farmacia.eventos.FluxoAlteracoes;
+import com.farmacia.eventos.RepositorioObservado;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.historico.HistoricoEstoque;
+import com.farmacia.historico.RepositorioHistorico;
+import com.farmacia.log.Log;
+
+/**
+ * Cria o repositório configurado (propriedade farmacia.repositorio: "csv" ou "embarcado").
+ * Com o fluxo de alterações ativo, o repositório é decorado por {@link RepositorioObservado},
+ * com o diário de alterações ao lado dos dados; com o livro de controlados ativo, também por
+ * {@link RepositorioControlado}, com o livro no diretório {@code <base>.controlados}; com o
+ * histórico de estoque ativo, também por {@link RepositorioHistorico} ({@code <base>.historico}).
+ * O arquivo CSV é vigiado (propriedade farmacia.csv.vigiar): alterações feitas por outros programas
+ * passam pelos mesmos decoradores que as da aplicação. Com vários processos no mesmo CSV
+ * (farmacia.csv.lideranca), só o líder grava e abre diário, livro e histórico; os seguidores
+ * recebem as gravações dele como alterações externas, publicadas só no fluxo em memória.
+ */
+public final class FabricaRepositorio {
+    private static final String SUFIXO_DIARIO = ".alteracoes.jsonl";
+    private static final String SUFIXO_CONTROLADOS = ".controlados";
+    private static final String SUFIXO_HISTORICO = ".historico";
+
+    private static final Log LOG = Log.para(FabricaRepositorio.class);
+
+    private FabricaRepositorio() {}
+
+    public static MedicamentoRepository criar() throws PersistenciaException {
+        return criar(Configuracao.tipoRepositorio(), null);
+    }
+
+    /**
+     * Cria um repositório do tipo informado; caminho nulo usa o local configurado
+     */
+    public static MedicamentoRepository criar(String tipo, String caminho) throws PersistenciaException {
+        switch (tipo) {
+            case "csv": {
+                String arquivo = caminho == null ? Configuracao.arquivoCsv() : caminho;
+                MedicamentoDAO dao = new MedicamentoDAO(arquivo);
+                MedicamentoRepository repositorio;
+                if (Configuracao.liderancaCsv() && !dao.disputarLideranca()) {
+                    LOG.info("Repositório aberto como seguidor: outro processo grava nele", "arquivo", arquivo);
+                    repositorio = new RepositorioObservado(dao, new FluxoAlteracoes(
+                            Configuracao.capacidadeAlteracoes(), null, Configuracao.esperaAlteracoesMs()));
+                } else {
+                    repositorio = observar(controlar(historiar(dao, arquivo), arquivo), arquivo);
+                }
+                if (Configuracao.vigiarCsv()) {
+                    vigiar(repositorio);
+                }
+                return repositorio;
+            }
+            case "embarcado": {
+                String banco = caminho == null ? Configuracao.bancoEmbarcado() : caminho;
+                return observar(controlar(historiar(new MedicamentoDAOEmbarcado(banco), banco), banco), banco);
+            }
+            default:
+                throw new PersistenciaException("Tipo de repositório desconhecido: " + tipo);
+        }
+    }
+
+    /**
+     * Passa a aplicar as alterações externas do armazenamento; sem vigia, o repositório continua
+     * achando-as pelo carimbo do arquivo a cada leitura
+     */
+    private static void vigiar(MedicamentoRepository repositorio) {
+        try {
+            repositorio.vigiar(alteracoes -> LOG.info("Catálogo alterado por outro programa",
+                    "repositorio", repositorio.descricao(), "alteracoes", alteracoes.size()));
+        } catch (PersistenciaException e) {
+            LOG.aviso("Arquivo não vigiado", "repositorio", repositorio.descricao(), "erro", e.getMessage());
+        }
+    }
+
+    /**
+     * Decora o repositório com o fluxo de alterações (diário em {@code <base>.alteracoes.jsonl}),
+     * se ativo na configuração
+     */
+    public static MedicamentoRepository observar(MedicamentoRepository repositorio, String base)
+            throws PersistenciaException {
+        if (!Configuracao.alteracoesAtivas()) {
+            return repositorio;
+        }
+        DiarioAlteracoes diario;
+        try {
+            diario = new DiarioAlteracoes(base + SUFIXO_DIARIO, Configuracao.sincronizarAlteracoes());
+        } catch (PersistenciaException e) {
+            repositorio.fechar();
+            throw e;
+        }
+        FluxoAlteracoes fluxo = new FluxoAlteracoes(Configuracao.capacidadeAlteracoes(), diario,
+                Configuracao.esperaAlteracoesMs());
+        return new RepositorioObservado(repositorio, fluxo);
+    }
+
+    /**
+     * Decora o repositório com o livro de controlados (diretório {@code <base>.controlados}),
+     * se ativo na configuração
+     */
+    public static MedicamentoRepository controlar(MedicamentoRepository repositorio, String base)
+            throws PersistenciaException {
+        if (!Configuracao.controladosAtivos()) {
+            return repositorio;
+        }
+        LivroControlados livro;
+        try {
+            livro = LivroControlados.abrir(base + SUFIXO_CONTROLADOS, Configuracao.sincronizarControlados(),
+                    Configuracao.tamanhoSegmentoControlados());
+        } catch (PersistenciaException e) {
+            repositorio.fechar();
+            throw e;
+        }
+        return new RepositorioControlado(repositorio, livro);
+    }
+
+    /**
+     * Decora o repositório com o histórico diário de estoque (arquivo {@code <base>.historico}),
+     * se ativo na configuração
+     */
+    public static MedicamentoRepository historiar(MedicamentoRepository repositorio, String base)
+            throws PersistenciaException {
+        if (!Configuracao.historicoAtivo()) {
+            return repositorio;
+        }
+        HistoricoEstoque historico;
+        try {
+            historico = HistoricoEstoque.abrir(base + SUFIXO_HISTORICO, Configuracao.janelaConsumo(),
+                    Configuracao.prazoReposicao());
+        } catch (PersistenciaException e) {
+            repositorio.fechar();
+            throw e;
+        }
+        return new RepositorioHistorico(repositorio, historico);
+    }
+
+    /**
+     * Arquivo do diário de alterações do repositório "tipo" ou "tipo:caminho" (null = configurado)
+     */
+    public static String arquivoDiario(String especificacao) {
+        return caminhoBase(especificacao) + SUFIXO_DIARIO;
+    }
+
+    /**
+     * Diretório do livro de controlados do repositório "tipo" ou "tipo:caminho" (null = configurado)
+     */
+    public static String diretorioControlados(String especificacao) {
+        return caminhoBase(especificacao) + SUFIXO_CONTROLADOS;
+    }
+
+    private static String caminhoBase(String especificacao) {
+        String tipo = especificacao == null ? Configuracao.tipoRepositorio() : especificacao.trim().toLowerCase();
+        String caminho = null;
+        int separador = especificacao == null ? -1 : especificacao.indexOf(':');
+        if (separador >= 0) {
+            tipo = especificacao.substring(0, separador).trim().toLowerCase();
+            caminho = especificacao.substring(separador + 1);
+        }
+        if (caminho == null) {
+            caminho = tipo.equals("embarcado") ? Configuracao.bancoEmbarcado() : Configuracao.arquivoCsv();
+        }
+        return caminho;
+    }
+
+    /**
+     * Cria um repositório a partir de uma especificação "tipo" ou "tipo:caminho"
+     */
+    public static MedicamentoRepository criarPorEspecificacao(String especificacao) throws PersistenciaException {
+        int separador = especificacao.indexOf(':');
+        if (separador < 0) {
+            return criar(especificacao.trim().toLowerCase(), null);
+        }
+        return criar(especificacao.substring(0, separador).trim().toLowerCase(),
+                especificacao.substring(separador + 1));
+    }
+}
@@ -0,0 +1,161 @@
+package com.farmacia.dao;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Liderança de escrita de um armazenamento entre processos, pelo bloqueio do sistema operacional
+ * ({@link FileChannel#tryLock}) sobre o arquivo {@code <dados>.lider}. O bloqueio é a concessão:
+ * vale enquanto o processo líder o segura e é liberado pelo sistema quando ele termina, mesmo
+ * numa queda, sem depender de relógios nem de renovações. O líder grava no arquivo quem é
+ * (processo, máquina e desde quando), para a mensagem de quem ficou de fora.
+ * <p>
+ * O bloqueio cobre só o último byte possível do arquivo: o registro do líder continua legível
+ * nos sistemas em que bloqueios impedem a leitura da região bloqueada.
+ */
+final class LiderancaArquivo {
+    private static final Log LOG = Log.para(LiderancaArquivo.class);
+
+    static final String SUFIXO = ".lider";
+    private static final long POSICAO_BLOQUEIO = Long.MAX_VALUE - 1;
+
+    private final Path arquivo;
+    private FileChannel canal;
+    private FileLock bloqueio;
+
+    private LiderancaArquivo(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Tenta assumir a liderança do arquivo de dados informado. Sem ela, o processo é seguidor
+     * ({@link #isLider} false) até o fim: as suas gravações são recusadas.
+     */
+    static LiderancaArquivo disputar(String arquivoDados) throws PersistenciaException {
+        LiderancaArquivo lideranca = new LiderancaArquivo(Paths.get(arquivoDados + SUFIXO));
+        try {
+            FileChannel canal = FileChannel.open(lideranca.arquivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock bloqueio = tentarBloquear(canal);
+            if (bloqueio == null) {
+                canal.close();
+                return lideranca;
+            }
+            lideranca.canal = canal;
+            lideranca.bloqueio = bloqueio;
+            lideranca.registrarLider();
+            return lideranca;
+        } catch (IOException e) {
+            lideranca.liberar();
+            throw new PersistenciaException("Erro ao disputar a liderança de " + arquivoDados, e);
+        }
+    }
+
+    /**
+     * Bloqueio exclusivo sem espera; null se outro processo (ou outro repositório deste processo) o tem
+     */
+    private static FileLock tentarBloquear(FileChannel canal) throws IOException {
+        try {
+            return canal.tryLock(POSICAO_BLOQUEIO, 1, false);
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private void registrarLider() throws IOException {
+        String registro = "pid=" + ProcessHandle.current().pid() + ";maquina=" + maquina()
+                + ";desde=" + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS) + "\n";
+        canal.truncate(0);
+        canal.write(ByteBuffer.wrap(registro.getBytes(StandardCharsets.UTF_8)), 0);
+        canal.force(false);
+    }
+
+    private static String maquina() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    synchronized boolean isLider() {
+        return bloqueio != null;
+    }
+
+    /**
+     * Por que as gravações deste processo são recusadas: quem é o líder ou, se ele já terminou,
+     * que é preciso reabrir o repositório para assumir. Só lê o registro do líder: o bloqueio não
+     * é tocado, para não tirá-lo por um instante de outro processo que o disputa.
+     */
+    String motivoSomenteLeitura() {
+        String lider;
+        try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer dados = ByteBuffer.allocate((int) Math.min(leitura.size(), 512));
+            leitura.read(dados, 0);
+            lider = new String(dados.array(), 0, dados.position(), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return "Repositório aberto em modo somente leitura; outro processo grava nele";
+        }
+        if (lider.isEmpty() || terminou(lider)) {
+            return "Repositório aberto em modo somente leitura; o líder anterior terminou: "
+                    + "reabra a aplicação para gravar";
+        }
+        return "Repositório aberto em modo somente leitura; outro processo grava nele (" + lider + ")";
+    }
+
+    /**
+     * Se o líder registrado é um processo desta máquina que não existe mais (um líder que sai
+     * normalmente apaga o registro; numa queda ele fica). De outra máquina, não há como saber.
+     */
+    private static boolean terminou(String registro) {
+        String pid = null;
+        String maquina = null;
+        for (String campo : registro.split(";")) {
+            if (campo.startsWith("pid=")) {
+                pid = campo.substring(4);
+            } else if (campo.startsWith("maquina=")) {
+                maquina = campo.substring(8);
+            }
+        }
+        if (pid == null || !maquina().equals(maquina)) {
+            return false;
+        }
+        try {
+            return ProcessHandle.of(Long.parseLong(pid)).map(p -> !p.isAlive()).orElse(true);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Devolve a liderança (o registro do líder é apagado)
+     */
+    synchronized void liberar() {
+        try {
+            if (bloqueio != null) {
+                canal.truncate(0);
+                bloqueio.release();
+                bloqueio = null;
+            }
+            if (canal != null) {
+                canal.close();
+                canal = null;
+            }
+        } catch (IOException e) {
+            LOG.aviso("Erro ao liberar a liderança", "arquivo", arquivo, "erro", e.getMessage());
+        }
+    }
+}
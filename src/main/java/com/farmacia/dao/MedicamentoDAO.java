@@ -1,61 +1,225 @@
 package com.farmacia.dao;
 
+import com.farmacia.compressao.ArquivoBlocos;
+import com.farmacia.compressao.SaidaBlocos;
+import com.farmacia.config.Configuracao;
 import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.ContadorBytesInputStream;
+import com.farmacia.metricas.ContadorBytesOutputStream;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Dinheiro;
 import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Lote;
 import com.farmacia.model.Medicamento;
 
 import java.io.*;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
-public class MedicamentoDAO {
-    private static final String ARQUIVO = "data/medicamentos.csv";
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Repositório em arquivo CSV (separado por ponto-e-vírgula, UTF-8, com cabeçalho).
+ * Arquivos com extensão {@value #EXTENSAO_COMPRIMIDA} guardam o mesmo CSV em blocos comprimidos
+ * ({@link SaidaBlocos}), carregados em paralelo, um bloco por tarefa.
+ * <p>
+ * Outros programas (planilhas, scripts de sincronização) podem editar o arquivo: a mudança é
+ * achada pelo carimbo do arquivo (modificação em nanossegundos, tamanho e identidade) e aplicada
+ * ao catálogo publicado por diferença, código a código, avisando os {@link OuvinteArquivo}s. Com
+ * {@link #vigiar} o diretório é vigiado ({@link VigiaArquivos}) e as leituras deixam de consultar
+ * o carimbo a cada chamada. Uma escrita que encontra o arquivo alterado por fora é recusada se
+ * toca um medicamento alterado (a substituição completa, se qualquer um mudou), e o arquivo nunca
+ * é substituído se mudou depois de a escrita começar.
+ * <p>
+ * Com {@link #disputarLideranca}, só um processo grava no arquivo ({@link LiderancaArquivo}); os
+ * demais ficam seguidores: recusam escritas e acompanham as gravações do líder pelas mesmas
+ * alterações externas, servindo as leituras do catálogo em memória.
+ */
+public class MedicamentoDAO implements MedicamentoRepository {
     private static final String SEPARADOR = ";";
-    private static final String CABECALHO = "codigo;nome;descricao;principioAtivo;dataValidade;" +
-            "quantidadeEstoque;preco;controlado;cnpj;razaoSocial;telefone;email;cidade;estado";
+    public static final String CABECALHO = "codigo;nome;descricao;principioAtivo;dataValidade;" +
+            "quantidadeEstoque;preco;controlado;cnpj;razaoSocial;telefone;email;cidade;estado;lotes";
+
+    public static final String EXTENSAO_COMPRIMIDA = ".csvz";
+
+    private static final Log LOG = Log.para(MedicamentoDAO.class);
+    private static final String MSG_LINHA_INVALIDA = "Linha inválida ignorada";
+
+    // Métricas de E/S
+    private static final MetricaOperacao M_CARREGAR = Metricas.operacao("dao.carregarTodos");
+    private static final MetricaOperacao M_SALVAR = Metricas.operacao("dao.salvarTodos");
+    private static final MetricaOperacao M_SINCRONIZAR = Metricas.operacao("dao.sincronizar");
+    private static final MetricaOperacao M_PERCORRER = Metricas.operacao("dao.percorrer");
+
+    // Acima disto, a versão com as alterações externas é reconstruída em vez de derivada uma a uma
+    private static final int LIMITE_DERIVACOES = 16;
+
+    private final String arquivoCsv;
+    private final boolean comprimido;
+
+    // Versão publicada do catálogo: leitores pegam a referência sem bloqueio, escritores publicam outra
+    private volatile VersaoCatalogo versao;
+    // Exclusão entre escritores (e recargas); leitores nunca esperam por ela se já há versão publicada
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    // Vigia do diretório (null = sem vigia: cada leitura confere o carimbo do arquivo)
+    private volatile VigiaArquivos.Inscricao inscricao;
+    private final List<OuvinteArquivo> ouvintes = new CopyOnWriteArrayList<>();
+    // Liderança entre processos (null = não coordenado: grava sempre)
+    private volatile LiderancaArquivo lideranca;
 
     public MedicamentoDAO() {
+        this(Configuracao.arquivoCsv());
+    }
+
+    public MedicamentoDAO(String arquivoCsv) {
+        this.arquivoCsv = arquivoCsv;
+        this.comprimido = arquivoCsv.toLowerCase().endsWith(EXTENSAO_COMPRIMIDA);
         criarDiretorioSeNaoExistir();
         criarArquivoSeNaoExistir();
     }
 
+    @Override
+    public String descricao() {
+        return "csv:" + arquivoCsv;
+    }
+
     private void criarDiretorioSeNaoExistir() {
-        File diretorio = new File("data");
-        if (!diretorio.exists()) {
+        File diretorio = new File(arquivoCsv).getAbsoluteFile().getParentFile();
+        if (diretorio != null && !diretorio.exists()) {
             diretorio.mkdirs();
         }
     }
 
     private void criarArquivoSeNaoExistir() {
-        File arquivo = new File(ARQUIVO);
-        if (!arquivo.exists()) {
+        File arquivo = new File(arquivoCsv);
+        if (!arquivo.exists() && comprimido) {
+            try {
+                gravar(new ArrayList<>(), null);
+            } catch (PersistenciaException e) {
+                LOG.erro("Erro ao criar arquivo CSV comprimido", e, "arquivo", arquivoCsv);
+            }
+        } else if (!arquivo.exists()) {
             try (BufferedWriter writer = new BufferedWriter(
                     new FileWriter(arquivo, StandardCharsets.UTF_8))) {
                 writer.write(CABECALHO);
                 writer.newLine();
             } catch (IOException e) {
-                System.err.println("Erro ao criar arquivo CSV: " + e.getMessage());
+                LOG.erro("Erro ao criar arquivo CSV", e, "arquivo", arquivoCsv);
             }
         }
     }
 
+    @Override
     public List<Medicamento> carregarTodos() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
         List<Medicamento> medicamentos = new ArrayList<>();
-        File arquivo = new File(ARQUIVO);
+        File arquivo = new File(arquivoCsv);
+
+        try {
+            if (!arquivo.exists()) {
+                sucesso = true;
+                return medicamentos;
+            }
+
+            if (comprimido) {
+                medicamentos = carregarBlocos(arquivo);
+                sucesso = true;
+                return medicamentos;
+            }
 
-        if (!arquivo.exists()) {
+            try {
+                M_CARREGAR.adicionarBytesLidos(lerLinhas(arquivo, medicamentos::add));
+                M_CARREGAR.adicionarLinhas(medicamentos.size());
+            } catch (IOException e) {
+                throw new PersistenciaException("Erro ao carregar medicamentos do arquivo", e);
+            }
+
+            sucesso = true;
             return medicamentos;
+        } finally {
+            M_CARREGAR.registrar(System.nanoTime() - inicio, !sucesso);
         }
+    }
 
-        try (BufferedReader reader = new BufferedReader(
-                new FileReader(arquivo, StandardCharsets.UTF_8))) {
+    /**
+     * Lê o arquivo em fluxo, sem o catálogo em memória: o que está gravado no disco (inclusive
+     * alterações externas ainda não aplicadas), numa só versão do arquivo mesmo que ele seja
+     * substituído durante a leitura. No arquivo comprimido, um bloco por vez.
+     */
+    @Override
+    public void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        File arquivo = new File(arquivoCsv);
+        long[] linhas = {0};
+        Consumer<Medicamento> contador = medicamento -> {
+            linhas[0]++;
+            consumidor.accept(medicamento);
+        };
+
+        try {
+            if (!arquivo.exists()) {
+                sucesso = true;
+                return;
+            }
+
+            if (comprimido) {
+                AtomicInteger linhasInvalidas = new AtomicInteger();
+                try (ArquivoBlocos blocos = ArquivoBlocos.abrir(arquivo)) {
+                    for (int i = 0; i < blocos.quantidadeBlocos(); i++) {
+                        interpretarBloco(blocos.lerBloco(i), i, linhasInvalidas).forEach(contador);
+                    }
+                }
+                avisarLinhasInvalidas(linhas[0], linhasInvalidas.get());
+                M_PERCORRER.adicionarBytesLidos(arquivo.length());
+            } else {
+                M_PERCORRER.adicionarBytesLidos(lerLinhas(arquivo, contador));
+            }
+            M_PERCORRER.adicionarLinhas(linhas[0]);
+            sucesso = true;
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao percorrer medicamentos do arquivo", e);
+        } finally {
+            M_PERCORRER.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Interpreta o CSV linha a linha, entregando cada medicamento ao consumidor; linhas inválidas
+     * vão para o log e são puladas. Devolve os bytes lidos.
+     */
+    private long lerLinhas(File arquivo, Consumer<Medicamento> consumidor) throws IOException {
+        try (ContadorBytesInputStream contador = new ContadorBytesInputStream(new FileInputStream(arquivo));
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(contador, StandardCharsets.UTF_8))) {
 
             String linha;
             boolean primeiraLinha = true;
             int numeroLinha = 0;
+            long linhasValidas = 0;
+            int linhasInvalidas = 0;
 
             while ((linha = reader.readLine()) != null) {
                 numeroLinha++;
@@ -69,22 +233,107 @@ public class MedicamentoDAO {
                     continue; // Pular linhas vazias
                 }
 
+                Medicamento medicamento;
                 try {
-                    Medicamento medicamento = parseLinha(linha);
-                    medicamentos.add(medicamento);
+                    medicamento = parseLinha(linha);
                 } catch (Exception e) {
-                    System.err.println("Erro ao processar linha " + numeroLinha +
-                            ": " + e.getMessage());
+                    linhasInvalidas++;
+                    LOG.avisoLimitado(MSG_LINHA_INVALIDA, "linha", numeroLinha, "erro", e.getMessage());
+                    continue;
                 }
+                consumidor.accept(medicamento);
+                linhasValidas++;
+            }
+
+            avisarLinhasInvalidas(linhasValidas, linhasInvalidas);
+            return contador.getBytes();
+        }
+    }
+
+    private void avisarLinhasInvalidas(long validas, int invalidas) {
+        if (invalidas > 0) {
+            LOG.resumirSuprimidos(MSG_LINHA_INVALIDA);
+            LOG.aviso("Carga concluída com linhas inválidas", "arquivo", arquivoCsv,
+                    "validas", validas, "invalidas", invalidas);
+        }
+    }
+
+    /**
+     * Carga do arquivo em blocos: cada bloco (linhas inteiras) é descomprimido e interpretado
+     * numa tarefa do pool fork-join comum; as partes são juntadas na ordem do arquivo
+     */
+    private List<Medicamento> carregarBlocos(File arquivo) throws PersistenciaException {
+        AtomicInteger linhasInvalidas = new AtomicInteger();
+        List<Medicamento> medicamentos = new ArrayList<>();
+
+        try (ArquivoBlocos blocos = ArquivoBlocos.abrir(arquivo)) {
+            List<List<Medicamento>> partes = IntStream.range(0, blocos.quantidadeBlocos()).parallel()
+                    .mapToObj(i -> {
+                        try {
+                            return interpretarBloco(blocos.lerBloco(i), i, linhasInvalidas);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+            for (List<Medicamento> parte : partes) {
+                medicamentos.addAll(parte);
             }
+            M_CARREGAR.adicionarBytesLidos(arquivo.length());
+            M_CARREGAR.adicionarLinhas(medicamentos.size());
         } catch (IOException e) {
             throw new PersistenciaException("Erro ao carregar medicamentos do arquivo", e);
+        } catch (UncheckedIOException e) {
+            throw new PersistenciaException("Erro ao carregar medicamentos do arquivo", e.getCause());
         }
 
+        avisarLinhasInvalidas(medicamentos.size(), linhasInvalidas.get());
+        return medicamentos;
+    }
+
+    private List<Medicamento> interpretarBloco(byte[] dados, int bloco, AtomicInteger linhasInvalidas) {
+        List<Medicamento> medicamentos = new ArrayList<>();
+        String texto = new String(dados, StandardCharsets.UTF_8);
+        int inicio = 0;
+        int numeroLinha = 0;
+
+        while (inicio < texto.length()) {
+            int fim = texto.indexOf('\n', inicio);
+            if (fim < 0) {
+                fim = texto.length();
+            }
+            String linha = texto.substring(inicio, fim > inicio && texto.charAt(fim - 1) == '\r' ? fim - 1 : fim);
+            inicio = fim + 1;
+            numeroLinha++;
+
+            if ((bloco == 0 && numeroLinha == 1) || linha.trim().isEmpty()) {
+                continue; // Pular cabeçalho e linhas vazias
+            }
+
+            try {
+                medicamentos.add(parseLinha(linha));
+            } catch (Exception e) {
+                linhasInvalidas.incrementAndGet();
+                LOG.avisoLimitado(MSG_LINHA_INVALIDA, "bloco", bloco, "linha", numeroLinha, "erro", e.getMessage());
+            }
+        }
         return medicamentos;
     }
 
-    private Medicamento parseLinha(String linha) throws Exception {
+    /**
+     * Medicamento de uma linha no formato do arquivo ({@link Medicamento#toCSV})
+     *
+     * @throws PersistenciaException se a linha não está no formato
+     */
+    public static Medicamento lerLinha(String linha) throws PersistenciaException {
+        try {
+            return parseLinha(linha);
+        } catch (Exception e) {
+            throw new PersistenciaException("Linha CSV inválida: " + e.getMessage(), e);
+        }
+    }
+
+    private static Medicamento parseLinha(String linha) throws Exception {
         String[] dados = linha.split(SEPARADOR, -1); // -1 mantém campos vazios
 
         if (dados.length < 14) {
@@ -101,6 +350,21 @@ public class MedicamentoDAO {
                 dados[13].trim()  // estado
         );
 
+        // Preço gravado com mais de duas casas (arquivos anteriores aos centavos): arredonda em vez
+        // de descartar a linha; a próxima gravação já o regrava em centavos
+        long preco;
+        try {
+            preco = Dinheiro.parse(dados[6]);
+        } catch (NumberFormatException e) {
+            try {
+                preco = Dinheiro.parseArredondando(dados[6]);
+            } catch (NumberFormatException naoNumero) {
+                throw e;
+            }
+            LOG.avisoLimitado("Preço com frações de centavo arredondado", "codigo", dados[0].trim(),
+                    "preco", dados[6].trim(), "centavos", preco);
+        }
+
         // Criar medicamento
         Medicamento medicamento = new Medicamento(
                 dados[0].trim(),                              // codigo
@@ -109,72 +373,499 @@ public class MedicamentoDAO {
                 dados[3].trim(),                              // principioAtivo
                 LocalDate.parse(dados[4].trim()),             // dataValidade
                 Integer.parseInt(dados[5].trim()),            // quantidadeEstoque
-                new BigDecimal(dados[6].trim()),              // preco
+                preco,                                        // preco (centavos)
                 Boolean.parseBoolean(dados[7].trim()),        // controlado
                 fornecedor
         );
 
+        // Coluna de lotes: opcional (arquivos anteriores têm 14 campos)
+        if (dados.length > 14 && !dados[14].trim().isEmpty()) {
+            medicamento.setLotes(Lote.decodificar(dados[14]));
+        }
+
         return medicamento;
     }
 
+    /**
+     * Substitui o conteúdo do arquivo. Os medicamentos são copiados: o catálogo publicado não
+     * compartilha objetos com quem chamou.
+     */
+    @Override
     public void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException {
-        try (BufferedWriter writer = new BufferedWriter(
-                new FileWriter(ARQUIVO, StandardCharsets.UTF_8))) {
+        List<Medicamento> copias = new ArrayList<>(medicamentos.size());
+        for (Medicamento medicamento : medicamentos) {
+            copias.add(new Medicamento(medicamento));
+        }
 
-            // Escrever cabeçalho
-            writer.write(CABECALHO);
-            writer.newLine();
+        escrita.lock();
+        try {
+            exigirLideranca();
+            // Sem versão publicada não há o que conferir: o arquivo é substituído como está
+            if (versao != null) {
+                List<AlteracaoArquivo> externas = sincronizar();
+                if (!externas.isEmpty()) {
+                    throw new PersistenciaException("Arquivo alterado por outro programa (alterações: "
+                            + externas.size() + "); a substituição não foi gravada");
+                }
+            }
+            publicar(new CatalogoIndexado(copias), gravar(copias, carimboPublicado()));
+        } finally {
+            escrita.unlock();
+        }
+    }
 
-            // Escrever dados
-            for (Medicamento medicamento : medicamentos) {
-                writer.write(medicamento.toCSV());
+    /**
+     * Grava o arquivo inteiro e devolve o carimbo do arquivo gravado (chamado com o bloqueio de
+     * escrita). Se o arquivo existe e não tem mais o carimbo {@code esperado} (null = não confere),
+     * outro programa o alterou durante a escrita: nada é substituído.
+     */
+    private Carimbo gravar(List<Medicamento> medicamentos, Carimbo esperado) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+
+        // Grava em arquivo temporário e substitui o original: leitores nunca veem um arquivo pela metade
+        File temporario = new File(arquivoCsv + ".tmp");
+        try {
+            try (ContadorBytesOutputStream contador = new ContadorBytesOutputStream(new FileOutputStream(temporario));
+                 SaidaBlocos blocos = comprimido ? new SaidaBlocos(contador) : null;
+                 BufferedWriter writer = new BufferedWriter(
+                         new OutputStreamWriter(blocos != null ? blocos : contador, StandardCharsets.UTF_8))) {
+
+                // Escrever cabeçalho
+                writer.write(CABECALHO);
                 writer.newLine();
+
+                // Escrever dados
+                for (Medicamento medicamento : medicamentos) {
+                    writer.write(medicamento.toCSV());
+                    writer.newLine();
+                }
+
+                writer.flush();
+                if (blocos != null) {
+                    blocos.concluir();
+                }
+                M_SALVAR.adicionarBytesEscritos(contador.getBytes());
+                M_SALVAR.adicionarLinhas(medicamentos.size());
+
+            } catch (IOException e) {
+                throw new PersistenciaException("Erro ao salvar medicamentos no arquivo", e);
+            }
+
+            // A renomeação preserva modificação e identidade: o carimbo do temporário é o do arquivo
+            Carimbo gravado = Carimbo.de(temporario.toPath());
+            Carimbo atual = Carimbo.de(Paths.get(arquivoCsv));
+            if (esperado != null && atual != Carimbo.AUSENTE && !esperado.equals(atual)) {
+                temporario.delete();
+                throw new PersistenciaException("Arquivo alterado por outro programa durante a gravação; "
+                        + "a alteração não foi gravada");
             }
+            substituirArquivo(temporario);
+            sucesso = true;
+            return gravado;
+        } finally {
+            M_SALVAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
 
+    private void substituirArquivo(File temporario) throws PersistenciaException {
+        try {
+            Files.move(temporario.toPath(), Paths.get(arquivoCsv),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            throw new PersistenciaException("Erro ao salvar medicamentos no arquivo", e);
+            throw new PersistenciaException("Erro ao substituir o arquivo de medicamentos", e);
         }
     }
 
+    // As escritas pontuais partem da versão publicada (sem reler o arquivo, a não ser que ele tenha
+    // sido alterado por fora) e publicam a versão derivada dela só depois que o arquivo novo está no lugar
+
+    @Override
     public void adicionar(Medicamento medicamento) throws PersistenciaException {
-        List<Medicamento> medicamentos = carregarTodos();
-        medicamentos.add(medicamento);
-        salvarTodos(medicamentos);
+        Medicamento copia = new Medicamento(medicamento);
+        escrita.lock();
+        try {
+            exigirLideranca();
+            CatalogoIndexado atual = versaoSemConflito(copia.getCodigo());
+            List<Medicamento> medicamentos = new ArrayList<>(atual.tamanho() + 1);
+            medicamentos.addAll(atual.getTodos());
+            medicamentos.add(copia);
+            publicar(atual.comInclusao(copia), gravar(medicamentos, carimboPublicado()));
+        } finally {
+            escrita.unlock();
+        }
     }
 
+    @Override
     public void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException {
-        List<Medicamento> medicamentos = carregarTodos();
-
-        for (int i = 0; i < medicamentos.size(); i++) {
-            if (medicamentos.get(i).getCodigo().equals(medicamentoAtualizado.getCodigo())) {
-                medicamentos.set(i, medicamentoAtualizado);
-                salvarTodos(medicamentos);
-                return;
+        Medicamento copia = new Medicamento(medicamentoAtualizado);
+        escrita.lock();
+        try {
+            exigirLideranca();
+            CatalogoIndexado atual = versaoSemConflito(copia.getCodigo());
+            List<Medicamento> medicamentos = new ArrayList<>(atual.getTodos());
+
+            for (int i = 0; i < medicamentos.size(); i++) {
+                if (medicamentos.get(i).getCodigo().equals(copia.getCodigo())) {
+                    medicamentos.set(i, copia);
+                    publicar(atual.comAtualizacao(copia), gravar(medicamentos, carimboPublicado()));
+                    return;
+                }
             }
-        }
 
-        throw new PersistenciaException("Medicamento não encontrado para atualização");
+            throw new PersistenciaException("Medicamento não encontrado para atualização");
+        } finally {
+            escrita.unlock();
+        }
     }
 
+    @Override
     public boolean remover(String codigo) throws PersistenciaException {
-        List<Medicamento> medicamentos = carregarTodos();
-        boolean removido = medicamentos.removeIf(m -> m.getCodigo().equals(codigo));
+        escrita.lock();
+        try {
+            exigirLideranca();
+            CatalogoIndexado atual = versaoSemConflito(codigo);
+            List<Medicamento> medicamentos = new ArrayList<>(atual.getTodos());
+            boolean removido = medicamentos.removeIf(m -> m.getCodigo().equals(codigo));
+
+            if (removido) {
+                publicar(atual.semMedicamento(codigo), gravar(medicamentos, carimboPublicado()));
+            }
 
-        if (removido) {
-            salvarTodos(medicamentos);
+            return removido;
+        } finally {
+            escrita.unlock();
         }
-
-        return removido;
     }
 
+    @Override
     public Medicamento buscarPorCodigo(String codigo) throws PersistenciaException {
-        return carregarTodos().stream()
-                .filter(m -> m.getCodigo().equalsIgnoreCase(codigo))
-                .findFirst()
-                .orElse(null);
+        return catalogo().buscarPorCodigo(codigo);
     }
 
+    @Override
     public boolean existeCodigo(String codigo) throws PersistenciaException {
         return buscarPorCodigo(codigo) != null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Total de medicamentos no catálogo
+     */
+    @Override
+    public int contar() throws PersistenciaException {
+        return catalogo().tamanho();
+    }
+
+    /**
+     * Janela da listagem ordenada, a partir da posição {@code inicio}
+     */
+    @Override
+    public List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException {
+        return new ArrayList<>(catalogo().janela(ordem, inicio, tamanho));
+    }
+
+    /**
+     * Próxima página por chave: itens estritamente posteriores a {@code apos} (null = primeira página)
+     */
+    @Override
+    public Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException {
+        CatalogoIndexado atual = catalogo();
+        int inicio = atual.posicaoApos(ordem, apos);
+        List<Medicamento> itens = atual.janela(ordem, inicio, tamanho);
+        return new Pagina(itens, atual.tamanho(), inicio + itens.size() < atual.tamanho());
+    }
+
+    /**
+     * Retorna o catálogo indexado. Com o arquivo vigiado, devolve a versão publicada sem consultar
+     * o arquivo (as alterações externas chegam pela vigia); sem vigia, aplica as alterações
+     * externas se o carimbo do arquivo mudou. Com uma versão já publicada, não bloqueia: durante
+     * uma gravação (ou uma recarga feita por outra thread) devolve a versão anterior, que
+     * continua consistente.
+     */
+    @Override
+    public CatalogoIndexado catalogo() throws PersistenciaException {
+        VersaoCatalogo publicada = versao;
+        if (publicada != null && (inscricao != null || publicada.carimbo.equals(Carimbo.de(Paths.get(arquivoCsv))))) {
+            return publicada.catalogo;
+        }
+
+        if (publicada == null) {
+            escrita.lock();
+        } else if (!escrita.tryLock()) {
+            return publicada.catalogo;
+        }
+        try {
+            return versaoAtual();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Versão publicada, com as alterações externas aplicadas (chamado com o bloqueio de escrita)
+     */
+    private CatalogoIndexado versaoAtual() throws PersistenciaException {
+        sincronizar();
+        return versao.catalogo;
+    }
+
+    /**
+     * Versão publicada para uma escrita no código informado (chamado com o bloqueio de escrita)
+     *
+     * @throws PersistenciaException se outro programa alterou o mesmo medicamento no arquivo
+     */
+    private CatalogoIndexado versaoSemConflito(String codigo) throws PersistenciaException {
+        for (AlteracaoArquivo alteracao : sincronizar()) {
+            if (alteracao.getCodigo().equalsIgnoreCase(codigo)) {
+                throw new PersistenciaException("Medicamento " + codigo
+                        + " alterado no arquivo por outro programa; a alteração não foi gravada");
+            }
+        }
+        return versao.catalogo;
+    }
+
+    private void exigirLideranca() throws PersistenciaException {
+        LiderancaArquivo atual = lideranca;
+        if (atual != null && !atual.isLider()) {
+            throw new PersistenciaException(atual.motivoSomenteLeitura());
+        }
+    }
+
+    private Carimbo carimboPublicado() {
+        VersaoCatalogo publicada = versao;
+        return publicada == null ? null : publicada.carimbo;
+    }
+
+    /**
+     * Publica o catálogo recém-gravado com o carimbo do arquivo gravado, evitando relê-lo
+     * (chamado com o bloqueio de escrita)
+     */
+    private void publicar(CatalogoIndexado catalogo, Carimbo carimbo) {
+        versao = new VersaoCatalogo(catalogo, carimbo);
+    }
+
+    // ========== ALTERAÇÕES EXTERNAS ==========
+
+    /**
+     * Passa a vigiar o diretório do arquivo e a aplicar as alterações feitas por outros programas
+     * assim que o arquivo fica {@code farmacia.csv.vigiar.espera} ms sem mudar, avisando o ouvinte
+     */
+    @Override
+    public boolean vigiar(OuvinteArquivo ouvinte) throws PersistenciaException {
+        escrita.lock();
+        try {
+            ouvintes.add(ouvinte);
+            if (inscricao == null) {
+                inscricao = VigiaArquivos.compartilhada().inscrever(Paths.get(arquivoCsv),
+                        Configuracao.esperaVigiaCsvMs(), this::aplicarAlteracoesExternas);
+            }
+            return true;
+        } catch (IOException e) {
+            ouvintes.remove(ouvinte);
+            throw new PersistenciaException("Erro ao vigiar o arquivo de medicamentos", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public void fechar() {
+        VigiaArquivos.Inscricao atual = inscricao;
+        if (atual != null) {
+            atual.cancelar();
+            inscricao = null;
+        }
+        ouvintes.clear();
+        LiderancaArquivo liderancaAtual = lideranca;
+        if (liderancaAtual != null) {
+            liderancaAtual.liberar();
+        }
+    }
+
+    // ========== LIDERANÇA ENTRE PROCESSOS ==========
+
+    /**
+     * Disputa a liderança do arquivo com os outros processos que o abriram ({@code <arquivo>.lider}).
+     * Devolve true se este processo passou a ser o único que grava; senão o DAO fica seguidor até
+     * ser fechado: recusa escritas e continua acompanhando o arquivo. Os arquivos gravados ao lado
+     * dos dados (diário, livro, histórico) só devem ser abertos pelo líder.
+     */
+    public boolean disputarLideranca() throws PersistenciaException {
+        escrita.lock();
+        try {
+            if (lideranca == null) {
+                lideranca = LiderancaArquivo.disputar(arquivoCsv);
+            }
+            return lideranca.isLider();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public boolean isSomenteLeitura() {
+        LiderancaArquivo atual = lideranca;
+        return atual != null && !atual.isLider();
+    }
+
+    /**
+     * Ação da vigia, depois de uma série de eventos no arquivo (as próprias gravações também
+     * disparam eventos: encontram o carimbo já publicado e não fazem nada)
+     */
+    private void aplicarAlteracoesExternas() {
+        escrita.lock();
+        try {
+            if (versao != null) {
+                sincronizar();
+            }
+        } catch (PersistenciaException e) {
+            LOG.erro("Erro ao aplicar alterações externas do arquivo", e, "arquivo", arquivoCsv);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Aplica ao catálogo publicado o que outro programa mudou no arquivo desde a última versão
+     * publicada e devolve essas alterações, já avisadas aos ouvintes (chamado com o bloqueio de
+     * escrita). Os medicamentos que não mudaram continuam os mesmos objetos; poucas alterações
+     * derivam a versão nova da anterior, muitas (ou um código repetido no arquivo, que a derivação
+     * fundiria numa entrada só) a reconstroem na ordem do arquivo. Um arquivo removido mantém a
+     * versão publicada (a próxima escrita o recria).
+     */
+    private List<AlteracaoArquivo> sincronizar() throws PersistenciaException {
+        VersaoCatalogo publicada = versao;
+        // Carimbo lido antes da carga: uma mudança durante a leitura provoca outra sincronização
+        Carimbo carimbo = Carimbo.de(Paths.get(arquivoCsv));
+        if (publicada != null && (publicada.carimbo.equals(carimbo) || carimbo == Carimbo.AUSENTE)) {
+            return List.of();
+        }
+
+        List<Medicamento> lidos = carregarTodos();
+        if (publicada == null) {
+            versao = new VersaoCatalogo(new CatalogoIndexado(lidos), carimbo);
+            return List.of();
+        }
+
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado anterior = publicada.catalogo;
+            TreeMap<String, Medicamento> restantes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            restantes.putAll(anterior.indiceCodigo());
+            List<AlteracaoArquivo> alteracoes = new ArrayList<>();
+            List<Medicamento> medicamentos = new ArrayList<>(lidos.size());
+            Set<String> vistos = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            boolean repetido = false;
+            for (Medicamento lido : lidos) {
+                if (!vistos.add(lido.getCodigo())) {
+                    repetido = true;
+                    LOG.avisoLimitado("Código repetido no arquivo", "arquivo", arquivoCsv, "codigo", lido.getCodigo());
+                }
+                Medicamento antes = restantes.remove(lido.getCodigo());
+                if (antes != null && antes.toCSV().equals(lido.toCSV())) {
+                    medicamentos.add(antes);
+                } else {
+                    medicamentos.add(lido);
+                    alteracoes.add(new AlteracaoArquivo(antes, lido));
+                }
+            }
+            for (Medicamento removido : restantes.values()) {
+                alteracoes.add(new AlteracaoArquivo(removido, null));
+            }
+
+            CatalogoIndexado catalogo;
+            if (repetido || alteracoes.size() > LIMITE_DERIVACOES) {
+                catalogo = new CatalogoIndexado(medicamentos);
+            } else {
+                catalogo = anterior;
+                for (AlteracaoArquivo alteracao : alteracoes) {
+                    catalogo = alteracao.isExclusao()
+                            ? catalogo.semMedicamento(alteracao.getCodigo())
+                            : catalogo.comAtualizacao(alteracao.getDepois());
+                }
+            }
+            versao = new VersaoCatalogo(catalogo, carimbo);
+            M_SINCRONIZAR.adicionarLinhas(alteracoes.size());
+            sucesso = true;
+
+            // Ainda com o bloqueio: os avisos saem na ordem das versões publicadas
+            if (!alteracoes.isEmpty()) {
+                avisar(alteracoes);
+            }
+            return alteracoes;
+        } finally {
+            M_SINCRONIZAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    private void avisar(List<AlteracaoArquivo> alteracoes) {
+        List<AlteracaoArquivo> lote = Collections.unmodifiableList(alteracoes);
+        for (OuvinteArquivo ouvinte : ouvintes) {
+            try {
+                ouvinte.alterado(lote);
+            } catch (PersistenciaException | RuntimeException e) {
+                LOG.erro("Erro ao avisar alterações externas do arquivo", e, "arquivo", arquivoCsv,
+                        "alteracoes", alteracoes.size());
+            }
+        }
+    }
+
+    /**
+     * Catálogo e o carimbo do arquivo de onde ele veio, publicados juntos
+     */
+    private static final class VersaoCatalogo {
+        final CatalogoIndexado catalogo;
+        final Carimbo carimbo;
+
+        VersaoCatalogo(CatalogoIndexado catalogo, Carimbo carimbo) {
+            this.catalogo = catalogo;
+            this.carimbo = carimbo;
+        }
+    }
+
+    /**
+     * Modificação (em nanossegundos), tamanho e identidade (inode) do arquivo: uma substituição
+     * por renomeação muda a identidade mesmo que modificação e tamanho coincidam
+     */
+    private static final class Carimbo {
+        static final Carimbo AUSENTE = new Carimbo(-1, -1, null);
+
+        final long modificacao;
+        final long tamanho;
+        final Object identidade;
+
+        private Carimbo(long modificacao, long tamanho, Object identidade) {
+            this.modificacao = modificacao;
+            this.tamanho = tamanho;
+            this.identidade = identidade;
+        }
+
+        static Carimbo de(Path arquivo) throws PersistenciaException {
+            try {
+                BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+                return new Carimbo(atributos.lastModifiedTime().to(TimeUnit.NANOSECONDS), atributos.size(),
+                        atributos.fileKey());
+            } catch (NoSuchFileException e) {
+                return AUSENTE;
+            } catch (IOException e) {
+                throw new PersistenciaException("Erro ao consultar o arquivo de medicamentos", e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Carimbo)) {
+                return false;
+            }
+            Carimbo outro = (Carimbo) o;
+            return modificacao == outro.modificacao && tamanho == outro.tamanho
+                    && Objects.equals(identidade, outro.identidade);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modificacao, tamanho, identidade);
+        }
+    }
+}
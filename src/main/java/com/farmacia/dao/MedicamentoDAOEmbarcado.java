@@ -0,0 +1,493 @@
+package com.farmacia.dao;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repositório em banco embarcado (H2, arquivo local). Cada operação pontual é uma transação
+ * que usa a chave primária ou um índice B-tree, sem reescrever o catálogo inteiro.
+ */
+public class MedicamentoDAOEmbarcado implements MedicamentoRepository {
+    private static final Log LOG = Log.para(MedicamentoDAOEmbarcado.class);
+
+    private static final MetricaOperacao M_CARREGAR = Metricas.operacao("dao.embarcado.carregarTodos");
+    private static final MetricaOperacao M_SALVAR = Metricas.operacao("dao.embarcado.salvarTodos");
+    private static final MetricaOperacao M_ESCRITA = Metricas.operacao("dao.embarcado.escritaPontual");
+    private static final MetricaOperacao M_LEITURA = Metricas.operacao("dao.embarcado.leituraPontual");
+
+    private static final String COLUNAS = "codigo, nome, descricao, principio_ativo, data_validade, " +
+            "quantidade_estoque, preco, controlado, cnpj, razao_social, telefone, email, cidade, estado, lotes";
+
+    private static final String SQL_INSERIR = "INSERT INTO medicamento (" + COLUNAS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_ATUALIZAR = "UPDATE medicamento SET nome = ?, descricao = ?, " +
+            "principio_ativo = ?, data_validade = ?, quantidade_estoque = ?, preco = ?, controlado = ?, " +
+            "cnpj = ?, razao_social = ?, telefone = ?, email = ?, cidade = ?, estado = ?, lotes = ? WHERE codigo = ?";
+
+    // Linhas trazidas do banco por vez ao percorrer
+    private static final int TAMANHO_LOTE_LEITURA = 1000;
+
+    private final String banco;
+    private final Connection conexao;
+
+    // Catálogo em memória para consultas/relatórios, montado na primeira leitura. Cada escrita
+    // publica uma versão derivada da anterior; leitores pegam a referência sem bloqueio.
+    private volatile CatalogoIndexado catalogo;
+
+    public MedicamentoDAOEmbarcado() throws PersistenciaException {
+        this(Configuracao.bancoEmbarcado());
+    }
+
+    public MedicamentoDAOEmbarcado(String banco) throws PersistenciaException {
+        this.banco = banco;
+        File diretorio = new File(banco).getAbsoluteFile().getParentFile();
+        if (diretorio != null && !diretorio.exists()) {
+            diretorio.mkdirs();
+        }
+
+        try {
+            this.conexao = DriverManager.getConnection(
+                    "jdbc:h2:file:" + new File(banco).getAbsolutePath() + ";IGNORECASE=TRUE", "sa", "");
+            criarEsquema();
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao abrir banco embarcado " + banco, e);
+        }
+    }
+
+    private void criarEsquema() throws SQLException {
+        try (Statement st = conexao.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS medicamento (" +
+                    "codigo VARCHAR(64) PRIMARY KEY, " +
+                    "nome VARCHAR(255) NOT NULL, " +
+                    "descricao VARCHAR(1000), " +
+                    "principio_ativo VARCHAR(255), " +
+                    "data_validade DATE NOT NULL, " +
+                    "quantidade_estoque INT NOT NULL, " +
+                    "preco DECIMAL(19, 2) NOT NULL, " +
+                    "controlado BOOLEAN NOT NULL, " +
+                    "cnpj VARCHAR(20), " +
+                    "razao_social VARCHAR(255), " +
+                    "telefone VARCHAR(30), " +
+                    "email VARCHAR(255), " +
+                    "cidade VARCHAR(120), " +
+                    "estado VARCHAR(2), " +
+                    "lotes VARCHAR)");
+            // Bancos criados antes do controle por lote
+            st.execute("ALTER TABLE medicamento ADD COLUMN IF NOT EXISTS lotes VARCHAR");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_medicamento_nome ON medicamento(nome, codigo)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_medicamento_validade ON medicamento(data_validade, codigo)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_medicamento_estoque ON medicamento(quantidade_estoque)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_medicamento_cnpj ON medicamento(cnpj)");
+        }
+    }
+
+    @Override
+    public String descricao() {
+        return "embarcado:" + banco;
+    }
+
+    // ========== LEITURA ==========
+
+    @Override
+    public synchronized List<Medicamento> carregarTodos() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + COLUNAS + " FROM medicamento ORDER BY codigo")) {
+            List<Medicamento> medicamentos = lerTodos(rs);
+            M_CARREGAR.adicionarLinhas(medicamentos.size());
+            sucesso = true;
+            return medicamentos;
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao carregar medicamentos do banco embarcado", e);
+        } finally {
+            M_CARREGAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Lê as linhas do banco em fluxo, sem o catálogo em memória (o banco não é alterado enquanto
+     * isso: as escritas esperam o fim da leitura)
+     */
+    @Override
+    public synchronized void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (Statement st = conexao.createStatement()) {
+            st.setFetchSize(TAMANHO_LOTE_LEITURA);
+            try (ResultSet rs = st.executeQuery("SELECT " + COLUNAS + " FROM medicamento")) {
+                long linhas = 0;
+                while (rs.next()) {
+                    consumidor.accept(lerLinha(rs));
+                    linhas++;
+                }
+                M_CARREGAR.adicionarLinhas(linhas);
+            }
+            sucesso = true;
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao percorrer medicamentos do banco embarcado", e);
+        } finally {
+            M_CARREGAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized Medicamento buscarPorCodigo(String codigo) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (PreparedStatement ps = conexao.prepareStatement(
+                "SELECT " + COLUNAS + " FROM medicamento WHERE codigo = ?")) {
+            ps.setString(1, codigo);
+            try (ResultSet rs = ps.executeQuery()) {
+                Medicamento medicamento = rs.next() ? lerLinha(rs) : null;
+                sucesso = true;
+                return medicamento;
+            }
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao buscar medicamento no banco embarcado", e);
+        } finally {
+            M_LEITURA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public boolean existeCodigo(String codigo) throws PersistenciaException {
+        return buscarPorCodigo(codigo) != null;
+    }
+
+    @Override
+    public CatalogoIndexado catalogo() throws PersistenciaException {
+        CatalogoIndexado publicado = catalogo;
+        if (publicado != null) {
+            return publicado;
+        }
+        synchronized (this) {
+            if (catalogo == null) {
+                catalogo = new CatalogoIndexado(carregarTodos());
+            }
+            return catalogo;
+        }
+    }
+
+    @Override
+    public synchronized int contar() throws PersistenciaException {
+        try (Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM medicamento")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao contar medicamentos no banco embarcado", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho)
+            throws PersistenciaException {
+        long inicioNanos = System.nanoTime();
+        boolean sucesso = false;
+        try (PreparedStatement ps = conexao.prepareStatement(
+                "SELECT " + COLUNAS + " FROM medicamento ORDER BY " + ordenacaoSql(ordem) + " LIMIT ? OFFSET ?")) {
+            ps.setInt(1, Math.max(0, tamanho));
+            ps.setInt(2, Math.max(0, inicio));
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Medicamento> janela = lerTodos(rs);
+                sucesso = true;
+                return janela;
+            }
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao listar medicamentos do banco embarcado", e);
+        } finally {
+            M_LEITURA.registrar(System.nanoTime() - inicioNanos, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho)
+            throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+
+        String sql = "SELECT " + COLUNAS + " FROM medicamento" +
+                (apos == null ? "" : " WHERE " + condicaoApos(ordem)) +
+                " ORDER BY " + ordenacaoSql(ordem) + " LIMIT ?";
+
+        try (PreparedStatement ps = conexao.prepareStatement(sql)) {
+            int i = 1;
+            if (apos != null) {
+                switch (ordem) {
+                    case NOME:
+                        ps.setString(i++, apos.getNome());
+                        break;
+                    case VALIDADE:
+                        ps.setDate(i++, Date.valueOf(apos.getDataValidade()));
+                        break;
+                    default:
+                        break;
+                }
+                ps.setString(i++, apos.getCodigo());
+            }
+            // Um item a mais indica se existe próxima página
+            ps.setInt(i, tamanho + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Medicamento> itens = lerTodos(rs);
+                boolean temProxima = itens.size() > tamanho;
+                if (temProxima) {
+                    itens.remove(itens.size() - 1);
+                }
+                Pagina pagina = new Pagina(itens, contar(), temProxima);
+                sucesso = true;
+                return pagina;
+            }
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao paginar medicamentos do banco embarcado", e);
+        } finally {
+            M_LEITURA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    private static String ordenacaoSql(OrdemListagem ordem) {
+        switch (ordem) {
+            case NOME: return "nome, codigo";
+            case VALIDADE: return "data_validade, codigo";
+            default: return "codigo";
+        }
+    }
+
+    private static String condicaoApos(OrdemListagem ordem) {
+        switch (ordem) {
+            case NOME: return "(nome, codigo) > (?, ?)";
+            case VALIDADE: return "(data_validade, codigo) > (?, ?)";
+            default: return "codigo > ?";
+        }
+    }
+
+    // ========== ESCRITA ==========
+
+    @Override
+    public synchronized void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            conexao.setAutoCommit(false);
+            try (Statement st = conexao.createStatement();
+                 PreparedStatement ps = conexao.prepareStatement(SQL_INSERIR)) {
+                st.execute("DELETE FROM medicamento");
+                int pendentes = 0;
+                for (Medicamento medicamento : medicamentos) {
+                    preencherInsercao(ps, medicamento);
+                    ps.addBatch();
+                    if (++pendentes == 1000) {
+                        ps.executeBatch();
+                        pendentes = 0;
+                    }
+                }
+                ps.executeBatch();
+                conexao.commit();
+                M_SALVAR.adicionarLinhas(medicamentos.size());
+                if (catalogo != null) {
+                    List<Medicamento> copias = new ArrayList<>(medicamentos.size());
+                    for (Medicamento medicamento : medicamentos) {
+                        copias.add(new Medicamento(medicamento));
+                    }
+                    catalogo = new CatalogoIndexado(copias);
+                }
+                sucesso = true;
+            } catch (SQLException e) {
+                conexao.rollback();
+                throw e;
+            } finally {
+                conexao.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao salvar medicamentos no banco embarcado", e);
+        } finally {
+            M_SALVAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized void adicionar(Medicamento medicamento) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (PreparedStatement ps = conexao.prepareStatement(SQL_INSERIR)) {
+            preencherInsercao(ps, medicamento);
+            ps.executeUpdate();
+            if (catalogo != null) {
+                catalogo = catalogo.comInclusao(new Medicamento(medicamento));
+            }
+            sucesso = true;
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao adicionar medicamento no banco embarcado", e);
+        } finally {
+            M_ESCRITA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (PreparedStatement ps = conexao.prepareStatement(SQL_ATUALIZAR)) {
+            Medicamento m = medicamentoAtualizado;
+            Fornecedor f = m.getFornecedor() != null ? m.getFornecedor() : new Fornecedor();
+            ps.setString(1, m.getNome());
+            ps.setString(2, m.getDescricao());
+            ps.setString(3, m.getPrincipioAtivo());
+            ps.setDate(4, Date.valueOf(m.getDataValidade()));
+            ps.setInt(5, m.getQuantidadeEstoque());
+            ps.setBigDecimal(6, Dinheiro.paraBigDecimal(m.getPrecoCentavos()));
+            ps.setBoolean(7, m.isControlado());
+            ps.setString(8, f.getCnpj());
+            ps.setString(9, f.getRazaoSocial());
+            ps.setString(10, f.getTelefone());
+            ps.setString(11, f.getEmail());
+            ps.setString(12, f.getCidade());
+            ps.setString(13, f.getEstado());
+            ps.setString(14, lotes(m));
+            ps.setString(15, m.getCodigo());
+
+            if (ps.executeUpdate() == 0) {
+                throw new PersistenciaException("Medicamento não encontrado para atualização");
+            }
+            if (catalogo != null) {
+                catalogo = catalogo.comAtualizacao(new Medicamento(m));
+            }
+            sucesso = true;
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao atualizar medicamento no banco embarcado", e);
+        } finally {
+            M_ESCRITA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized boolean remover(String codigo) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try (PreparedStatement ps = conexao.prepareStatement("DELETE FROM medicamento WHERE codigo = ?")) {
+            ps.setString(1, codigo);
+            boolean removido = ps.executeUpdate() > 0;
+            if (removido && catalogo != null) {
+                catalogo = catalogo.semMedicamento(codigo);
+            }
+            sucesso = true;
+            return removido;
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao remover medicamento do banco embarcado", e);
+        } finally {
+            M_ESCRITA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    @Override
+    public synchronized void fechar() throws PersistenciaException {
+        try {
+            conexao.close();
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao fechar banco embarcado", e);
+        }
+    }
+
+    /**
+     * Compacta o arquivo do banco (executado ao encerrar a conexão)
+     */
+    @Override
+    public synchronized void compactar() throws PersistenciaException {
+        try (Statement st = conexao.createStatement()) {
+            st.execute("SHUTDOWN COMPACT");
+            LOG.info("Banco embarcado compactado", "banco", banco);
+        } catch (SQLException e) {
+            throw new PersistenciaException("Erro ao compactar banco embarcado", e);
+        }
+    }
+
+    // ========== MAPEAMENTO ==========
+
+    private static void preencherInsercao(PreparedStatement ps, Medicamento m) throws SQLException {
+        Fornecedor f = m.getFornecedor() != null ? m.getFornecedor() : new Fornecedor();
+        ps.setString(1, m.getCodigo());
+        ps.setString(2, m.getNome());
+        ps.setString(3, m.getDescricao());
+        ps.setString(4, m.getPrincipioAtivo());
+        ps.setDate(5, Date.valueOf(m.getDataValidade()));
+        ps.setInt(6, m.getQuantidadeEstoque());
+        ps.setBigDecimal(7, Dinheiro.paraBigDecimal(m.getPrecoCentavos()));
+        ps.setBoolean(8, m.isControlado());
+        ps.setString(9, f.getCnpj());
+        ps.setString(10, f.getRazaoSocial());
+        ps.setString(11, f.getTelefone());
+        ps.setString(12, f.getEmail());
+        ps.setString(13, f.getCidade());
+        ps.setString(14, f.getEstado());
+        ps.setString(15, lotes(m));
+    }
+
+    /**
+     * Lotes no mesmo formato da coluna do CSV (null sem controle por lote)
+     */
+    private static String lotes(Medicamento m) {
+        return m.temLotes() ? Lote.codificar(m.getLotes()) : null;
+    }
+
+    private static List<Medicamento> lerTodos(ResultSet rs) throws SQLException {
+        List<Medicamento> medicamentos = new ArrayList<>();
+        while (rs.next()) {
+            medicamentos.add(lerLinha(rs));
+        }
+        return medicamentos;
+    }
+
+    private static Medicamento lerLinha(ResultSet rs) throws SQLException {
+        Fornecedor fornecedor = new Fornecedor(
+                rs.getString("cnpj"),
+                rs.getString("razao_social"),
+                rs.getString("telefone"),
+                rs.getString("email"),
+                rs.getString("cidade"),
+                rs.getString("estado")
+        );
+
+        Medicamento medicamento = new Medicamento(
+                rs.getString("codigo"),
+                rs.getString("nome"),
+                rs.getString("descricao"),
+                rs.getString("principio_ativo"),
+                rs.getDate("data_validade").toLocalDate(),
+                rs.getInt("quantidade_estoque"),
+                Dinheiro.de(rs.getBigDecimal("preco")),
+                rs.getBoolean("controlado"),
+                fornecedor
+        );
+
+        String lotes = rs.getString("lotes");
+        if (lotes != null && !lotes.isEmpty()) {
+            try {
+                medicamento.setLotes(Lote.decodificar(lotes));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new SQLException("Lotes inválidos no medicamento " + medicamento.getCodigo() + ": " + lotes, e);
+            }
+        }
+        return medicamento;
+    }
+}
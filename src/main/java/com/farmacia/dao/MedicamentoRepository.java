@@ -0,0 +1,84 @@
+package com.farmacia.dao;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.model.Medicamento;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Contrato de persistência dos medicamentos. Implementações: {@link MedicamentoDAO} (arquivo CSV)
+ * e {@link MedicamentoDAOEmbarcado} (banco embarcado com índices e transações).
+ * A implementação usada é escolhida por {@link FabricaRepositorio}.
+ */
+public interface MedicamentoRepository {
+
+    List<Medicamento> carregarTodos() throws PersistenciaException;
+
+    /**
+     * Substitui todo o conteúdo do repositório pela lista informada
+     */
+    void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException;
+
+    /**
+     * Entrega os medicamentos do armazenamento um a um, sem montar o catálogo em memória
+     * (exportações maiores que o heap). Por padrão, percorre {@link #carregarTodos}.
+     */
+    default void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        for (Medicamento medicamento : carregarTodos()) {
+            consumidor.accept(medicamento);
+        }
+    }
+
+    void adicionar(Medicamento medicamento) throws PersistenciaException;
+
+    void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException;
+
+    boolean remover(String codigo) throws PersistenciaException;
+
+    Medicamento buscarPorCodigo(String codigo) throws PersistenciaException;
+
+    boolean existeCodigo(String codigo) throws PersistenciaException;
+
+    /**
+     * Catálogo indexado em memória (usado por consultas ad hoc e relatórios)
+     */
+    CatalogoIndexado catalogo() throws PersistenciaException;
+
+    int contar() throws PersistenciaException;
+
+    List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException;
+
+    Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException;
+
+    /**
+     * Descrição do repositório (tipo e local), para logs e ferramentas
+     */
+    String descricao();
+
+    /**
+     * Recupera espaço do armazenamento (sem efeito no CSV, que é sempre regravado por inteiro)
+     */
+    default void compactar() throws PersistenciaException {}
+
+    /**
+     * Passa a aplicar ao catálogo as alterações feitas no armazenamento por outros programas,
+     * avisando o ouvinte de cada lote aplicado. Devolve false se o repositório não tem esse suporte
+     * (o banco embarcado só é alterado pela aplicação).
+     */
+    default boolean vigiar(OuvinteArquivo ouvinte) throws PersistenciaException {
+        return false;
+    }
+
+    /**
+     * true se o repositório recusa escritas porque outro processo é quem grava (modo seguidor)
+     */
+    default boolean isSomenteLeitura() {
+        return false;
+    }
+
+    /**
+     * Libera recursos (conexões, arquivos abertos)
+     */
+    default void fechar() throws PersistenciaException {}
+}
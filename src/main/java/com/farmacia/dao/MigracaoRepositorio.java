@@ -0,0 +1,70 @@
+package com.farmacia.dao;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.model.Medicamento;
+
+import java.util.List;
+
+/**
+ * Ferramenta de migração entre repositórios. Uso:
+ * <pre>
+ * java -cp ... com.farmacia.dao.MigracaoRepositorio csv:data/medicamentos.csv embarcado:data/medicamentos
+ * java -cp ... com.farmacia.dao.MigracaoRepositorio embarcado csv:data/exportado.csv
+ * </pre>
+ * O conteúdo do destino é substituído pelo da origem.
+ */
+public final class MigracaoRepositorio {
+
+    private MigracaoRepositorio() {}
+
+    /**
+     * Copia todos os medicamentos da origem para o destino e retorna a quantidade migrada
+     */
+    public static int migrar(MedicamentoRepository origem, MedicamentoRepository destino) throws PersistenciaException {
+        List<Medicamento> medicamentos = origem.carregarTodos();
+        destino.salvarTodos(medicamentos);
+
+        int gravados = destino.contar();
+        if (gravados != medicamentos.size()) {
+            throw new PersistenciaException("Migração incompleta: " + medicamentos.size() +
+                    " lidos, " + gravados + " gravados");
+        }
+        return gravados;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: MigracaoRepositorio <origem> <destino>  (ex.: csv:data/medicamentos.csv embarcado:data/medicamentos)");
+            System.exit(2);
+        }
+
+        MedicamentoRepository origem = null;
+        MedicamentoRepository destino = null;
+        try {
+            origem = FabricaRepositorio.criarPorEspecificacao(args[0]);
+            destino = FabricaRepositorio.criarPorEspecificacao(args[1]);
+
+            long inicio = System.nanoTime();
+            int total = migrar(origem, destino);
+            System.out.printf("%d medicamentos migrados de %s para %s em %d ms%n",
+                    total, origem.descricao(), destino.descricao(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (PersistenciaException e) {
+            System.err.println("Erro na migração: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            fecharSilenciosamente(origem);
+            fecharSilenciosamente(destino);
+        }
+    }
+
+    private static void fecharSilenciosamente(MedicamentoRepository repositorio) {
+        if (repositorio == null) {
+            return;
+        }
+        try {
+            repositorio.fechar();
+        } catch (PersistenciaException e) {
+            System.err.println("Erro ao fechar " + repositorio.descricao() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.farmacia.dao;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.Comparator;
+
+/**
+ * Ordens de listagem paginada. Todas desempatam pelo código, formando uma ordem total
+ * (necessária para a paginação por chave).
+ */
+public enum OrdemListagem {
+    CODIGO(Comparator.comparing(Medicamento::getCodigo, String.CASE_INSENSITIVE_ORDER)),
+    NOME(Comparator.comparing(Medicamento::getNome, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Medicamento::getCodigo, String.CASE_INSENSITIVE_ORDER)),
+    VALIDADE(Comparator.comparing(Medicamento::getDataValidade, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Medicamento::getCodigo, String.CASE_INSENSITIVE_ORDER));
+
+    private final Comparator<Medicamento> comparador;
+
+    OrdemListagem(Comparator<Medicamento> comparador) {
+        this.comparador = comparador;
+    }
+
+    public Comparator<Medicamento> comparador() { return comparador; }
+}
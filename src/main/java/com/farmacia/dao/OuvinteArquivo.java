@@ -0,0 +1,14 @@
+package com.farmacia.dao;
+
+import com.farmacia.exception.PersistenciaException;
+
+import java.util.List;
+
+/**
+ * Recebe as alterações feitas no armazenamento por outro programa, já aplicadas ao catálogo
+ * publicado (ver {@link MedicamentoRepository#vigiar}), em lotes na ordem em que foram achadas
+ */
+@FunctionalInterface
+public interface OuvinteArquivo {
+    void alterado(List<AlteracaoArquivo> alteracoes) throws PersistenciaException;
+}
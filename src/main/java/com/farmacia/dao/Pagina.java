@@ -0,0 +1,32 @@
+package com.farmacia.dao;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem por chave: itens, total do catálogo e se há página seguinte.
+ * A próxima página é obtida passando {@link #getUltimo()} como ponto de partida.
+ */
+public class Pagina {
+    private final List<Medicamento> itens;
+    private final int total;
+    private final boolean temProxima;
+
+    public Pagina(List<Medicamento> itens, int total, boolean temProxima) {
+        this.itens = List.copyOf(itens);
+        this.total = total;
+        this.temProxima = temProxima;
+    }
+
+    public List<Medicamento> getItens() { return itens; }
+    public int getTotal() { return total; }
+    public boolean isTemProxima() { return temProxima; }
+
+    /**
+     * Último item da página (cursor para a próxima), ou null se a página estiver vazia
+     */
+    public Medicamento getUltimo() {
+        return itens.isEmpty() ? null : itens.get(itens.size() - 1);
+    }
+}
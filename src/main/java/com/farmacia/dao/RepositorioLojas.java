@@ -0,0 +1,119 @@
+package com.farmacia.dao;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partições do catálogo por loja (filial). Cada loja é um repositório independente, com o seu
+ * próprio catálogo em memória e o seu próprio diário de alterações. Dentro do diretório da rede:
+ * <ul>
+ *   <li>{@code <loja>.csv}: loja em arquivo CSV;</li>
+ *   <li>{@code <loja>.csvz}: loja em arquivo CSV comprimido em blocos;</li>
+ *   <li>{@code <loja>/medicamentos.csv}: loja em arquivo CSV, num diretório próprio;</li>
+ *   <li>{@code <loja>/medicamentos.mv.db}: loja em banco embarcado.</li>
+ * </ul>
+ */
+public class RepositorioLojas {
+    private static final Log LOG = Log.para(RepositorioLojas.class);
+    private static final String ARQUIVO_CSV = "medicamentos.csv";
+    private static final String BANCO_EMBARCADO = "medicamentos";
+
+    private final File diretorio;
+    private final Map<String, MedicamentoRepository> lojas = new LinkedHashMap<>();
+
+    private RepositorioLojas(File diretorio) {
+        this.diretorio = diretorio;
+    }
+
+    /**
+     * Abre todas as lojas encontradas no diretório, em ordem alfabética do nome da loja
+     */
+    public static RepositorioLojas abrir(String diretorio) throws PersistenciaException {
+        RepositorioLojas rede = new RepositorioLojas(new File(diretorio));
+        if (!rede.diretorio.isDirectory() && !rede.diretorio.mkdirs()) {
+            throw new PersistenciaException("Diretório de lojas inválido: " + diretorio);
+        }
+
+        File[] entradas = rede.diretorio.listFiles();
+        if (entradas == null) {
+            throw new PersistenciaException("Erro ao listar o diretório de lojas: " + diretorio);
+        }
+        Arrays.sort(entradas);
+
+        try {
+            for (File entrada : entradas) {
+                String nome = entrada.getName();
+                if (entrada.isFile() && nome.endsWith(".csv")) {
+                    rede.lojas.put(nome.substring(0, nome.length() - 4), FabricaRepositorio.criar("csv", entrada.getPath()));
+                } else if (entrada.isFile() && nome.endsWith(MedicamentoDAO.EXTENSAO_COMPRIMIDA)) {
+                    rede.lojas.put(nome.substring(0, nome.length() - MedicamentoDAO.EXTENSAO_COMPRIMIDA.length()),
+                            FabricaRepositorio.criar("csv", entrada.getPath()));
+                } else if (new File(entrada, BANCO_EMBARCADO + ".mv.db").isFile()) {
+                    rede.lojas.put(nome, FabricaRepositorio.criar("embarcado", new File(entrada, BANCO_EMBARCADO).getPath()));
+                } else if (new File(entrada, ARQUIVO_CSV).isFile()) {
+                    rede.lojas.put(nome, FabricaRepositorio.criar("csv", new File(entrada, ARQUIVO_CSV).getPath()));
+                }
+            }
+        } catch (PersistenciaException e) {
+            rede.fechar();
+            throw e;
+        }
+
+        LOG.info("Lojas abertas", "diretorio", diretorio, "lojas", rede.lojas.keySet());
+        return rede;
+    }
+
+    /**
+     * Cria uma loja nova (diretório próprio com arquivo CSV vazio)
+     */
+    public synchronized MedicamentoRepository criarLoja(String loja) throws PersistenciaException {
+        if (loja == null || !loja.matches("[A-Za-z0-9_-]+")) {
+            throw new PersistenciaException("Nome de loja inválido: " + loja);
+        }
+        if (lojas.containsKey(loja)) {
+            throw new PersistenciaException("Loja já existe: " + loja);
+        }
+        MedicamentoRepository repositorio = FabricaRepositorio.criar("csv", new File(new File(diretorio, loja), ARQUIVO_CSV).getPath());
+        lojas.put(loja, repositorio);
+        return repositorio;
+    }
+
+    /**
+     * Nomes das lojas, na ordem de abertura
+     */
+    public synchronized Set<String> lojas() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(lojas.keySet()));
+    }
+
+    /**
+     * Repositório de uma loja; null se não existir
+     */
+    public synchronized MedicamentoRepository particao(String loja) {
+        return lojas.get(loja);
+    }
+
+    public String getDiretorio() {
+        return diretorio.getPath();
+    }
+
+    /**
+     * Fecha os repositórios de todas as lojas
+     */
+    public synchronized void fechar() {
+        for (Map.Entry<String, MedicamentoRepository> loja : lojas.entrySet()) {
+            try {
+                loja.getValue().fechar();
+            } catch (PersistenciaException e) {
+                LOG.aviso("Erro ao fechar loja", "loja", loja.getKey(), "erro", e.getMessage());
+            }
+        }
+    }
+}
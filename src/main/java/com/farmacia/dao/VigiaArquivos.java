@@ -0,0 +1,182 @@
+package com.farmacia.dao;
+
+import com.farmacia.log.Log;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vigia arquivos com o {@link WatchService} do sistema: um serviço e uma thread para a JVM inteira,
+ * com cada diretório registrado uma vez. Cada evento sobre um arquivo inscrito adia a ação dele
+ * para depois de {@code espera} ms sem novos eventos, para que editores que gravam em vários passos
+ * (truncar e escrever, temporário e renomear) provoquem uma só ação, sobre o arquivo já completo.
+ * As ações rodam na thread da vigia, uma por vez.
+ */
+final class VigiaArquivos {
+    private static final Log LOG = Log.para(VigiaArquivos.class);
+
+    private static VigiaArquivos compartilhada;
+
+    private final WatchService servico;
+    private final Map<WatchKey, Path> diretorios = new ConcurrentHashMap<>();
+    private final Map<Path, Inscricao> inscricoes = new ConcurrentHashMap<>();
+
+    private VigiaArquivos() throws IOException {
+        this.servico = FileSystems.getDefault().newWatchService();
+        Thread vigia = new Thread(this::vigiar, "vigia-arquivos");
+        vigia.setDaemon(true);
+        vigia.start();
+    }
+
+    /**
+     * Vigia da JVM, criada na primeira inscrição
+     */
+    static synchronized VigiaArquivos compartilhada() throws IOException {
+        if (compartilhada == null) {
+            compartilhada = new VigiaArquivos();
+        }
+        return compartilhada;
+    }
+
+    /**
+     * Passa a executar {@code acao} depois de cada série de alterações do arquivo
+     *
+     * @throws IOException se o diretório do arquivo não pode ser vigiado
+     */
+    Inscricao inscrever(Path arquivo, long espera, Runnable acao) throws IOException {
+        Path caminho = arquivo.toAbsolutePath().normalize();
+        Path diretorio = caminho.getParent();
+        Inscricao inscricao = new Inscricao(caminho, TimeUnit.MILLISECONDS.toNanos(Math.max(0, espera)), acao);
+        if (inscricoes.putIfAbsent(caminho, inscricao) != null) {
+            throw new IOException("Arquivo já vigiado: " + caminho);
+        }
+        try {
+            WatchKey chave = diretorio.register(servico, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            diretorios.put(chave, diretorio);
+        } catch (IOException | RuntimeException e) {
+            inscricoes.remove(caminho);
+            throw e;
+        }
+        return inscricao;
+    }
+
+    // ========== THREAD DA VIGIA ==========
+
+    private void vigiar() {
+        try {
+            while (true) {
+                long proximo = proximoPrazo();
+                WatchKey chave = proximo == Long.MAX_VALUE
+                        ? servico.take()
+                        : servico.poll(Math.max(0, proximo - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (chave != null) {
+                    receber(chave);
+                }
+                executarVencidas();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receber(WatchKey chave) {
+        Path diretorio = diretorios.get(chave);
+        long agora = System.nanoTime();
+        for (WatchEvent<?> evento : chave.pollEvents()) {
+            if (diretorio == null) {
+                continue;
+            }
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Eventos perdidos: todos os arquivos do diretório podem ter mudado
+                for (Inscricao inscricao : inscricoes.values()) {
+                    if (inscricao.arquivo.getParent().equals(diretorio)) {
+                        inscricao.adiar(agora);
+                    }
+                }
+                continue;
+            }
+            Inscricao inscricao = inscricoes.get(diretorio.resolve((Path) evento.context()));
+            if (inscricao != null) {
+                inscricao.adiar(agora);
+            }
+        }
+        if (!chave.reset()) {
+            diretorios.remove(chave);
+        }
+    }
+
+    private long proximoPrazo() {
+        long proximo = Long.MAX_VALUE;
+        for (Inscricao inscricao : inscricoes.values()) {
+            if (inscricao.pendente) {
+                proximo = Math.min(proximo, inscricao.prazo);
+            }
+        }
+        return proximo;
+    }
+
+    private void executarVencidas() {
+        long agora = System.nanoTime();
+        for (Inscricao inscricao : inscricoes.values()) {
+            if (inscricao.pendente && inscricao.prazo - agora <= 0) {
+                inscricao.pendente = false;
+                try {
+                    inscricao.acao.run();
+                } catch (RuntimeException e) {
+                    LOG.erro("Erro ao aplicar alteração de arquivo vigiado", e, "arquivo", inscricao.arquivo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inscrição de um arquivo; {@link #cancelar} encerra a vigia dele
+     */
+    final class Inscricao {
+        private final Path arquivo;
+        private final long espera;
+        private final Runnable acao;
+        // Usados só pela thread da vigia
+        private boolean pendente;
+        private long prazo;
+
+        private Inscricao(Path arquivo, long espera, Runnable acao) {
+            this.arquivo = arquivo;
+            this.espera = espera;
+            this.acao = acao;
+        }
+
+        private void adiar(long agora) {
+            pendente = true;
+            prazo = agora + espera;
+        }
+
+        void cancelar() {
+            inscricoes.remove(arquivo, this);
+            // O diretório deixa de ser vigiado quando não resta arquivo inscrito nele
+            Path diretorio = arquivo.getParent();
+            for (Inscricao outra : inscricoes.values()) {
+                if (outra.arquivo.getParent().equals(diretorio)) {
+                    return;
+                }
+            }
+            diretorios.entrySet().removeIf(entrada -> {
+                if (entrada.getValue().equals(diretorio)) {
+                    entrada.getKey().cancel();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+}
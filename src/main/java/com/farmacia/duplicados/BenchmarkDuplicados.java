@@ -0,0 +1,162 @@
+package com.farmacia.duplicados;
+
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark da detecção de duplicados: catálogo sintético de produtos distintos (nomes e princípios
+ * inventados, dosagens comuns) com cópias plantadas em 5% deles, cada uma com uma variação de
+ * cadastro (caixa e acentos, "500 mg" escrito "0,5 g", sal e forma farmacêutica, letras trocadas).
+ * Mede a detecção com uma thread e com o pool comum, e confere a revocação (cópias agrupadas com o
+ * original) e os grupos espúrios (produtos originais distintos no mesmo grupo).
+ *
+ * Uso: BenchmarkDuplicados [medicamentos] [limiar]
+ */
+public class BenchmarkDuplicados {
+    private static final String[] SILABAS = {"ba", "ce", "di", "lo", "mu", "ra", "xo", "te", "pi", "na", "zol",
+            "fen", "mi", "pril", "sar", "tan", "vo", "qui", "cor", "len", "tri", "gu", "dex", "flu"};
+    private static final int[] DOSES_MG = {5, 10, 20, 25, 50, 100, 250, 500, 750, 1000};
+
+    public static void main(String[] args) throws Exception {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        double limiar = args.length > 1 ? Double.parseDouble(args[1]) : DetectorDuplicados.LIMIAR_PADRAO;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+
+        Map<String, Integer> originais = new HashMap<>();
+        long inicio = System.nanoTime();
+        List<Medicamento> catalogo = gerar(quantidade, originais);
+        int copias = catalogo.size() - (int) originais.values().stream().distinct().count();
+        System.out.printf("%d medicamentos, %d cópias plantadas (gerado em %.1fs), limiar %.2f%n%n",
+                catalogo.size(), copias, (System.nanoTime() - inicio) / 1e9, limiar);
+
+        DetectorDuplicados detector = new DetectorDuplicados(limiar);
+        ForkJoinPool umaThread = new ForkJoinPool(1);
+        try {
+            medir("1 thread", () -> umaThread.submit(() -> detector.detectar(catalogo)).get(), catalogo, originais, copias);
+        } finally {
+            umaThread.shutdown();
+        }
+        if (nucleos > 1) {
+            medir(nucleos + " threads", () -> detector.detectar(catalogo), catalogo, originais, copias);
+        }
+    }
+
+    private interface Deteccao {
+        List<GrupoDuplicados> executar() throws Exception;
+    }
+
+    private static void medir(String rotulo, Deteccao deteccao, List<Medicamento> catalogo,
+                              Map<String, Integer> originais, int copias) throws Exception {
+        long inicio = System.nanoTime();
+        List<GrupoDuplicados> grupos = deteccao.executar();
+        long tempo = System.nanoTime() - inicio;
+
+        int encontradas = 0;
+        int espurios = 0;
+        for (GrupoDuplicados grupo : grupos) {
+            Map<Integer, Integer> porOriginal = new HashMap<>();
+            for (Medicamento medicamento : grupo.getMedicamentos()) {
+                porOriginal.merge(originais.get(medicamento.getCodigo()), 1, Integer::sum);
+            }
+            for (int membros : porOriginal.values()) {
+                encontradas += membros - 1;
+            }
+            if (porOriginal.size() > 1) {
+                espurios++;
+            }
+        }
+        System.out.printf("%s: %.2fs, %.0f medicamentos/s, %d grupos, revocação %.1f%%, %d grupos espúrios%n",
+                rotulo, tempo / 1e9, catalogo.size() / (tempo / 1e9), grupos.size(),
+                copias == 0 ? 100.0 : 100.0 * encontradas / copias, espurios);
+    }
+
+    /**
+     * Catálogo com os produtos originais e as cópias; {@code originais} leva cada código ao índice
+     * do produto de que ele é cópia (ou ele mesmo)
+     */
+    private static List<Medicamento> gerar(int quantidade, Map<String, Integer> originais) {
+        Random aleatorio = new Random(42);
+        Fornecedor fornecedor = new Fornecedor("11222333000181", "Distribuidora Central", "1133334444",
+                "vendas@distribuidora.com.br", "São Paulo", "SP");
+        LocalDate validade = LocalDate.now().plusYears(1);
+
+        int produtos = quantidade * 20 / 21;
+        List<Medicamento> catalogo = new ArrayList<>(quantidade);
+        Set<String> vistos = new HashSet<>();
+        String[] nomes = new String[produtos];
+        String[] principios = new String[produtos];
+        int[] doses = new int[produtos];
+        for (int i = 0; i < produtos; i++) {
+            do {
+                nomes[i] = capitalizar(palavra(aleatorio, 4));
+                principios[i] = palavra(aleatorio, 4);
+                doses[i] = DOSES_MG[aleatorio.nextInt(DOSES_MG.length)];
+            } while (!vistos.add(nomes[i] + principios[i] + doses[i]));
+            catalogo.add(medicamento("MED" + i, nomes[i] + " " + doses[i] + "mg", principios[i], validade, fornecedor));
+            originais.put("MED" + i, i);
+        }
+
+        for (int i = 0; catalogo.size() < quantidade; i++) {
+            int original = aleatorio.nextInt(produtos);
+            String nome = nomes[original] + " " + doses[original] + "mg";
+            String principio = principios[original];
+            switch (i % 4) {
+                case 0:
+                    nome = nome.toUpperCase().replace('A', 'Á');
+                    break;
+                case 1:
+                    nome = nomes[original] + (doses[original] >= 100
+                            ? " " + String.valueOf(doses[original] / 1000.0).replace('.', ',') + " g"
+                            : " " + doses[original] + " mg");
+                    break;
+                case 2:
+                    nome = nome + " Comprimido Revestido";
+                    principio = "Cloridrato de " + principio;
+                    break;
+                default:
+                    nome = trocarLetras(nomes[original], aleatorio) + " " + doses[original] + "mg";
+                    break;
+            }
+            String codigo = "DUP" + i;
+            catalogo.add(medicamento(codigo, nome, principio, validade, fornecedor));
+            originais.put(codigo, original);
+        }
+        return catalogo;
+    }
+
+    private static Medicamento medicamento(String codigo, String nome, String principio, LocalDate validade,
+                                           Fornecedor fornecedor) {
+        return new Medicamento(codigo, nome, "Descrição de " + nome, principio, validade, 100, 1250, false, fornecedor);
+    }
+
+    private static String palavra(Random aleatorio, int silabas) {
+        StringBuilder palavra = new StringBuilder();
+        for (int i = 0; i < silabas; i++) {
+            palavra.append(SILABAS[aleatorio.nextInt(SILABAS.length)]);
+        }
+        return palavra.toString();
+    }
+
+    private static String capitalizar(String palavra) {
+        return Character.toUpperCase(palavra.charAt(0)) + palavra.substring(1);
+    }
+
+    private static String trocarLetras(String palavra, Random aleatorio) {
+        int posicao = 1 + aleatorio.nextInt(palavra.length() - 2);
+        char[] letras = palavra.toCharArray();
+        char letra = letras[posicao];
+        letras[posicao] = letras[posicao + 1];
+        letras[posicao + 1] = letra;
+        return new String(letras);
+    }
+}
@@ -0,0 +1,350 @@
+package com.farmacia.duplicados;
+
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Medicamento;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Detecção de produtos duplicados ou quase duplicados no catálogo sem comparar todos os pares.
+ * <p>
+ * Cada medicamento vira um conjunto de trigramas do nome e do princípio ativo normalizados
+ * ({@link NormalizadorProduto}) e uma assinatura MinHash de {@value #BANDAS} bandas de
+ * {@value #LINHAS} valores (LSH). A dosagem é o bloco: entra na chave de cada banda, e produtos com
+ * dosagens diferentes nunca são comparados. Só os pares que caem no mesmo balde de alguma banda são
+ * candidatos; a similaridade de Jaccard exata deles decide a ligação, e os grupos são os componentes
+ * ligados (união-busca). Assinaturas e bandas são calculadas em paralelo no pool fork-join comum;
+ * o custo cresce linearmente com o catálogo.
+ * <p>
+ * Baldes com mais de {@value #LIMITE_BALDE} membros (muitos cadastros iguais) são ligados em estrela,
+ * cada membro comparado só ao primeiro, para o custo não virar quadrático.
+ */
+public class DetectorDuplicados {
+    private static final Log LOG = Log.para(DetectorDuplicados.class);
+    private static final MetricaOperacao M_DETECTAR = Metricas.operacao("duplicados.detectar");
+
+    /** Similaridade de Jaccard mínima padrão para dois cadastros serem o mesmo produto */
+    public static final double LIMIAR_PADRAO = 0.6;
+
+    static final int BANDAS = 20;
+    static final int LINHAS = 4;
+    private static final int LIMITE_BALDE = 64;
+    private static final int FUNCOES = BANDAS * LINHAS;
+    private static final long[] MULTIPLICADORES = sementes(FUNCOES, 1);
+    private static final long[] DESLOCAMENTOS = sementes(FUNCOES, 2);
+
+    private final double limiar;
+
+    /**
+     * @param limiar similaridade de Jaccard mínima (0 a 1) entre os trigramas de dois medicamentos
+     */
+    public DetectorDuplicados(double limiar) {
+        this.limiar = limiar;
+    }
+
+    /**
+     * Grupos de possíveis duplicados, dos maiores para os menores
+     */
+    public List<GrupoDuplicados> detectar(List<Medicamento> medicamentos) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            int n = medicamentos.size();
+            String[] chaves = new String[n];
+            String[] dosagens = new String[n];
+            // Calculados uma vez por medicamento: as bandas e os grupos só os consultam
+            long[][] trigramas = new long[n][];
+            long[][] bandas = new long[BANDAS][n];
+            IntStream.range(0, n).parallel().forEach(i -> {
+                Medicamento medicamento = medicamentos.get(i);
+                String texto = NormalizadorProduto.texto(medicamento.getNome());
+                String dose = NormalizadorProduto.dosagem(texto);
+                String nome = NormalizadorProduto.nome(texto);
+                String principio = NormalizadorProduto.principio(NormalizadorProduto.texto(medicamento.getPrincipioAtivo()));
+                chaves[i] = dose.isEmpty() ? nome : nome + " " + dose;
+                dosagens[i] = dose;
+                trigramas[i] = trigramas(nome + "|" + principio);
+                if (trigramas[i].length > 0) {
+                    assinar(trigramas[i], misturar(dose.hashCode()), bandas, i);
+                } else {
+                    // Sem nome nem princípio: chaves próprias, para não formar um balde de vazios
+                    for (int banda = 0; banda < BANDAS; banda++) {
+                        bandas[banda][i] = misturar(((long) banda << 32) | i);
+                    }
+                }
+            });
+
+            long[] arestas = IntStream.range(0, BANDAS).parallel()
+                    .mapToObj(banda -> ligarBanda(bandas, banda, trigramas, dosagens))
+                    .flatMapToLong(LongStream::of)
+                    .toArray();
+
+            int[] pais = new int[n];
+            for (int i = 0; i < n; i++) {
+                pais[i] = i;
+            }
+            for (long aresta : arestas) {
+                unir(pais, (int) (aresta >>> 32), (int) aresta);
+            }
+
+            List<GrupoDuplicados> grupos = agrupar(medicamentos, pais, chaves, trigramas);
+            M_DETECTAR.adicionarLinhas(n);
+            LOG.info("Detecção de duplicados concluída", "medicamentos", n, "candidatos", arestas.length,
+                    "grupos", grupos.size(), "ms", (System.nanoTime() - inicio) / 1_000_000);
+            sucesso = true;
+            return grupos;
+        } finally {
+            M_DETECTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    // ========== MINHASH E LSH ==========
+
+    /**
+     * Trigramas distintos (com bordas) do texto normalizado, como hashes de 64 bits ordenados
+     */
+    static long[] trigramas(String texto) {
+        String comBordas = " " + texto + " ";
+        if (texto.isEmpty() || texto.equals("|")) {
+            return new long[0];
+        }
+        long[] hashes = new long[Math.max(1, comBordas.length() - 2)];
+        for (int i = 0; i + 3 <= comBordas.length(); i++) {
+            hashes[i] = misturar(((long) comBordas.charAt(i) << 32) | ((long) comBordas.charAt(i + 1) << 16) | comBordas.charAt(i + 2));
+        }
+        Arrays.sort(hashes);
+        int distintos = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distintos++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distintos);
+    }
+
+    /**
+     * Assinatura MinHash agrupada em bandas: cada banda vira uma chave que também carrega o bloco
+     * (dosagem). Os trigramas já são hashes misturados, então cada função é só uma permutação afim
+     * (multiplicador ímpar), e todas são calculadas numa passada pelos trigramas.
+     */
+    private static void assinar(long[] trigramas, long bloco, long[][] bandas, int indice) {
+        long[] minimos = new long[FUNCOES];
+        Arrays.fill(minimos, Long.MAX_VALUE);
+        for (long trigrama : trigramas) {
+            for (int funcao = 0; funcao < FUNCOES; funcao++) {
+                minimos[funcao] = Math.min(minimos[funcao], trigrama * MULTIPLICADORES[funcao] + DESLOCAMENTOS[funcao]);
+            }
+        }
+        for (int banda = 0; banda < BANDAS; banda++) {
+            long chave = bloco ^ (banda * 0x9E3779B97F4A7C15L);
+            for (int linha = 0; linha < LINHAS; linha++) {
+                chave = misturar(chave * 31 + minimos[banda * LINHAS + linha]);
+            }
+            bandas[banda][indice] = chave;
+        }
+    }
+
+    /**
+     * Pares ligados numa banda (índices em 32 + 32 bits). Os medicamentos são ordenados pela chave
+     * da banda, com o índice nos bits baixos; como a chave perde ali os bits altos, cada sequência
+     * de chaves truncadas iguais ainda é separada pela chave inteira, e só então vira um balde. Um
+     * par que já colidiu numa banda anterior foi avaliado lá e é pulado.
+     */
+    private long[] ligarBanda(long[][] bandas, int banda, long[][] trigramas, String[] dosagens) {
+        int n = trigramas.length;
+        int bitsIndice = Math.max(1, 32 - Integer.numberOfLeadingZeros(n));
+        long mascara = (1L << bitsIndice) - 1;
+        long[] ordenados = new long[n];
+        for (int i = 0; i < n; i++) {
+            ordenados[i] = (bandas[banda][i] << bitsIndice) | i;
+        }
+        Arrays.sort(ordenados);
+
+        LongStream.Builder arestas = LongStream.builder();
+        int inicio = 0;
+        while (inicio < n) {
+            int fim = inicio + 1;
+            while (fim < n && (ordenados[fim] >>> bitsIndice) == (ordenados[inicio] >>> bitsIndice)) {
+                fim++;
+            }
+            if (fim - inicio > 1) {
+                int[] balde = new int[fim - inicio];
+                for (int k = 0; k < balde.length; k++) {
+                    balde[k] = (int) (ordenados[inicio + k] & mascara);
+                }
+                separarPorChave(balde, bandas, banda, trigramas, dosagens, arestas);
+            }
+            inicio = fim;
+        }
+        return arestas.build().toArray();
+    }
+
+    /**
+     * Divide os medicamentos de mesma chave truncada pela chave inteira da banda (quase sempre já
+     * é uma só)
+     */
+    private void separarPorChave(int[] membros, long[][] bandas, int banda, long[][] trigramas,
+                                 String[] dosagens, LongStream.Builder arestas) {
+        long[] chaves = bandas[banda];
+        boolean iguais = true;
+        for (int membro : membros) {
+            iguais &= chaves[membro] == chaves[membros[0]];
+        }
+        if (iguais) {
+            ligarBalde(membros, bandas, banda, trigramas, dosagens, arestas);
+            return;
+        }
+        int[] ordenados = IntStream.of(membros).boxed()
+                .sorted(Comparator.comparingLong(i -> chaves[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int inicio = 0;
+        while (inicio < ordenados.length) {
+            int fim = inicio + 1;
+            while (fim < ordenados.length && chaves[ordenados[fim]] == chaves[ordenados[inicio]]) {
+                fim++;
+            }
+            if (fim - inicio > 1) {
+                ligarBalde(Arrays.copyOfRange(ordenados, inicio, fim), bandas, banda, trigramas, dosagens, arestas);
+            }
+            inicio = fim;
+        }
+    }
+
+    /**
+     * Liga os pares do balde com a mesma dosagem e similaridade de pelo menos o limiar. A dosagem é
+     * conferida por extenso: a chave da banda é só um hash dela.
+     */
+    private void ligarBalde(int[] balde, long[][] bandas, int banda, long[][] trigramas, String[] dosagens,
+                            LongStream.Builder arestas) {
+        // Em baldes grandes, só o primeiro membro é comparado aos demais
+        int comparadores = balde.length > LIMITE_BALDE ? 1 : balde.length - 1;
+        for (int a = 0; a < comparadores; a++) {
+            for (int b = a + 1; b < balde.length; b++) {
+                int i = balde[a];
+                int j = balde[b];
+                if (trigramas[i].length == 0 || trigramas[j].length == 0 || !dosagens[i].equals(dosagens[j])
+                        || colidiuAntes(bandas, banda, i, j)) {
+                    continue;
+                }
+                if (jaccard(trigramas[i], trigramas[j]) >= limiar) {
+                    arestas.add(((long) i << 32) | j);
+                }
+            }
+        }
+    }
+
+    private static boolean colidiuAntes(long[][] bandas, int banda, int i, int j) {
+        for (int anterior = 0; anterior < banda; anterior++) {
+            if (bandas[anterior][i] == bandas[anterior][j]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Similaridade de Jaccard entre dois conjuntos ordenados de hashes
+     */
+    static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 && b.length == 0) {
+            return 1;
+        }
+        int comuns = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                comuns++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) comuns / (a.length + b.length - comuns);
+    }
+
+    // ========== GRUPOS ==========
+
+    private static int raiz(int[] pais, int i) {
+        while (pais[i] != i) {
+            pais[i] = pais[pais[i]];
+            i = pais[i];
+        }
+        return i;
+    }
+
+    private static void unir(int[] pais, int a, int b) {
+        int ra = raiz(pais, a);
+        int rb = raiz(pais, b);
+        if (ra != rb) {
+            pais[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+    }
+
+    private static List<GrupoDuplicados> agrupar(List<Medicamento> medicamentos, int[] pais, String[] chaves,
+                                                 long[][] trigramas) {
+        Map<Integer, List<Integer>> componentes = new HashMap<>();
+        for (int i = 0; i < pais.length; i++) {
+            int raiz = raiz(pais, i);
+            if (raiz != i || componentes.containsKey(raiz)) {
+                componentes.computeIfAbsent(raiz, r -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<GrupoDuplicados> grupos = new ArrayList<>(componentes.size());
+        for (Map.Entry<Integer, List<Integer>> componente : componentes.entrySet()) {
+            List<Integer> indices = componente.getValue();
+            indices.add(0, componente.getKey());
+            indices.sort(Comparator.comparing(i -> medicamentos.get(i).getCodigo(), String.CASE_INSENSITIVE_ORDER));
+
+            int primeiro = indices.get(0);
+            long[] referencia = trigramas[primeiro];
+            double similaridade = 1;
+            List<Medicamento> membros = new ArrayList<>(indices.size());
+            for (int i : indices) {
+                membros.add(medicamentos.get(i));
+                if (i != primeiro) {
+                    similaridade = Math.min(similaridade, jaccard(referencia, trigramas[i]));
+                }
+            }
+            grupos.add(new GrupoDuplicados(chaves[primeiro], membros, similaridade));
+        }
+        grupos.sort(Comparator.comparingInt((GrupoDuplicados g) -> -g.getMedicamentos().size())
+                .thenComparing(GrupoDuplicados::getChave));
+        return grupos;
+    }
+
+    // ========== AUXILIARES ==========
+
+    /**
+     * Mistura de 64 bits (finalizador do SplitMix64)
+     */
+    private static long misturar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    private static long[] sementes(int quantidade, long origem) {
+        long[] sementes = new long[quantidade];
+        long estado = origem * 0x5DEECE66DL;
+        for (int i = 0; i < quantidade; i++) {
+            estado += 0x9E3779B97F4A7C15L;
+            sementes[i] = misturar(estado) | 1;
+        }
+        return sementes;
+    }
+}
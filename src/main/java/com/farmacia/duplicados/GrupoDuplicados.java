@@ -0,0 +1,35 @@
+package com.farmacia.duplicados;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Candidatos a um mesmo produto cadastrado sob códigos diferentes, para revisão
+ */
+public class GrupoDuplicados {
+    private final String chave;
+    private final List<Medicamento> medicamentos;
+    private final double similaridade;
+
+    GrupoDuplicados(String chave, List<Medicamento> medicamentos, double similaridade) {
+        this.chave = chave;
+        this.medicamentos = Collections.unmodifiableList(medicamentos);
+        this.similaridade = similaridade;
+    }
+
+    /** Nome e dosagem normalizados do primeiro medicamento do grupo */
+    public String getChave() { return chave; }
+
+    /** Medicamentos do grupo, por código */
+    public List<Medicamento> getMedicamentos() { return medicamentos; }
+
+    /** Menor similaridade (Jaccard, de 0 a 1) entre o primeiro medicamento e os demais */
+    public double getSimilaridade() { return similaridade; }
+
+    @Override
+    public String toString() {
+        return chave + " (" + medicamentos.size() + " medicamentos, similaridade " + String.format("%.2f", similaridade) + ")";
+    }
+}
@@ -0,0 +1,122 @@
+package com.farmacia.duplicados;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Forma normalizada de um produto para a detecção de duplicados: nome e princípio ativo sem
+ * acentos, caixa, pontuação, forma farmacêutica e sal ("Dipirona Sódica" e "dipirona" ficam
+ * iguais), e a dosagem em unidade canônica ("500 mg", "500mg" e "0,5 g" viram "500mg").
+ */
+final class NormalizadorProduto {
+    private static final char MICRO = '\u00B5';
+    private static final Pattern PONTUACAO = Pattern.compile("[.,%]");
+    private static final Pattern DOSE = Pattern.compile("(\\d+(?:[.,]\\d+)?)\\s*(mcg|ug|mg|g|ml|ui|%)(?![a-z])");
+
+    // Forma farmacêutica e apresentação: não distinguem o produto
+    private static final Set<String> FORMAS = Set.of("comprimido", "comprimidos", "comp", "cpr", "cp",
+            "capsula", "capsulas", "caps", "drageia", "drageias", "revestido", "revestidos", "sol", "solucao",
+            "oral", "gotas", "xarope", "susp", "suspensao", "injetavel", "amp", "ampola", "frasco", "fr",
+            "caixa", "cx", "com", "c", "un", "unidades", "blister", "generico");
+    // Sais, hidratações e conectivos do princípio ativo
+    private static final Set<String> SAIS = Set.of("sodica", "sodico", "sodio", "potassica", "potassico",
+            "potassio", "calcica", "calcico", "calcio", "cloridrato", "hidrocloreto", "maleato", "besilato",
+            "mesilato", "succinato", "tartarato", "citrato", "sulfato", "fosfato", "monoidratada",
+            "monoidratado", "diidratada", "diidratado", "triidratada", "triidratado", "hidratada", "hidratado",
+            "de", "da", "do", "e");
+
+    private NormalizadorProduto() {}
+
+    /**
+     * Sem acentos, em minúsculas, com um espaço entre as palavras. Numa passada só: apenas os
+     * caracteres fora do ASCII são decompostos (Normalizer), o que pesa em catálogos grandes.
+     */
+    static String texto(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        StringBuilder resultado = new StringBuilder(valor.length());
+        boolean separar = false;
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= 128) {
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    continue;
+                }
+                // Micro ("µg", "μg") não é letra latina: vira "mc" em vez de sumir
+                c = c == MICRO || c == '\u03BC' ? MICRO : Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            }
+            c = Character.toLowerCase(c);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == ',' || c == '%' || c == MICRO) {
+                if (separar && resultado.length() > 0) {
+                    resultado.append(' ');
+                }
+                if (c == MICRO) {
+                    resultado.append("mc");
+                } else {
+                    resultado.append(c);
+                }
+                separar = false;
+            } else {
+                separar = true;
+            }
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * Dosagens do texto em unidade canônica (g e mcg em mg), juntas por "+"; vazio se não há
+     */
+    static String dosagem(String textoNormalizado) {
+        Matcher dose = DOSE.matcher(textoNormalizado);
+        List<String> doses = new ArrayList<>(2);
+        while (dose.find()) {
+            BigDecimal valor = new BigDecimal(dose.group(1).replace(',', '.'));
+            String unidade = dose.group(2);
+            if (unidade.equals("g")) {
+                valor = valor.scaleByPowerOfTen(3);
+                unidade = "mg";
+            } else if (unidade.equals("mcg") || unidade.equals("ug")) {
+                valor = valor.scaleByPowerOfTen(-3);
+                unidade = "mg";
+            }
+            doses.add(valor.stripTrailingZeros().toPlainString() + unidade);
+        }
+        return String.join("+", doses);
+    }
+
+    /**
+     * Nome sem dosagem, números soltos, forma farmacêutica e sal
+     */
+    static String nome(String textoNormalizado) {
+        return palavras(DOSE.matcher(textoNormalizado).replaceAll(" "), FORMAS, SAIS);
+    }
+
+    /**
+     * Princípio ativo sem sal, hidratação e dosagem
+     */
+    static String principio(String textoNormalizado) {
+        return palavras(DOSE.matcher(textoNormalizado).replaceAll(" "), SAIS, Set.of());
+    }
+
+    private static String palavras(String texto, Set<String> descartadas, Set<String> tambem) {
+        StringBuilder resultado = new StringBuilder(texto.length());
+        for (String palavra : PONTUACAO.matcher(texto).replaceAll("").split(" ")) {
+            if (palavra.isEmpty() || !Character.isLetter(palavra.charAt(0))
+                    || descartadas.contains(palavra) || tambem.contains(palavra)) {
+                continue;
+            }
+            if (resultado.length() > 0) {
+                resultado.append(' ');
+            }
+            resultado.append(palavra);
+        }
+        return resultado.toString();
+    }
+}
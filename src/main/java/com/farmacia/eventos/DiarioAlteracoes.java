@@ -0,0 +1,272 @@
+package com.farmacia.eventos;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.json.Json;
+import com.farmacia.log.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Diário das alterações do catálogo: arquivo só de acréscimo, um evento JSON por linha, em ordem
+ * de sequência. É a fonte durável do fluxo de alterações: consumidores que ficaram para trás
+ * (ou que estavam desligados) retomam a leitura a partir da última sequência processada.
+ * Uma linha incompleta no fim do arquivo (queda durante a gravação) é descartada na abertura.
+ */
+public class DiarioAlteracoes {
+    private static final Log LOG = Log.para(DiarioAlteracoes.class);
+
+    // Um ponto do índice esparso (sequência -> posição no arquivo) a cada N eventos
+    private static final int INTERVALO_INDICE = 256;
+
+    private final File arquivo;
+    private final FileChannel canal;
+    private final boolean sincronizar;
+    private final TreeMap<Long, Long> indice = new TreeMap<>();
+    private long ultimaSequencia;
+    private long tamanho;
+
+    /**
+     * @param sincronizar força a gravação no disco (fsync) a cada evento
+     */
+    public DiarioAlteracoes(String arquivo, boolean sincronizar) throws PersistenciaException {
+        this.arquivo = new File(arquivo);
+        this.sincronizar = sincronizar;
+        File diretorio = this.arquivo.getAbsoluteFile().getParentFile();
+        if (diretorio != null && !diretorio.exists()) {
+            diretorio.mkdirs();
+        }
+
+        try {
+            this.canal = FileChannel.open(this.arquivo.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recuperar();
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao abrir o diário de alterações " + arquivo, e);
+        }
+    }
+
+    /**
+     * Percorre o arquivo para achar a última sequência e montar o índice; descarta cauda inválida
+     */
+    private void recuperar() throws IOException {
+        long valido = 0;
+        try (FileChannel leitura = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+             InputStream entrada = new BufferedInputStream(Channels.newInputStream(leitura))) {
+            LeitorLinhas leitor = new LeitorLinhas(entrada);
+            String linha;
+            while ((linha = leitor.proxima()) != null) {
+                long sequencia;
+                try {
+                    sequencia = sequenciaDe(linha);
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+                if (sequencia != ultimaSequencia + 1 && ultimaSequencia != 0) {
+                    break;
+                }
+                indexar(sequencia, valido);
+                ultimaSequencia = sequencia;
+                valido = leitor.posicao();
+            }
+        }
+
+        long atual = canal.size();
+        if (valido < atual) {
+            LOG.aviso("Cauda inválida do diário descartada", "arquivo", arquivo.getPath(),
+                    "bytes", atual - valido, "ultimaSequencia", ultimaSequencia);
+            canal.truncate(valido);
+        }
+        tamanho = valido;
+    }
+
+    private static long sequenciaDe(String linha) {
+        Object seq = Json.lerObjeto(linha).get("seq");
+        if (!(seq instanceof Long)) {
+            throw new IllegalArgumentException("Linha sem sequência");
+        }
+        return (Long) seq;
+    }
+
+    private void indexar(long sequencia, long posicao) {
+        if (indice.isEmpty() || sequencia % INTERVALO_INDICE == 0) {
+            indice.put(sequencia, posicao);
+        }
+    }
+
+    /**
+     * Última sequência gravada (0 se o diário estiver vazio)
+     */
+    public synchronized long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    /**
+     * Acrescenta o evento ao fim do diário. A sequência deve ser a seguinte à última gravada.
+     */
+    public synchronized void gravar(EventoAlteracao evento) throws PersistenciaException {
+        if (evento.getSequencia() != ultimaSequencia + 1) {
+            throw new PersistenciaException("Sequência fora de ordem no diário: esperada "
+                    + (ultimaSequencia + 1) + ", recebida " + evento.getSequencia());
+        }
+
+        byte[] linha = (Json.escrever(evento.paraMapa()) + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(linha);
+            long posicao = tamanho;
+            while (buffer.hasRemaining()) {
+                posicao += canal.write(buffer, posicao);
+            }
+            if (sincronizar) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gravar no diário de alterações", e);
+        }
+
+        indexar(evento.getSequencia(), tamanho);
+        tamanho += linha.length;
+        ultimaSequencia = evento.getSequencia();
+    }
+
+    /**
+     * Lê até {@code maximo} eventos com sequência maior que {@code apos}, em ordem
+     */
+    public List<EventoAlteracao> ler(long apos, int maximo) throws PersistenciaException {
+        long inicio;
+        long fim;
+        synchronized (this) {
+            if (apos >= ultimaSequencia || maximo <= 0) {
+                return new ArrayList<>();
+            }
+            Map.Entry<Long, Long> ponto = indice.floorEntry(apos + 1);
+            inicio = ponto == null ? 0 : ponto.getValue();
+            fim = tamanho;
+        }
+
+        return ler(arquivo, inicio, fim, apos, maximo);
+    }
+
+    private static List<EventoAlteracao> ler(File arquivo, long inicio, long fim, long apos, int maximo)
+            throws PersistenciaException {
+        List<EventoAlteracao> eventos = new ArrayList<>();
+        try (FileChannel leitura = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+             InputStream entrada = new BufferedInputStream(Channels.newInputStream(leitura.position(inicio)))) {
+            LeitorLinhas leitor = new LeitorLinhas(entrada);
+            String linha;
+            while (eventos.size() < maximo && inicio + leitor.posicao() < fim && (linha = leitor.proxima()) != null) {
+                EventoAlteracao evento = EventoAlteracao.deJson(linha);
+                if (evento.getSequencia() > apos) {
+                    eventos.add(evento);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new PersistenciaException("Erro ao ler o diário de alterações " + arquivo.getPath(), e);
+        }
+        return eventos;
+    }
+
+    // ========== CURSORES DE CONSUMIDORES DURÁVEIS ==========
+
+    /**
+     * Arquivo com a posição confirmada de um consumidor durável, ao lado do diário
+     */
+    public static File arquivoCursor(String arquivoDiario, String consumidor) throws PersistenciaException {
+        if (consumidor == null || !consumidor.matches("[A-Za-z0-9_-]+")) {
+            throw new PersistenciaException("Nome de consumidor inválido: " + consumidor);
+        }
+        return new File(arquivoDiario + "." + consumidor + ".cursor");
+    }
+
+    /**
+     * Última sequência confirmada pelo consumidor (0 se nunca confirmou)
+     */
+    public static long lerCursor(File arquivo) throws PersistenciaException {
+        if (!arquivo.isFile()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(arquivo.toPath(), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new PersistenciaException("Cursor de assinatura ilegível: " + arquivo.getPath(), e);
+        }
+    }
+
+    /**
+     * Grava a posição confirmada (substituição atômica do arquivo)
+     */
+    public static void gravarCursor(File arquivo, long sequencia) throws PersistenciaException {
+        File temporario = new File(arquivo.getPath() + ".tmp");
+        try {
+            Files.writeString(temporario.toPath(), Long.toString(sequencia), StandardCharsets.UTF_8);
+            Files.move(temporario.toPath(), arquivo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gravar cursor de assinatura: " + arquivo.getPath(), e);
+        }
+    }
+
+    public String getArquivo() {
+        return arquivo.getPath();
+    }
+
+    public synchronized void fechar() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            LOG.aviso("Erro ao fechar o diário de alterações", "arquivo", arquivo.getPath(), "erro", e.getMessage());
+        }
+    }
+
+    /**
+     * Leitor de linhas UTF-8 que informa a posição em bytes (o BufferedReader não informa)
+     */
+    static final class LeitorLinhas {
+        private final InputStream entrada;
+        private final ByteArrayOutputStream linha = new ByteArrayOutputStream(512);
+        private long posicao;
+
+        LeitorLinhas(InputStream entrada) {
+            this.entrada = entrada;
+        }
+
+        /**
+         * Próxima linha completa (terminada em \n); null no fim ou se a última linha estiver incompleta
+         */
+        String proxima() throws IOException {
+            linha.reset();
+            int lidos = 0;
+            int b;
+            while ((b = entrada.read()) != -1) {
+                lidos++;
+                if (b == '\n') {
+                    posicao += lidos;
+                    return linha.toString(StandardCharsets.UTF_8);
+                }
+                linha.write(b);
+            }
+            return null;
+        }
+
+        /**
+         * Bytes consumidos até o fim da última linha completa
+         */
+        long posicao() {
+            return posicao;
+        }
+    }
+}
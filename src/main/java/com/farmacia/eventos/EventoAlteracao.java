@@ -0,0 +1,89 @@
+package com.farmacia.eventos;
+
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Alteração de um medicamento: número de sequência (crescente, sem lacunas), tipo,
+ * instante e os valores antes e depois (null na inserção e na exclusão, respectivamente).
+ * Os medicamentos são cópias: alterações posteriores no catálogo não afetam o evento.
+ */
+public final class EventoAlteracao {
+    private final long sequencia;
+    private final TipoAlteracao tipo;
+    private final LocalDateTime instante;
+    private final Medicamento antes;
+    private final Medicamento depois;
+
+    EventoAlteracao(long sequencia, TipoAlteracao tipo, LocalDateTime instante, Medicamento antes, Medicamento depois) {
+        this.sequencia = sequencia;
+        this.tipo = tipo;
+        this.instante = instante;
+        this.antes = antes;
+        this.depois = depois;
+    }
+
+    public long getSequencia() { return sequencia; }
+    public TipoAlteracao getTipo() { return tipo; }
+    public LocalDateTime getInstante() { return instante; }
+
+    /**
+     * Cópia do medicamento antes da alteração (null na inserção)
+     */
+    public Medicamento getAntes() { return antes == null ? null : new Medicamento(antes); }
+
+    /**
+     * Cópia do medicamento depois da alteração (null na exclusão)
+     */
+    public Medicamento getDepois() { return depois == null ? null : new Medicamento(depois); }
+
+    public String getCodigo() {
+        return depois != null ? depois.getCodigo() : antes.getCodigo();
+    }
+
+    /**
+     * Representação JSON (uma linha do diário e um item da API)
+     */
+    public Map<String, Object> paraMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("seq", sequencia);
+        mapa.put("tipo", tipo.name());
+        mapa.put("instante", instante.toString());
+        mapa.put("codigo", getCodigo());
+        mapa.put("antes", antes == null ? null : MedicamentoJson.paraMapa(antes));
+        mapa.put("depois", depois == null ? null : MedicamentoJson.paraMapa(depois));
+        return mapa;
+    }
+
+    /**
+     * Lê um evento gravado por {@link #paraMapa()}
+     *
+     * @throws IllegalArgumentException se a linha não for um evento válido
+     */
+    @SuppressWarnings("unchecked")
+    static EventoAlteracao deJson(String linha) {
+        Map<String, Object> mapa = Json.lerObjeto(linha);
+        Object seq = mapa.get("seq");
+        if (!(seq instanceof Long) || mapa.get("tipo") == null || mapa.get("instante") == null) {
+            throw new IllegalArgumentException("Evento de alteração incompleto");
+        }
+        Object antes = mapa.get("antes");
+        Object depois = mapa.get("depois");
+        return new EventoAlteracao(
+                (Long) seq,
+                TipoAlteracao.valueOf(mapa.get("tipo").toString()),
+                LocalDateTime.parse(mapa.get("instante").toString()),
+                antes instanceof Map ? MedicamentoJson.deMapa((Map<String, Object>) antes) : null,
+                depois instanceof Map ? MedicamentoJson.deMapa((Map<String, Object>) depois) : null);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequencia + " " + tipo + " " + getCodigo();
+    }
+}
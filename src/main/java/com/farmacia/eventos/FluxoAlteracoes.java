@@ -0,0 +1,329 @@
+package com.farmacia.eventos;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fluxo de alterações do catálogo (inserções, atualizações e exclusões com sequência crescente).
+ * Os eventos recentes ficam num anel de capacidade fixa; cada assinatura tem o seu cursor.
+ * <p>
+ * Contrapressão: quem publica espera enquanto a assinatura mais atrasada estiver uma volta
+ * inteira atrás no anel, até o limite de espera. Passado o limite, a publicação segue e a
+ * assinatura atrasada passa a ler do diário (quando houver) até alcançar o anel de novo; sem
+ * diário, ela é marcada como tendo perdido eventos.
+ */
+public class FluxoAlteracoes {
+    private static final Log LOG = Log.para(FluxoAlteracoes.class);
+    private static final MetricaOperacao M_PUBLICAR = Metricas.operacao("alteracoes.publicar");
+    private static final MetricaOperacao M_ESPERA = Metricas.operacao("alteracoes.contrapressao");
+    private static final int LOTE_DIARIO = 512;
+
+    private final EventoAlteracao[] anel;
+    private final DiarioAlteracoes diario;
+    private final long esperaMaximaMs;
+    private final List<Assinatura> assinaturas = new CopyOnWriteArrayList<>();
+    private final List<OuvinteAlteracoes> sincronos = new CopyOnWriteArrayList<>();
+    private long ultimaSequencia;
+    // Primeira sequência publicada nesta execução: as anteriores só existem no diário
+    private final long primeiraDaExecucao;
+
+    /**
+     * @param capacidade     eventos mantidos em memória
+     * @param diario         diário durável (pode ser null: só o anel em memória)
+     * @param esperaMaximaMs quanto quem publica espera por uma assinatura atrasada
+     */
+    public FluxoAlteracoes(int capacidade, DiarioAlteracoes diario, long esperaMaximaMs) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("Capacidade do fluxo deve ser positiva");
+        }
+        this.anel = new EventoAlteracao[capacidade];
+        this.diario = diario;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.ultimaSequencia = diario == null ? 0 : diario.ultimaSequencia();
+        this.primeiraDaExecucao = ultimaSequencia + 1;
+    }
+
+    /**
+     * Publica uma alteração: grava no diário, coloca no anel e acorda as assinaturas.
+     * Os ouvintes síncronos rodam na thread de quem publica, antes do retorno.
+     */
+    public EventoAlteracao publicar(TipoAlteracao tipo, Medicamento antes, Medicamento depois) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        EventoAlteracao evento;
+        try {
+            synchronized (this) {
+                aguardarEspaco();
+
+                evento = new EventoAlteracao(ultimaSequencia + 1, tipo, LocalDateTime.now(),
+                        antes == null ? null : new Medicamento(antes),
+                        depois == null ? null : new Medicamento(depois));
+                if (diario != null) {
+                    diario.gravar(evento);
+                }
+                ultimaSequencia = evento.getSequencia();
+                anel[indice(ultimaSequencia)] = evento;
+                notifyAll();
+            }
+
+            for (OuvinteAlteracoes ouvinte : sincronos) {
+                ouvinte.alteracao(evento);
+            }
+            sucesso = true;
+            return evento;
+        } finally {
+            M_PUBLICAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    private void aguardarEspaco() {
+        long atraso = atrasoMaximo();
+        if (atraso < anel.length) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        long limite = System.currentTimeMillis() + esperaMaximaMs;
+        try {
+            while (atraso >= anel.length) {
+                long restante = limite - System.currentTimeMillis();
+                if (restante <= 0) {
+                    LOG.avisoLimitado("Assinatura atrasada: seguirá pelo diário", "atraso", atraso,
+                            "capacidade", anel.length);
+                    return;
+                }
+                wait(restante);
+                atraso = atrasoMaximo();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            M_ESPERA.registrar(System.nanoTime() - inicio, false);
+        }
+    }
+
+    /**
+     * Atraso da assinatura mais atrasada entre as que ainda leem do anel. As que já ficaram para
+     * trás dele (lendo do diário) não seguram quem publica.
+     */
+    private long atrasoMaximo() {
+        long atraso = 0;
+        for (Assinatura a : assinaturas) {
+            long pendentes = ultimaSequencia - a.cursor;
+            if (pendentes <= anel.length) {
+                atraso = Math.max(atraso, pendentes);
+            }
+        }
+        return atraso;
+    }
+
+    private int indice(long sequencia) {
+        return (int) ((sequencia - 1) % anel.length);
+    }
+
+    /**
+     * Sequência mais antiga ainda disponível no anel
+     */
+    private long maisAntigaNoAnel() {
+        return Math.max(primeiraDaExecucao, ultimaSequencia - anel.length + 1);
+    }
+
+    public synchronized long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    public DiarioAlteracoes getDiario() {
+        return diario;
+    }
+
+    /**
+     * Ouvinte chamado na própria thread de quem publica (ex.: invalidação de cache),
+     * que deve ser rápido e não pode publicar
+     */
+    public void aoPublicar(OuvinteAlteracoes ouvinte) {
+        sincronos.add(ouvinte);
+    }
+
+    /**
+     * Assinatura a partir da próxima alteração
+     */
+    public synchronized Assinatura assinar(String nome) {
+        return assinar(nome, ultimaSequencia);
+    }
+
+    /**
+     * Assinatura que recebe os eventos com sequência maior que {@code apos}
+     * (eventos que já saíram do anel são lidos do diário)
+     */
+    public synchronized Assinatura assinar(String nome, long apos) {
+        Assinatura assinatura = new Assinatura(nome, Math.max(0, Math.min(apos, ultimaSequencia)), null);
+        assinaturas.add(assinatura);
+        return assinatura;
+    }
+
+    /**
+     * Assinatura durável: a posição confirmada com {@link Assinatura#confirmar()} é gravada ao lado do
+     * diário e a leitura recomeça dela na próxima execução. Exige diário.
+     */
+    public synchronized Assinatura assinarDuravel(String nome) throws PersistenciaException {
+        if (diario == null) {
+            throw new PersistenciaException("Assinatura durável exige o diário de alterações");
+        }
+        File arquivoCursor = DiarioAlteracoes.arquivoCursor(diario.getArquivo(), nome);
+        long apos = DiarioAlteracoes.lerCursor(arquivoCursor);
+        Assinatura assinatura = new Assinatura(nome, Math.min(apos, ultimaSequencia), arquivoCursor);
+        assinaturas.add(assinatura);
+        return assinatura;
+    }
+
+    /**
+     * Entrega os eventos ao ouvinte numa thread própria (daemon) até a assinatura ser cancelada
+     */
+    public Assinatura ouvir(String nome, OuvinteAlteracoes ouvinte) {
+        Assinatura assinatura = assinar(nome);
+        Thread entrega = new Thread(() -> {
+            while (!assinatura.isCancelada()) {
+                try {
+                    EventoAlteracao evento = assinatura.proximo(1000);
+                    if (evento != null) {
+                        ouvinte.alteracao(evento);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (PersistenciaException | RuntimeException e) {
+                    LOG.erro("Erro ao entregar alteração", e, "assinatura", nome);
+                }
+            }
+        }, "alteracoes-" + nome);
+        entrega.setDaemon(true);
+        entrega.start();
+        return assinatura;
+    }
+
+    /**
+     * Cursor de leitura de um consumidor do fluxo. Não é seguro para várias threads consumidoras.
+     */
+    public final class Assinatura {
+        private final String nome;
+        private final File arquivoCursor;
+        private final Deque<EventoAlteracao> pendentesDiario = new ArrayDeque<>();
+        private volatile long cursor;
+        private volatile boolean cancelada;
+        private boolean perdeuEventos;
+
+        private Assinatura(String nome, long cursor, File arquivoCursor) {
+            this.nome = nome;
+            this.cursor = cursor;
+            this.arquivoCursor = arquivoCursor;
+        }
+
+        public String getNome() { return nome; }
+
+        /**
+         * Sequência do último evento entregue
+         */
+        public long getCursor() { return cursor; }
+
+        public boolean isCancelada() { return cancelada; }
+
+        /**
+         * Indica se eventos saíram do anel antes de serem lidos, sem diário para recuperá-los
+         */
+        public synchronized boolean isPerdeuEventos() { return perdeuEventos; }
+
+        /**
+         * Próximo evento, esperando até {@code esperaMs} por uma alteração; null se não houver
+         */
+        public EventoAlteracao proximo(long esperaMs) throws PersistenciaException, InterruptedException {
+            EventoAlteracao evento = pendentesDiario.poll();
+            if (evento != null) {
+                return entregar(evento);
+            }
+
+            long limite = System.currentTimeMillis() + esperaMs;
+            synchronized (FluxoAlteracoes.this) {
+                while (!cancelada && cursor >= ultimaSequencia) {
+                    long restante = limite - System.currentTimeMillis();
+                    if (restante <= 0) {
+                        return null;
+                    }
+                    FluxoAlteracoes.this.wait(restante);
+                }
+                if (cancelada) {
+                    return null;
+                }
+                if (cursor + 1 >= maisAntigaNoAnel()) {
+                    return entregar(anel[indice(cursor + 1)]);
+                }
+            }
+
+            // Ficou para trás do anel: alcança pelo diário, em lotes, fora do bloqueio
+            if (diario == null) {
+                synchronized (this) {
+                    perdeuEventos = true;
+                }
+                synchronized (FluxoAlteracoes.this) {
+                    LOG.aviso("Assinatura perdeu eventos", "assinatura", nome,
+                            "de", cursor + 1, "ate", maisAntigaNoAnel() - 1);
+                    cursor = maisAntigaNoAnel() - 1;
+                    return entregar(anel[indice(cursor + 1)]);
+                }
+            }
+            pendentesDiario.addAll(diario.ler(cursor, LOTE_DIARIO));
+            evento = pendentesDiario.poll();
+            return evento == null ? null : entregar(evento);
+        }
+
+        /**
+         * Lê até {@code maximo} eventos disponíveis, sem esperar
+         */
+        public List<EventoAlteracao> drenar(int maximo) throws PersistenciaException, InterruptedException {
+            List<EventoAlteracao> eventos = new ArrayList<>();
+            EventoAlteracao evento;
+            while (eventos.size() < maximo && (evento = proximo(0)) != null) {
+                eventos.add(evento);
+            }
+            return eventos;
+        }
+
+        private EventoAlteracao entregar(EventoAlteracao evento) {
+            synchronized (FluxoAlteracoes.this) {
+                cursor = evento.getSequencia();
+                // Libera quem publica e estava esperando por esta assinatura
+                FluxoAlteracoes.this.notifyAll();
+            }
+            return evento;
+        }
+
+        /**
+         * Grava a posição atual (assinaturas duráveis): após uma queda, a leitura recomeça daqui
+         */
+        public void confirmar() throws PersistenciaException {
+            if (arquivoCursor != null) {
+                DiarioAlteracoes.gravarCursor(arquivoCursor, cursor);
+            }
+        }
+
+        /**
+         * Encerra a assinatura; quem publica deixa de esperar por ela
+         */
+        public void cancelar() {
+            cancelada = true;
+            assinaturas.remove(this);
+            synchronized (FluxoAlteracoes.this) {
+                FluxoAlteracoes.this.notifyAll();
+            }
+        }
+    }
+}
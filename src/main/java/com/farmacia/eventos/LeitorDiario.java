@@ -0,0 +1,71 @@
+package com.farmacia.eventos;
+
+import com.farmacia.exception.PersistenciaException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura somente leitura de um diário de alterações gravado por outro processo (ex.: um
+ * exportador externo acompanhando o catálogo). Guarda a posição em bytes, então cada chamada
+ * lê só o que foi acrescentado desde a anterior; uma linha ainda incompleta fica para a próxima.
+ */
+public class LeitorDiario {
+    private final File arquivo;
+    private long apos;
+    private long posicao;
+
+    /**
+     * @param apos última sequência já processada (os eventos até ela são pulados)
+     */
+    public LeitorDiario(String arquivo, long apos) {
+        this.arquivo = new File(arquivo);
+        this.apos = apos;
+    }
+
+    /**
+     * Até {@code maximo} eventos novos, em ordem de sequência (lista vazia se não houver)
+     */
+    public List<EventoAlteracao> ler(int maximo) throws PersistenciaException {
+        List<EventoAlteracao> eventos = new ArrayList<>();
+        if (!arquivo.isFile() || maximo <= 0) {
+            return eventos;
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < posicao) {
+                posicao = 0; // arquivo substituído por um menor: relê do início, pulando as sequências já entregues
+            }
+            try (InputStream entrada = new BufferedInputStream(Channels.newInputStream(canal.position(posicao)))) {
+                DiarioAlteracoes.LeitorLinhas leitor = new DiarioAlteracoes.LeitorLinhas(entrada);
+                long inicio = posicao;
+                String linha;
+                while (eventos.size() < maximo && (linha = leitor.proxima()) != null) {
+                    posicao = inicio + leitor.posicao();
+                    EventoAlteracao evento = EventoAlteracao.deJson(linha);
+                    if (evento.getSequencia() > apos) {
+                        eventos.add(evento);
+                        apos = evento.getSequencia();
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new PersistenciaException("Erro ao ler o diário de alterações " + arquivo.getPath(), e);
+        }
+        return eventos;
+    }
+
+    /**
+     * Última sequência entregue
+     */
+    public long getApos() {
+        return apos;
+    }
+}
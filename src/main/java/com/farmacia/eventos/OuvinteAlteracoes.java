@@ -0,0 +1,9 @@
+package com.farmacia.eventos;
+
+/**
+ * Recebe os eventos de uma assinatura do fluxo de alterações, em ordem de sequência
+ */
+@FunctionalInterface
+public interface OuvinteAlteracoes {
+    void alteracao(EventoAlteracao evento);
+}
@@ -0,0 +1,172 @@
+package com.farmacia.eventos;
+
+import com.farmacia.dao.AlteracaoArquivo;
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.OuvinteArquivo;
+import com.farmacia.dao.Pagina;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.model.Medicamento;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Repositório que publica no {@link FluxoAlteracoes} cada alteração bem-sucedida do repositório
+ * decorado, com os valores antes e depois. A substituição completa ({@link #salvarTodos}) é
+ * comparada com o catálogo anterior e vira uma alteração por medicamento inserido, modificado
+ * ou removido. Alterações feitas no arquivo por outro programa ({@link #vigiar}) também são
+ * publicadas. Leituras passam direto.
+ */
+public class RepositorioObservado implements MedicamentoRepository {
+    private final MedicamentoRepository repositorio;
+    private final FluxoAlteracoes fluxo;
+
+    public RepositorioObservado(MedicamentoRepository repositorio, FluxoAlteracoes fluxo) {
+        this.repositorio = repositorio;
+        this.fluxo = fluxo;
+    }
+
+    public FluxoAlteracoes getFluxo() {
+        return fluxo;
+    }
+
+    /**
+     * Repositório decorado
+     */
+    public MedicamentoRepository getRepositorio() {
+        return repositorio;
+    }
+
+    // ========== ESCRITAS (publicadas) ==========
+
+    @Override
+    public synchronized void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException {
+        Map<String, Medicamento> anteriores = new HashMap<>();
+        for (Medicamento m : repositorio.catalogo().getTodos()) {
+            anteriores.put(m.getCodigo(), m);
+        }
+
+        repositorio.salvarTodos(medicamentos);
+
+        for (Medicamento novo : medicamentos) {
+            Medicamento anterior = anteriores.remove(novo.getCodigo());
+            if (anterior == null) {
+                fluxo.publicar(TipoAlteracao.INSERCAO, null, novo);
+            } else if (!anterior.toCSV().equals(novo.toCSV())) {
+                fluxo.publicar(TipoAlteracao.ATUALIZACAO, anterior, novo);
+            }
+        }
+        for (Medicamento removido : anteriores.values()) {
+            fluxo.publicar(TipoAlteracao.EXCLUSAO, removido, null);
+        }
+    }
+
+    @Override
+    public synchronized void adicionar(Medicamento medicamento) throws PersistenciaException {
+        repositorio.adicionar(medicamento);
+        fluxo.publicar(TipoAlteracao.INSERCAO, null, medicamento);
+    }
+
+    @Override
+    public synchronized void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException {
+        Medicamento anterior = repositorio.buscarPorCodigo(medicamentoAtualizado.getCodigo());
+        repositorio.atualizar(medicamentoAtualizado);
+        fluxo.publicar(TipoAlteracao.ATUALIZACAO, anterior, medicamentoAtualizado);
+    }
+
+    @Override
+    public synchronized boolean remover(String codigo) throws PersistenciaException {
+        Medicamento anterior = repositorio.buscarPorCodigo(codigo);
+        boolean removido = repositorio.remover(codigo);
+        if (removido) {
+            fluxo.publicar(TipoAlteracao.EXCLUSAO, anterior, null);
+        }
+        return removido;
+    }
+
+    // ========== ALTERAÇÕES EXTERNAS (publicadas) ==========
+
+    @Override
+    public boolean vigiar(OuvinteArquivo ouvinte) throws PersistenciaException {
+        return repositorio.vigiar(alteracoes -> {
+            for (AlteracaoArquivo alteracao : alteracoes) {
+                TipoAlteracao tipo = alteracao.isInclusao() ? TipoAlteracao.INSERCAO
+                        : alteracao.isExclusao() ? TipoAlteracao.EXCLUSAO : TipoAlteracao.ATUALIZACAO;
+                fluxo.publicar(tipo, alteracao.getAntes(), alteracao.getDepois());
+            }
+            ouvinte.alterado(alteracoes);
+        });
+    }
+
+    // ========== LEITURAS ==========
+
+    @Override
+    public List<Medicamento> carregarTodos() throws PersistenciaException {
+        return repositorio.carregarTodos();
+    }
+
+    @Override
+    public Medicamento buscarPorCodigo(String codigo) throws PersistenciaException {
+        return repositorio.buscarPorCodigo(codigo);
+    }
+
+    @Override
+    public boolean existeCodigo(String codigo) throws PersistenciaException {
+        return repositorio.existeCodigo(codigo);
+    }
+
+    @Override
+    public CatalogoIndexado catalogo() throws PersistenciaException {
+        return repositorio.catalogo();
+    }
+
+    @Override
+    public int contar() throws PersistenciaException {
+        return repositorio.contar();
+    }
+
+    @Override
+    public List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException {
+        return repositorio.listarJanela(ordem, inicio, tamanho);
+    }
+
+    @Override
+    public Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException {
+        return repositorio.listarApos(ordem, apos, tamanho);
+    }
+
+    @Override
+    public String descricao() {
+        return repositorio.descricao();
+    }
+
+    @Override
+    public void compactar() throws PersistenciaException {
+        repositorio.compactar();
+    }
+
+    @Override
+    public void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        repositorio.percorrer(consumidor);
+    }
+
+    @Override
+    public boolean isSomenteLeitura() {
+        return repositorio.isSomenteLeitura();
+    }
+
+    @Override
+    public void fechar() throws PersistenciaException {
+        try {
+            repositorio.fechar();
+        } finally {
+            if (fluxo.getDiario() != null) {
+                fluxo.getDiario().fechar();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.farmacia.eventos;
+
+/**
+ * Tipos de alteração publicados no fluxo de alterações do catálogo
+ */
+public enum TipoAlteracao {
+    INSERCAO,
+    ATUALIZACAO,
+    EXCLUSAO
+}
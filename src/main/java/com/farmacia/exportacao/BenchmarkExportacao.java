@@ -0,0 +1,136 @@
+package com.farmacia.exportacao;
+
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+import com.farmacia.relatorio.FormatoSaida;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark da exportação ordenada: CSV sintético gravado em fluxo num diretório temporário (nomes
+ * e validades aleatórios, códigos fora de ordem), exportado por nome com uma e com todas as
+ * threads e por validade em JSON, com o orçamento de memória informado. Cada saída é conferida
+ * (quantidade e ordem) lendo-a de volta em fluxo. Opcionalmente compara com a ordenação em memória
+ * (carregar, ordenar, gravar), que precisa de heap para o catálogo inteiro.
+ *
+ * Uso: BenchmarkExportacao [medicamentos] [memoriaMb] [emMemoria true|false]
+ */
+public class BenchmarkExportacao {
+
+    public static void main(String[] args) throws Exception {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long memoria = (args.length > 1 ? Long.parseLong(args[1]) : 32) << 20;
+        boolean emMemoria = args.length <= 2 || Boolean.parseBoolean(args[2]);
+        int nucleos = Runtime.getRuntime().availableProcessors();
+
+        File diretorio = Files.createTempDirectory("farmacia-exportacao-bench").toFile();
+        try {
+            File origem = new File(diretorio, "medicamentos.csv");
+            long inicio = System.nanoTime();
+            gerar(origem, quantidade);
+            System.out.printf("%d medicamentos, %.1f MB de CSV (gerado em %.1fs), orçamento %d MB, heap máximo %d MB%n%n",
+                    quantidade, origem.length() / 1e6, (System.nanoTime() - inicio) / 1e9,
+                    memoria >> 20, Runtime.getRuntime().maxMemory() >> 20);
+            MedicamentoDAO dao = new MedicamentoDAO(origem.getPath());
+
+            if (emMemoria) {
+                File saida = new File(diretorio, "em-memoria.csv");
+                inicio = System.nanoTime();
+                List<Medicamento> todos = dao.carregarTodos();
+                todos.sort(OrdemListagem.NOME.comparador());
+                new MedicamentoDAO(saida.getPath()).salvarTodos(todos);
+                System.out.printf("em memória, por nome (CSV): %.1fs%n", (System.nanoTime() - inicio) / 1e9);
+                todos = null;
+                saida.delete();
+            }
+
+            medir(dao, diretorio, OrdemListagem.NOME, FormatoSaida.CSV, memoria, 1, quantidade);
+            if (nucleos > 1) {
+                medir(dao, diretorio, OrdemListagem.NOME, FormatoSaida.CSV, memoria, nucleos, quantidade);
+            }
+            medir(dao, diretorio, OrdemListagem.VALIDADE, FormatoSaida.JSON, memoria, nucleos, quantidade);
+        } finally {
+            apagar(diretorio);
+        }
+    }
+
+    private static void medir(MedicamentoDAO dao, File diretorio, OrdemListagem ordem, FormatoSaida formato,
+                              long memoria, int threads, int quantidade) throws Exception {
+        File saida = new File(diretorio, "exportado." + formato.name().toLowerCase());
+        ExportacaoOrdenada exportacao = new ExportacaoOrdenada(ordem, memoria, threads, diretorio);
+        long inicio = System.nanoTime();
+        ResultadoExportacao resultado;
+        try (Writer escritor = Files.newBufferedWriter(saida.toPath(), StandardCharsets.UTF_8)) {
+            resultado = exportacao.exportar(dao::percorrer, formato, escritor);
+        }
+        long tempo = System.nanoTime() - inicio;
+        if (resultado.getMedicamentos() != quantidade) {
+            throw new IllegalStateException("Exportados " + resultado.getMedicamentos() + " de " + quantidade);
+        }
+        if (formato == FormatoSaida.CSV) {
+            conferirOrdem(saida, ordem, quantidade);
+        }
+        System.out.printf("externa, por %s (%s, %d threads): %.1fs, %.0f medicamentos/s, %d corridas, %d passadas, %.1f MB%n",
+                ordem.name().toLowerCase(), formato, threads, tempo / 1e9, quantidade / (tempo / 1e9),
+                resultado.getCorridas(), resultado.getPassadas(), saida.length() / 1e6);
+        saida.delete();
+    }
+
+    /**
+     * Lê a saída em fluxo conferindo que cada medicamento vem depois do anterior
+     */
+    private static void conferirOrdem(File saida, OrdemListagem ordem, int quantidade) throws Exception {
+        Comparator<Medicamento> comparador = ordem.comparador();
+        Medicamento[] anterior = {null};
+        long[] lidos = {0};
+        new MedicamentoDAO(saida.getPath()).percorrer(medicamento -> {
+            if (anterior[0] != null && comparador.compare(anterior[0], medicamento) > 0) {
+                throw new IllegalStateException("Fora de ordem: " + anterior[0].getCodigo() + " antes de " + medicamento.getCodigo());
+            }
+            anterior[0] = medicamento;
+            lidos[0]++;
+        });
+        if (lidos[0] != quantidade) {
+            throw new IllegalStateException("Saída com " + lidos[0] + " de " + quantidade + " medicamentos");
+        }
+    }
+
+    private static void gerar(File arquivo, int quantidade) throws Exception {
+        Random aleatorio = new Random(42);
+        LocalDate hoje = LocalDate.now();
+        Fornecedor fornecedor = new Fornecedor("11222333000181", "Distribuidora Central", "1133334444",
+                "vendas@distribuidora.com.br", "São Paulo", "SP");
+        try (Writer escritor = new BufferedWriter(Files.newBufferedWriter(arquivo.toPath(), StandardCharsets.UTF_8), 1 << 16)) {
+            escritor.write(MedicamentoDAO.CABECALHO);
+            escritor.write('\n');
+            for (int i = 0; i < quantidade; i++) {
+                // Códigos embaralhados: a ordem do arquivo não ajuda nenhuma das ordenações
+                int codigo = (int) ((i * 2654435761L) % quantidade);
+                Medicamento medicamento = new Medicamento(String.format("MED%08d", codigo),
+                        "Medicamento " + Integer.toString(aleatorio.nextInt(1 << 30), 36),
+                        "Descrição do medicamento " + i, "Princípio " + (i % 500),
+                        hoje.plusDays(aleatorio.nextInt(1000)), aleatorio.nextInt(500), 1250, i % 10 == 0, fornecedor);
+                escritor.write(medicamento.toCSV());
+                escritor.write('\n');
+            }
+        }
+    }
+
+    private static void apagar(File diretorio) throws Exception {
+        try (Stream<Path> caminhos = Files.walk(diretorio.toPath())) {
+            caminhos.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.farmacia.exportacao;
+
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+import com.farmacia.relatorio.FormatoSaida;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Exportação ordenada de catálogos maiores que a memória (ordenação externa). Os medicamentos do
+ * armazenamento chegam em fluxo e são acumulados até a porção do orçamento de memória; cada porção
+ * é ordenada e gravada como uma corrida num arquivo temporário por uma thread do pool, enquanto a
+ * leitura segue enchendo a próxima. No fim, as corridas são intercaladas (k vias, por uma fila de
+ * prioridade) direto na saída, em CSV ou JSON; com mais de {@value #MAXIMO_VIAS} corridas, grupos
+ * delas são antes intercalados, em paralelo, em corridas maiores. Se tudo cabe no orçamento, nada
+ * vai para o disco.
+ * <p>
+ * A ordem é a da {@link OrdemListagem} e estável: registros empatados (códigos repetidos) saem na
+ * ordem do armazenamento.
+ */
+public class ExportacaoOrdenada {
+    private static final Log LOG = Log.para(ExportacaoOrdenada.class);
+    private static final MetricaOperacao M_EXPORTAR = Metricas.operacao("exportacao.ordenada");
+
+    static final int MAXIMO_VIAS = 64;
+    // Ocupação estimada de um medicamento no heap além dos textos (objetos, cabeçalhos, data)
+    private static final long BYTES_POR_MEDICAMENTO = 480;
+    private static final long BYTES_POR_LOTE = 96;
+    private static final long MEMORIA_MINIMA = 1 << 20;
+    private static final int BUFFER_MINIMO = 8 << 10;
+    private static final int BUFFER_MAXIMO = 1 << 20;
+
+    /**
+     * Entrega os medicamentos a exportar, em qualquer ordem
+     */
+    @FunctionalInterface
+    public interface Origem {
+        void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException;
+    }
+
+    private final OrdemListagem ordem;
+    private final long memoria;
+    private final int threads;
+    private final File diretorioTemporario;
+
+    /**
+     * @param memoria             orçamento, em bytes, para os medicamentos em memória (porções
+     *                            sendo ordenadas e a que está sendo lida)
+     * @param threads             porções ordenadas e gravadas ao mesmo tempo
+     * @param diretorioTemporario onde ficam as corridas (apagadas no fim)
+     */
+    public ExportacaoOrdenada(OrdemListagem ordem, long memoria, int threads, File diretorioTemporario) {
+        this.ordem = ordem;
+        this.memoria = Math.max(MEMORIA_MINIMA, memoria);
+        this.threads = Math.max(1, threads);
+        this.diretorioTemporario = diretorioTemporario;
+    }
+
+    /**
+     * Grava na saída todos os medicamentos da origem, em ordem
+     *
+     * @param formato {@link FormatoSaida#CSV} (com cabeçalho, no formato do arquivo de dados) ou
+     *                {@link FormatoSaida#JSON} (lista de medicamentos)
+     */
+    public ResultadoExportacao exportar(Origem origem, FormatoSaida formato, Writer saida)
+            throws PersistenciaException, IOException, InterruptedException {
+        if (formato != FormatoSaida.CSV && formato != FormatoSaida.JSON) {
+            throw new IllegalArgumentException("Exportação ordenada grava CSV ou JSON");
+        }
+
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        AtomicInteger contador = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "exportacao-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Path diretorio = null;
+        try {
+            diretorio = Files.createTempDirectory(diretorioTemporario.toPath(), "farmacia-exportacao");
+            GeradorCorridas gerador = new GeradorCorridas(diretorio, pool);
+            origem.percorrer(gerador);
+
+            Saida destino = new Saida(saida, formato);
+            destino.iniciar();
+            ResultadoExportacao resultado;
+            if (gerador.corridas.isEmpty()) {
+                // Tudo coube no orçamento: ordenação em memória, sem arquivos temporários
+                gerador.porcao.sort(ordem.comparador());
+                for (Medicamento medicamento : gerador.porcao) {
+                    destino.escrever(medicamento, null);
+                }
+                resultado = new ResultadoExportacao(gerador.total, 0, 0);
+            } else {
+                if (!gerador.porcao.isEmpty()) {
+                    gerador.despachar();
+                }
+                List<File> corridas = aguardar(gerador.corridas);
+                int quantidade = corridas.size();
+                int passadas = 1;
+                while (corridas.size() > MAXIMO_VIAS) {
+                    corridas = reduzir(corridas, diretorio, passadas, pool);
+                    passadas++;
+                }
+                intercalar(corridas, destino);
+                resultado = new ResultadoExportacao(gerador.total, quantidade, passadas);
+            }
+            destino.concluir();
+            saida.flush();
+
+            M_EXPORTAR.adicionarLinhas(resultado.getMedicamentos());
+            LOG.info("Exportação ordenada concluída", "ordem", ordem, "formato", formato,
+                    "medicamentos", resultado.getMedicamentos(), "corridas", resultado.getCorridas(),
+                    "passadas", resultado.getPassadas(), "ms", (System.nanoTime() - inicio) / 1_000_000);
+            sucesso = true;
+            return resultado;
+        } finally {
+            pool.shutdownNow();
+            if (diretorio != null) {
+                apagar(diretorio);
+            }
+            M_EXPORTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    // ========== CORRIDAS ==========
+
+    /**
+     * Acumula os medicamentos lidos em porções; cada porção cheia é ordenada e gravada por uma
+     * thread do pool. Com todas as threads ocupadas, a leitura espera: no máximo {@code threads}
+     * porções ordenando mais a que está sendo lida, cada uma com uma fração do orçamento.
+     */
+    private final class GeradorCorridas implements Consumer<Medicamento> {
+        private final Path diretorio;
+        private final ExecutorService pool;
+        private final Semaphore vagas = new Semaphore(threads);
+        private final long limitePorcao = memoria / (threads + 1);
+        private final List<Future<File>> corridas = new ArrayList<>();
+        private List<Medicamento> porcao = new ArrayList<>();
+        private long ocupacao;
+        private long total;
+
+        private GeradorCorridas(Path diretorio, ExecutorService pool) {
+            this.diretorio = diretorio;
+            this.pool = pool;
+        }
+
+        @Override
+        public void accept(Medicamento medicamento) {
+            porcao.add(medicamento);
+            ocupacao += ocupacao(medicamento);
+            total++;
+            if (ocupacao >= limitePorcao) {
+                despachar();
+            }
+        }
+
+        private void despachar() {
+            List<Medicamento> ordenar = porcao;
+            porcao = new ArrayList<>();
+            ocupacao = 0;
+            vagas.acquireUninterruptibly();
+            File arquivo = diretorio.resolve(String.format("corrida-%06d.csv", corridas.size())).toFile();
+            try {
+                corridas.add(pool.submit(() -> {
+                    try {
+                        ordenar.sort(ordem.comparador());
+                        try (Writer escritor = abrir(arquivo)) {
+                            for (Medicamento medicamento : ordenar) {
+                                escritor.write(medicamento.toCSV());
+                                escritor.write('\n');
+                            }
+                        }
+                        return arquivo;
+                    } finally {
+                        vagas.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                vagas.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Ocupação aproximada de um medicamento no heap (textos em UTF-16, objetos e lotes)
+     */
+    private static long ocupacao(Medicamento medicamento) {
+        long texto = comprimento(medicamento.getCodigo()) + comprimento(medicamento.getNome())
+                + comprimento(medicamento.getDescricao()) + comprimento(medicamento.getPrincipioAtivo());
+        Fornecedor fornecedor = medicamento.getFornecedor();
+        if (fornecedor != null) {
+            texto += comprimento(fornecedor.getCnpj()) + comprimento(fornecedor.getRazaoSocial())
+                    + comprimento(fornecedor.getTelefone()) + comprimento(fornecedor.getEmail())
+                    + comprimento(fornecedor.getCidade()) + comprimento(fornecedor.getEstado());
+        }
+        long lotes = medicamento.temLotes() ? BYTES_POR_LOTE * medicamento.getLotes().size() : 0;
+        return BYTES_POR_MEDICAMENTO + 2 * texto + lotes;
+    }
+
+    private static int comprimento(String texto) {
+        return texto == null ? 0 : texto.length();
+    }
+
+    // ========== INTERCALAÇÃO ==========
+
+    /**
+     * Uma passada: intercala grupos de até {@value #MAXIMO_VIAS} corridas em paralelo, apagando as
+     * corridas de cada grupo ao terminar
+     */
+    private List<File> reduzir(List<File> corridas, Path diretorio, int passada, ExecutorService pool)
+            throws PersistenciaException, IOException, InterruptedException {
+        List<Future<File>> grupos = new ArrayList<>();
+        for (int i = 0; i < corridas.size(); i += MAXIMO_VIAS) {
+            List<File> grupo = corridas.subList(i, Math.min(corridas.size(), i + MAXIMO_VIAS));
+            File arquivo = diretorio.resolve(String.format("passada-%d-%06d.csv", passada, grupos.size())).toFile();
+            grupos.add(pool.submit(() -> {
+                try (Writer escritor = abrir(arquivo)) {
+                    intercalar(grupo, new Saida(escritor, FormatoSaida.CSV));
+                }
+                for (File corrida : grupo) {
+                    Files.delete(corrida.toPath());
+                }
+                return arquivo;
+            }));
+        }
+        return aguardar(grupos);
+    }
+
+    /**
+     * Intercala as corridas na saída: a fila de prioridade tem a cabeça de cada corrida, e empates
+     * saem pela ordem das corridas (a do armazenamento)
+     */
+    private void intercalar(List<File> corridas, Saida destino) throws PersistenciaException, IOException {
+        Comparator<Medicamento> comparador = ordem.comparador();
+        PriorityQueue<LeitorCorrida> fila = new PriorityQueue<>(corridas.size(), (a, b) -> {
+            int comparacao = comparador.compare(a.atual, b.atual);
+            return comparacao != 0 ? comparacao : Integer.compare(a.indice, b.indice);
+        });
+        // Cada corrida aberta fica com uma fração do orçamento para o buffer de leitura
+        int buffer = (int) Math.max(BUFFER_MINIMO, Math.min(BUFFER_MAXIMO, memoria / threads / corridas.size()));
+        List<LeitorCorrida> abertos = new ArrayList<>(corridas.size());
+        try {
+            for (int i = 0; i < corridas.size(); i++) {
+                LeitorCorrida leitor = new LeitorCorrida(corridas.get(i), i, buffer);
+                abertos.add(leitor);
+                if (leitor.avancar()) {
+                    fila.add(leitor);
+                }
+            }
+            while (!fila.isEmpty()) {
+                LeitorCorrida menor = fila.poll();
+                destino.escrever(menor.atual, menor.linha);
+                if (menor.avancar()) {
+                    fila.add(menor);
+                }
+            }
+        } finally {
+            for (LeitorCorrida leitor : abertos) {
+                leitor.fechar();
+            }
+        }
+    }
+
+    private static final class LeitorCorrida {
+        private final BufferedReader leitor;
+        private final int indice;
+        private String linha;
+        private Medicamento atual;
+
+        private LeitorCorrida(File arquivo, int indice, int buffer) throws IOException {
+            this.leitor = new BufferedReader(Files.newBufferedReader(arquivo.toPath(), StandardCharsets.UTF_8), buffer);
+            this.indice = indice;
+        }
+
+        private boolean avancar() throws PersistenciaException, IOException {
+            linha = leitor.readLine();
+            if (linha == null) {
+                atual = null;
+                return false;
+            }
+            atual = MedicamentoDAO.lerLinha(linha);
+            return true;
+        }
+
+        private void fechar() {
+            try {
+                leitor.close();
+            } catch (IOException e) {
+                LOG.aviso("Erro ao fechar corrida da exportação", "erro", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Destino da intercalação: CSV no formato do arquivo de dados (a linha lida da corrida é
+     * reaproveitada) ou lista JSON
+     */
+    private static final class Saida {
+        private final Writer destino;
+        private final FormatoSaida formato;
+        private final StringBuilder item = new StringBuilder(512);
+        private boolean primeiro = true;
+
+        private Saida(Writer destino, FormatoSaida formato) {
+            this.destino = destino;
+            this.formato = formato;
+        }
+
+        private void iniciar() throws IOException {
+            if (formato == FormatoSaida.JSON) {
+                destino.write('[');
+            } else {
+                destino.write(MedicamentoDAO.CABECALHO);
+                destino.write('\n');
+            }
+        }
+
+        private void escrever(Medicamento medicamento, String linha) throws IOException {
+            if (formato == FormatoSaida.JSON) {
+                if (!primeiro) {
+                    destino.write(',');
+                }
+                item.setLength(0);
+                Json.escrever(MedicamentoJson.paraMapa(medicamento), item);
+                destino.append(item);
+            } else {
+                destino.write(linha != null ? linha : medicamento.toCSV());
+                destino.write('\n');
+            }
+            primeiro = false;
+        }
+
+        private void concluir() throws IOException {
+            if (formato == FormatoSaida.JSON) {
+                destino.write("]\n");
+            }
+        }
+    }
+
+    // ========== AUXILIARES ==========
+
+    private static Writer abrir(File arquivo) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(arquivo.toPath(), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Resultados das tarefas, na ordem; a primeira falha é relançada com o seu tipo
+     */
+    private static List<File> aguardar(List<Future<File>> tarefas)
+            throws PersistenciaException, IOException, InterruptedException {
+        List<File> arquivos = new ArrayList<>(tarefas.size());
+        for (Future<File> tarefa : tarefas) {
+            try {
+                arquivos.add(tarefa.get());
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof PersistenciaException) {
+                    throw (PersistenciaException) causa;
+                }
+                if (causa instanceof IOException) {
+                    throw (IOException) causa;
+                }
+                if (causa instanceof RuntimeException) {
+                    throw (RuntimeException) causa;
+                }
+                throw new IOException("Falha ao ordenar a exportação", causa);
+            }
+        }
+        return arquivos;
+    }
+
+    private static void apagar(Path diretorio) {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.forEach(arquivo -> arquivo.toFile().delete());
+            Files.deleteIfExists(diretorio);
+        } catch (IOException e) {
+            LOG.aviso("Temporários da exportação não apagados", "diretorio", diretorio, "erro", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.farmacia.exportacao;
+
+/**
+ * Resumo de uma exportação ordenada: medicamentos gravados, corridas ordenadas em disco (zero se
+ * tudo coube na memória) e passadas de intercalação
+ */
+public class ResultadoExportacao {
+    private final long medicamentos;
+    private final int corridas;
+    private final int passadas;
+
+    ResultadoExportacao(long medicamentos, int corridas, int passadas) {
+        this.medicamentos = medicamentos;
+        this.corridas = corridas;
+        this.passadas = passadas;
+    }
+
+    public long getMedicamentos() { return medicamentos; }
+    public int getCorridas() { return corridas; }
+    public int getPassadas() { return passadas; }
+
+    @Override
+    public String toString() {
+        return "medicamentos=" + medicamentos + " corridas=" + corridas + " passadas=" + passadas;
+    }
+}
@@ -0,0 +1,113 @@
+package com.farmacia.historico;
+
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark do histórico de estoque: um ano de fechamentos diários sintéticos por código (consumo
+ * com média própria por medicamento e reposição ao cair abaixo de uma semana de estoque), memória
+ * ocupada pelas séries contra um int[] por dia, tamanho do arquivo (compactado durante a carga),
+ * reabertura e o cálculo da previsão de ruptura em todo o catálogo, sequencial e em paralelo.
+ * O arquivo é gravado num diretório temporário e apagado no fim.
+ *
+ * Uso: BenchmarkHistoricoEstoque [codigos] [dias]
+ */
+public class BenchmarkHistoricoEstoque {
+    private static final int RODADAS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int codigos = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int dias = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+        LocalDate inicio = LocalDate.now().minusDays(dias);
+
+        File diretorio = Files.createTempDirectory("farmacia-historico").toFile();
+        File arquivo = new File(diretorio, "medicamentos.csv.historico");
+        try {
+            Random aleatorio = new Random(42);
+            double[] consumo = new double[codigos];
+            int[] estoque = new int[codigos];
+            for (int i = 0; i < codigos; i++) {
+                // Metade dos itens gira pouco (menos de 1 por dia), alguns muito
+                consumo[i] = i % 2 == 0 ? aleatorio.nextDouble() : aleatorio.nextDouble() * 40;
+                estoque[i] = 20 + aleatorio.nextInt(200);
+            }
+
+            HistoricoEstoque historico = HistoricoEstoque.abrir(arquivo.getPath(), HistoricoEstoque.JANELA_PADRAO,
+                    HistoricoEstoque.PRAZO_PADRAO);
+            long registros = 0;
+            long tempo = System.nanoTime();
+            for (int d = 0; d < dias; d++) {
+                Map<String, Integer> niveis = new HashMap<>(codigos * 2);
+                for (int i = 0; i < codigos; i++) {
+                    int saida = (int) Math.round(-Math.log(1 - aleatorio.nextDouble()) * consumo[i]);
+                    estoque[i] = Math.max(0, estoque[i] - saida);
+                    if (estoque[i] < consumo[i] * 7 && aleatorio.nextInt(4) == 0) {
+                        estoque[i] += (int) (consumo[i] * 30) + 10;
+                    }
+                    niveis.put(codigo(i), estoque[i]);
+                }
+                historico.registrar(niveis, inicio.plusDays(d));
+                registros += codigos;
+            }
+            tempo = System.nanoTime() - tempo;
+            historico.fechar();
+
+            long bytes = historico.bytesUsados();
+            System.out.printf("%d códigos x %d dias: %.0f fechamentos/s%n", codigos, dias, registros / (tempo / 1e9));
+            System.out.printf("séries: %.1f MB (%.2f bytes/dia); int[] por dia: %.1f MB%n",
+                    bytes / 1e6, (double) bytes / registros, registros * 4 / 1e6);
+            System.out.printf("arquivo: %.1f MB%n", arquivo.length() / 1e6);
+
+            tempo = System.nanoTime();
+            historico = HistoricoEstoque.abrir(arquivo.getPath(), HistoricoEstoque.JANELA_PADRAO,
+                    HistoricoEstoque.PRAZO_PADRAO);
+            System.out.printf("reabertura: %.0fms (séries: %.1f MB)%n%n", (System.nanoTime() - tempo) / 1e6,
+                    historico.bytesUsados() / 1e6);
+
+            Fornecedor fornecedor = new Fornecedor("11222333000181", "Distribuidora", "", "", "", "");
+            List<Medicamento> catalogo = new ArrayList<>(codigos);
+            for (int i = 0; i < codigos; i++) {
+                catalogo.add(new Medicamento(codigo(i), "Medicamento " + i, "", "", LocalDate.now().plusYears(1),
+                        estoque[i], 1000, false, fornecedor));
+            }
+
+            LocalDate hoje = inicio.plusDays(dias);
+            HistoricoEstoque h = historico;
+            long sequencial = Long.MAX_VALUE;
+            long paralelo = Long.MAX_VALUE;
+            int ruptura = 0;
+            for (int rodada = 0; rodada < RODADAS; rodada++) {
+                tempo = System.nanoTime();
+                ruptura = catalogo.stream().map(m -> h.prever(m, hoje, 5)).filter(p -> p.rompeEm(30))
+                        .collect(Collectors.toList()).size();
+                sequencial = Math.min(sequencial, System.nanoTime() - tempo);
+
+                tempo = System.nanoTime();
+                catalogo.parallelStream().map(m -> h.prever(m, hoje, 5)).filter(p -> p.rompeEm(30))
+                        .collect(Collectors.toList());
+                paralelo = Math.min(paralelo, System.nanoTime() - tempo);
+            }
+            System.out.printf("previsão de ruptura: %d em até 30 dias; sequencial %.0fms, paralelo %.0fms (%d núcleos)%n",
+                    ruptura, sequencial / 1e6, paralelo / 1e6, Runtime.getRuntime().availableProcessors());
+            historico.fechar();
+        } finally {
+            new File(arquivo.getPath() + ".tmp").delete();
+            arquivo.delete();
+            diretorio.delete();
+        }
+    }
+
+    private static String codigo(int i) {
+        return String.format("MED%07d", i);
+    }
+}
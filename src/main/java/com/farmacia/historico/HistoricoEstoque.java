@@ -0,0 +1,287 @@
+package com.farmacia.historico;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.model.Medicamento;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Histórico do estoque de fechamento diário de cada medicamento ({@link SerieEstoque} por código)
+ * e a previsão de consumo calculada sobre ele.
+ * <p>
+ * Persistência: um arquivo só de acréscimos com um registro por nível alterado. O arquivo é lido
+ * inteiro ao abrir e, quando os registros avulsos passam de quatro vezes o número de séries (ao abrir
+ * ou durante o uso), reescrito como uma cópia compacta de cada série. Não há fsync: perder o último
+ * dia de histórico só atrasa a previsão.
+ * <p>
+ * Previsão: o consumo de cada dia fechado da janela é a queda do estoque em relação ao dia anterior
+ * (num dia com entrada a saída do dia não aparece). Com média {@code c} e desvio {@code s} por dia,
+ * o ponto de pedido é {@code ceil(c·P + z·s·√P)} (no mínimo 1), com {@code P} o prazo de reposição
+ * e {@code z} = {@value #FATOR_SEGURANCA} (cerca de 95% de nível de serviço).
+ */
+public class HistoricoEstoque {
+    private static final Log LOG = Log.para(HistoricoEstoque.class);
+
+    public static final int JANELA_PADRAO = 28;
+    public static final int PRAZO_PADRAO = 7;
+    /** Dias observados necessários para o ponto de pedido dinâmico */
+    public static final int DIAS_MINIMOS = 7;
+    public static final double FATOR_SEGURANCA = 1.65;
+
+    private static final int ASSINATURA = 0x48495331;
+    private static final byte REGISTRO_NIVEL = 'N';
+    private static final byte REGISTRO_SERIE = 'S';
+    private static final int COMPACTAR_MINIMO = 10_000;
+
+    private final Map<String, SerieEstoque> series = new ConcurrentHashMap<>();
+    private final File arquivo;
+    private final int janela;
+    private final int prazo;
+    private DataOutputStream saida;
+    private int avulsos;
+
+    private HistoricoEstoque(File arquivo, int janela, int prazo) {
+        if (janela < 1 || prazo < 1) {
+            throw new IllegalArgumentException("Janela e prazo devem ser positivos");
+        }
+        this.arquivo = arquivo;
+        this.janela = janela;
+        this.prazo = prazo;
+    }
+
+    /**
+     * Histórico só em memória (benchmarks, testes)
+     */
+    public static HistoricoEstoque emMemoria(int janela, int prazo) {
+        return new HistoricoEstoque(null, janela, prazo);
+    }
+
+    /**
+     * Abre (ou cria) o histórico gravado no arquivo, descartando uma cauda incompleta
+     */
+    public static HistoricoEstoque abrir(String arquivo, int janela, int prazo) throws PersistenciaException {
+        HistoricoEstoque historico = new HistoricoEstoque(new File(arquivo), janela, prazo);
+        try {
+            historico.carregar();
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao abrir o histórico de estoque " + arquivo, e);
+        }
+        return historico;
+    }
+
+    public int getJanela() { return janela; }
+    public int getPrazo() { return prazo; }
+
+    /**
+     * Códigos com série registrada
+     */
+    public int quantidadeSeries() {
+        return series.size();
+    }
+
+    /**
+     * Memória ocupada pelas séries, em bytes (sem contar os mapas)
+     */
+    public long bytesUsados() {
+        long total = 0;
+        for (SerieEstoque serie : series.values()) {
+            total += serie.bytesUsados();
+        }
+        return total;
+    }
+
+    public boolean contem(String codigo) {
+        return series.containsKey(codigo);
+    }
+
+    // ========== REGISTRO ==========
+
+    /**
+     * Registra o estoque de fechamento do dia de cada código (só os níveis alterados são gravados)
+     */
+    public synchronized void registrar(Map<String, Integer> niveis, LocalDate dia) throws PersistenciaException {
+        int epoca = (int) dia.toEpochDay();
+        try {
+            boolean gravou = false;
+            for (Map.Entry<String, Integer> nivel : niveis.entrySet()) {
+                if (aplicar(nivel.getKey(), epoca, nivel.getValue()) && saida != null) {
+                    saida.writeByte(REGISTRO_NIVEL);
+                    saida.writeUTF(nivel.getKey());
+                    saida.writeInt(epoca);
+                    saida.writeInt(nivel.getValue());
+                    avulsos++;
+                    gravou = true;
+                }
+            }
+            if (gravou) {
+                saida.flush();
+            }
+            if (saida != null && precisaCompactar()) {
+                saida.close();
+                saida = null;
+                compactar();
+                abrirSaida(true);
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gravar o histórico de estoque", e);
+        }
+    }
+
+    private boolean aplicar(String codigo, int dia, int nivel) {
+        SerieEstoque serie = series.get(codigo);
+        if (serie == null) {
+            series.put(codigo, new SerieEstoque(dia, nivel));
+            return true;
+        }
+        synchronized (serie) {
+            return serie.registrar(dia, nivel);
+        }
+    }
+
+    // ========== PREVISÃO ==========
+
+    /**
+     * Previsão do medicamento com base nos dias fechados da janela que termina ontem; sem
+     * {@value #DIAS_MINIMOS} dias observados, ponto de pedido fixo em {@code limiteFixo}
+     */
+    public PrevisaoRuptura prever(Medicamento medicamento, LocalDate hoje, int limiteFixo) {
+        SerieEstoque serie = series.get(medicamento.getCodigo());
+        if (serie == null) {
+            return PrevisaoRuptura.fixa(medicamento, limiteFixo, 0);
+        }
+
+        int[] niveis = new int[janela + 1];
+        synchronized (serie) {
+            serie.niveis((int) hoje.toEpochDay() - janela - 1, niveis);
+        }
+
+        int dias = 0;
+        long soma = 0;
+        long somaQuadrados = 0;
+        for (int i = 1; i <= janela; i++) {
+            if (niveis[i - 1] >= 0) {
+                long consumo = Math.max(0, niveis[i - 1] - niveis[i]);
+                dias++;
+                soma += consumo;
+                somaQuadrados += consumo * consumo;
+            }
+        }
+        if (dias < DIAS_MINIMOS) {
+            return PrevisaoRuptura.fixa(medicamento, limiteFixo, dias);
+        }
+
+        double media = (double) soma / dias;
+        double desvio = Math.sqrt(Math.max(0, (double) somaQuadrados / dias - media * media));
+        int pontoPedido = (int) Math.max(1, Math.ceil(media * prazo + FATOR_SEGURANCA * desvio * Math.sqrt(prazo)));
+        return new PrevisaoRuptura(medicamento, media, desvio, dias, pontoPedido, true);
+    }
+
+    // ========== ARQUIVO ==========
+
+    private void carregar() throws IOException {
+        if (!arquivo.exists() || arquivo.length() == 0) {
+            File diretorio = arquivo.getAbsoluteFile().getParentFile();
+            if (diretorio != null) {
+                diretorio.mkdirs();
+            }
+            abrirSaida(false);
+            return;
+        }
+
+        byte[] conteudo = Files.readAllBytes(arquivo.toPath());
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(conteudo));
+        if (conteudo.length < 4 || entrada.readInt() != ASSINATURA) {
+            throw new IOException("Arquivo não é um histórico de estoque: " + arquivo.getPath());
+        }
+
+        long valido = 4;
+        try {
+            while (entrada.available() > 0) {
+                byte tipo = entrada.readByte();
+                String codigo = entrada.readUTF();
+                if (tipo == REGISTRO_SERIE) {
+                    series.put(codigo, SerieEstoque.ler(entrada));
+                } else if (tipo == REGISTRO_NIVEL) {
+                    int dia = entrada.readInt();
+                    aplicar(codigo, dia, entrada.readInt());
+                    avulsos++;
+                } else {
+                    throw new IOException("Registro desconhecido: " + tipo);
+                }
+                valido = conteudo.length - entrada.available();
+            }
+        } catch (IOException e) {
+            LOG.aviso("Cauda inválida do histórico de estoque descartada", "arquivo", arquivo.getPath(),
+                    "bytes", conteudo.length - valido);
+            try (FileChannel truncar = FileChannel.open(arquivo.toPath(), StandardOpenOption.WRITE)) {
+                truncar.truncate(valido);
+            }
+        }
+
+        if (precisaCompactar()) {
+            compactar();
+        }
+        for (SerieEstoque serie : series.values()) {
+            serie.aparar();
+        }
+        abrirSaida(true);
+    }
+
+    private boolean precisaCompactar() {
+        return avulsos > 4L * Math.max(COMPACTAR_MINIMO, series.size());
+    }
+
+    /**
+     * Reescreve o arquivo com uma cópia de cada série (troca atômica)
+     */
+    private void compactar() throws IOException {
+        File temporario = new File(arquivo.getPath() + ".tmp");
+        try (DataOutputStream copia = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario)))) {
+            copia.writeInt(ASSINATURA);
+            for (Map.Entry<String, SerieEstoque> serie : series.entrySet()) {
+                copia.writeByte(REGISTRO_SERIE);
+                copia.writeUTF(serie.getKey());
+                serie.getValue().gravar(copia);
+            }
+        }
+        Files.move(temporario.toPath(), arquivo.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        avulsos = 0;
+        LOG.info("Histórico de estoque compactado", "arquivo", arquivo.getPath(), "series", series.size());
+    }
+
+    private void abrirSaida(boolean acrescentar) throws IOException {
+        saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, acrescentar)));
+        if (!acrescentar) {
+            saida.writeInt(ASSINATURA);
+            saida.flush();
+        }
+    }
+
+    public synchronized void fechar() {
+        if (saida == null) {
+            return;
+        }
+        try {
+            saida.close();
+        } catch (IOException e) {
+            LOG.aviso("Erro ao fechar o histórico de estoque", "arquivo", arquivo.getPath(), "erro", e.getMessage());
+        } finally {
+            saida = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.farmacia.historico;
+
+import com.farmacia.model.Medicamento;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Previsão de ruptura de um medicamento: consumo diário médio na janela do histórico, dias até
+ * o estoque atual acabar nesse ritmo e ponto de pedido. Sem histórico suficiente o ponto de
+ * pedido é o limite fixo e não há previsão de ruptura. Imutável.
+ */
+public final class PrevisaoRuptura {
+    /**
+     * Primeiro a acabar, primeiro da lista; empates pelo código
+     */
+    public static final Comparator<PrevisaoRuptura> ORDEM = Comparator
+            .comparingDouble(PrevisaoRuptura::getDiasAteRuptura)
+            .thenComparing(p -> p.getMedicamento().getCodigo());
+
+    private final Medicamento medicamento;
+    private final double consumoDiario;
+    private final double desvioPadrao;
+    private final int diasObservados;
+    private final int pontoPedido;
+    private final boolean dinamica;
+
+    PrevisaoRuptura(Medicamento medicamento, double consumoDiario, double desvioPadrao, int diasObservados,
+                    int pontoPedido, boolean dinamica) {
+        this.medicamento = medicamento;
+        this.consumoDiario = consumoDiario;
+        this.desvioPadrao = desvioPadrao;
+        this.diasObservados = diasObservados;
+        this.pontoPedido = pontoPedido;
+        this.dinamica = dinamica;
+    }
+
+    /**
+     * Previsão sem histórico suficiente: ponto de pedido fixo
+     */
+    public static PrevisaoRuptura fixa(Medicamento medicamento, int limite, int diasObservados) {
+        return new PrevisaoRuptura(medicamento, 0, 0, diasObservados, limite, false);
+    }
+
+    public Medicamento getMedicamento() { return medicamento; }
+    public double getConsumoDiario() { return consumoDiario; }
+    public double getDesvioPadrao() { return desvioPadrao; }
+    public int getDiasObservados() { return diasObservados; }
+    public int getPontoPedido() { return pontoPedido; }
+
+    /**
+     * Indica se o ponto de pedido vem do consumo observado (e não do limite fixo)
+     */
+    public boolean isDinamica() { return dinamica; }
+
+    /**
+     * Dias até o estoque atual acabar no consumo médio; infinito sem consumo
+     */
+    public double getDiasAteRuptura() {
+        return consumoDiario > 0 ? medicamento.getQuantidadeEstoque() / consumoDiario : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Estoque abaixo do ponto de pedido
+     */
+    public boolean precisaRepor() {
+        return medicamento.getQuantidadeEstoque() < pontoPedido;
+    }
+
+    /**
+     * Previsão dinâmica com ruptura em até {@code dias} dias
+     */
+    public boolean rompeEm(int dias) {
+        return dinamica && getDiasAteRuptura() <= dias;
+    }
+
+    /**
+     * Campos da previsão para CSV e JSON (dias até a ruptura nulo quando não há consumo)
+     */
+    public Map<String, Object> paraMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("codigo", medicamento.getCodigo());
+        mapa.put("nome", medicamento.getNome());
+        mapa.put("quantidadeEstoque", medicamento.getQuantidadeEstoque());
+        mapa.put("consumoDiario", arredondar(consumoDiario));
+        double dias = getDiasAteRuptura();
+        mapa.put("diasAteRuptura", Double.isInfinite(dias) ? null : arredondar(dias));
+        mapa.put("pontoPedido", pontoPedido);
+        mapa.put("pontoPedidoDinamico", dinamica);
+        mapa.put("diasObservados", diasObservados);
+        return mapa;
+    }
+
+    private static double arredondar(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    @Override
+    public String toString() {
+        return medicamento.getCodigo() + ": " + String.format("%.2f", consumoDiario) + "/dia, ponto de pedido "
+                + pontoPedido + (dinamica ? "" : " (fixo)");
+    }
+}
@@ -0,0 +1,199 @@
+package com.farmacia.historico;
+
+import com.farmacia.dao.AlteracaoArquivo;
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.OuvinteArquivo;
+import com.farmacia.dao.Pagina;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.log.Log;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Repositório que registra no {@link HistoricoEstoque} o estoque de cada medicamento escrito pelo
+ * repositório decorado. Antes da primeira escrita da sessão, os medicamentos ainda sem série
+ * entram com o estoque atual, para que a primeira baixa já conte como consumo nos dias seguintes.
+ * Alterações feitas no arquivo por outro programa ({@link #vigiar}) também são registradas. Falhas
+ * ao gravar o histórico só vão para o log: nunca fazem uma escrita já feita parecer que falhou.
+ * Leituras e exclusões passam direto (a série de um medicamento excluído fica sem uso).
+ */
+public class RepositorioHistorico implements MedicamentoRepository {
+    private static final Log LOG = Log.para(RepositorioHistorico.class);
+
+    private final MedicamentoRepository repositorio;
+    private final HistoricoEstoque historico;
+    private boolean semeado;
+
+    public RepositorioHistorico(MedicamentoRepository repositorio, HistoricoEstoque historico) {
+        this.repositorio = repositorio;
+        this.historico = historico;
+    }
+
+    public HistoricoEstoque getHistorico() {
+        return historico;
+    }
+
+    /**
+     * Repositório decorado
+     */
+    public MedicamentoRepository getRepositorio() {
+        return repositorio;
+    }
+
+    // ========== ESCRITAS (registradas) ==========
+
+    @Override
+    public synchronized void salvarTodos(List<Medicamento> medicamentos) throws PersistenciaException {
+        semear();
+        repositorio.salvarTodos(medicamentos);
+        Map<String, Integer> niveis = new HashMap<>();
+        for (Medicamento m : medicamentos) {
+            niveis.put(m.getCodigo(), m.getQuantidadeEstoque());
+        }
+        registrar(niveis);
+    }
+
+    @Override
+    public synchronized void adicionar(Medicamento medicamento) throws PersistenciaException {
+        semear();
+        repositorio.adicionar(medicamento);
+        registrar(Map.of(medicamento.getCodigo(), medicamento.getQuantidadeEstoque()));
+    }
+
+    @Override
+    public synchronized void atualizar(Medicamento medicamentoAtualizado) throws PersistenciaException {
+        semear();
+        repositorio.atualizar(medicamentoAtualizado);
+        registrar(Map.of(medicamentoAtualizado.getCodigo(), medicamentoAtualizado.getQuantidadeEstoque()));
+    }
+
+    @Override
+    public boolean remover(String codigo) throws PersistenciaException {
+        return repositorio.remover(codigo);
+    }
+
+    @Override
+    public boolean vigiar(OuvinteArquivo ouvinte) throws PersistenciaException {
+        return repositorio.vigiar(alteracoes -> {
+            Map<String, Integer> niveis = new HashMap<>();
+            for (AlteracaoArquivo alteracao : alteracoes) {
+                if (!alteracao.isExclusao()) {
+                    niveis.put(alteracao.getCodigo(), alteracao.getDepois().getQuantidadeEstoque());
+                }
+            }
+            if (!niveis.isEmpty()) {
+                registrar(niveis);
+            }
+            ouvinte.alterado(alteracoes);
+        });
+    }
+
+    /**
+     * Sem exceção: uma falha aqui é só registrada e a semeadura é tentada de novo na próxima escrita
+     */
+    private void semear() {
+        if (semeado) {
+            return;
+        }
+        Map<String, Integer> niveis = new HashMap<>();
+        try {
+            for (Medicamento m : repositorio.catalogo().getTodos()) {
+                if (!historico.contem(m.getCodigo())) {
+                    niveis.putIfAbsent(m.getCodigo(), m.getQuantidadeEstoque());
+                }
+            }
+        } catch (PersistenciaException e) {
+            LOG.erro("Catálogo não lido para semear o histórico", e);
+            return;
+        }
+        semeado = registrar(niveis);
+    }
+
+    /**
+     * O histórico é só melhor esforço ({@link HistoricoEstoque} não faz fsync): a falha é registrada
+     * no log e não desfaz nem interrompe a escrita, que já foi feita no repositório decorado e ainda
+     * precisa chegar ao livro de controlados e ao fluxo de alterações
+     */
+    private boolean registrar(Map<String, Integer> niveis) {
+        try {
+            historico.registrar(niveis, LocalDate.now());
+            return true;
+        } catch (PersistenciaException e) {
+            LOG.erro("Estoque não registrado no histórico", e, "medicamentos", niveis.size());
+            return false;
+        }
+    }
+
+    // ========== LEITURAS ==========
+
+    @Override
+    public List<Medicamento> carregarTodos() throws PersistenciaException {
+        return repositorio.carregarTodos();
+    }
+
+    @Override
+    public Medicamento buscarPorCodigo(String codigo) throws PersistenciaException {
+        return repositorio.buscarPorCodigo(codigo);
+    }
+
+    @Override
+    public boolean existeCodigo(String codigo) throws PersistenciaException {
+        return repositorio.existeCodigo(codigo);
+    }
+
+    @Override
+    public CatalogoIndexado catalogo() throws PersistenciaException {
+        return repositorio.catalogo();
+    }
+
+    @Override
+    public int contar() throws PersistenciaException {
+        return repositorio.contar();
+    }
+
+    @Override
+    public List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException {
+        return repositorio.listarJanela(ordem, inicio, tamanho);
+    }
+
+    @Override
+    public Pagina listarApos(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException {
+        return repositorio.listarApos(ordem, apos, tamanho);
+    }
+
+    @Override
+    public String descricao() {
+        return repositorio.descricao();
+    }
+
+    @Override
+    public void compactar() throws PersistenciaException {
+        repositorio.compactar();
+    }
+
+    @Override
+    public void percorrer(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        repositorio.percorrer(consumidor);
+    }
+
+    @Override
+    public boolean isSomenteLeitura() {
+        return repositorio.isSomenteLeitura();
+    }
+
+    @Override
+    public void fechar() throws PersistenciaException {
+        try {
+            repositorio.fechar();
+        } finally {
+            historico.fechar();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.farmacia.historico;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Série diária do estoque de fechamento de um medicamento, guardada como deltas num byte[].
+ * Cada token é um varint: {@code zigue-zague(delta) << 1} para um dia em que o estoque mudou e
+ * {@code (dias << 1) | 1} para uma sequência de dias sem mudança; depois do último dia registrado
+ * o nível se repete. A cada {@value #INTERVALO_MARCOS} tokens um marco (dia, nível, posição)
+ * permite decodificar uma janela sem percorrer a série desde o início.
+ * <p>
+ * Não é thread-safe: {@link HistoricoEstoque} sincroniza cada série.
+ */
+public final class SerieEstoque {
+    static final int INTERVALO_MARCOS = 32;
+    private static final int TAMANHO_MAXIMO = 1 << 26;
+
+    private final int diaInicial;
+    private int nivelInicial;
+    private byte[] dados = new byte[8];
+    private int tamanho;
+    private int tokens;
+
+    private int ultimoDia;
+    private int ultimoNivel;
+    // Token do último dia (sempre um delta), reescrito quando o mesmo dia é registrado de novo
+    private int posicaoUltimo = -1;
+    private int deltaUltimo;
+
+    private int[] marcosDia = new int[0];
+    private int[] marcosNivel = new int[0];
+    private int[] marcosPosicao = new int[0];
+    private int marcos;
+
+    /**
+     * Série que começa no dia (época em dias) com o nível informado
+     */
+    public SerieEstoque(int dia, int nivel) {
+        this.diaInicial = dia;
+        this.nivelInicial = nivel;
+        this.ultimoDia = dia;
+        this.ultimoNivel = nivel;
+    }
+
+    public int getDiaInicial() { return diaInicial; }
+    public int getUltimoDia() { return ultimoDia; }
+    public int getUltimoNivel() { return ultimoNivel; }
+
+    /**
+     * Memória ocupada pelos deltas e marcos, em bytes
+     */
+    public int bytesUsados() {
+        return dados.length + marcosDia.length * 12;
+    }
+
+    // ========== ESCRITA ==========
+
+    /**
+     * Registra o estoque de fechamento do dia. Um dia anterior ao último registrado conta como o
+     * último (relógio atrasado); registrar de novo o mesmo dia substitui o nível do dia.
+     *
+     * @return false se o nível já era esse (nada muda na série)
+     */
+    public boolean registrar(int dia, int nivel) {
+        if (nivel == ultimoNivel) {
+            return false;
+        }
+        dia = Math.max(dia, ultimoDia);
+        if (dia == ultimoDia) {
+            corrigirUltimoDia(nivel);
+            return true;
+        }
+        if (dia > ultimoDia + 1) {
+            acrescentar((long) (dia - ultimoDia - 1) << 1 | 1);
+            ultimoDia = dia - 1;
+        }
+        posicaoUltimo = tamanho;
+        deltaUltimo = nivel - ultimoNivel;
+        acrescentar(zigueZague(deltaUltimo) << 1);
+        ultimoDia = dia;
+        ultimoNivel = nivel;
+        return true;
+    }
+
+    private void corrigirUltimoDia(int nivel) {
+        if (posicaoUltimo < 0) {
+            nivelInicial = nivel;
+        } else {
+            int anterior = ultimoNivel - deltaUltimo;
+            deltaUltimo = nivel - anterior;
+            tamanho = posicaoUltimo;
+            escreverVarint(zigueZague(deltaUltimo) << 1);
+        }
+        ultimoNivel = nivel;
+    }
+
+    private void acrescentar(long token) {
+        if (tokens % INTERVALO_MARCOS == 0) {
+            if (marcos == marcosDia.length) {
+                int capacidade = Math.max(4, marcos * 2);
+                marcosDia = Arrays.copyOf(marcosDia, capacidade);
+                marcosNivel = Arrays.copyOf(marcosNivel, capacidade);
+                marcosPosicao = Arrays.copyOf(marcosPosicao, capacidade);
+            }
+            // Estado antes do token: o dia anterior ao que ele começa e o nível desse dia
+            marcosDia[marcos] = ultimoDia;
+            marcosNivel[marcos] = ultimoNivel;
+            marcosPosicao[marcos] = tamanho;
+            marcos++;
+        }
+        escreverVarint(token);
+        tokens++;
+    }
+
+    private void escreverVarint(long valor) {
+        if (tamanho + 10 > dados.length) {
+            dados = Arrays.copyOf(dados, Math.max(dados.length * 2, tamanho + 10));
+        }
+        while ((valor & ~0x7FL) != 0) {
+            dados[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        dados[tamanho++] = (byte) valor;
+    }
+
+    private static long zigueZague(int valor) {
+        return ((valor << 1) ^ (valor >> 31)) & 0xFFFFFFFFL;
+    }
+
+    // ========== LEITURA ==========
+
+    /**
+     * Nível de fechamento do dia; -1 antes do início da série
+     */
+    public int nivel(int dia) {
+        int[] nivel = new int[1];
+        niveis(dia, nivel);
+        return nivel[0];
+    }
+
+    /**
+     * Preenche {@code destino[i]} com o nível do dia {@code deDia + i} (-1 antes do início da série),
+     * decodificando a partir do último marco anterior à janela
+     */
+    public void niveis(int deDia, int[] destino) {
+        int i = 0;
+        while (i < destino.length && deDia + i < diaInicial) {
+            destino[i++] = -1;
+        }
+        if (i == destino.length) {
+            return;
+        }
+
+        int dia = diaInicial;
+        int nivel = nivelInicial;
+        int posicao = 0;
+        int marco = marcoAte(deDia + i);
+        if (marco >= 0) {
+            dia = marcosDia[marco];
+            nivel = marcosNivel[marco];
+            posicao = marcosPosicao[marco];
+        }
+
+        // "nivel" é o fechamento de "dia"; o próximo token começa no dia seguinte
+        while (i < destino.length) {
+            if (deDia + i <= dia || posicao >= tamanho) {
+                destino[i++] = nivel;
+                continue;
+            }
+            long token = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                b = dados[posicao++];
+                token |= (long) (b & 0x7F) << deslocamento;
+                deslocamento += 7;
+            } while (b < 0);
+
+            if ((token & 1) != 0) {
+                dia += (int) (token >>> 1);
+            } else {
+                int z = (int) (token >>> 1);
+                nivel += (z >>> 1) ^ -(z & 1);
+                dia++;
+            }
+        }
+    }
+
+    /**
+     * Último marco cujo estado é de um dia até o informado; -1 se nenhum
+     */
+    private int marcoAte(int dia) {
+        int baixo = 0;
+        int alto = marcos - 1;
+        int achado = -1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (marcosDia[meio] <= dia) {
+                achado = meio;
+                baixo = meio + 1;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return achado;
+    }
+
+    // ========== PERSISTÊNCIA ==========
+
+    void gravar(DataOutput saida) throws IOException {
+        saida.writeInt(diaInicial);
+        saida.writeInt(nivelInicial);
+        saida.writeInt(tamanho);
+        saida.write(dados, 0, tamanho);
+    }
+
+    /**
+     * Lê uma série gravada por {@link #gravar}, refazendo os registros (e os marcos) token a token
+     */
+    static SerieEstoque ler(DataInput entrada) throws IOException {
+        int dia = entrada.readInt();
+        int nivel = entrada.readInt();
+        int tamanho = entrada.readInt();
+        if (tamanho < 0 || tamanho > TAMANHO_MAXIMO) {
+            throw new IOException("Tamanho de série inválido: " + tamanho);
+        }
+        byte[] dados = new byte[tamanho];
+        entrada.readFully(dados);
+
+        SerieEstoque serie = new SerieEstoque(dia, nivel);
+        int posicao = 0;
+        while (posicao < tamanho) {
+            long token = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                if (posicao >= tamanho || deslocamento > 63) {
+                    throw new IOException("Token truncado na série");
+                }
+                b = dados[posicao++];
+                token |= (long) (b & 0x7F) << deslocamento;
+                deslocamento += 7;
+            } while (b < 0);
+
+            if ((token & 1) != 0) {
+                dia += (int) (token >>> 1);
+            } else {
+                int z = (int) (token >>> 1);
+                nivel += (z >>> 1) ^ -(z & 1);
+                dia++;
+                serie.registrar(dia, nivel);
+            }
+        }
+        return serie;
+    }
+
+    /**
+     * Descarta a folga das duplicações (depois da carga, quando a série só cresce um token por dia)
+     */
+    void aparar() {
+        dados = Arrays.copyOf(dados, tamanho + 10);
+        marcosDia = Arrays.copyOf(marcosDia, marcos);
+        marcosNivel = Arrays.copyOf(marcosNivel, marcos);
+        marcosPosicao = Arrays.copyOf(marcosPosicao, marcos);
+    }
+}
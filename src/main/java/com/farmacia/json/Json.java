@@ -0,0 +1,287 @@
+package com.farmacia.json;
+
+import com.farmacia.model.Dinheiro;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitura e escrita de JSON sem dependências externas. Objetos viram {@code Map<String, Object>},
+ * arrays viram {@code List<Object>}, números viram {@code Long} ou {@code BigDecimal}.
+ */
+public final class Json {
+
+    private Json() {}
+
+    // ========== ESCRITA ==========
+
+    /**
+     * Serializa mapas, coleções, textos, números, booleanos e nulos (demais tipos, como datas, via toString)
+     */
+    public static String escrever(Object valor) {
+        StringBuilder sb = new StringBuilder();
+        escrever(valor, sb);
+        return sb.toString();
+    }
+
+    public static void escrever(Object valor, StringBuilder sb) {
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof String) {
+            escreverTexto((String) valor, sb);
+        } else if (valor instanceof BigDecimal) {
+            sb.append(((BigDecimal) valor).toPlainString());
+        } else if (valor instanceof Dinheiro) {
+            sb.append(valor);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else if (valor instanceof Map) {
+            sb.append('{');
+            boolean primeiro = true;
+            for (Map.Entry<?, ?> entrada : ((Map<?, ?>) valor).entrySet()) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escreverTexto(String.valueOf(entrada.getKey()), sb);
+                sb.append(':');
+                escrever(entrada.getValue(), sb);
+            }
+            sb.append('}');
+        } else if (valor instanceof Collection) {
+            sb.append('[');
+            boolean primeiro = true;
+            for (Object item : (Collection<?>) valor) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escrever(item, sb);
+            }
+            sb.append(']');
+        } else {
+            escreverTexto(valor.toString(), sb);
+        }
+    }
+
+    public static void escreverTexto(String texto, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    // ========== LEITURA ==========
+
+    /**
+     * Interpreta um documento JSON
+     *
+     * @throws IllegalArgumentException se o texto não for JSON válido
+     */
+    public static Object ler(String texto) {
+        Leitor leitor = new Leitor(texto);
+        leitor.pularEspacos();
+        Object valor = leitor.valor();
+        leitor.pularEspacos();
+        if (leitor.pos != texto.length()) {
+            throw leitor.erro("conteúdo após o fim do documento");
+        }
+        return valor;
+    }
+
+    /**
+     * Interpreta um documento cujo valor raiz deve ser um objeto
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> lerObjeto(String texto) {
+        Object valor = ler(texto);
+        if (!(valor instanceof Map)) {
+            throw new IllegalArgumentException("JSON inválido: esperado um objeto");
+        }
+        return (Map<String, Object>) valor;
+    }
+
+    private static class Leitor {
+        private final String texto;
+        private int pos;
+
+        Leitor(String texto) {
+            this.texto = texto;
+        }
+
+        Object valor() {
+            if (pos >= texto.length()) {
+                throw erro("fim inesperado");
+            }
+            char c = texto.charAt(pos);
+            switch (c) {
+                case '{': return objeto();
+                case '[': return lista();
+                case '"': return texto();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return numero();
+                    }
+                    throw erro("caractere inesperado '" + c + "'");
+            }
+        }
+
+        Map<String, Object> objeto() {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            pos++;
+            pularEspacos();
+            if (consumir('}')) {
+                return mapa;
+            }
+            do {
+                pularEspacos();
+                if (pos >= texto.length() || texto.charAt(pos) != '"') {
+                    throw erro("esperada chave entre aspas");
+                }
+                String chave = texto();
+                pularEspacos();
+                if (!consumir(':')) {
+                    throw erro("esperado ':'");
+                }
+                pularEspacos();
+                mapa.put(chave, valor());
+                pularEspacos();
+            } while (consumir(','));
+            if (!consumir('}')) {
+                throw erro("esperado '}'");
+            }
+            return mapa;
+        }
+
+        List<Object> lista() {
+            List<Object> lista = new ArrayList<>();
+            pos++;
+            pularEspacos();
+            if (consumir(']')) {
+                return lista;
+            }
+            do {
+                pularEspacos();
+                lista.add(valor());
+                pularEspacos();
+            } while (consumir(','));
+            if (!consumir(']')) {
+                throw erro("esperado ']'");
+            }
+            return lista;
+        }
+
+        String texto() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (pos < texto.length()) {
+                char c = texto.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(pos++);
+                switch (escape) {
+                    case '"': sb.append('"'); break;
+                    case '\\': sb.append('\\'); break;
+                    case '/': sb.append('/'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > texto.length()) {
+                            throw erro("escape unicode incompleto");
+                        }
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        throw erro("escape inválido '\\" + escape + "'");
+                }
+            }
+            throw erro("texto não terminado");
+        }
+
+        Object numero() {
+            int inicio = pos;
+            boolean decimal = false;
+            if (texto.charAt(pos) == '-') {
+                pos++;
+            }
+            while (pos < texto.length()) {
+                char c = texto.charAt(pos);
+                if (c >= '0' && c <= '9') {
+                    pos++;
+                } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                    decimal = true;
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            String numero = texto.substring(inicio, pos);
+            try {
+                return decimal ? new BigDecimal(numero) : (Object) Long.parseLong(numero);
+            } catch (NumberFormatException e) {
+                throw erro("número inválido '" + numero + "'");
+            }
+        }
+
+        Object literal(String literal, Object valor) {
+            if (!texto.startsWith(literal, pos)) {
+                throw erro("literal inválido");
+            }
+            pos += literal.length();
+            return valor;
+        }
+
+        boolean consumir(char c) {
+            if (pos < texto.length() && texto.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void pularEspacos() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException erro(String mensagem) {
+            return new IllegalArgumentException("JSON inválido na posição " + pos + ": " + mensagem);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.farmacia.json;
+
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Lote;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversão entre Medicamento e sua representação JSON (mapa com o fornecedor aninhado)
+ */
+public final class MedicamentoJson {
+
+    private MedicamentoJson() {}
+
+    public static Map<String, Object> paraMapa(Medicamento m) {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("codigo", m.getCodigo());
+        mapa.put("nome", m.getNome());
+        mapa.put("descricao", m.getDescricao());
+        mapa.put("principioAtivo", m.getPrincipioAtivo());
+        mapa.put("dataValidade", m.getDataValidade() == null ? null : m.getDataValidade().toString());
+        mapa.put("quantidadeEstoque", m.getQuantidadeEstoque());
+        mapa.put("preco", Dinheiro.deCentavos(m.getPrecoCentavos()));
+        mapa.put("controlado", m.isControlado());
+
+        Fornecedor f = m.getFornecedor();
+        if (f != null) {
+            Map<String, Object> fornecedor = new LinkedHashMap<>();
+            fornecedor.put("cnpj", f.getCnpj());
+            fornecedor.put("razaoSocial", f.getRazaoSocial());
+            fornecedor.put("telefone", f.getTelefone());
+            fornecedor.put("email", f.getEmail());
+            fornecedor.put("cidade", f.getCidade());
+            fornecedor.put("estado", f.getEstado());
+            mapa.put("fornecedor", fornecedor);
+        }
+
+        if (m.temLotes()) {
+            List<Object> lotes = new ArrayList<>();
+            for (Lote lote : m.getLotes()) {
+                lotes.add(paraMapa(lote));
+            }
+            mapa.put("lotes", lotes);
+        }
+
+        return mapa;
+    }
+
+    public static Map<String, Object> paraMapa(Lote lote) {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("numero", lote.getNumero());
+        mapa.put("dataValidade", lote.getDataValidade().toString());
+        mapa.put("quantidade", lote.getQuantidade());
+        return mapa;
+    }
+
+    /**
+     * Monta um Lote a partir do mapa JSON
+     *
+     * @throws IllegalArgumentException se faltar número ou validade
+     */
+    public static Lote loteDeMapa(Map<String, Object> mapa) {
+        String numero = texto(mapa, "numero");
+        LocalDate validade = data(mapa, "dataValidade");
+        if (numero == null || validade == null) {
+            throw new IllegalArgumentException("Lote exige 'numero' e 'dataValidade'");
+        }
+        return new Lote(numero.trim(), validade, inteiro(mapa, "quantidade"));
+    }
+
+    /**
+     * Monta um Medicamento a partir do mapa JSON
+     *
+     * @throws IllegalArgumentException se algum campo tiver tipo ou formato inválido
+     */
+    @SuppressWarnings("unchecked")
+    public static Medicamento deMapa(Map<String, Object> mapa) {
+        Fornecedor fornecedor = null;
+        Object f = mapa.get("fornecedor");
+        if (f instanceof Map) {
+            Map<String, Object> fm = (Map<String, Object>) f;
+            fornecedor = new Fornecedor(
+                    texto(fm, "cnpj"),
+                    texto(fm, "razaoSocial"),
+                    texto(fm, "telefone"),
+                    texto(fm, "email"),
+                    texto(fm, "cidade"),
+                    texto(fm, "estado")
+            );
+        }
+
+        String codigo = texto(mapa, "codigo");
+        Medicamento medicamento = new Medicamento(
+                codigo == null ? null : codigo.trim().toUpperCase(),
+                texto(mapa, "nome"),
+                texto(mapa, "descricao"),
+                texto(mapa, "principioAtivo"),
+                data(mapa, "dataValidade"),
+                inteiro(mapa, "quantidadeEstoque"),
+                centavos(mapa, "preco"),
+                Boolean.TRUE.equals(mapa.get("controlado")),
+                fornecedor
+        );
+
+        Object lotes = mapa.get("lotes");
+        if (lotes instanceof List) {
+            List<Lote> lista = new ArrayList<>();
+            for (Object lote : (List<Object>) lotes) {
+                if (!(lote instanceof Map)) {
+                    throw new IllegalArgumentException("Lote inválido em 'lotes'");
+                }
+                lista.add(loteDeMapa((Map<String, Object>) lote));
+            }
+            medicamento.setLotes(lista);
+        }
+        return medicamento;
+    }
+
+    private static String texto(Map<String, Object> mapa, String chave) {
+        Object valor = mapa.get(chave);
+        return valor == null ? null : valor.toString();
+    }
+
+    private static LocalDate data(Map<String, Object> mapa, String chave) {
+        String valor = texto(mapa, chave);
+        try {
+            return valor == null ? null : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data inválida em '" + chave + "': " + valor);
+        }
+    }
+
+    private static int inteiro(Map<String, Object> mapa, String chave) {
+        Object valor = mapa.get(chave);
+        if (valor == null) {
+            return 0;
+        }
+        if (valor instanceof Number) {
+            return ((Number) valor).intValue();
+        }
+        try {
+            return Integer.parseInt(valor.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inteiro inválido em '" + chave + "': " + valor);
+        }
+    }
+
+    private static long centavos(Map<String, Object> mapa, String chave) {
+        Object valor = mapa.get(chave);
+        if (valor == null) {
+            return 0;
+        }
+        try {
+            return Dinheiro.parse(valor.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido em '" + chave + "' (até 2 casas decimais): " + valor);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.farmacia.log;
+
+/**
+ * Destino dos eventos de log
+ */
+public interface Appender {
+    void anexar(EventoLog evento);
+}
@@ -0,0 +1,43 @@
+package com.farmacia.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Acrescenta eventos a um arquivo texto, um evento por linha
+ */
+public class AppenderArquivo implements Appender {
+    private final BufferedWriter writer;
+
+    public AppenderArquivo(String caminho) throws IOException {
+        File arquivo = new File(caminho);
+        if (arquivo.getParentFile() != null) {
+            arquivo.getParentFile().mkdirs();
+        }
+        this.writer = new BufferedWriter(new FileWriter(arquivo, StandardCharsets.UTF_8, true));
+    }
+
+    @Override
+    public synchronized void anexar(EventoLog evento) {
+        try {
+            writer.write(evento.formatar());
+            writer.newLine();
+            if (evento.getNivel().compareTo(Nivel.AVISO) >= 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // Não há para onde reportar falhas do próprio log
+        }
+    }
+
+    public synchronized void descarregar() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            // Ignorado: ver anexar()
+        }
+    }
+}
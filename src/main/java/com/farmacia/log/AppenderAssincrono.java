@@ -0,0 +1,116 @@
+package com.farmacia.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repassa eventos para outros appenders em uma thread dedicada. A fila é limitada e quem
+ * registra nunca bloqueia: com a fila cheia o evento é descartado e contabilizado.
+ * <p>
+ * Cada evento aceito é numerado; depois de escrever um lote e descarregar os arquivos, a thread
+ * publica até onde chegou ({@link #descarregados}) e acorda quem espera em {@link #aguardarEsvaziar}.
+ */
+public class AppenderAssincrono implements Appender {
+    private static final int LOTE = 256;
+
+    private final BlockingQueue<EventoLog> fila;
+    private final List<Appender> destinos;
+    private final LongAdder descartados = new LongAdder();
+    private final AtomicLong aceitos = new AtomicLong();
+    private final Thread consumidor;
+    // Eventos já escritos e descarregados, e quantos esperam por eles (guardados por this)
+    private long descarregados;
+    private volatile int aguardando;
+
+    public AppenderAssincrono(int capacidade, List<Appender> destinos) {
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.destinos = List.copyOf(destinos);
+        this.consumidor = new Thread(this::consumir, "log-assincrono");
+        this.consumidor.setDaemon(true);
+        this.consumidor.start();
+    }
+
+    @Override
+    public void anexar(EventoLog evento) {
+        if (fila.offer(evento)) {
+            aceitos.incrementAndGet();
+        } else {
+            descartados.increment();
+        }
+    }
+
+    public long getDescartados() { return descartados.sum(); }
+
+    /**
+     * Aguarda (até o tempo limite) que os eventos aceitos até agora estejam escritos e descarregados
+     * nos destinos, inclusive o lote que a thread consumidora já tirou da fila
+     */
+    public synchronized void aguardarEsvaziar(long milissegundos) {
+        long alvo = aceitos.get();
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(milissegundos);
+        aguardando++;
+        try {
+            while (descarregados < alvo) {
+                long restante = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+                if (restante <= 0) {
+                    return;
+                }
+                wait(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            aguardando--;
+        }
+    }
+
+    private void consumir() {
+        List<EventoLog> lote = new ArrayList<>(LOTE);
+        long processados = 0;
+
+        while (true) {
+            try {
+                EventoLog primeiro = fila.poll(1, TimeUnit.SECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, LOTE - 1);
+                // Contados antes de escrever: um lote perdido numa exceção não deixa ninguém esperando
+                processados += lote.size();
+
+                for (EventoLog evento : lote) {
+                    for (Appender destino : destinos) {
+                        destino.anexar(evento);
+                    }
+                }
+                lote.clear();
+
+                if (fila.isEmpty() || aguardando > 0) {
+                    for (Appender destino : destinos) {
+                        if (destino instanceof AppenderArquivo) {
+                            ((AppenderArquivo) destino).descarregar();
+                        }
+                    }
+                    publicar(processados);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                lote.clear();
+                publicar(processados);
+            }
+        }
+    }
+
+    private synchronized void publicar(long processados) {
+        descarregados = processados;
+        notifyAll();
+    }
+}
@@ -0,0 +1,25 @@
+package com.farmacia.log;
+
+import java.io.PrintStream;
+
+/**
+ * Escreve eventos no console (AVISO e ERRO vão para System.err; com {@code tudoEmErro}, todos)
+ */
+public class AppenderConsole implements Appender {
+    private final PrintStream saida;
+    private final PrintStream erro = System.err;
+
+    public AppenderConsole() {
+        this(false);
+    }
+
+    public AppenderConsole(boolean tudoEmErro) {
+        this.saida = tudoEmErro ? System.err : System.out;
+    }
+
+    @Override
+    public void anexar(EventoLog evento) {
+        PrintStream destino = evento.getNivel().compareTo(Nivel.AVISO) >= 0 ? erro : saida;
+        destino.println(evento.formatar());
+    }
+}
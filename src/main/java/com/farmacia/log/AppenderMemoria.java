@@ -0,0 +1,34 @@
+package com.farmacia.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantém em memória os últimos N eventos em um buffer circular (para diagnóstico)
+ */
+public class AppenderMemoria implements Appender {
+    private final EventoLog[] buffer;
+    private long escritos;
+
+    public AppenderMemoria(int capacidade) {
+        this.buffer = new EventoLog[capacidade];
+    }
+
+    @Override
+    public synchronized void anexar(EventoLog evento) {
+        buffer[(int) (escritos % buffer.length)] = evento;
+        escritos++;
+    }
+
+    /**
+     * Retorna os eventos retidos, do mais antigo para o mais recente
+     */
+    public synchronized List<EventoLog> recentes() {
+        int total = (int) Math.min(escritos, buffer.length);
+        List<EventoLog> eventos = new ArrayList<>(total);
+        for (long i = escritos - total; i < escritos; i++) {
+            eventos.add(buffer[(int) (i % buffer.length)]);
+        }
+        return eventos;
+    }
+}
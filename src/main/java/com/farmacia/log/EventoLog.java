@@ -0,0 +1,74 @@
+package com.farmacia.log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Evento de log estruturado: mensagem fixa mais pares chave/valor
+ */
+public class EventoLog {
+    private final long instante;
+    private final Nivel nivel;
+    private final String origem;
+    private final String mensagem;
+    private final Object[] campos;
+    private final Throwable causa;
+
+    public EventoLog(long instante, Nivel nivel, String origem, String mensagem, Object[] campos, Throwable causa) {
+        this.instante = instante;
+        this.nivel = nivel;
+        this.origem = origem;
+        this.mensagem = mensagem;
+        this.campos = campos;
+        this.causa = causa;
+    }
+
+    public long getInstante() { return instante; }
+    public Nivel getNivel() { return nivel; }
+    public String getOrigem() { return origem; }
+    public String getMensagem() { return mensagem; }
+    public Object[] getCampos() { return campos; }
+    public Throwable getCausa() { return causa; }
+
+    /**
+     * Formata o evento em uma linha no padrão chave=valor
+     */
+    public String formatar() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneId.systemDefault()))
+                .append(' ').append(nivel)
+                .append(' ').append(origem)
+                .append(" msg=\"").append(mensagem).append('"');
+
+        if (campos != null) {
+            for (int i = 0; i + 1 < campos.length; i += 2) {
+                sb.append(' ').append(campos[i]).append('=');
+                Object valor = campos[i + 1];
+                if (valor instanceof String && ((String) valor).indexOf(' ') >= 0) {
+                    sb.append('"').append(valor).append('"');
+                } else {
+                    sb.append(valor);
+                }
+            }
+        }
+
+        if (causa != null) {
+            sb.append(" causa=\"").append(causa).append('"');
+            if (nivel == Nivel.ERRO) {
+                StringWriter pilha = new StringWriter();
+                causa.printStackTrace(new PrintWriter(pilha));
+                sb.append(System.lineSeparator()).append(pilha.toString().stripTrailing());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return formatar();
+    }
+}
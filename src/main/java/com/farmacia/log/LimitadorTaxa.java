@@ -0,0 +1,65 @@
+package com.farmacia.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limita eventos repetidos por chave: no máximo N por janela de tempo.
+ * Os eventos excedentes são suprimidos e contados para um resumo posterior.
+ */
+public class LimitadorTaxa {
+    private final int maximoPorJanela;
+    private final long janelaMillis;
+    private final Map<String, Janela> janelas = new ConcurrentHashMap<>();
+
+    public LimitadorTaxa(int maximoPorJanela, long janelaMillis) {
+        this.maximoPorJanela = maximoPorJanela;
+        this.janelaMillis = janelaMillis;
+    }
+
+    /**
+     * Resultado de uma tentativa: -1 se o evento deve ser suprimido; caso contrário,
+     * a quantidade de eventos suprimidos na janela anterior (normalmente 0)
+     */
+    public long tentar(String chave, long agora) {
+        Janela janela = janelas.computeIfAbsent(chave, c -> new Janela());
+        synchronized (janela) {
+            long suprimidosAnteriores = 0;
+            if (agora - janela.inicio >= janelaMillis) {
+                suprimidosAnteriores = janela.suprimidos;
+                janela.inicio = agora;
+                janela.contagem = 0;
+                janela.suprimidos = 0;
+            }
+
+            if (janela.contagem >= maximoPorJanela) {
+                janela.suprimidos++;
+                return -1;
+            }
+
+            janela.contagem++;
+            return suprimidosAnteriores;
+        }
+    }
+
+    /**
+     * Retorna e zera o total de eventos suprimidos na janela corrente da chave
+     */
+    public long coletarSuprimidos(String chave) {
+        Janela janela = janelas.get(chave);
+        if (janela == null) {
+            return 0;
+        }
+        synchronized (janela) {
+            long suprimidos = janela.suprimidos;
+            janela.suprimidos = 0;
+            return suprimidos;
+        }
+    }
+
+    private static class Janela {
+        long inicio;
+        int contagem;
+        long suprimidos;
+    }
+}
@@ -0,0 +1,132 @@
+package com.farmacia.log;
+
+import com.farmacia.config.Configuracao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log estruturado e assíncrono. Cada classe obtém sua instância com {@link #para(Class)}
+ * e registra mensagens fixas acompanhadas de pares chave/valor:
+ * <pre>LOG.info("Dados carregados", "total", medicamentos.size());</pre>
+ */
+public final class Log {
+    private static final Nivel NIVEL_MINIMO = Configuracao.nivelLog();
+    private static final LimitadorTaxa LIMITADOR = new LimitadorTaxa(Configuracao.limiteLogRepetido(), 1000);
+    private static final AppenderMemoria MEMORIA = new AppenderMemoria(1000);
+    private static final AppenderAssincrono ASSINCRONO = criarAppenderAssincrono();
+
+    private final String origem;
+
+    private Log(String origem) {
+        this.origem = origem;
+    }
+
+    public static Log para(Class<?> classe) {
+        return new Log(classe.getSimpleName());
+    }
+
+    private static AppenderAssincrono criarAppenderAssincrono() {
+        List<Appender> destinos = new ArrayList<>();
+        destinos.add(new AppenderConsole(Configuracao.logConsoleEmErro()));
+
+        String arquivo = Configuracao.arquivoLog();
+        if (!arquivo.isEmpty()) {
+            try {
+                destinos.add(new AppenderArquivo(arquivo));
+            } catch (IOException e) {
+                System.err.println("Não foi possível abrir o arquivo de log " + arquivo + ": " + e.getMessage());
+            }
+        }
+
+        return new AppenderAssincrono(Configuracao.capacidadeFilaLog(), destinos);
+    }
+
+    // ========== REGISTRO ==========
+
+    public boolean habilitado(Nivel nivel) {
+        return nivel.compareTo(NIVEL_MINIMO) >= 0;
+    }
+
+    public void debug(String mensagem, Object... campos) {
+        registrar(Nivel.DEBUG, mensagem, null, campos);
+    }
+
+    public void info(String mensagem, Object... campos) {
+        registrar(Nivel.INFO, mensagem, null, campos);
+    }
+
+    public void aviso(String mensagem, Object... campos) {
+        registrar(Nivel.AVISO, mensagem, null, campos);
+    }
+
+    public void erro(String mensagem, Throwable causa, Object... campos) {
+        registrar(Nivel.ERRO, mensagem, causa, campos);
+    }
+
+    /**
+     * Registra um aviso sujeito a limitação de taxa por mensagem: eventos repetidos além do
+     * limite por segundo são suprimidos, e a contagem suprimida é informada depois
+     */
+    public void avisoLimitado(String mensagem, Object... campos) {
+        if (!habilitado(Nivel.AVISO)) {
+            return;
+        }
+
+        String chave = origem + '|' + mensagem;
+        long suprimidos = LIMITADOR.tentar(chave, System.currentTimeMillis());
+        if (suprimidos < 0) {
+            return;
+        }
+        if (suprimidos > 0) {
+            registrar(Nivel.AVISO, "Mensagens repetidas suprimidas", null,
+                    new Object[]{"mensagem", mensagem, "suprimidas", suprimidos});
+        }
+        registrar(Nivel.AVISO, mensagem, null, campos);
+    }
+
+    /**
+     * Emite imediatamente o total suprimido de uma mensagem limitada (ex.: ao fim de uma carga)
+     */
+    public void resumirSuprimidos(String mensagem) {
+        long suprimidos = LIMITADOR.coletarSuprimidos(origem + '|' + mensagem);
+        if (suprimidos > 0) {
+            registrar(Nivel.AVISO, "Mensagens repetidas suprimidas", null,
+                    new Object[]{"mensagem", mensagem, "suprimidas", suprimidos});
+        }
+    }
+
+    private void registrar(Nivel nivel, String mensagem, Throwable causa, Object[] campos) {
+        if (!habilitado(nivel)) {
+            return;
+        }
+
+        EventoLog evento = new EventoLog(System.currentTimeMillis(), nivel, origem, mensagem, campos, causa);
+        MEMORIA.anexar(evento);
+        ASSINCRONO.anexar(evento);
+    }
+
+    // ========== DIAGNÓSTICO ==========
+
+    /**
+     * Últimos eventos registrados (buffer circular em memória)
+     */
+    public static List<EventoLog> recentes() {
+        return MEMORIA.recentes();
+    }
+
+    /**
+     * Total de eventos descartados por fila cheia
+     */
+    public static long descartados() {
+        return ASSINCRONO.getDescartados();
+    }
+
+    /**
+     * Aguarda a gravação dos eventos pendentes (usado no encerramento da aplicação)
+     */
+    public static void descarregar(long milissegundos) {
+        ASSINCRONO.aguardarEsvaziar(milissegundos);
+    }
+}
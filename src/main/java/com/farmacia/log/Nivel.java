@@ -0,0 +1,11 @@
+package com.farmacia.log;
+
+/**
+ * Níveis de severidade dos eventos de log
+ */
+public enum Nivel {
+    DEBUG,
+    INFO,
+    AVISO,
+    ERRO
+}
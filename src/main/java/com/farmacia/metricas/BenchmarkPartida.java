@@ -0,0 +1,110 @@
+package com.farmacia.metricas;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark de partida: executa a aplicação várias vezes em processos novos, para cada comando
+ * informado, e mostra a mediana e o p90 do tempo até a janela ficar interativa e até o catálogo
+ * ficar pronto (marcos de {@link MarcosPartida}, medidos desde o início de cada processo).
+ * Para uma versão sem marcos, execute-a por {@link SondaPartida}: só o tempo até a janela é medido
+ * (o catálogo já está pronto quando ela aparece) e as colunas do catálogo ficam com "-".
+ *
+ * Uso: BenchmarkPartida &lt;execucoes&gt; -- &lt;comando java...&gt; [-- &lt;outro comando java...&gt;]
+ * Ex.: BenchmarkPartida 10 -- java -jar app.jar -- java -XX:SharedArchiveFile=app.jsa -jar app.jar
+ * As propriedades farmacia.partida.imprimir e farmacia.partida.sair são acrescentadas a cada comando.
+ */
+public class BenchmarkPartida {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !args[1].equals("--")) {
+            System.err.println("Uso: BenchmarkPartida <execucoes> -- <comando java...> [-- <comando java...>]");
+            System.exit(2);
+        }
+
+        int execucoes = Integer.parseInt(args[0]);
+        List<List<String>> comandos = new ArrayList<>();
+        List<String> atual = null;
+        for (String arg : Arrays.asList(args).subList(1, args.length)) {
+            if (arg.equals("--")) {
+                atual = new ArrayList<>();
+                comandos.add(atual);
+            } else {
+                atual.add(arg);
+            }
+        }
+
+        System.out.printf("%-60s %12s %12s %12s %12s%n", "comando", "janela p50", "janela p90", "pronto p50", "pronto p90");
+        for (List<String> comando : comandos) {
+            medir(comando, execucoes);
+        }
+    }
+
+    private static void medir(List<String> comando, int execucoes) throws IOException, InterruptedException {
+        List<String> completo = new ArrayList<>(comando);
+        completo.add(1, "-Dfarmacia.partida.imprimir=true");
+        completo.add(2, "-Dfarmacia.partida.sair=true");
+
+        // A primeira execução só aquece o cache de disco do sistema operacional
+        executar(completo);
+
+        List<Long> janela = new ArrayList<>();
+        List<Long> pronto = new ArrayList<>();
+        for (int i = 0; i < execucoes; i++) {
+            Map<String, Long> marcos = executar(completo);
+            if (!marcos.containsKey(MarcosPartida.JANELA_EXIBIDA)) {
+                System.err.println("Execução sem marcos de partida: " + String.join(" ", comando));
+                return;
+            }
+            janela.add(marcos.get(MarcosPartida.JANELA_EXIBIDA));
+            if (marcos.containsKey(MarcosPartida.CATALOGO_PRONTO)) {
+                pronto.add(marcos.get(MarcosPartida.CATALOGO_PRONTO));
+            }
+        }
+
+        String rotulo = String.join(" ", comando);
+        if (rotulo.length() > 60) {
+            rotulo = "..." + rotulo.substring(rotulo.length() - 57);
+        }
+        System.out.printf("%-60s %12s %12s %12s %12s%n", rotulo, percentil(janela, 50), percentil(janela, 90),
+                percentil(pronto, 50), percentil(pronto, 90));
+    }
+
+    private static Map<String, Long> executar(List<String> comando) throws IOException, InterruptedException {
+        Process processo = new ProcessBuilder(comando)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        Map<String, Long> marcos = new HashMap<>();
+        try (BufferedReader leitor = new BufferedReader(
+                new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                String[] partes = linha.split(" ");
+                if (partes.length == 3 && partes[0].equals("PARTIDA")) {
+                    marcos.put(partes[1], Long.parseLong(partes[2]));
+                }
+            }
+        }
+        processo.waitFor();
+        return marcos;
+    }
+
+    private static String percentil(List<Long> valores, int percentil) {
+        if (valores.isEmpty()) {
+            return "-";
+        }
+        List<Long> ordenados = new ArrayList<>(valores);
+        Collections.sort(ordenados);
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.size()) - 1;
+        return ordenados.get(Math.max(0, indice)) + "ms";
+    }
+}
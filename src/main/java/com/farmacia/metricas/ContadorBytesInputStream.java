@@ -0,0 +1,43 @@
+package com.farmacia.metricas;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream que contabiliza os bytes lidos
+ */
+public class ContadorBytesInputStream extends FilterInputStream {
+    private long bytes;
+
+    public ContadorBytesInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            bytes++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int inicio, int tamanho) throws IOException {
+        int lidos = super.read(buffer, inicio, tamanho);
+        if (lidos > 0) {
+            bytes += lidos;
+        }
+        return lidos;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long pulados = super.skip(n);
+        bytes += pulados;
+        return pulados;
+    }
+
+    public long getBytes() { return bytes; }
+}
@@ -0,0 +1,30 @@
+package com.farmacia.metricas;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream que contabiliza os bytes escritos
+ */
+public class ContadorBytesOutputStream extends FilterOutputStream {
+    private long bytes;
+
+    public ContadorBytesOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int inicio, int tamanho) throws IOException {
+        out.write(buffer, inicio, tamanho);
+        bytes += tamanho;
+    }
+
+    public long getBytes() { return bytes; }
+}
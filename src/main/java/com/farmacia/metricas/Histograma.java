@@ -0,0 +1,98 @@
+package com.farmacia.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências no estilo HDR: faixas log-lineares com 32 subfaixas por potência de 2
+ * (erro relativo máximo de ~3%). O registro não aloca memória e é seguro entre threads.
+ */
+public class Histograma {
+    private static final int BITS_SUBFAIXA = 5;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int TOTAL_FAIXAS = SUBFAIXAS + (63 - BITS_SUBFAIXA) * SUBFAIXAS;
+
+    private final AtomicLongArray faixas = new AtomicLongArray(TOTAL_FAIXAS);
+    private final AtomicLong contagem = new AtomicLong();
+    private final AtomicLong soma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra um valor (valores negativos são tratados como zero)
+     */
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        faixas.incrementAndGet(indice(valor));
+        contagem.incrementAndGet();
+        soma.addAndGet(valor);
+
+        long atual = maximo.get();
+        while (valor > atual && !maximo.compareAndSet(atual, valor)) {
+            atual = maximo.get();
+        }
+    }
+
+    public long getContagem() { return contagem.get(); }
+
+    public long getMaximo() { return maximo.get(); }
+
+    public double getMedia() {
+        long n = contagem.get();
+        return n == 0 ? 0 : (double) soma.get() / n;
+    }
+
+    /**
+     * Valor aproximado do percentil informado (0 a 100)
+     */
+    public long percentil(double percentil) {
+        long total = contagem.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long alvo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            acumulado += faixas.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(valorRepresentativo(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Zera todas as faixas e contadores
+     */
+    public void zerar() {
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            faixas.set(i, 0);
+        }
+        contagem.set(0);
+        soma.set(0);
+        maximo.set(0);
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBFAIXAS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) ((valor >>> (expoente - BITS_SUBFAIXA)) & (SUBFAIXAS - 1));
+        return SUBFAIXAS + (expoente - BITS_SUBFAIXA) * SUBFAIXAS + sub;
+    }
+
+    static long valorRepresentativo(int indice) {
+        if (indice < SUBFAIXAS) {
+            return indice;
+        }
+        int k = indice - SUBFAIXAS;
+        int expoente = k / SUBFAIXAS + BITS_SUBFAIXA;
+        long sub = k % SUBFAIXAS;
+        long inicio = (1L << expoente) | (sub << (expoente - BITS_SUBFAIXA));
+        long largura = 1L << (expoente - BITS_SUBFAIXA);
+        return inicio + largura / 2;
+    }
+}
@@ -0,0 +1,33 @@
+package com.farmacia.metricas;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.log.Log;
+
+import java.time.Instant;
+
+/**
+ * Marcos da partida da aplicação, em milissegundos desde o início do processo
+ * (janela exibida, catálogo pronto). Com farmacia.partida.imprimir=true também saem em
+ * System.out no formato "PARTIDA etapa ms", lido por {@link BenchmarkPartida}.
+ */
+public final class MarcosPartida {
+    private static final Log LOG = Log.para(MarcosPartida.class);
+    private static final long INICIO_PROCESSO = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    public static final String JANELA_EXIBIDA = "janela-exibida";
+    public static final String CATALOGO_PRONTO = "catalogo-pronto";
+
+    private MarcosPartida() {}
+
+    public static long marcar(String etapa) {
+        long decorrido = System.currentTimeMillis() - INICIO_PROCESSO;
+        LOG.info("Marco de partida", "etapa", etapa, "ms", decorrido);
+        if (Configuracao.imprimirMarcosPartida()) {
+            System.out.println("PARTIDA " + etapa + " " + decorrido);
+            System.out.flush();
+        }
+        return decorrido;
+    }
+}
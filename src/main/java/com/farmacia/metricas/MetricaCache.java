@@ -0,0 +1,63 @@
+package com.farmacia.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acertos, falhas, invalidações e expirações de um cache. Criada por {@link Metricas#cache(String)}.
+ */
+public class MetricaCache implements MetricaCacheMBean {
+    private final String nome;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+    private final LongAdder expiracoes = new LongAdder();
+
+    MetricaCache(String nome) {
+        this.nome = nome;
+    }
+
+    public void acerto() { acertos.increment(); }
+
+    public void falha() { falhas.increment(); }
+
+    public void invalidacao() { invalidacoes.increment(); }
+
+    public void expiracao() { expiracoes.increment(); }
+
+    @Override
+    public String getNome() { return nome; }
+
+    @Override
+    public long getAcertos() { return acertos.sum(); }
+
+    @Override
+    public long getFalhas() { return falhas.sum(); }
+
+    @Override
+    public double getTaxaAcerto() {
+        long a = acertos.sum();
+        long total = a + falhas.sum();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+
+    @Override
+    public long getInvalidacoes() { return invalidacoes.sum(); }
+
+    @Override
+    public long getExpiracoes() { return expiracoes.sum(); }
+
+    @Override
+    public void zerar() {
+        acertos.reset();
+        falhas.reset();
+        invalidacoes.reset();
+        expiracoes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return nome + ": acertos=" + getAcertos() + " falhas=" + getFalhas()
+                + " taxaAcerto=" + Math.round(getTaxaAcerto() * 100) + "% invalidacoes=" + getInvalidacoes()
+                + " expiracoes=" + getExpiracoes();
+    }
+}
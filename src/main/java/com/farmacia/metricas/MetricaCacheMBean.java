@@ -0,0 +1,20 @@
+package com.farmacia.metricas;
+
+/**
+ * Interface JMX das estatísticas de um cache
+ */
+public interface MetricaCacheMBean {
+    String getNome();
+
+    long getAcertos();
+
+    long getFalhas();
+
+    double getTaxaAcerto();
+
+    long getInvalidacoes();
+
+    long getExpiracoes();
+
+    void zerar();
+}
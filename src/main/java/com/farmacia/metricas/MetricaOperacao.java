@@ -0,0 +1,83 @@
+package com.farmacia.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latência de uma operação (serviço ou E/S do DAO).
+ * As instâncias são criadas uma única vez por {@link Metricas} e guardadas em campos estáticos,
+ * de modo que registrar uma chamada não aloca memória.
+ */
+public class MetricaOperacao implements MetricaOperacaoMBean {
+    private final String nome;
+    private final LongAdder contagem = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+    private final LongAdder bytesLidos = new LongAdder();
+    private final LongAdder bytesEscritos = new LongAdder();
+    private final LongAdder linhasProcessadas = new LongAdder();
+    private final Histograma latencia = new Histograma();
+
+    MetricaOperacao(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Registra uma chamada com sua duração em nanossegundos
+     */
+    public void registrar(long nanos, boolean erro) {
+        contagem.increment();
+        if (erro) {
+            erros.increment();
+        }
+        latencia.registrar(nanos);
+    }
+
+    public void adicionarBytesLidos(long bytes) { bytesLidos.add(bytes); }
+
+    public void adicionarBytesEscritos(long bytes) { bytesEscritos.add(bytes); }
+
+    public void adicionarLinhas(long linhas) { linhasProcessadas.add(linhas); }
+
+    public Histograma getLatencia() { return latencia; }
+
+    // ========== ATRIBUTOS JMX ==========
+
+    @Override
+    public String getNome() { return nome; }
+
+    @Override
+    public long getContagem() { return contagem.sum(); }
+
+    @Override
+    public long getErros() { return erros.sum(); }
+
+    @Override
+    public double getLatenciaMediaMicros() { return latencia.getMedia() / 1000.0; }
+
+    @Override
+    public double getLatenciaP50Micros() { return latencia.percentil(50) / 1000.0; }
+
+    @Override
+    public double getLatenciaP99Micros() { return latencia.percentil(99) / 1000.0; }
+
+    @Override
+    public double getLatenciaMaximaMicros() { return latencia.getMaximo() / 1000.0; }
+
+    @Override
+    public long getBytesLidos() { return bytesLidos.sum(); }
+
+    @Override
+    public long getBytesEscritos() { return bytesEscritos.sum(); }
+
+    @Override
+    public long getLinhasProcessadas() { return linhasProcessadas.sum(); }
+
+    @Override
+    public void zerar() {
+        contagem.reset();
+        erros.reset();
+        bytesLidos.reset();
+        bytesEscritos.reset();
+        linhasProcessadas.reset();
+        latencia.zerar();
+    }
+}
@@ -0,0 +1,28 @@
+package com.farmacia.metricas;
+
+/**
+ * Interface JMX de uma métrica de operação
+ */
+public interface MetricaOperacaoMBean {
+    String getNome();
+
+    long getContagem();
+
+    long getErros();
+
+    double getLatenciaMediaMicros();
+
+    double getLatenciaP50Micros();
+
+    double getLatenciaP99Micros();
+
+    double getLatenciaMaximaMicros();
+
+    long getBytesLidos();
+
+    long getBytesEscritos();
+
+    long getLinhasProcessadas();
+
+    void zerar();
+}
@@ -0,0 +1,141 @@
+package com.farmacia.metricas;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.log.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro central das métricas de operação e de cache. Cada métrica é publicada como MBean JMX
+ * (com.farmacia:type=Operacao,name=... ou type=Cache,name=...) e pode ser despejada periodicamente em arquivo.
+ */
+public final class Metricas {
+    private static final Log LOG = Log.para(Metricas.class);
+    private static final Map<String, MetricaOperacao> REGISTRO = new ConcurrentSkipListMap<>();
+    private static final Map<String, MetricaCache> CACHES = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService agendador;
+
+    private Metricas() {}
+
+    /**
+     * Obtém (ou cria e publica via JMX) a métrica com o nome informado
+     */
+    public static MetricaOperacao operacao(String nome) {
+        return REGISTRO.computeIfAbsent(nome, n -> {
+            MetricaOperacao metrica = new MetricaOperacao(n);
+            registrarMBean(metrica, "Operacao", n);
+            return metrica;
+        });
+    }
+
+    /**
+     * Obtém (ou cria e publica via JMX) as estatísticas do cache com o nome informado
+     */
+    public static MetricaCache cache(String nome) {
+        return CACHES.computeIfAbsent(nome, n -> {
+            MetricaCache metrica = new MetricaCache(n);
+            registrarMBean(metrica, "Cache", n);
+            return metrica;
+        });
+    }
+
+    private static void registrarMBean(Object metrica, String tipo, String nomeMetrica) {
+        if (!Configuracao.metricasJmx()) {
+            return;
+        }
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName("com.farmacia:type=" + tipo + ",name=" + ObjectName.quote(nomeMetrica));
+            if (!servidor.isRegistered(nome)) {
+                servidor.registerMBean(metrica, nome);
+            }
+        } catch (JMException e) {
+            LOG.aviso("Erro ao registrar MBean da métrica", "metrica", nomeMetrica, "erro", e.getMessage());
+        }
+    }
+
+    /**
+     * Gera um resumo textual de todas as métricas registradas
+     */
+    public static String resumo() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Métricas em ").append(LocalDateTime.now()).append('\n');
+        sb.append("operacao;contagem;erros;mediaUs;p50Us;p99Us;maxUs;bytesLidos;bytesEscritos;linhas\n");
+
+        for (MetricaOperacao m : REGISTRO.values()) {
+            sb.append(m.getNome()).append(';')
+                    .append(m.getContagem()).append(';')
+                    .append(m.getErros()).append(';')
+                    .append(Math.round(m.getLatenciaMediaMicros())).append(';')
+                    .append(Math.round(m.getLatenciaP50Micros())).append(';')
+                    .append(Math.round(m.getLatenciaP99Micros())).append(';')
+                    .append(Math.round(m.getLatenciaMaximaMicros())).append(';')
+                    .append(m.getBytesLidos()).append(';')
+                    .append(m.getBytesEscritos()).append(';')
+                    .append(m.getLinhasProcessadas()).append('\n');
+        }
+
+        if (!CACHES.isEmpty()) {
+            sb.append("cache;acertos;falhas;taxaAcerto;invalidacoes;expiracoes\n");
+            for (MetricaCache c : CACHES.values()) {
+                sb.append(c.getNome()).append(';')
+                        .append(c.getAcertos()).append(';')
+                        .append(c.getFalhas()).append(';')
+                        .append(Math.round(c.getTaxaAcerto() * 100)).append("%;")
+                        .append(c.getInvalidacoes()).append(';')
+                        .append(c.getExpiracoes()).append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Inicia o despejo periódico das métricas conforme a configuração (idempotente)
+     */
+    public static synchronized void iniciarDespejoPeriodico() {
+        long intervalo = Configuracao.intervaloDespejoMetricas();
+        if (agendador != null || intervalo <= 0) {
+            return;
+        }
+
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "despejo-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleAtFixedRate(Metricas::despejar, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Grava o resumo atual no arquivo de métricas configurado
+     */
+    public static void despejar() {
+        File arquivo = new File(Configuracao.arquivoMetricas());
+        if (arquivo.getParentFile() != null) {
+            arquivo.getParentFile().mkdirs();
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(
+                new FileWriter(arquivo, StandardCharsets.UTF_8, true))) {
+            writer.write(resumo());
+            writer.newLine();
+        } catch (IOException e) {
+            LOG.aviso("Erro ao gravar métricas", "arquivo", arquivo.getPath(), "erro", e.getMessage());
+        }
+    }
+}
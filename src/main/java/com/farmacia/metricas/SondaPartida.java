@@ -0,0 +1,60 @@
+package com.farmacia.metricas;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.stage.Window;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Sonda de partida para versões sem {@link MarcosPartida}: executa a classe principal informada e
+ * imprime "PARTIDA janela-exibida ms" quando a primeira janela aparece (nessas versões o catálogo é
+ * carregado antes de a janela ser exibida). Roda com as classes da versão medida à frente no
+ * classpath, por isso só usa o JDK e o JavaFX.
+ *
+ * Uso: SondaPartida &lt;classe principal&gt; [argumentos...]
+ * Ex.: BenchmarkPartida 10 -- java -cp base/classes:target/classes:&lt;javafx&gt; com.farmacia.metricas.SondaPartida com.farmacia.service.App
+ */
+public final class SondaPartida {
+    private static final long INICIO_PROCESSO = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private SondaPartida() {}
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length < 1) {
+            System.err.println("Uso: SondaPartida <classe principal> [argumentos...]");
+            System.exit(2);
+        }
+        boolean sair = Boolean.parseBoolean(System.getProperty("farmacia.partida.sair", "false"));
+
+        Window.getWindows().addListener(new ListChangeListener<Window>() {
+            @Override
+            public void onChanged(Change<? extends Window> mudanca) {
+                Window.getWindows().removeListener(this);
+                System.out.println("PARTIDA " + MarcosPartida.JANELA_EXIBIDA + " "
+                        + (System.currentTimeMillis() - INICIO_PROCESSO));
+                System.out.flush();
+                if (sair) {
+                    Platform.runLater(Platform::exit);
+                }
+            }
+        });
+
+        Class<?> principal = Class.forName(args[0]);
+        String[] resto = Arrays.copyOfRange(args, 1, args.length);
+        if (Application.class.isAssignableFrom(principal)) {
+            Application.launch(principal.asSubclass(Application.class), resto);
+            return;
+        }
+        try {
+            principal.getMethod("main", String[].class).invoke(null, (Object) resto);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.farmacia.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Valor em reais guardado como centavos num {@code long}.
+ * <p>
+ * Preços e valores circulam como {@code long} (modelo, DAOs, consultas e relatórios) e a aritmética
+ * é feita com os métodos estáticos, sem alocar nada por linha e com estouro verificado
+ * ({@link ArithmeticException}). Instâncias só embrulham os totais já calculados de um relatório,
+ * para que sejam exibidos com duas casas. {@link BigDecimal} só aparece na fronteira: campos da
+ * tela e a coluna DECIMAL do repositório embarcado.
+ */
+public final class Dinheiro implements Comparable<Dinheiro> {
+    public static final Dinheiro ZERO = new Dinheiro(0);
+
+    private static final int CASAS = 2;
+    private static final long CENTAVOS_POR_REAL = 100;
+
+    private final long centavos;
+
+    private Dinheiro(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinheiro deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos);
+    }
+
+    public long getCentavos() { return centavos; }
+
+    // ========== ARITMÉTICA ==========
+
+    public static long somar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Preço unitário × quantidade
+     */
+    public static long multiplicar(long centavos, long quantidade) {
+        return Math.multiplyExact(centavos, quantidade);
+    }
+
+    /**
+     * Média arredondada ao centavo (HALF_UP: metade se afasta do zero)
+     */
+    public static long media(long soma, long quantidade) {
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade deve ser positiva: " + quantidade);
+        }
+        long quociente = soma / quantidade;
+        long resto = Math.abs(soma % quantidade);
+        if (resto >= quantidade - resto) {
+            quociente += Long.signum(soma);
+        }
+        return quociente;
+    }
+
+    /**
+     * Coletor que soma valores em centavos (um long[] por fatia, sem objeto por elemento)
+     */
+    public static <T> Collector<T, long[], Dinheiro> somando(ToLongFunction<? super T> valor) {
+        return Collector.of(
+                () -> new long[1],
+                (soma, elemento) -> soma[0] = somar(soma[0], valor.applyAsLong(elemento)),
+                (a, b) -> {
+                    a[0] = somar(a[0], b[0]);
+                    return a;
+                },
+                soma -> deCentavos(soma[0]));
+    }
+
+    // ========== CONVERSÃO ==========
+
+    /**
+     * Lê um valor decimal com ponto ("12.5", "12.50", "-3", "1.2E+1")
+     *
+     * @throws NumberFormatException se o texto não é um número, tem frações de centavo ou estoura
+     */
+    public static long parse(String texto) {
+        String valor = texto.trim();
+        if (valor.indexOf('e') >= 0 || valor.indexOf('E') >= 0) {
+            try {
+                return de(new BigDecimal(valor));
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Valor monetário inválido: " + texto);
+            }
+        }
+
+        int i = 0;
+        boolean negativo = false;
+        if (i < valor.length() && (valor.charAt(i) == '-' || valor.charAt(i) == '+')) {
+            negativo = valor.charAt(i) == '-';
+            i++;
+        }
+        long centavos = 0;
+        int digitos = 0;
+        int casas = -1;
+        try {
+            for (; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                if (c == '.' && casas < 0) {
+                    casas = 0;
+                } else if (c >= '0' && c <= '9') {
+                    if (casas >= CASAS) {
+                        if (c != '0') {
+                            throw new NumberFormatException("Valor com frações de centavo: " + texto);
+                        }
+                        continue;
+                    }
+                    centavos = Math.addExact(Math.multiplyExact(centavos, 10), c - '0');
+                    digitos++;
+                    if (casas >= 0) {
+                        casas++;
+                    }
+                } else {
+                    throw new NumberFormatException("Valor monetário inválido: " + texto);
+                }
+            }
+            if (digitos == 0) {
+                throw new NumberFormatException("Valor monetário inválido: " + texto);
+            }
+            for (int c = Math.max(casas, 0); c < CASAS; c++) {
+                centavos = Math.multiplyExact(centavos, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Valor monetário fora do limite: " + texto);
+        }
+        return negativo ? -centavos : centavos;
+    }
+
+    /**
+     * Lê um valor decimal como {@link #parse}, mas arredonda frações de centavo ao centavo (HALF_UP),
+     * como faziam os arquivos gravados antes dos centavos: para dados já armazenados, não para
+     * valores digitados
+     *
+     * @throws NumberFormatException se o texto não é um número ou estoura
+     */
+    public static long parseArredondando(String texto) {
+        try {
+            return de(new BigDecimal(texto.trim()).setScale(CASAS, RoundingMode.HALF_UP));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Valor monetário fora do limite: " + texto);
+        }
+    }
+
+    /**
+     * Centavos de um BigDecimal (entrada da tela ou do banco)
+     *
+     * @throws ArithmeticException se há frações de centavo ou o valor não cabe num long
+     */
+    public static long de(BigDecimal valor) {
+        return valor.movePointRight(CASAS).longValueExact();
+    }
+
+    public static BigDecimal paraBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, CASAS);
+    }
+
+    /**
+     * Duas casas com ponto decimal ("12.50", "-0.05"), como o toPlainString de um BigDecimal de escala 2
+     */
+    public static String formatar(long centavos) {
+        long reais = centavos / CENTAVOS_POR_REAL;
+        int resto = (int) Math.abs(centavos % CENTAVOS_POR_REAL);
+        String sinal = centavos < 0 && reais == 0 ? "-" : "";
+        return sinal + reais + (resto < 10 ? ".0" : ".") + resto;
+    }
+
+    // ========== OBJECT ==========
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Dinheiro && ((Dinheiro) o).centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return formatar(centavos);
+    }
+}
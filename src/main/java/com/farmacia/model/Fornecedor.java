@@ -7,6 +7,8 @@ public class Fornecedor {
     private String email;
     private String cidade;
     private String estado;
+    // Chave dos agrupamentos por fornecedor, montada uma vez (refeita se razão social ou CNPJ mudam)
+    private String identificacao;
 
     public Fornecedor() {}
 
@@ -21,10 +23,16 @@ public class Fornecedor {
 
     // Getters e Setters
     public String getCnpj() { return cnpj; }
-    public void setCnpj(String cnpj) { this.cnpj = cnpj; }
+    public void setCnpj(String cnpj) {
+        this.cnpj = cnpj;
+        this.identificacao = null;
+    }
 
     public String getRazaoSocial() { return razaoSocial; }
-    public void setRazaoSocial(String razaoSocial) { this.razaoSocial = razaoSocial; }
+    public void setRazaoSocial(String razaoSocial) {
+        this.razaoSocial = razaoSocial;
+        this.identificacao = null;
+    }
 
     public String getTelefone() { return telefone; }
     public void setTelefone(String telefone) { this.telefone = telefone; }
@@ -38,8 +46,20 @@ public class Fornecedor {
     public String getEstado() { return estado; }
     public void setEstado(String estado) { this.estado = estado; }
 
+    /**
+     * Razão social com o CNPJ: distingue fornecedores de mesmo nome
+     */
+    public String getIdentificacao() {
+        String texto = identificacao;
+        if (texto == null) {
+            texto = razaoSocial + " (" + cnpj + ")";
+            identificacao = texto;
+        }
+        return texto;
+    }
+
     @Override
     public String toString() {
-        return razaoSocial + " (" + cnpj + ")";
+        return getIdentificacao();
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.farmacia.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lote de um medicamento: número, validade e quantidade em estoque. Imutável; a baixa de um
+ * lote cria outro com a quantidade restante.
+ */
+public final class Lote {
+    /**
+     * Ordem FEFO (primeiro a vencer, primeiro a sair): validade, depois número do lote
+     */
+    public static final Comparator<Lote> FEFO = Comparator.comparing(Lote::getDataValidade)
+            .thenComparing(Lote::getNumero);
+
+    private static final String SEPARADOR_LOTES = "|";
+    private static final String SEPARADOR_CAMPOS = ":";
+
+    private final String numero;
+    private final LocalDate dataValidade;
+    private final int quantidade;
+
+    public Lote(String numero, LocalDate dataValidade, int quantidade) {
+        this.numero = Objects.requireNonNull(numero, "numero");
+        this.dataValidade = Objects.requireNonNull(dataValidade, "dataValidade");
+        this.quantidade = quantidade;
+    }
+
+    public String getNumero() { return numero; }
+    public LocalDate getDataValidade() { return dataValidade; }
+    public int getQuantidade() { return quantidade; }
+
+    public Lote comQuantidade(int novaQuantidade) {
+        return new Lote(numero, dataValidade, novaQuantidade);
+    }
+
+    public boolean isVencido(LocalDate hoje) {
+        return dataValidade.isBefore(hoje);
+    }
+
+    /**
+     * Indica se o número pode ser gravado no CSV (sem separadores de campo ou de lote)
+     */
+    public static boolean numeroValido(String numero) {
+        return numero != null && !numero.trim().isEmpty() && !numero.contains(";")
+                && !numero.contains(SEPARADOR_LOTES) && !numero.contains(SEPARADOR_CAMPOS);
+    }
+
+    /**
+     * Lotes na forma usada no CSV e no banco: {@code numero:validade:quantidade|...}
+     */
+    public static String codificar(List<Lote> lotes) {
+        StringBuilder sb = new StringBuilder();
+        for (Lote lote : lotes) {
+            if (sb.length() > 0) {
+                sb.append(SEPARADOR_LOTES);
+            }
+            sb.append(lote.numero).append(SEPARADOR_CAMPOS)
+                    .append(lote.dataValidade).append(SEPARADOR_CAMPOS)
+                    .append(lote.quantidade);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lê os lotes gravados por {@link #codificar}
+     *
+     * @throws IllegalArgumentException se algum lote estiver mal formado
+     */
+    public static List<Lote> decodificar(String texto) {
+        List<Lote> lotes = new ArrayList<>();
+        if (texto == null || texto.trim().isEmpty()) {
+            return lotes;
+        }
+        for (String parte : texto.trim().split("\\" + SEPARADOR_LOTES)) {
+            String[] campos = parte.split(SEPARADOR_CAMPOS, -1);
+            if (campos.length != 3) {
+                throw new IllegalArgumentException("Lote mal formado: " + parte);
+            }
+            lotes.add(new Lote(campos[0].trim(), LocalDate.parse(campos[1].trim()), Integer.parseInt(campos[2].trim())));
+        }
+        return lotes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Lote)) {
+            return false;
+        }
+        Lote outro = (Lote) o;
+        return quantidade == outro.quantidade && numero.equals(outro.numero) && dataValidade.equals(outro.dataValidade);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numero, dataValidade, quantidade);
+    }
+
+    @Override
+    public String toString() {
+        return numero + " (validade " + dataValidade + ", " + quantidade + " un.)";
+    }
+}
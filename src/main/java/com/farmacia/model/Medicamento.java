@@ -1,23 +1,37 @@
 package com.farmacia.model;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 
 public class Medicamento {
+    public static final String LOTE_INICIAL = "INICIAL";
+
     private String codigo;
     private String nome;
     private String descricao;
     private String principioAtivo;
     private LocalDate dataValidade;
     private int quantidadeEstoque;
-    private BigDecimal preco;
+    private long precoCentavos;
     private boolean controlado;
     private Fornecedor fornecedor;
+    // Lotes com saldo, em ordem FEFO; null = medicamento sem controle por lote. Com lotes, a
+    // quantidade em estoque é a soma dos lotes e a validade é a do primeiro lote a vencer.
+    private TreeSet<Lote> lotes;
+    // Os mesmos lotes, pelo número (null junto com lotes)
+    private Map<String, Lote> porNumero;
 
     public Medicamento() {}
 
     public Medicamento(String codigo, String nome, String descricao, String principioAtivo,
-                       LocalDate dataValidade, int quantidadeEstoque, BigDecimal preco,
+                       LocalDate dataValidade, int quantidadeEstoque, long precoCentavos,
                        boolean controlado, Fornecedor fornecedor) {
         this.codigo = codigo;
         this.nome = nome;
@@ -25,11 +39,23 @@ public class Medicamento {
         this.principioAtivo = principioAtivo;
         this.dataValidade = dataValidade;
         this.quantidadeEstoque = quantidadeEstoque;
-        this.preco = preco;
+        this.precoCentavos = precoCentavos;
         this.controlado = controlado;
         this.fornecedor = fornecedor;
     }
 
+    /**
+     * Cria uma cópia do medicamento (o fornecedor é compartilhado; os lotes são imutáveis)
+     */
+    public Medicamento(Medicamento outro) {
+        this(outro.codigo, outro.nome, outro.descricao, outro.principioAtivo, outro.dataValidade,
+                outro.quantidadeEstoque, outro.precoCentavos, outro.controlado, outro.fornecedor);
+        if (outro.lotes != null) {
+            this.lotes = new TreeSet<>(outro.lotes);
+            this.porNumero = new HashMap<>(outro.porNumero);
+        }
+    }
+
     // Getters e Setters
     public String getCodigo() { return codigo; }
     public void setCodigo(String codigo) { this.codigo = codigo; }
@@ -49,8 +75,20 @@ public class Medicamento {
     public int getQuantidadeEstoque() { return quantidadeEstoque; }
     public void setQuantidadeEstoque(int quantidadeEstoque) { this.quantidadeEstoque = quantidadeEstoque; }
 
-    public BigDecimal getPreco() { return preco; }
-    public void setPreco(BigDecimal preco) { this.preco = preco; }
+    /**
+     * Preço unitário em centavos (ver {@link Dinheiro})
+     */
+    public long getPrecoCentavos() { return precoCentavos; }
+    public void setPrecoCentavos(long precoCentavos) { this.precoCentavos = precoCentavos; }
+
+    /**
+     * Valor do estoque (preço × quantidade) em centavos
+     *
+     * @throws ArithmeticException se o produto não cabe num long
+     */
+    public long getValorEstoqueCentavos() {
+        return Dinheiro.multiplicar(precoCentavos, quantidadeEstoque);
+    }
 
     public boolean isControlado() { return controlado; }
     public void setControlado(boolean controlado) { this.controlado = controlado; }
@@ -58,9 +96,147 @@ public class Medicamento {
     public Fornecedor getFornecedor() { return fornecedor; }
     public void setFornecedor(Fornecedor fornecedor) { this.fornecedor = fornecedor; }
 
+    // ========== LOTES (FEFO) ==========
+
+    public boolean temLotes() { return lotes != null; }
+
+    /**
+     * Lotes em ordem FEFO (vazia se o medicamento não é controlado por lote)
+     */
+    public List<Lote> getLotes() {
+        return lotes == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(lotes));
+    }
+
+    /**
+     * Passa a controlar o estoque pelos lotes informados (lotes sem quantidade são descartados);
+     * quantidade em estoque e validade passam a ser calculadas a partir deles
+     */
+    public void setLotes(Collection<Lote> novos) {
+        lotes = null;
+        porNumero = null;
+        quantidadeEstoque = 0;
+        for (Lote lote : novos) {
+            if (lote.getQuantidade() > 0) {
+                receberLote(lote);
+            }
+        }
+    }
+
+    /**
+     * Entrada de um lote. Se já existe um lote com o mesmo número, as quantidades são somadas.
+     * No primeiro lote de um medicamento sem controle por lote, o estoque que ele já tinha vira
+     * o lote {@value #LOTE_INICIAL}, com a validade cadastrada.
+     *
+     * @throws IllegalArgumentException se o número já existe com outra validade
+     */
+    public void receberLote(Lote lote) {
+        if (lotes == null) {
+            lotes = new TreeSet<>(Lote.FEFO);
+            porNumero = new HashMap<>();
+            if (quantidadeEstoque > 0 && dataValidade != null) {
+                Lote inicial = new Lote(LOTE_INICIAL, dataValidade, quantidadeEstoque);
+                lotes.add(inicial);
+                porNumero.put(LOTE_INICIAL, inicial);
+            } else {
+                quantidadeEstoque = 0;
+            }
+        }
+        Lote existente = porNumero.get(lote.getNumero());
+        if (existente != null && !existente.getDataValidade().equals(lote.getDataValidade())) {
+            throw new IllegalArgumentException("Lote " + lote.getNumero() + " já cadastrado com validade "
+                    + existente.getDataValidade());
+        }
+        if (existente != null) {
+            lotes.remove(existente);
+            lote = existente.comQuantidade(existente.getQuantidade() + lote.getQuantidade());
+        }
+        lotes.add(lote);
+        porNumero.put(lote.getNumero(), lote);
+        quantidadeEstoque += lote.getQuantidade() - (existente == null ? 0 : existente.getQuantidade());
+        atualizarValidade();
+    }
+
+    /**
+     * Quantidade que pode ser dispensada: lotes ainda dentro da validade (percorre todos eles)
+     */
+    public int quantidadeDispensavel(LocalDate hoje) {
+        if (lotes == null) {
+            return quantidadeEstoque;
+        }
+        int total = 0;
+        for (Lote lote : dispensaveis(hoje)) {
+            total += lote.getQuantidade();
+        }
+        return total;
+    }
+
+    /**
+     * Baixa FEFO: retira a quantidade dos lotes dentro da validade, do primeiro a vencer em
+     * diante. Custa O(m log k) (m = lotes consumidos, k = número de lotes): se os lotes acabam
+     * antes da quantidade, os já retirados voltam ao conjunto. Retorna o que saiu de cada lote.
+     *
+     * @throws IllegalStateException se os lotes dentro da validade não bastam (nada é alterado)
+     */
+    public List<Lote> dispensar(int quantidade, LocalDate hoje) {
+        if (lotes == null) {
+            throw new IllegalStateException("Medicamento sem controle por lote");
+        }
+
+        List<Lote> consumidos = new ArrayList<>();
+        List<Lote> retirados = new ArrayList<>();
+        NavigableSet<Lote> fila = dispensaveis(hoje);
+        int restante = quantidade;
+        Lote sobra = null;
+        while (restante > 0) {
+            Lote primeiro = fila.pollFirst();
+            if (primeiro == null) {
+                lotes.addAll(consumidos);
+                throw new IllegalStateException("Estoque dentro da validade insuficiente");
+            }
+            consumidos.add(primeiro);
+            int retirada = Math.min(restante, primeiro.getQuantidade());
+            if (retirada < primeiro.getQuantidade()) {
+                sobra = primeiro.comQuantidade(primeiro.getQuantidade() - retirada);
+            }
+            retirados.add(primeiro.comQuantidade(retirada));
+            restante -= retirada;
+        }
+
+        for (Lote consumido : consumidos) {
+            porNumero.remove(consumido.getNumero());
+        }
+        if (sobra != null) {
+            lotes.add(sobra);
+            porNumero.put(sobra.getNumero(), sobra);
+        }
+        quantidadeEstoque -= quantidade;
+        atualizarValidade();
+        return retirados;
+    }
+
+    /**
+     * Lotes não vencidos (visão sobre o conjunto, achada em O(log k))
+     */
+    private NavigableSet<Lote> dispensaveis(LocalDate hoje) {
+        return lotes.tailSet(new Lote("", hoje, 0), true);
+    }
+
+    /**
+     * Validade do primeiro lote a vencer; sem lotes com saldo, volta a ser um medicamento sem
+     * controle por lote (estoque zero, última validade conhecida), como seria relido do CSV
+     */
+    private void atualizarValidade() {
+        if (lotes != null && lotes.isEmpty()) {
+            lotes = null;
+            porNumero = null;
+        } else if (lotes != null) {
+            dataValidade = lotes.first().getDataValidade();
+        }
+    }
+
     /**
      * Converte o medicamento para formato CSV
-     * Formato: codigo;nome;descricao;principioAtivo;dataValidade;quantidadeEstoque;preco;controlado;cnpj;razaoSocial;telefone;email;cidade;estado
+     * Formato: codigo;nome;descricao;principioAtivo;dataValidade;quantidadeEstoque;preco;controlado;cnpj;razaoSocial;telefone;email;cidade;estado;lotes
      */
     public String toCSV() {
         StringBuilder sb = new StringBuilder();
@@ -71,7 +247,7 @@ public class Medicamento {
         sb.append(principioAtivo).append(";");
         sb.append(dataValidade).append(";");
         sb.append(quantidadeEstoque).append(";");
-        sb.append(preco).append(";");
+        sb.append(Dinheiro.formatar(precoCentavos)).append(";");
         sb.append(controlado).append(";");
 
         // Dados do fornecedor
@@ -84,7 +260,13 @@ public class Medicamento {
             sb.append(fornecedor.getEstado());
         } else {
             // Se não houver fornecedor, preencher com campos vazios
-            sb.append(";;;;");
+            sb.append(";;;;;");
+        }
+
+        // Lotes (vazio para medicamentos sem controle por lote)
+        sb.append(";");
+        if (lotes != null) {
+            sb.append(Lote.codificar(getLotes()));
         }
 
         return sb.toString();
@@ -0,0 +1,13 @@
+package com.farmacia.relatorio;
+
+import java.io.IOException;
+
+/**
+ * Recebe as linhas de um relatório em texto, uma a uma e sem o terminador
+ * (arquivo, visualizador na tela, buffer em memória). A sequência recebida pode ser reaproveitada
+ * pelo emissor após a chamada: quem precisar guardá-la deve copiá-la (toString).
+ */
+@FunctionalInterface
+public interface DestinoLinhas {
+    void linha(CharSequence linha) throws IOException;
+}
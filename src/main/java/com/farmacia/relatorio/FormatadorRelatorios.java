@@ -0,0 +1,163 @@
+package com.farmacia.relatorio;
+
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.model.Medicamento;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formata o resultado de um relatório ({@link TipoRelatorio#gerar}) em texto, CSV ou JSON.
+ * A saída é escrita em fluxo para um Writer (arquivo, console), sem montar o relatório inteiro em memória.
+ * Não depende de JavaFX: é usado pela interface gráfica, pela linha de comando e pela API.
+ */
+public final class FormatadorRelatorios {
+
+    private static final String CABECALHO_RUPTURA =
+            "codigo;nome;quantidadeEstoque;consumoDiario;diasAteRuptura;pontoPedido;pontoPedidoDinamico;diasObservados";
+
+    private FormatadorRelatorios() {}
+
+    /**
+     * Escreve o relatório no formato pedido
+     */
+    public static void escrever(TipoRelatorio tipo, Object dados, FormatoSaida formato, Writer saida) throws IOException {
+        switch (formato) {
+            case CSV:
+                escreverCsv(tipo, dados, saida);
+                break;
+            case JSON:
+                escreverJson(dados, saida);
+                saida.write('\n');
+                break;
+            default:
+                RenderizadorTexto.renderizar(tipo, dados, linha -> {
+                    saida.append(linha);
+                    saida.write('\n');
+                });
+                break;
+        }
+    }
+
+    /**
+     * Relatório completo como texto (para saídas pequenas; relatórios grandes devem usar {@link #escrever})
+     */
+    public static String formatar(TipoRelatorio tipo, Object dados, FormatoSaida formato) {
+        StringWriter saida = new StringWriter();
+        try {
+            escrever(tipo, dados, formato, saida);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toString();
+    }
+
+    public static String texto(TipoRelatorio tipo, Object dados) {
+        return formatar(tipo, dados, FormatoSaida.TEXTO);
+    }
+
+    // ========== CSV ==========
+
+    /**
+     * Relatórios em lista usam o mesmo layout do arquivo de dados; a previsão de ruptura, os campos
+     * de {@link PrevisaoRuptura#paraMapa}; os agregados, pares chave;valor
+     */
+    @SuppressWarnings("unchecked")
+    public static void escreverCsv(TipoRelatorio tipo, Object dados, Writer saida) throws IOException {
+        if (tipo == TipoRelatorio.RUPTURA) {
+            saida.write(CABECALHO_RUPTURA);
+            saida.write('\n');
+            for (PrevisaoRuptura previsao : (List<PrevisaoRuptura>) dados) {
+                boolean primeiro = true;
+                for (Object valor : previsao.paraMapa().values()) {
+                    if (!primeiro) {
+                        saida.write(';');
+                    }
+                    primeiro = false;
+                    saida.write(valor == null ? "" : String.valueOf(valor));
+                }
+                saida.write('\n');
+            }
+            return;
+        }
+        if (dados instanceof List) {
+            saida.write(MedicamentoDAO.CABECALHO);
+            saida.write('\n');
+            for (Medicamento m : (List<Medicamento>) dados) {
+                saida.write(m.toCSV());
+                saida.write('\n');
+            }
+            return;
+        }
+
+        switch (tipo) {
+            case VALOR_POR_FORNECEDOR: saida.write("fornecedor;valorTotal\n"); break;
+            case CONTROLADOS: saida.write("categoria;quantidade\n"); break;
+            default: saida.write("indicador;valor\n"); break;
+        }
+
+        for (Map.Entry<String, ?> entrada : ((Map<String, ?>) dados).entrySet()) {
+            Object valor = entrada.getValue();
+            saida.write(entrada.getKey());
+            saida.write(';');
+            saida.write(String.valueOf(valor));
+            saida.write('\n');
+        }
+    }
+
+    // ========== JSON ==========
+
+    /**
+     * Listas (de medicamentos ou de previsões) são escritas item a item; agregados, como um objeto
+     */
+    @SuppressWarnings("unchecked")
+    public static void escreverJson(Object dados, Writer saida) throws IOException {
+        if (!(dados instanceof List)) {
+            saida.write(Json.escrever(dados));
+            return;
+        }
+
+        StringBuilder item = new StringBuilder(512);
+        saida.write('[');
+        boolean primeiro = true;
+        for (Object elemento : (List<Object>) dados) {
+            if (!primeiro) {
+                saida.write(',');
+            }
+            primeiro = false;
+            item.setLength(0);
+            Json.escrever(paraMapa(elemento), item);
+            saida.append(item);
+        }
+        saida.write(']');
+    }
+
+    /**
+     * Estrutura serializável por {@link Json}: listas de medicamentos (ou previsões) viram listas de mapas
+     */
+    @SuppressWarnings("unchecked")
+    public static Object paraJson(Object dados) {
+        if (dados instanceof List) {
+            List<Object> itens = new ArrayList<>();
+            for (Object elemento : (List<Object>) dados) {
+                itens.add(paraMapa(elemento));
+            }
+            return itens;
+        }
+        return new LinkedHashMap<>((Map<String, Object>) dados);
+    }
+
+    private static Map<String, Object> paraMapa(Object elemento) {
+        return elemento instanceof PrevisaoRuptura ? ((PrevisaoRuptura) elemento).paraMapa()
+                : MedicamentoJson.paraMapa((Medicamento) elemento);
+    }
+}
@@ -0,0 +1,20 @@
+package com.farmacia.relatorio;
+
+/**
+ * Formatos de saída dos relatórios e exportações
+ */
+public enum FormatoSaida {
+    TEXTO, CSV, JSON;
+
+    /**
+     * Formato pelo nome ("texto", "csv" ou "json"); null se não existir
+     */
+    public static FormatoSaida porNome(String nome) {
+        for (FormatoSaida formato : values()) {
+            if (formato.name().equalsIgnoreCase(nome)) {
+                return formato;
+            }
+        }
+        return null;
+    }
+}
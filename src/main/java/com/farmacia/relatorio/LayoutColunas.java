@@ -0,0 +1,145 @@
+package com.farmacia.relatorio;
+
+import com.farmacia.model.Dinheiro;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Layout de largura fixa pré-computado: sequência de textos literais e colunas (largura e alinhamento).
+ * Substitui o String.format por linha: os valores são apenas copiados e completados com espaços.
+ * <pre>
+ * LayoutColunas layout = LayoutColunas.novo().esquerda(10).texto(" ").direita(8);
+ * layout.escrever(sb, "MED0001", "12.50");
+ * </pre>
+ */
+public final class LayoutColunas {
+    private static final char SEPARADOR_DECIMAL =
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    /**
+     * Texto literal ou coluna (literal nulo) com largura e alinhamento
+     */
+    private static final class Segmento {
+        final String literal;
+        final int largura;
+        final boolean direita;
+
+        Segmento(String literal, int largura, boolean direita) {
+            this.literal = literal;
+            this.largura = largura;
+            this.direita = direita;
+        }
+    }
+
+    private final List<Segmento> segmentos = new ArrayList<>();
+    private int colunas;
+
+    private LayoutColunas() {}
+
+    public static LayoutColunas novo() {
+        return new LayoutColunas();
+    }
+
+    public LayoutColunas esquerda(int largura) {
+        return adicionar(null, largura, false);
+    }
+
+    public LayoutColunas direita(int largura) {
+        return adicionar(null, largura, true);
+    }
+
+    public LayoutColunas texto(String literal) {
+        return adicionar(literal, 0, false);
+    }
+
+    private LayoutColunas adicionar(String literal, int largura, boolean direita) {
+        segmentos.add(new Segmento(literal, largura, direita));
+        if (literal == null) {
+            colunas++;
+        }
+        return this;
+    }
+
+    /**
+     * Acrescenta a linha ao buffer; valores mais longos que a coluna não são cortados
+     */
+    public StringBuilder escrever(StringBuilder sb, CharSequence... valores) {
+        if (valores.length != colunas) {
+            throw new IllegalArgumentException("Esperados " + colunas + " valores, recebidos " + valores.length);
+        }
+
+        int coluna = 0;
+        for (Segmento segmento : segmentos) {
+            if (segmento.literal != null) {
+                sb.append(segmento.literal);
+                continue;
+            }
+
+            CharSequence valor = valores[coluna++];
+            int espacos = segmento.largura - valor.length();
+            if (segmento.direita) {
+                repetir(sb, ' ', espacos);
+                sb.append(valor);
+            } else {
+                sb.append(valor);
+                repetir(sb, ' ', espacos);
+            }
+        }
+        return sb;
+    }
+
+    // ========== FORMATAÇÃO DE VALORES ==========
+
+    static void repetir(StringBuilder sb, char caractere, int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            sb.append(caractere);
+        }
+    }
+
+    /**
+     * Equivalente a "%.Nf" (arredondamento HALF_UP e separador decimal da localidade)
+     */
+    public static String decimal(BigDecimal valor, int casas) {
+        String texto = valor.setScale(casas, RoundingMode.HALF_UP).toPlainString();
+        return SEPARADOR_DECIMAL == '.' ? texto : texto.replace('.', SEPARADOR_DECIMAL);
+    }
+
+    public static String decimal(double valor, int casas) {
+        return decimal(BigDecimal.valueOf(valor), casas);
+    }
+
+    /**
+     * Valor em centavos com duas casas e o separador decimal da localidade
+     */
+    public static String dinheiro(long centavos) {
+        String texto = Dinheiro.formatar(centavos);
+        return SEPARADOR_DECIMAL == '.' ? texto : texto.replace('.', SEPARADOR_DECIMAL);
+    }
+
+    /**
+     * Data no formato dd/MM/yyyy
+     */
+    public static String data(LocalDate data) {
+        StringBuilder sb = new StringBuilder(10);
+        doisDigitos(sb, data.getDayOfMonth()).append('/');
+        doisDigitos(sb, data.getMonthValue()).append('/');
+        int ano = data.getYear();
+        if (ano >= 0 && ano < 1000) {
+            repetir(sb, '0', 4 - Integer.toString(ano).length());
+        }
+        return sb.append(ano).toString();
+    }
+
+    private static StringBuilder doisDigitos(StringBuilder sb, int valor) {
+        if (valor < 10) {
+            sb.append('0');
+        }
+        return sb.append(valor);
+    }
+}
@@ -0,0 +1,74 @@
+package com.farmacia.relatorio;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Relatório em texto como lista de linhas endereçável por índice: cabeçalho e rodapé prontos, linhas
+ * de detalhe formatadas só quando pedidas. Um visualizador que desenha só as linhas visíveis não
+ * formata nem guarda as demais.
+ */
+public final class LinhasRelatorio<T> extends AbstractList<String> {
+
+    /**
+     * Escreve no buffer (vazio) a linha de detalhe de um item e o devolve
+     */
+    @FunctionalInterface
+    interface FormatadorLinha<T> {
+        CharSequence formatar(StringBuilder linha, T item);
+    }
+
+    private final List<String> cabecalho;
+    private final List<T> itens;
+    private final FormatadorLinha<T> formatador;
+    private final List<String> rodape;
+
+    LinhasRelatorio(List<String> cabecalho, List<T> itens, FormatadorLinha<T> formatador, List<String> rodape) {
+        this.cabecalho = cabecalho;
+        this.itens = itens;
+        this.formatador = formatador;
+        this.rodape = rodape;
+    }
+
+    /**
+     * Relatório sem linhas de detalhe
+     */
+    static LinhasRelatorio<Object> fixo(List<String> linhas) {
+        return new LinhasRelatorio<>(linhas, List.of(), (linha, item) -> linha, List.of());
+    }
+
+    @Override
+    public String get(int indice) {
+        if (indice < cabecalho.size()) {
+            return cabecalho.get(indice);
+        }
+        int detalhe = indice - cabecalho.size();
+        if (detalhe < itens.size()) {
+            return formatador.formatar(new StringBuilder(96), itens.get(detalhe)).toString();
+        }
+        return rodape.get(detalhe - itens.size());
+    }
+
+    @Override
+    public int size() {
+        return cabecalho.size() + itens.size() + rodape.size();
+    }
+
+    /**
+     * Emite todas as linhas em ordem, reaproveitando um único buffer nas de detalhe
+     */
+    public void escrever(DestinoLinhas destino) throws IOException {
+        for (String linha : cabecalho) {
+            destino.linha(linha);
+        }
+        StringBuilder linha = new StringBuilder(96);
+        for (T item : itens) {
+            linha.setLength(0);
+            destino.linha(formatador.formatar(linha, item));
+        }
+        for (String texto : rodape) {
+            destino.linha(texto);
+        }
+    }
+}
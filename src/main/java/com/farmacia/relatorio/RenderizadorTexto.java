@@ -0,0 +1,207 @@
+package com.farmacia.relatorio;
+
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Medicamento;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relatórios em texto de largura fixa (80 colunas), emitidos linha a linha para um {@link DestinoLinhas}
+ * ou lidos por índice ({@link LinhasRelatorio}). Os layouts das colunas são montados uma única vez e o
+ * buffer de linha é reaproveitado, de modo que o custo por linha é só a cópia dos valores.
+ */
+public final class RenderizadorTexto {
+    private static final String LINHA_DUPLA = "=".repeat(80);
+    private static final String LINHA_SIMPLES = "-".repeat(80);
+
+    private static final LayoutColunas VENCIMENTO = LayoutColunas.novo()
+            .esquerda(10).texto(" ").esquerda(30).texto(" ").esquerda(15).texto(" ").esquerda(12);
+
+    private static final LayoutColunas ESTOQUE_CABECALHO = LayoutColunas.novo()
+            .esquerda(10).texto(" ").esquerda(30).texto(" ").esquerda(12).texto(" ").esquerda(15);
+    private static final LayoutColunas ESTOQUE = LayoutColunas.novo()
+            .esquerda(10).texto(" ").esquerda(30).texto(" ").esquerda(12).texto(" R$ ").direita(10);
+
+    private static final LayoutColunas RUPTURA = LayoutColunas.novo()
+            .esquerda(10).texto(" ").esquerda(28).texto(" ").direita(8).texto(" ").direita(11)
+            .texto(" ").direita(7).texto(" ").direita(10);
+
+    private static final LayoutColunas FORNECEDOR_CABECALHO = LayoutColunas.novo()
+            .esquerda(56).texto(" ").direita(20);
+    private static final LayoutColunas FORNECEDOR = LayoutColunas.novo()
+            .esquerda(56).texto(" R$ ").direita(15);
+
+    private static final LayoutColunas CONTROLADOS_CABECALHO = LayoutColunas.novo()
+            .esquerda(30).texto(" ").direita(10).texto(" ").direita(15);
+    private static final LayoutColunas CONTROLADOS = LayoutColunas.novo()
+            .esquerda(30).texto(" ").direita(10).texto(" ").direita(14).texto("%");
+    private static final LayoutColunas CONTROLADOS_TOTAL = LayoutColunas.novo()
+            .esquerda(30).texto(" ").direita(10).texto(" ").direita(14);
+
+    private RenderizadorTexto() {}
+
+    public static void renderizar(TipoRelatorio tipo, Object dados, DestinoLinhas destino) throws IOException {
+        linhas(tipo, dados).escrever(destino);
+    }
+
+    /**
+     * Relatório como lista de linhas: as de detalhe são formatadas quando pedidas (ver {@link LinhasRelatorio})
+     */
+    @SuppressWarnings("unchecked")
+    public static LinhasRelatorio<?> linhas(TipoRelatorio tipo, Object dados) {
+        StringBuilder linha = new StringBuilder(96);
+
+        switch (tipo) {
+            case VENCIMENTO: {
+                List<Medicamento> proximosVencimento = (List<Medicamento>) dados;
+                List<String> inicio = cabecalho("RELATÓRIO: MEDICAMENTOS PRÓXIMOS AO VENCIMENTO", "Período: Próximos 30 dias");
+
+                if (proximosVencimento.isEmpty()) {
+                    inicio.add("Nenhum medicamento próximo ao vencimento.");
+                    return LinhasRelatorio.fixo(inicio);
+                }
+                total(inicio, proximosVencimento.size());
+                inicio.add(VENCIMENTO.escrever(linha, "CÓDIGO", "NOME", "VALIDADE", "ESTOQUE").toString());
+                inicio.add(LINHA_SIMPLES);
+                return new LinhasRelatorio<>(inicio, proximosVencimento, (sb, med) -> VENCIMENTO.escrever(sb,
+                        med.getCodigo(),
+                        nome(med, 30),
+                        LayoutColunas.data(med.getDataValidade()),
+                        Integer.toString(med.getQuantidadeEstoque())), List.of());
+            }
+
+            case ESTOQUE_BAIXO: {
+                List<Medicamento> estoqueBaixo = (List<Medicamento>) dados;
+                List<String> inicio = cabecalho("RELATÓRIO: MEDICAMENTOS COM ESTOQUE BAIXO",
+                        "Critério: abaixo do ponto de pedido (sem histórico de consumo: menos de 5 unidades)");
+
+                if (estoqueBaixo.isEmpty()) {
+                    inicio.add("Nenhum medicamento com estoque baixo.");
+                    return LinhasRelatorio.fixo(inicio);
+                }
+                total(inicio, estoqueBaixo.size());
+                inicio.add(ESTOQUE_CABECALHO.escrever(linha, "CÓDIGO", "NOME", "ESTOQUE", "PREÇO").toString());
+                inicio.add(LINHA_SIMPLES);
+                return new LinhasRelatorio<>(inicio, estoqueBaixo, (sb, med) -> ESTOQUE.escrever(sb,
+                        med.getCodigo(),
+                        nome(med, 30),
+                        Integer.toString(med.getQuantidadeEstoque()),
+                        LayoutColunas.dinheiro(med.getPrecoCentavos())), List.of());
+            }
+
+            case RUPTURA: {
+                List<PrevisaoRuptura> ruptura = (List<PrevisaoRuptura>) dados;
+                List<String> inicio = cabecalho("RELATÓRIO: PREVISÃO DE RUPTURA DE ESTOQUE",
+                        "Estoque que acaba em até 30 dias no consumo médio do histórico");
+
+                if (ruptura.isEmpty()) {
+                    inicio.add("Nenhum medicamento com ruptura prevista.");
+                    return LinhasRelatorio.fixo(inicio);
+                }
+                total(inicio, ruptura.size());
+                inicio.add(RUPTURA.escrever(linha, "CÓDIGO", "NOME", "ESTOQUE", "CONSUMO/DIA", "DIAS", "PONTO PED.").toString());
+                inicio.add(LINHA_SIMPLES);
+                return new LinhasRelatorio<>(inicio, ruptura, (sb, previsao) -> {
+                    Medicamento med = previsao.getMedicamento();
+                    return RUPTURA.escrever(sb,
+                            med.getCodigo(),
+                            nome(med, 28),
+                            Integer.toString(med.getQuantidadeEstoque()),
+                            LayoutColunas.decimal(previsao.getConsumoDiario(), 2),
+                            LayoutColunas.decimal(previsao.getDiasAteRuptura(), 1),
+                            Integer.toString(previsao.getPontoPedido()));
+                }, List.of());
+            }
+
+            case VALOR_POR_FORNECEDOR: {
+                Map<String, Dinheiro> valorPorFornecedor = (Map<String, Dinheiro>) dados;
+                List<String> inicio = cabecalho("RELATÓRIO: VALOR TOTAL DO ESTOQUE POR FORNECEDOR", null);
+
+                if (valorPorFornecedor.isEmpty()) {
+                    inicio.add("Nenhum dado disponível.");
+                    return LinhasRelatorio.fixo(inicio);
+                }
+                inicio.add(FORNECEDOR_CABECALHO.escrever(linha, "FORNECEDOR", "VALOR TOTAL").toString());
+                inicio.add(LINHA_SIMPLES);
+
+                long total = 0;
+                for (Dinheiro valor : valorPorFornecedor.values()) {
+                    total = Dinheiro.somar(total, valor.getCentavos());
+                }
+                linha.setLength(0);
+                List<String> fim = List.of(LINHA_SIMPLES,
+                        FORNECEDOR.escrever(linha, "TOTAL GERAL:", LayoutColunas.dinheiro(total)).toString());
+                return new LinhasRelatorio<>(inicio, new ArrayList<>(valorPorFornecedor.entrySet()), (sb, entry) ->
+                        FORNECEDOR.escrever(sb,
+                                entry.getKey().substring(0, Math.min(56, entry.getKey().length())),
+                                LayoutColunas.dinheiro(entry.getValue().getCentavos())), fim);
+            }
+
+            case CONTROLADOS: {
+                Map<String, Long> controlados = (Map<String, Long>) dados;
+                List<String> linhas = cabecalho("RELATÓRIO: MEDICAMENTOS CONTROLADOS VS NÃO CONTROLADOS", null);
+
+                long totalControlados = controlados.getOrDefault("Controlados", 0L);
+                long totalNaoControlados = controlados.getOrDefault("Não Controlados", 0L);
+                long totalGeral = totalControlados + totalNaoControlados;
+
+                linhas.add(CONTROLADOS_CABECALHO.escrever(linha, "CATEGORIA", "QUANTIDADE", "PERCENTUAL").toString());
+                linhas.add(LINHA_SIMPLES);
+                linha.setLength(0);
+                linhas.add(CONTROLADOS.escrever(linha, "Controlados", Long.toString(totalControlados),
+                        LayoutColunas.decimal(totalGeral > 0 ? (totalControlados * 100.0 / totalGeral) : 0, 1)).toString());
+                linha.setLength(0);
+                linhas.add(CONTROLADOS.escrever(linha, "Não Controlados", Long.toString(totalNaoControlados),
+                        LayoutColunas.decimal(totalGeral > 0 ? (totalNaoControlados * 100.0 / totalGeral) : 0, 1)).toString());
+                linhas.add(LINHA_SIMPLES);
+                linha.setLength(0);
+                linhas.add(CONTROLADOS_TOTAL.escrever(linha, "TOTAL:", Long.toString(totalGeral), "100.0%").toString());
+                return LinhasRelatorio.fixo(linhas);
+            }
+
+            case ESTATISTICAS: {
+                Map<String, Object> estatisticas = (Map<String, Object>) dados;
+                List<String> linhas = cabecalho("RELATÓRIO: ESTATÍSTICAS GERAIS DO ESTOQUE", null);
+
+                linhas.add("Total de Medicamentos Cadastrados: " + estatisticas.get("totalMedicamentos"));
+                linhas.add("Quantidade Total em Estoque: " + estatisticas.get("quantidadeTotalEstoque") + " unidades");
+                linhas.add("Valor Total do Estoque: R$ "
+                        + LayoutColunas.dinheiro(((Dinheiro) estatisticas.get("valorTotalEstoque")).getCentavos()));
+                linhas.add("Preço Médio dos Medicamentos: R$ "
+                        + LayoutColunas.dinheiro(((Dinheiro) estatisticas.get("precoMedio")).getCentavos()));
+                return LinhasRelatorio.fixo(linhas);
+            }
+
+            default:
+                throw new IllegalArgumentException("Relatório sem formato de texto: " + tipo);
+        }
+    }
+
+    private static List<String> cabecalho(String titulo, String subtitulo) {
+        List<String> linhas = new ArrayList<>();
+        linhas.add(LINHA_DUPLA);
+        linhas.add(titulo);
+        if (subtitulo != null) {
+            linhas.add(subtitulo);
+        }
+        linhas.add("Data de geração: " + LayoutColunas.data(LocalDate.now()));
+        linhas.add(LINHA_DUPLA);
+        linhas.add("");
+        return linhas;
+    }
+
+    private static void total(List<String> linhas, int total) {
+        linhas.add("Total de medicamentos: " + total);
+        linhas.add("");
+    }
+
+    private static String nome(Medicamento med, int largura) {
+        String nome = med.getNome();
+        return nome.length() <= largura ? nome : nome.substring(0, largura);
+    }
+}
@@ -0,0 +1,81 @@
+package com.farmacia.relatorio;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.service.InstantaneoRelatorios;
+import com.farmacia.service.MedicamentoService;
+
+/**
+ * Relatórios disponíveis, com o nome curto usado na linha de comando e na API
+ * e o título exibido na interface gráfica
+ */
+public enum TipoRelatorio {
+    VENCIMENTO("vencimento", "Medicamentos Próximos ao Vencimento (30 dias)"),
+    ESTOQUE_BAIXO("estoque-baixo", "Medicamentos com Estoque Baixo (ponto de pedido)"),
+    RUPTURA("ruptura", "Previsão de Ruptura de Estoque (30 dias)"),
+    VALOR_POR_FORNECEDOR("valor-por-fornecedor", "Valor Total do Estoque por Fornecedor"),
+    CONTROLADOS("controlados", "Medicamentos Controlados vs Não Controlados"),
+    ESTATISTICAS("estatisticas", "Estatísticas Gerais");
+
+    private final String nome;
+    private final String titulo;
+
+    TipoRelatorio(String nome, String titulo) {
+        this.nome = nome;
+        this.titulo = titulo;
+    }
+
+    public String getNome() { return nome; }
+    public String getTitulo() { return titulo; }
+
+    /**
+     * Executa o relatório no service: lista de medicamentos, lista de previsões ou mapa, conforme o tipo
+     */
+    public Object gerar(MedicamentoService service) throws PersistenciaException {
+        switch (this) {
+            case VENCIMENTO: return service.relatorioProximosVencimento();
+            case ESTOQUE_BAIXO: return service.relatorioEstoqueBaixo();
+            case RUPTURA: return service.relatorioRuptura();
+            case VALOR_POR_FORNECEDOR: return service.relatorioValorTotalPorFornecedor();
+            case CONTROLADOS: return service.relatorioControladosVsNaoControlados();
+            default: return service.relatorioEstatisticas();
+        }
+    }
+
+    /**
+     * Dados deste relatório dentro de um instantâneo já calculado
+     */
+    public Object extrair(InstantaneoRelatorios instantaneo) {
+        switch (this) {
+            case VENCIMENTO: return instantaneo.getProximosVencimento();
+            case ESTOQUE_BAIXO: return instantaneo.getEstoqueBaixo();
+            case RUPTURA: return instantaneo.getRuptura();
+            case VALOR_POR_FORNECEDOR: return instantaneo.getValorPorFornecedor();
+            case CONTROLADOS: return instantaneo.getControlados();
+            default: return instantaneo.getEstatisticas();
+        }
+    }
+
+    /**
+     * Tipo pelo nome curto (ex.: "estoque-baixo"); null se não existir
+     */
+    public static TipoRelatorio porNome(String nome) {
+        for (TipoRelatorio tipo : values()) {
+            if (tipo.nome.equalsIgnoreCase(nome)) {
+                return tipo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tipo pelo título exibido na interface; null se não existir
+     */
+    public static TipoRelatorio porTitulo(String titulo) {
+        for (TipoRelatorio tipo : values()) {
+            if (tipo.titulo.equals(titulo)) {
+                return tipo;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,195 @@
+package com.farmacia.replicacao;
+
+import com.farmacia.dao.FabricaRepositorio;
+import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.dao.MedicamentoDAOEmbarcado;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.model.Fornecedor;
+import com.farmacia.model.Medicamento;
+import com.farmacia.service.MedicamentoService;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark da replicação em localhost: primário (repositório CSV completo, com diário) e uma
+ * réplica em CSV, num diretório temporário apagado no fim. Parte das escritas acontece antes de a
+ * réplica conectar, que então começa por um instantâneo; o restante mede a vazão de escrita no
+ * primário, a vazão de aplicação na réplica e o atraso de cada evento (do início da escrita no
+ * primário à gravação na réplica; a réplica pode confirmar antes de os ouvintes do fluxo rodarem). No fim, confere que réplica e primário têm o mesmo catálogo.
+ * <p>
+ * O primário CSV regrava o arquivo a cada escrita; para catálogos grandes (100 mil ou mais), use o
+ * primário embarcado, que escreve só a linha alterada. A réplica é sempre CSV, com diário local.
+ *
+ * Uso: BenchmarkReplicacao [medicamentos] [escritas] [assincrono|sincrono|ambos] [csv|embarcado]
+ */
+public class BenchmarkReplicacao {
+    private static final long ESPERA_REPLICA_MS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        int medicamentos = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int escritas = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        String modo = args.length > 2 ? args[2] : "ambos";
+        String primario = args.length > 3 ? args[3] : "csv";
+        // Só as escritas do próprio benchmark alteram o CSV: sem vigia do arquivo
+        System.setProperty("farmacia.csv.vigiar", "false");
+
+        System.out.printf("%d medicamentos, %d escritas (%d antes de a réplica conectar), primário %s%n",
+                medicamentos, escritas, escritas / 10, primario);
+        if (!modo.equals("sincrono")) {
+            medir(medicamentos, escritas, ModoConfirmacao.ASSINCRONO, primario);
+        }
+        if (!modo.equals("assincrono")) {
+            medir(medicamentos, escritas, ModoConfirmacao.SINCRONO, primario);
+        }
+    }
+
+    private static void medir(int medicamentos, int escritas, ModoConfirmacao modo, String primario) throws Exception {
+        File diretorio = Files.createTempDirectory("farmacia-replicacao").toFile();
+        try {
+            String arquivo;
+            if (primario.equals("embarcado")) {
+                arquivo = new File(diretorio, "medicamentos").getPath();
+                MedicamentoDAOEmbarcado carga = new MedicamentoDAOEmbarcado(arquivo);
+                carga.salvarTodos(catalogo(medicamentos));
+                carga.fechar();
+            } else {
+                arquivo = new File(diretorio, "medicamentos.csv").getPath();
+                new MedicamentoDAO(arquivo).salvarTodos(catalogo(medicamentos));
+            }
+
+            MedicamentoRepository repositorio = FabricaRepositorio.criar(primario, arquivo);
+            MedicamentoService service = new MedicamentoService(repositorio);
+            int antes = escritas / 10;
+            // Instante do início de cada escrita, por sequência: escrito aqui e lido na thread da réplica
+            AtomicLongArray publicado = new AtomicLongArray(escritas + 1);
+            ServidorReplicacao servidor = new ServidorReplicacao(service, null, 0, modo, 2000);
+            servidor.iniciar();
+
+            for (int i = 0; i < antes; i++) {
+                escrever(service, publicado, codigo(i % medicamentos));
+            }
+
+            String arquivoReplica = new File(diretorio, "replica.csv").getPath();
+            MedicamentoDAO destino = new MedicamentoDAO(arquivoReplica);
+            ReplicaLeitura replica = new ReplicaLeitura("127.0.0.1", servidor.getPorta(), destino,
+                    arquivoReplica + ReplicaLeitura.SUFIXO_CURSOR);
+            long[] atraso = new long[escritas];
+            int[] medidos = {0};
+            int[] lotes = {0};
+            long[] anterior = {antes};
+            replica.aoAplicar(aplicada -> {
+                long agora = System.nanoTime();
+                for (long seq = anterior[0] + 1; seq <= aplicada && seq < publicado.length(); seq++) {
+                    atraso[medidos[0]++] = agora - publicado.get((int) seq);
+                }
+                anterior[0] = Math.max(anterior[0], aplicada);
+                lotes[0]++;
+            });
+
+            long inicio = System.nanoTime();
+            replica.iniciar();
+            aguardar(replica, antes);
+            long instantaneo = System.nanoTime() - inicio;
+
+            int lotesAntes = lotes[0];
+            inicio = System.nanoTime();
+            for (int i = antes; i < escritas; i++) {
+                escrever(service, publicado, codigo(i % medicamentos));
+            }
+            long gravacao = System.nanoTime() - inicio;
+            aguardar(replica, escritas);
+            long aplicacao = System.nanoTime() - inicio;
+
+            int medidas = escritas - antes;
+            System.out.printf("%n%s%n", modo);
+            System.out.printf("  instantâneo e recuperação (%d eventos): %.0fms%n", antes, instantaneo / 1e6);
+            System.out.printf("  primário: %.0f escritas/s%n", medidas / (gravacao / 1e9));
+            System.out.printf("  réplica: %.0f eventos/s em %d lotes (em dia %.0fms após a última escrita)%n",
+                    medidas / (aplicacao / 1e9), lotes[0] - lotesAntes, (aplicacao - gravacao) / 1e6);
+            long[] ordenados = Arrays.copyOf(atraso, Math.min(medidos[0], medidas));
+            Arrays.sort(ordenados);
+            System.out.printf("  atraso: p50 %.2fms, p99 %.2fms, máximo %.2fms%n",
+                    percentil(ordenados, 0.50) / 1e6, percentil(ordenados, 0.99) / 1e6,
+                    (ordenados.length == 0 ? 0 : ordenados[ordenados.length - 1]) / 1e6);
+
+            replica.parar();
+            servidor.parar();
+            conferir(service.listarTodos(), destino.carregarTodos());
+            destino.fechar();
+            repositorio.fechar();
+        } finally {
+            apagar(diretorio);
+        }
+    }
+
+    private static void escrever(MedicamentoService service, AtomicLongArray publicado, String codigo) throws Exception {
+        long seq = service.fluxoAlteracoes().ultimaSequencia() + 1;
+        if (seq < publicado.length()) {
+            publicado.set((int) seq, System.nanoTime());
+        }
+        service.movimentarEstoque(codigo, 1);
+    }
+
+    private static List<Medicamento> catalogo(int quantidade) {
+        Fornecedor fornecedor = new Fornecedor("11222333000181", "Distribuidora", "", "", "", "");
+        LocalDate hoje = LocalDate.now();
+        List<Medicamento> catalogo = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            catalogo.add(new Medicamento(codigo(i), "Medicamento " + i, "", "", hoje.plusDays(100 + i % 300),
+                    100, 1250, false, fornecedor));
+        }
+        return catalogo;
+    }
+
+    private static String codigo(int i) {
+        return String.format("MED%07d", i);
+    }
+
+    private static void aguardar(ReplicaLeitura replica, long seq) throws InterruptedException {
+        long limite = System.nanoTime() + ESPERA_REPLICA_MS * 1_000_000;
+        while (replica.getAplicada() < seq) {
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("Réplica parada na sequência " + replica.getAplicada() + " de " + seq);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static long percentil(long[] ordenados, double fracao) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        return ordenados[Math.min(ordenados.length - 1, (int) Math.ceil(fracao * ordenados.length) - 1)];
+    }
+
+    private static void conferir(List<Medicamento> primario, List<Medicamento> replica) {
+        if (primario.size() != replica.size()) {
+            throw new IllegalStateException("Réplica com " + replica.size() + " medicamentos; primário com " + primario.size());
+        }
+        List<Medicamento> a = new ArrayList<>(primario);
+        List<Medicamento> b = new ArrayList<>(replica);
+        a.sort(Comparator.comparing(Medicamento::getCodigo));
+        b.sort(Comparator.comparing(Medicamento::getCodigo));
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).toCSV().equals(b.get(i).toCSV())) {
+                throw new IllegalStateException("Réplica difere do primário em " + a.get(i).getCodigo());
+            }
+        }
+        System.out.println("  réplica idêntica ao primário");
+    }
+
+    private static void apagar(File diretorio) throws Exception {
+        try (Stream<Path> caminhos = Files.walk(diretorio.toPath())) {
+            caminhos.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
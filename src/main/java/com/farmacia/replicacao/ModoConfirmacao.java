@@ -0,0 +1,18 @@
+package com.farmacia.replicacao;
+
+/**
+ * Quando uma escrita no primário é dada por concluída em relação às réplicas
+ */
+public enum ModoConfirmacao {
+    /** A escrita retorna assim que publicada; as réplicas a recebem logo depois */
+    ASSINCRONO,
+    /** A escrita espera uma réplica em dia confirmar que a gravou (até o limite de espera) */
+    SINCRONO;
+
+    /**
+     * Lê "assincrono" ou "sincrono" (ASSINCRONO para valores desconhecidos)
+     */
+    public static ModoConfirmacao de(String texto) {
+        return texto != null && texto.trim().equalsIgnoreCase("sincrono") ? SINCRONO : ASSINCRONO;
+    }
+}
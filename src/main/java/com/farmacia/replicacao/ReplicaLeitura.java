@@ -0,0 +1,440 @@
+package com.farmacia.replicacao;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.eventos.DiarioAlteracoes;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Medicamento;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Réplica de leitura: mantém no repositório de destino uma cópia quente do catálogo de um
+ * {@link ServidorReplicacao}, para assumir as escritas se o primário cair. As leituras locais
+ * vão a {@link #catalogo}.
+ * <p>
+ * Os eventos que chegam juntos (até {@link ServidorReplicacao#LOTE_MAXIMO}) são aplicados num
+ * estado em memória e acrescentados ao diário local {@code <destino>.replicacao.diario}; só então a
+ * réplica confirma. Assim o custo de cada lote acompanha o ritmo de escrita, não o tamanho do
+ * catálogo. O destino recebe o estado inteiro ({@code salvarTodos}) só na compactação: quando o
+ * diário passa de um quarto do catálogo (custo amortizado constante por evento), quando o fluxo
+ * para por {@value #ESPERA_COMPACTACAO_MS} ms, ao parar e ao instalar um instantâneo. A compactação
+ * grava o destino, depois a sequência no cursor {@code <destino>.replicacao}, e só então apaga o
+ * diário.
+ * <p>
+ * Cada evento traz o estado final do medicamento, e reaplicá-lo não muda nada: depois de uma queda,
+ * a réplica relê o destino, reaplica o diário a partir do cursor e reconecta da última sequência
+ * do diário, sem risco de aplicar algo duas vezes.
+ */
+public class ReplicaLeitura {
+    private static final Log LOG = Log.para(ReplicaLeitura.class);
+    private static final MetricaOperacao M_APLICAR = Metricas.operacao("replicacao.aplicarLote");
+    private static final MetricaOperacao M_COMPACTAR = Metricas.operacao("replicacao.compactar");
+
+    public static final String SUFIXO_CURSOR = ".replicacao";
+    /** Acrescentado ao arquivo do cursor */
+    public static final String SUFIXO_DIARIO = ".diario";
+    private static final long ESPERA_RECONEXAO_MS = 1000;
+    private static final long ESPERA_COMPACTACAO_MS = 1000;
+    private static final int MINIMO_COMPACTACAO = 4096;
+
+    private final String host;
+    private final int porta;
+    private final MedicamentoRepository destino;
+    private final File arquivoCursor;
+    private final File arquivoDiario;
+    // Estado aplicado, por código, na ordem do primário, e o diário ainda não compactado no destino
+    // (guardados por this: thread da réplica, compactação por inatividade e leituras)
+    private final Map<String, Medicamento> estado = new LinkedHashMap<>();
+    private Writer diario;
+    private FileOutputStream saidaDiario;
+    private int eventosDiario;
+    private long ultimoLote;
+    private CatalogoIndexado catalogoDiario;
+    private volatile long aplicada;
+    private volatile boolean parada;
+    private volatile Socket socket;
+    private volatile LongConsumer aoAplicar;
+    private Thread thread;
+    private ScheduledExecutorService compactacao;
+
+    /**
+     * @param arquivoCursor arquivo com a última sequência gravada no destino; o diário fica ao lado
+     */
+    public ReplicaLeitura(String host, int porta, MedicamentoRepository destino, String arquivoCursor) {
+        this.host = host;
+        this.porta = porta;
+        this.destino = destino;
+        this.arquivoCursor = new File(arquivoCursor);
+        this.arquivoDiario = new File(arquivoCursor + SUFIXO_DIARIO);
+    }
+
+    /**
+     * Retoma do cursor e do diário gravados (sem cursor, começa por um instantâneo) e passa a seguir
+     * o primário numa thread própria, reconectando se a conexão cair
+     */
+    public void iniciar() throws PersistenciaException {
+        restaurar();
+        thread = new Thread(this::seguir, "replica-" + host + ":" + porta);
+        thread.setDaemon(true);
+        thread.start();
+        compactacao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-compactacao");
+            t.setDaemon(true);
+            return t;
+        });
+        compactacao.scheduleWithFixedDelay(this::compactarSeParado, ESPERA_COMPACTACAO_MS, ESPERA_COMPACTACAO_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Para de seguir o primário e compacta o diário no destino (o destino pode ser fechado em seguida)
+     */
+    public void parar() {
+        parada = true;
+        Socket atual = socket;
+        if (atual != null) {
+            try {
+                atual.close();
+            } catch (IOException e) {
+                LOG.aviso("Erro ao fechar a conexão com o primário", "erro", e.getMessage());
+            }
+        }
+        if (compactacao != null) {
+            compactacao.shutdownNow();
+        }
+        if (thread != null) {
+            try {
+                thread.join(ESPERA_RECONEXAO_MS * 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            compactar();
+        } catch (PersistenciaException e) {
+            LOG.erro("Diário da réplica não compactado ao parar; será reaplicado na próxima partida", e,
+                    "diario", arquivoDiario.getPath());
+        } finally {
+            fecharDiario();
+        }
+    }
+
+    /**
+     * Chamado na thread da réplica depois de cada lote gravado, com a última sequência aplicada
+     */
+    public void aoAplicar(LongConsumer ouvinte) {
+        this.aoAplicar = ouvinte;
+    }
+
+    /**
+     * Última sequência do primário gravada na réplica (destino ou diário)
+     */
+    public long getAplicada() {
+        return aplicada;
+    }
+
+    /**
+     * Catálogo da réplica (leitura local, sem ir ao primário): o do destino, ou, com eventos ainda
+     * só no diário, um montado do estado em memória (uma vez por lote, quando pedido)
+     */
+    public synchronized CatalogoIndexado catalogo() throws PersistenciaException {
+        if (eventosDiario == 0) {
+            return destino.catalogo();
+        }
+        if (catalogoDiario == null) {
+            catalogoDiario = new CatalogoIndexado(new ArrayList<>(estado.values()));
+        }
+        return catalogoDiario;
+    }
+
+    /**
+     * Estado e sequência de volta ao que está gravado no destino e no diário; um diário
+     * encontrado é compactado no destino de imediato
+     */
+    private synchronized void restaurar() throws PersistenciaException {
+        fecharDiario();
+        estado.clear();
+        eventosDiario = 0;
+        catalogoDiario = null;
+        aplicada = DiarioAlteracoes.lerCursor(arquivoCursor);
+        if (aplicada <= 0) {
+            // Sem cursor o primário manda um instantâneo: o diário não tem base
+            arquivoDiario.delete();
+            return;
+        }
+        for (Medicamento medicamento : destino.carregarTodos()) {
+            estado.put(medicamento.getCodigo(), medicamento);
+        }
+        if (arquivoDiario.isFile()) {
+            reaplicarDiario();
+            compactar();
+        }
+    }
+
+    private void reaplicarDiario() throws PersistenciaException {
+        long cursor = aplicada;
+        try (BufferedReader leitor = Files.newBufferedReader(arquivoDiario.toPath(), StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                Map<String, Object> evento;
+                try {
+                    evento = Json.lerObjeto(linha);
+                } catch (RuntimeException e) {
+                    // Última linha cortada por uma queda: não foi confirmada ao primário
+                    LOG.aviso("Linha incompleta no fim do diário da réplica ignorada", "diario", arquivoDiario.getPath());
+                    break;
+                }
+                if (((Number) evento.get("seq")).longValue() > cursor) {
+                    aplicar(evento);
+                    eventosDiario++;
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao ler o diário da réplica: " + arquivoDiario.getPath(), e);
+        }
+        LOG.info("Diário da réplica reaplicado", "eventos", eventosDiario, "seq", aplicada);
+    }
+
+    // ========== THREAD DA RÉPLICA ==========
+
+    private void seguir() {
+        while (!parada) {
+            try (Socket conexao = new Socket(host, porta)) {
+                conexao.setTcpNoDelay(true);
+                socket = conexao;
+                receber(conexao);
+            } catch (IOException e) {
+                if (!parada) {
+                    LOG.avisoLimitado("Conexão com o primário indisponível", "primario", host + ":" + porta,
+                            "erro", e.getMessage());
+                }
+            } catch (PersistenciaException | RuntimeException e) {
+                LOG.erro("Erro ao aplicar a replicação; retomando do cursor gravado", e, "primario", host + ":" + porta);
+                try {
+                    restaurar();
+                } catch (PersistenciaException erro) {
+                    LOG.erro("Réplica sem estado gravado legível", erro, "cursor", arquivoCursor.getPath());
+                    return;
+                }
+            }
+            if (!parada) {
+                try {
+                    Thread.sleep(ESPERA_RECONEXAO_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receber(Socket conexao) throws IOException, PersistenciaException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(conexao.getInputStream(), StandardCharsets.UTF_8));
+        Writer saida = new BufferedWriter(new OutputStreamWriter(conexao.getOutputStream(), StandardCharsets.UTF_8));
+        saida.write(Json.escrever(Map.of("apos", aplicada)));
+        saida.write('\n');
+        saida.flush();
+        LOG.info("Réplica conectada ao primário", "primario", host + ":" + porta, "apos", aplicada);
+
+        String linha;
+        List<String> lote = new ArrayList<>(ServidorReplicacao.LOTE_MAXIMO);
+        while ((linha = leitor.readLine()) != null) {
+            long inicio = System.nanoTime();
+            // Lote: a linha recebida e as que já estão no buffer, sem esperar pela rede
+            do {
+                Map<String, Object> mensagem = Json.lerObjeto(linha);
+                if (mensagem.containsKey("instantaneo")) {
+                    if (!lote.isEmpty()) {
+                        gravar(saida, lote, inicio);
+                    }
+                    instalar(mensagem, leitor);
+                    confirmar(saida);
+                } else {
+                    lote.add(linha);
+                }
+            } while (lote.size() < ServidorReplicacao.LOTE_MAXIMO && leitor.ready() && (linha = leitor.readLine()) != null);
+
+            if (!lote.isEmpty()) {
+                gravar(saida, lote, inicio);
+            }
+        }
+    }
+
+    /**
+     * Recebe um instantâneo e o instala: destino substituído, cursor gravado e diário apagado
+     */
+    private void instalar(Map<String, Object> cabecalho, BufferedReader leitor)
+            throws IOException, PersistenciaException {
+        long total = ((Number) cabecalho.get("instantaneo")).longValue();
+        Map<String, Medicamento> recebido = new LinkedHashMap<>();
+        for (long i = 0; i < total; i++) {
+            String linha = leitor.readLine();
+            if (linha == null) {
+                throw new IOException("Instantâneo interrompido após " + i + " de " + total + " medicamentos");
+            }
+            Medicamento medicamento = MedicamentoJson.deMapa(Json.lerObjeto(linha));
+            recebido.put(medicamento.getCodigo(), medicamento);
+        }
+        long seq = ((Number) cabecalho.get("seq")).longValue();
+        synchronized (this) {
+            fecharDiario();
+            estado.clear();
+            estado.putAll(recebido);
+            destino.salvarTodos(new ArrayList<>(estado.values()));
+            DiarioAlteracoes.gravarCursor(arquivoCursor, seq);
+            arquivoDiario.delete();
+            eventosDiario = 0;
+            catalogoDiario = null;
+            aplicada = seq;
+        }
+        LOG.info("Instantâneo recebido do primário", "medicamentos", total, "seq", seq);
+    }
+
+    /**
+     * Aplica um evento ao estado em memória: o medicamento passa a ser o "depois" do evento
+     * (ausente na exclusão)
+     */
+    @SuppressWarnings("unchecked")
+    private void aplicar(Map<String, Object> evento) {
+        long seq = ((Number) evento.get("seq")).longValue();
+        String codigo = evento.get("codigo").toString();
+        Object depois = evento.get("depois");
+        if (depois instanceof Map) {
+            estado.put(codigo, MedicamentoJson.deMapa((Map<String, Object>) depois));
+        } else {
+            estado.remove(codigo);
+        }
+        aplicada = Math.max(aplicada, seq);
+    }
+
+    /**
+     * Aplica o lote ao estado, acrescenta-o ao diário (com fsync se configurado para o diário de
+     * alterações), compacta se o diário cresceu demais, confirma ao primário e avisa o ouvinte
+     */
+    private void gravar(Writer saida, List<String> lote, long inicio) throws IOException, PersistenciaException {
+        boolean sucesso = false;
+        try {
+            synchronized (this) {
+                for (String linha : lote) {
+                    aplicar(Json.lerObjeto(linha));
+                }
+                Writer escritor = abrirDiario();
+                for (String linha : lote) {
+                    escritor.write(linha);
+                    escritor.write('\n');
+                }
+                escritor.flush();
+                if (Configuracao.sincronizarAlteracoes()) {
+                    saidaDiario.getFD().sync();
+                }
+                eventosDiario += lote.size();
+                catalogoDiario = null;
+                ultimoLote = System.nanoTime();
+                if (eventosDiario >= Math.max(MINIMO_COMPACTACAO, estado.size() / 4)) {
+                    compactar();
+                }
+            }
+            M_APLICAR.adicionarLinhas(lote.size());
+            lote.clear();
+            sucesso = true;
+        } finally {
+            M_APLICAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+        confirmar(saida);
+    }
+
+    private void confirmar(Writer saida) throws IOException {
+        saida.write(Json.escrever(Map.of("confirmado", aplicada)));
+        saida.write('\n');
+        saida.flush();
+
+        LongConsumer ouvinte = aoAplicar;
+        if (ouvinte != null) {
+            ouvinte.accept(aplicada);
+        }
+    }
+
+    // ========== DIÁRIO E COMPACTAÇÃO ==========
+
+    private Writer abrirDiario() throws IOException {
+        if (diario == null) {
+            saidaDiario = new FileOutputStream(arquivoDiario, true);
+            diario = new BufferedWriter(new OutputStreamWriter(saidaDiario, StandardCharsets.UTF_8), 1 << 16);
+        }
+        return diario;
+    }
+
+    private void fecharDiario() {
+        if (diario != null) {
+            try {
+                diario.close();
+            } catch (IOException e) {
+                LOG.aviso("Erro ao fechar o diário da réplica", "erro", e.getMessage());
+            }
+            diario = null;
+            saidaDiario = null;
+        }
+    }
+
+    /**
+     * Grava o estado no destino, a sequência no cursor e apaga o diário (nessa ordem: uma queda no
+     * meio só faz o diário ser reaplicado por cima do destino)
+     */
+    private synchronized void compactar() throws PersistenciaException {
+        if (eventosDiario == 0) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            destino.salvarTodos(new ArrayList<>(estado.values()));
+            DiarioAlteracoes.gravarCursor(arquivoCursor, aplicada);
+            fecharDiario();
+            arquivoDiario.delete();
+            M_COMPACTAR.adicionarLinhas(estado.size());
+            eventosDiario = 0;
+            catalogoDiario = null;
+            sucesso = true;
+        } finally {
+            M_COMPACTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Compactação por inatividade: deixa o destino em dia quando o fluxo do primário para
+     */
+    private synchronized void compactarSeParado() {
+        if (eventosDiario == 0 || System.nanoTime() - ultimoLote < TimeUnit.MILLISECONDS.toNanos(ESPERA_COMPACTACAO_MS)) {
+            return;
+        }
+        try {
+            compactar();
+        } catch (PersistenciaException | RuntimeException e) {
+            LOG.erro("Diário da réplica não compactado", e, "diario", arquivoDiario.getPath());
+        }
+    }
+}
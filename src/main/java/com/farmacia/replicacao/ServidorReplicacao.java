@@ -0,0 +1,350 @@
+package com.farmacia.replicacao;
+
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.eventos.EventoAlteracao;
+import com.farmacia.eventos.FluxoAlteracoes;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.json.Json;
+import com.farmacia.json.MedicamentoJson;
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Medicamento;
+import com.farmacia.service.MedicamentoService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Primário da replicação: envia o fluxo de alterações do catálogo às réplicas conectadas por TCP,
+ * em linhas JSON (o mesmo formato do diário de alterações).
+ * <p>
+ * Protocolo: a réplica abre com {@code {"apos":S}} (última sequência que aplicou). Se S é zero ou
+ * não pertence a esta história, recebe primeiro um instantâneo ({@code {"instantaneo":N,"seq":S}}
+ * seguido de N medicamentos) e depois os eventos posteriores; senão, só os eventos após S (lidos
+ * do anel ou do diário). Os eventos saem em lotes, um flush por lote, sem esperar confirmações:
+ * a réplica devolve {@code {"confirmado":S}} por conta própria, lidas por outra thread. Uma réplica
+ * que perde eventos (fluxo sem diário) recebe um instantâneo novo.
+ * <p>
+ * No modo {@link ModoConfirmacao#SINCRONO}, quem publica uma alteração espera a confirmação de uma
+ * réplica em dia (já fora do instantâneo) até o limite de espera; sem réplica em dia, ou passado o
+ * limite, a escrita segue (com aviso no log).
+ */
+public class ServidorReplicacao {
+    private static final Log LOG = Log.para(ServidorReplicacao.class);
+    private static final MetricaOperacao M_LOTE = Metricas.operacao("replicacao.enviarLote");
+    private static final MetricaOperacao M_INSTANTANEO = Metricas.operacao("replicacao.instantaneo");
+    private static final MetricaOperacao M_CONFIRMACAO = Metricas.operacao("replicacao.esperaConfirmacao");
+
+    static final int LOTE_MAXIMO = 512;
+    private static final long ESPERA_EVENTO_MS = 1000;
+
+    private final MedicamentoService service;
+    private final FluxoAlteracoes fluxo;
+    private final String endereco;
+    private final int porta;
+    private final ModoConfirmacao modo;
+    private final long esperaConfirmacaoMs;
+    private final List<Conexao> conexoes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger contador = new AtomicInteger();
+    private ServerSocket servidor;
+
+    /**
+     * @param endereco            interface de escuta (null = localhost)
+     * @param esperaConfirmacaoMs limite de espera por confirmação no modo síncrono
+     * @throws PersistenciaException se o fluxo de alterações está desativado
+     */
+    public ServidorReplicacao(MedicamentoService service, String endereco, int porta, ModoConfirmacao modo,
+                              long esperaConfirmacaoMs) throws PersistenciaException {
+        this.service = service;
+        this.fluxo = service.fluxoAlteracoes();
+        if (fluxo == null) {
+            throw new PersistenciaException("Replicação exige o fluxo de alterações (farmacia.alteracoes.ativo)");
+        }
+        this.endereco = endereco;
+        this.porta = porta;
+        this.modo = modo;
+        this.esperaConfirmacaoMs = esperaConfirmacaoMs;
+        if (modo == ModoConfirmacao.SINCRONO) {
+            fluxo.aoPublicar(this::aguardarConfirmacao);
+        }
+    }
+
+    public synchronized void iniciar() throws IOException {
+        InetAddress interfaceEscuta = endereco == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(endereco);
+        servidor = new ServerSocket();
+        servidor.bind(new InetSocketAddress(interfaceEscuta, porta));
+        ServerSocket aceitando = servidor;
+        Thread aceite = new Thread(() -> aceitar(aceitando), "replicacao-aceite");
+        aceite.setDaemon(true);
+        aceite.start();
+        LOG.info("Servidor de replicação iniciado", "endereco", servidor.getInetAddress().getHostAddress()
+                + ":" + getPorta(), "modo", modo);
+    }
+
+    public synchronized void parar() {
+        if (servidor == null) {
+            return;
+        }
+        try {
+            servidor.close();
+        } catch (IOException e) {
+            LOG.aviso("Erro ao fechar o servidor de replicação", "erro", e.getMessage());
+        }
+        for (Conexao conexao : conexoes) {
+            conexao.fechar();
+        }
+        servidor = null;
+        LOG.info("Servidor de replicação parado");
+    }
+
+    /**
+     * Porta efetivamente em uso (útil quando criado com porta 0)
+     */
+    public synchronized int getPorta() {
+        return servidor != null ? servidor.getLocalPort() : porta;
+    }
+
+    /**
+     * Réplicas conectadas
+     */
+    public int getReplicas() {
+        return conexoes.size();
+    }
+
+    private void aceitar(ServerSocket aceitando) {
+        while (!aceitando.isClosed()) {
+            try {
+                Socket socket = aceitando.accept();
+                socket.setTcpNoDelay(true);
+                Conexao conexao = new Conexao(socket, "replica-" + contador.incrementAndGet());
+                conexoes.add(conexao);
+                Thread envio = new Thread(conexao::enviar, conexao.nome);
+                envio.setDaemon(true);
+                envio.start();
+            } catch (IOException e) {
+                if (!aceitando.isClosed()) {
+                    LOG.aviso("Erro ao aceitar réplica", "erro", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ========== CONFIRMAÇÃO SÍNCRONA ==========
+
+    /**
+     * Ouvinte síncrono do fluxo (modo síncrono): segura quem publicou até uma réplica em dia
+     * confirmar a sequência do evento
+     */
+    private void aguardarConfirmacao(EventoAlteracao evento) {
+        long inicio = System.nanoTime();
+        long limite = System.currentTimeMillis() + esperaConfirmacaoMs;
+        try {
+            synchronized (this) {
+                while (true) {
+                    boolean haEmDia = false;
+                    for (Conexao conexao : conexoes) {
+                        if (conexao.emDia) {
+                            haEmDia = true;
+                            if (conexao.confirmada >= evento.getSequencia()) {
+                                return;
+                            }
+                        }
+                    }
+                    long restante = limite - System.currentTimeMillis();
+                    if (!haEmDia) {
+                        return;
+                    }
+                    if (restante <= 0) {
+                        LOG.avisoLimitado("Réplica não confirmou a tempo; a escrita segue sem confirmação",
+                                "seq", evento.getSequencia(), "esperaMs", esperaConfirmacaoMs);
+                        return;
+                    }
+                    wait(restante);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            M_CONFIRMACAO.registrar(System.nanoTime() - inicio, false);
+        }
+    }
+
+    private synchronized void confirmacaoRecebida() {
+        notifyAll();
+    }
+
+    // ========== CONEXÃO COM UMA RÉPLICA ==========
+
+    private final class Conexao {
+        private final Socket socket;
+        private final String nome;
+        // Última sequência gravada pela réplica; em dia = já recebeu o instantâneo (se houve)
+        private volatile long confirmada;
+        private volatile boolean emDia;
+        private volatile FluxoAlteracoes.Assinatura assinatura;
+
+        Conexao(Socket socket, String nome) {
+            this.socket = socket;
+            this.nome = nome;
+        }
+
+        /**
+         * Thread de envio: abertura, instantâneo se preciso e eventos em lotes até a conexão cair
+         */
+        void enviar() {
+            try (BufferedReader leitor = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer saida = new BufferedWriter(
+                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+
+                String abertura = leitor.readLine();
+                if (abertura == null) {
+                    return;
+                }
+                long apos = ((Number) Json.lerObjeto(abertura).getOrDefault("apos", 0L)).longValue();
+                LOG.info("Réplica conectada", "replica", nome, "origem", socket.getRemoteSocketAddress(), "apos", apos);
+
+                if (apos <= 0 || apos > fluxo.ultimaSequencia()) {
+                    enviarInstantaneo(saida);
+                } else {
+                    assinatura = fluxo.assinar(nome, apos);
+                    confirmada = apos;
+                    emDia = true;
+                }
+
+                Thread confirmacoes = new Thread(() -> receberConfirmacoes(leitor), nome + "-confirmacoes");
+                confirmacoes.setDaemon(true);
+                confirmacoes.start();
+
+                while (!socket.isClosed()) {
+                    EventoAlteracao primeiro = assinatura.proximo(ESPERA_EVENTO_MS);
+                    if (primeiro == null) {
+                        continue;
+                    }
+                    List<EventoAlteracao> lote = new ArrayList<>();
+                    lote.add(primeiro);
+                    lote.addAll(assinatura.drenar(LOTE_MAXIMO - 1));
+                    if (assinatura.isPerdeuEventos()) {
+                        // Eventos saíram do anel sem diário para recuperá-los: recomeça do instantâneo
+                        LOG.aviso("Réplica perdeu eventos; reenviando o instantâneo", "replica", nome);
+                        assinatura.cancelar();
+                        enviarInstantaneo(saida);
+                        continue;
+                    }
+                    enviarLote(lote, saida);
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    LOG.aviso("Conexão com a réplica encerrada", "replica", nome, "erro", e.getMessage());
+                }
+            } catch (PersistenciaException | RuntimeException e) {
+                LOG.erro("Erro ao enviar alterações à réplica", e, "replica", nome);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                fechar();
+            }
+        }
+
+        /**
+         * Assina o fluxo antes de ler o catálogo: eventos que já estejam no instantâneo chegam de novo
+         * depois dele, e a réplica os aplica sem efeito (cada evento traz o estado final do medicamento)
+         */
+        private void enviarInstantaneo(Writer saida) throws PersistenciaException, IOException {
+            long inicio = System.nanoTime();
+            boolean sucesso = false;
+            try {
+                emDia = false;
+                assinatura = fluxo.assinar(nome);
+                long seq = assinatura.getCursor();
+                CatalogoIndexado catalogo = service.instantaneoCatalogo();
+
+                Map<String, Object> cabecalho = new LinkedHashMap<>();
+                cabecalho.put("instantaneo", (long) catalogo.tamanho());
+                cabecalho.put("seq", seq);
+                saida.write(Json.escrever(cabecalho));
+                saida.write('\n');
+                for (Medicamento medicamento : catalogo.getTodos()) {
+                    saida.write(Json.escrever(MedicamentoJson.paraMapa(medicamento)));
+                    saida.write('\n');
+                }
+                saida.flush();
+                M_INSTANTANEO.adicionarLinhas(catalogo.tamanho());
+                LOG.info("Instantâneo enviado à réplica", "replica", nome, "medicamentos", catalogo.tamanho(), "seq", seq);
+                sucesso = true;
+            } finally {
+                M_INSTANTANEO.registrar(System.nanoTime() - inicio, !sucesso);
+            }
+        }
+
+        private void enviarLote(List<EventoAlteracao> lote, Writer saida) throws IOException {
+            long inicio = System.nanoTime();
+            boolean sucesso = false;
+            try {
+                for (EventoAlteracao evento : lote) {
+                    saida.write(Json.escrever(evento.paraMapa()));
+                    saida.write('\n');
+                }
+                saida.flush();
+                M_LOTE.adicionarLinhas(lote.size());
+                sucesso = true;
+            } finally {
+                M_LOTE.registrar(System.nanoTime() - inicio, !sucesso);
+            }
+        }
+
+        /**
+         * Thread de confirmações: a réplica confirma sem esperar novos envios (envio em pipeline)
+         */
+        private void receberConfirmacoes(BufferedReader leitor) {
+            try {
+                String linha;
+                while ((linha = leitor.readLine()) != null) {
+                    Object valor = Json.lerObjeto(linha).get("confirmado");
+                    if (valor instanceof Number) {
+                        confirmada = ((Number) valor).longValue();
+                        emDia = true;
+                        confirmacaoRecebida();
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                if (!socket.isClosed()) {
+                    LOG.aviso("Confirmações da réplica interrompidas", "replica", nome, "erro", e.getMessage());
+                }
+            } finally {
+                fechar();
+            }
+        }
+
+        void fechar() {
+            if (conexoes.remove(this)) {
+                LOG.info("Réplica desconectada", "replica", nome, "confirmada", confirmada);
+            }
+            if (assinatura != null) {
+                assinatura.cancelar();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Conexão já encerrada: nada a fazer
+            }
+            confirmacaoRecebida();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.farmacia.service;
+
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Acumulador da passada única que alimenta os seis relatórios ao mesmo tempo.
+ * Cada fatia do fork-join tem o seu acumulador; as fatias são combinadas na ordem de
+ * encontro, de modo que as listas saem na mesma ordem da versão sequencial.
+ */
+class AcumuladorRelatorios {
+    private final LocalDate limiteVencimento;
+    private final Function<Medicamento, PrevisaoRuptura> previsor;
+    private final int diasRuptura;
+
+    private final List<Medicamento> proximosVencimento = new ArrayList<>();
+    private final List<Medicamento> estoqueBaixo = new ArrayList<>();
+    private final List<PrevisaoRuptura> ruptura = new ArrayList<>();
+    // Soma em centavos por fornecedor; o long[] é somado no lugar, sem objeto novo por medicamento
+    private final Map<String, long[]> valorPorFornecedor = new HashMap<>();
+    private long controlados;
+    private long naoControlados;
+    private long quantidadeTotal;
+    private long valorTotal;
+    private long somaPrecos;
+
+    AcumuladorRelatorios(LocalDate limiteVencimento, Function<Medicamento, PrevisaoRuptura> previsor,
+                         int diasRuptura) {
+        this.limiteVencimento = limiteVencimento;
+        this.previsor = previsor;
+        this.diasRuptura = diasRuptura;
+    }
+
+    /**
+     * Coletor (paralelizável) que produz o instantâneo a partir de um fluxo de medicamentos; o
+     * previsor dá o ponto de pedido (estoque baixo) e a previsão de ruptura de cada medicamento
+     */
+    static Collector<Medicamento, AcumuladorRelatorios, InstantaneoRelatorios> coletor(
+            LocalDate limiteVencimento, Function<Medicamento, PrevisaoRuptura> previsor, int diasRuptura,
+            long versaoCatalogo) {
+        return Collector.of(
+                () -> new AcumuladorRelatorios(limiteVencimento, previsor, diasRuptura),
+                AcumuladorRelatorios::acumular,
+                AcumuladorRelatorios::combinar,
+                a -> a.concluir(versaoCatalogo));
+    }
+
+    /**
+     * Acumulador equivalente a um instantâneo já calculado (para recombinar instantâneos de lojas)
+     */
+    static AcumuladorRelatorios de(InstantaneoRelatorios instantaneo) {
+        AcumuladorRelatorios a = new AcumuladorRelatorios(null, null, 0);
+        a.proximosVencimento.addAll(instantaneo.getProximosVencimento());
+        a.estoqueBaixo.addAll(instantaneo.getEstoqueBaixo());
+        a.ruptura.addAll(instantaneo.getRuptura());
+        instantaneo.getValorPorFornecedor().forEach((fornecedor, valor) ->
+                a.valorPorFornecedor.put(fornecedor, new long[] {valor.getCentavos()}));
+        a.controlados = instantaneo.getControlados().getOrDefault("Controlados", 0L);
+        a.naoControlados = instantaneo.getControlados().getOrDefault("Não Controlados", 0L);
+        a.quantidadeTotal = ((Number) instantaneo.getEstatisticas().get("quantidadeTotalEstoque")).longValue();
+        a.valorTotal = ((Dinheiro) instantaneo.getEstatisticas().get("valorTotalEstoque")).getCentavos();
+        a.somaPrecos = instantaneo.getSomaPrecos();
+        return a;
+    }
+
+    void acumular(Medicamento m) {
+        if (m.getDataValidade().isBefore(limiteVencimento)) {
+            proximosVencimento.add(m);
+        }
+        PrevisaoRuptura previsao = previsor.apply(m);
+        if (previsao.precisaRepor()) {
+            estoqueBaixo.add(m);
+        }
+        if (previsao.rompeEm(diasRuptura)) {
+            ruptura.add(previsao);
+        }
+
+        long valor = m.getValorEstoqueCentavos();
+        long[] soma = valorPorFornecedor.computeIfAbsent(m.getFornecedor().getIdentificacao(), f -> new long[1]);
+        soma[0] = Dinheiro.somar(soma[0], valor);
+
+        if (m.isControlado()) {
+            controlados++;
+        } else {
+            naoControlados++;
+        }
+
+        quantidadeTotal = Math.addExact(quantidadeTotal, m.getQuantidadeEstoque());
+        valorTotal = Dinheiro.somar(valorTotal, valor);
+        somaPrecos = Dinheiro.somar(somaPrecos, m.getPrecoCentavos());
+    }
+
+    /**
+     * Junta a fatia seguinte (à direita) nesta
+     */
+    AcumuladorRelatorios combinar(AcumuladorRelatorios outro) {
+        proximosVencimento.addAll(outro.proximosVencimento);
+        estoqueBaixo.addAll(outro.estoqueBaixo);
+        ruptura.addAll(outro.ruptura);
+        outro.valorPorFornecedor.forEach((fornecedor, valor) -> valorPorFornecedor.merge(fornecedor, valor, (a, b) -> {
+            a[0] = Dinheiro.somar(a[0], b[0]);
+            return a;
+        }));
+        controlados += outro.controlados;
+        naoControlados += outro.naoControlados;
+        quantidadeTotal = Math.addExact(quantidadeTotal, outro.quantidadeTotal);
+        valorTotal = Dinheiro.somar(valorTotal, outro.valorTotal);
+        somaPrecos = Dinheiro.somar(somaPrecos, outro.somaPrecos);
+        return this;
+    }
+
+    InstantaneoRelatorios concluir(long versaoCatalogo) {
+        // Mesma ordem dos relatórios individuais (validade, depois código; estável para o estoque)
+        proximosVencimento.sort(OrdemListagem.VALIDADE.comparador());
+        estoqueBaixo.sort(Comparator.comparingInt(Medicamento::getQuantidadeEstoque));
+        ruptura.sort(PrevisaoRuptura.ORDEM);
+
+        Map<String, Long> separacao = new HashMap<>();
+        if (controlados > 0) {
+            separacao.put("Controlados", controlados);
+        }
+        if (naoControlados > 0) {
+            separacao.put("Não Controlados", naoControlados);
+        }
+
+        long totalMedicamentos = controlados + naoControlados;
+        long precoMedio = totalMedicamentos == 0 ? 0 : Dinheiro.media(somaPrecos, totalMedicamentos);
+
+        Map<String, Object> estatisticas = Map.of(
+                "totalMedicamentos", totalMedicamentos,
+                "quantidadeTotalEstoque", quantidadeTotal,
+                "valorTotalEstoque", Dinheiro.deCentavos(valorTotal),
+                "precoMedio", Dinheiro.deCentavos(precoMedio)
+        );
+
+        // Cópia com as mesmas chaves inseridas na ordem de iteração: mesma capacidade e mesma ordem
+        Map<String, Dinheiro> valores = new HashMap<>();
+        valorPorFornecedor.forEach((fornecedor, soma) -> valores.put(fornecedor, Dinheiro.deCentavos(soma[0])));
+
+        return new InstantaneoRelatorios(LocalDateTime.now(), versaoCatalogo,
+                proximosVencimento, estoqueBaixo, ruptura, valores, separacao, estatisticas, somaPrecos);
+    }
+}
@@ -1,5 +1,8 @@
 package com.farmacia.service;
 
+import com.farmacia.log.Log;
+import com.farmacia.metricas.MarcosPartida;
+import com.farmacia.metricas.Metricas;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -19,5 +22,15 @@ public class App extends Application {
         primaryStage.setMinWidth(800);
         primaryStage.setMinHeight(600);
         primaryStage.show();
+        MarcosPartida.marcar(MarcosPartida.JANELA_EXIBIDA);
+
+        // O catálogo é aberto pelo controller em segundo plano; o resto também fica fora do caminho crítico
+        Metricas.iniciarDespejoPeriodico();
+    }
+
+    @Override
+    public void stop() {
+        Metricas.despejar();
+        Log.descarregar(2000);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.farmacia.service;
+
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.metricas.MetricaCache;
+import com.farmacia.metricas.Metricas;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache dos resultados de relatórios, por chave (tipo e parâmetros, ex.: "vencimento:30").
+ * Uma entrada vale enquanto a versão do catálogo (incrementada a cada alteração do catálogo)
+ * e o catálogo em memória forem os mesmos do cálculo; este segundo critério cobre alterações
+ * externas ao arquivo. Relatórios que dependem da data de hoje expiram à meia-noite.
+ * Os valores guardados são compartilhados entre chamadas e por isso devem ser imutáveis.
+ */
+class CacheRelatorios {
+
+    @FunctionalInterface
+    interface Calculo<T> {
+        T calcular() throws PersistenciaException;
+    }
+
+    private static final class Entrada {
+        final Object valor;
+        final long versao;
+        final Object catalogo;
+        final LocalDate dia;
+
+        Entrada(Object valor, long versao, Object catalogo, LocalDate dia) {
+            this.valor = valor;
+            this.versao = versao;
+            this.catalogo = catalogo;
+            this.dia = dia;
+        }
+    }
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong versao = new AtomicLong();
+    private final MetricaCache metrica = Metricas.cache("relatorios");
+
+    /**
+     * Versão atual do catálogo
+     */
+    long versao() {
+        return versao.get();
+    }
+
+    /**
+     * Registra uma alteração no catálogo: todas as entradas deixam de valer
+     */
+    void invalidar() {
+        versao.incrementAndGet();
+        entradas.clear();
+        metrica.invalidacao();
+    }
+
+    /**
+     * Devolve o resultado em cache ou calcula e guarda um novo.
+     *
+     * @param catalogo    catálogo sobre o qual o relatório é calculado (comparado por identidade)
+     * @param dependeDoDia se o resultado depende de LocalDate.now() (expira na virada do dia)
+     */
+    @SuppressWarnings("unchecked")
+    <T> T obter(String chave, Object catalogo, boolean dependeDoDia, Calculo<T> calculo) throws PersistenciaException {
+        // A versão é lida antes do cálculo: se houver alteração durante ele, a entrada já nasce vencida
+        long versaoAtual = versao.get();
+        LocalDate hoje = dependeDoDia ? LocalDate.now() : null;
+
+        Entrada entrada = entradas.get(chave);
+        if (entrada != null && entrada.versao == versaoAtual && entrada.catalogo == catalogo) {
+            if (Objects.equals(entrada.dia, hoje)) {
+                metrica.acerto();
+                return (T) entrada.valor;
+            }
+            metrica.expiracao();
+        }
+
+        metrica.falha();
+        T valor = calculo.calcular();
+        entradas.put(chave, new Entrada(valor, versaoAtual, catalogo, hoje));
+        return valor;
+    }
+
+    MetricaCache getMetrica() {
+        return metrica;
+    }
+}
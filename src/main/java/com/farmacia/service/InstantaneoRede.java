@@ -0,0 +1,51 @@
+package com.farmacia.service;
+
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.model.Medicamento;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Relatórios da rede de lojas: o consolidado (como se todas as lojas fossem um só catálogo,
+ * na ordem das lojas) e o instantâneo de cada loja. Imutável.
+ */
+public final class InstantaneoRede {
+    private final InstantaneoRelatorios rede;
+    private final Map<String, InstantaneoRelatorios> porLoja;
+    private final Map<Medicamento, String> lojaDoItem = new IdentityHashMap<>();
+
+    InstantaneoRede(InstantaneoRelatorios rede, Map<String, InstantaneoRelatorios> porLoja) {
+        this.rede = rede;
+        this.porLoja = Collections.unmodifiableMap(porLoja);
+        for (Map.Entry<String, InstantaneoRelatorios> loja : porLoja.entrySet()) {
+            for (Medicamento m : loja.getValue().getProximosVencimento()) {
+                lojaDoItem.put(m, loja.getKey());
+            }
+            for (Medicamento m : loja.getValue().getEstoqueBaixo()) {
+                lojaDoItem.put(m, loja.getKey());
+            }
+            for (PrevisaoRuptura p : loja.getValue().getRuptura()) {
+                lojaDoItem.put(p.getMedicamento(), loja.getKey());
+            }
+        }
+    }
+
+    /**
+     * Relatórios consolidados da rede
+     */
+    public InstantaneoRelatorios getRede() { return rede; }
+
+    /**
+     * Instantâneo de cada loja, na ordem das lojas
+     */
+    public Map<String, InstantaneoRelatorios> getPorLoja() { return porLoja; }
+
+    /**
+     * Loja de um item das listas consolidadas (vencimento, estoque baixo e ruptura); null se não for delas
+     */
+    public String lojaDe(Medicamento medicamento) {
+        return lojaDoItem.get(medicamento);
+    }
+}
@@ -0,0 +1,62 @@
+package com.farmacia.service;
+
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Medicamento;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado imutável dos seis relatórios calculados sobre uma mesma leitura do catálogo.
+ * Cada relatório tem o mesmo conteúdo (e ordem) que o método individual do service devolveria.
+ */
+public final class InstantaneoRelatorios {
+    private final LocalDateTime geradoEm;
+    private final long versaoCatalogo;
+    private final List<Medicamento> proximosVencimento;
+    private final List<Medicamento> estoqueBaixo;
+    private final List<PrevisaoRuptura> ruptura;
+    private final Map<String, Dinheiro> valorPorFornecedor;
+    private final Map<String, Long> controlados;
+    private final Map<String, Object> estatisticas;
+    // Soma dos preços unitários (centavos): permite recombinar o preço médio de várias lojas sem perda
+    private final long somaPrecos;
+
+    InstantaneoRelatorios(LocalDateTime geradoEm, long versaoCatalogo,
+                          List<Medicamento> proximosVencimento, List<Medicamento> estoqueBaixo,
+                          List<PrevisaoRuptura> ruptura,
+                          Map<String, Dinheiro> valorPorFornecedor, Map<String, Long> controlados,
+                          Map<String, Object> estatisticas, long somaPrecos) {
+        this.geradoEm = geradoEm;
+        this.versaoCatalogo = versaoCatalogo;
+        this.proximosVencimento = List.copyOf(proximosVencimento);
+        this.estoqueBaixo = List.copyOf(estoqueBaixo);
+        this.ruptura = List.copyOf(ruptura);
+        // Sem cópia: a ordem de iteração dos mapas é a mesma dos relatórios individuais
+        this.valorPorFornecedor = Collections.unmodifiableMap(valorPorFornecedor);
+        this.controlados = Collections.unmodifiableMap(controlados);
+        this.estatisticas = Collections.unmodifiableMap(estatisticas);
+        this.somaPrecos = somaPrecos;
+    }
+
+    public LocalDateTime getGeradoEm() { return geradoEm; }
+    public long getVersaoCatalogo() { return versaoCatalogo; }
+    public List<Medicamento> getProximosVencimento() { return proximosVencimento; }
+    public List<Medicamento> getEstoqueBaixo() { return estoqueBaixo; }
+    public List<PrevisaoRuptura> getRuptura() { return ruptura; }
+    public Map<String, Dinheiro> getValorPorFornecedor() { return valorPorFornecedor; }
+    public Map<String, Long> getControlados() { return controlados; }
+    public Map<String, Object> getEstatisticas() { return estatisticas; }
+    long getSomaPrecos() { return somaPrecos; }
+
+    @Override
+    public String toString() {
+        return "instantâneo de " + geradoEm + " (versão " + versaoCatalogo + "): vencimento="
+                + proximosVencimento.size() + " estoqueBaixo=" + estoqueBaixo.size()
+                + " ruptura=" + ruptura.size()
+                + " fornecedores=" + valorPorFornecedor.size();
+    }
+}
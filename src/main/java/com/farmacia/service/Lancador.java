@@ -0,0 +1,15 @@
+package com.farmacia.service;
+
+import javafx.application.Application;
+
+/**
+ * Ponto de entrada da aplicação gráfica pelo classpath (java -jar). Uma classe principal que estende
+ * Application exige o JavaFX no module path; esta delega ao {@link App} e dispensa essa exigência,
+ * o que permite gerar e usar arquivos AppCDS a partir do JAR.
+ */
+public class Lancador {
+
+    public static void main(String[] args) {
+        Application.launch(App.class, args);
+    }
+}
@@ -1,75 +1,540 @@
 package com.farmacia.service;
 
-import com.farmacia.dao.MedicamentoDAO;
+import com.farmacia.compras.GeradorPedidos;
+import com.farmacia.compras.PedidoCompra;
+import com.farmacia.consulta.Consulta;
+import com.farmacia.consulta.PlanejadorConsulta;
+import com.farmacia.consulta.ResultadoConsulta;
+import com.farmacia.controlados.LivroControlados;
+import com.farmacia.controlados.MovimentoControlado;
+import com.farmacia.controlados.RepositorioControlado;
+import com.farmacia.dao.CatalogoIndexado;
+import com.farmacia.dao.FabricaRepositorio;
+import com.farmacia.dao.MedicamentoRepository;
+import com.farmacia.dao.OrdemListagem;
+import com.farmacia.dao.Pagina;
+import com.farmacia.duplicados.DetectorDuplicados;
+import com.farmacia.duplicados.GrupoDuplicados;
+import com.farmacia.eventos.FluxoAlteracoes;
+import com.farmacia.eventos.RepositorioObservado;
 import com.farmacia.exception.PersistenciaException;
 import com.farmacia.exception.ValidacaoException;
+import com.farmacia.historico.HistoricoEstoque;
+import com.farmacia.historico.PrevisaoRuptura;
+import com.farmacia.historico.RepositorioHistorico;
+import com.farmacia.metricas.MetricaCache;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+import com.farmacia.model.Dinheiro;
+import com.farmacia.model.Lote;
 import com.farmacia.model.Medicamento;
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MedicamentoService {
 
-    private MedicamentoDAO dao;
+    // Métricas por operação (criadas uma única vez para não alocar no registro)
+    private static final MetricaOperacao M_CADASTRAR = Metricas.operacao("service.cadastrar");
+    private static final MetricaOperacao M_ATUALIZAR = Metricas.operacao("service.atualizar");
+    private static final MetricaOperacao M_EXCLUIR = Metricas.operacao("service.excluir");
+    private static final MetricaOperacao M_MOVIMENTAR = Metricas.operacao("service.movimentarEstoque");
+    private static final MetricaOperacao M_RECEBER_LOTE = Metricas.operacao("service.receberLote");
+    private static final MetricaOperacao M_CONSOLIDAR_LOTES = Metricas.operacao("service.consolidarLotes");
+    private static final MetricaOperacao M_IMPORTAR = Metricas.operacao("service.importar");
+    private static final MetricaOperacao M_CONSULTAR = Metricas.operacao("service.consultar");
+    private static final MetricaOperacao M_LISTAR = Metricas.operacao("service.listarTodos");
+    private static final MetricaOperacao M_LISTAR_PAGINA = Metricas.operacao("service.listarPagina");
+    private static final MetricaOperacao M_CONSULTA = Metricas.operacao("service.executarConsulta");
+    private static final MetricaOperacao M_REL_VENCIMENTO = Metricas.operacao("service.relatorioProximosVencimento");
+    private static final MetricaOperacao M_REL_ESTOQUE = Metricas.operacao("service.relatorioEstoqueBaixo");
+    private static final MetricaOperacao M_REL_RUPTURA = Metricas.operacao("service.relatorioRuptura");
+    private static final MetricaOperacao M_PEDIDOS = Metricas.operacao("service.pedidosCompra");
+    private static final MetricaOperacao M_REL_FORNECEDOR = Metricas.operacao("service.relatorioValorTotalPorFornecedor");
+    private static final MetricaOperacao M_REL_CONTROLADOS = Metricas.operacao("service.relatorioControladosVsNaoControlados");
+    private static final MetricaOperacao M_REL_ESTATISTICAS = Metricas.operacao("service.relatorioEstatisticas");
+    private static final MetricaOperacao M_REL_INSTANTANEO = Metricas.operacao("service.instantaneoRelatorios");
+    private static final MetricaOperacao M_REL_DUPLICADOS = Metricas.operacao("service.relatorioDuplicados");
+    private static final MetricaOperacao M_CONTROLADOS = Metricas.operacao("service.movimentosControlados");
+
+    /** Janela padrão, em dias, do relatório de vencimento */
+    public static final int DIAS_VENCIMENTO = 30;
+    /** Ponto de pedido fixo, usado enquanto o medicamento não tem histórico de consumo suficiente */
+    public static final int LIMITE_ESTOQUE_BAIXO = 5;
+    /** Horizonte, em dias, do relatório de previsão de ruptura */
+    public static final int DIAS_RUPTURA = 30;
+    /** Abaixo deste tamanho de catálogo o instantâneo é calculado numa passada sequencial */
+    private static final int LIMIAR_PARALELO = 2048;
+
+    private MedicamentoRepository dao;
+    private final CacheRelatorios cacheRelatorios = new CacheRelatorios();
+    private final FluxoAlteracoes fluxo;
+    private final LivroControlados livroControlados;
+    private final HistoricoEstoque historico;
 
-    public MedicamentoService() {
-        this.dao = new MedicamentoDAO();
+    /**
+     * Usa o repositório configurado (CSV ou embarcado)
+     */
+    public MedicamentoService() throws PersistenciaException {
+        this(FabricaRepositorio.criar());
+    }
+
+    public MedicamentoService(MedicamentoRepository dao) {
+        this.dao = dao;
+        this.fluxo = dao instanceof RepositorioObservado ? ((RepositorioObservado) dao).getFluxo() : null;
+        MedicamentoRepository decorado = dao instanceof RepositorioObservado ? ((RepositorioObservado) dao).getRepositorio() : dao;
+        this.livroControlados = decorado instanceof RepositorioControlado
+                ? ((RepositorioControlado) decorado).getLivro() : null;
+        decorado = decorado instanceof RepositorioControlado ? ((RepositorioControlado) decorado).getRepositorio() : decorado;
+        this.historico = decorado instanceof RepositorioHistorico
+                ? ((RepositorioHistorico) decorado).getHistorico() : null;
+        if (fluxo != null) {
+            // O cache de relatórios assina o fluxo: qualquer alteração publicada o invalida
+            fluxo.aoPublicar(evento -> cacheRelatorios.invalidar());
+        }
     }
 
     /**
      * Cadastra um novo medicamento após validação
      */
-    public void cadastrar(Medicamento medicamento) throws ValidacaoException, PersistenciaException {
-        validarMedicamento(medicamento);
+    public synchronized void cadastrar(Medicamento medicamento) throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            validarMedicamento(medicamento);
 
-        // Verificar se código já existe
-        if (dao.existeCodigo(medicamento.getCodigo())) {
-            throw new ValidacaoException("Já existe um medicamento cadastrado com o código: " + medicamento.getCodigo());
-        }
+            // Verificar se código já existe
+            if (dao.existeCodigo(medicamento.getCodigo())) {
+                throw new ValidacaoException("Já existe um medicamento cadastrado com o código: " + medicamento.getCodigo());
+            }
 
-        dao.adicionar(medicamento);
+            dao.adicionar(medicamento);
+            alterado();
+            sucesso = true;
+        } finally {
+            M_CADASTRAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
-     * Atualiza um medicamento existente
+     * Atualiza um medicamento existente. Se o medicamento é controlado por lote e a atualização
+     * não traz lotes (ex.: formulário da interface), os lotes atuais são mantidos.
      */
-    public void atualizar(Medicamento medicamento) throws ValidacaoException, PersistenciaException {
-        validarMedicamento(medicamento);
-        dao.atualizar(medicamento);
+    public synchronized void atualizar(Medicamento medicamento) throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Medicamento existente = dao.buscarPorCodigo(medicamento.getCodigo());
+            if (existente != null && existente.temLotes() && !medicamento.temLotes()) {
+                medicamento = new Medicamento(medicamento);
+                medicamento.setLotes(existente.getLotes());
+            }
+            validarMedicamento(medicamento);
+            dao.atualizar(medicamento);
+            alterado();
+            sucesso = true;
+        } finally {
+            M_ATUALIZAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
      * Exclui um medicamento
      */
-    public void excluir(String codigo) throws ValidacaoException, PersistenciaException {
-        if (codigo == null || codigo.trim().isEmpty()) {
-            throw new ValidacaoException("Código não pode ser vazio");
+    public synchronized void excluir(String codigo) throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            if (codigo == null || codigo.trim().isEmpty()) {
+                throw new ValidacaoException("Código não pode ser vazio");
+            }
+
+            boolean removido = dao.remover(codigo);
+            if (!removido) {
+                throw new ValidacaoException("Medicamento não encontrado");
+            }
+            alterado();
+            sucesso = true;
+        } finally {
+            M_EXCLUIR.registrar(System.nanoTime() - inicio, !sucesso);
         }
+    }
 
-        boolean removido = dao.remover(codigo);
-        if (!removido) {
-            throw new ValidacaoException("Medicamento não encontrado");
+    /**
+     * Registra uma movimentação de estoque: quantidade positiva é entrada, negativa é saída (dispensação).
+     * Em medicamentos controlados por lote a saída é FEFO e a entrada é feita por {@link #receberLote}.
+     * Retorna o medicamento com o estoque atualizado.
+     */
+    public synchronized Medicamento movimentarEstoque(String codigo, int quantidade)
+            throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            if (codigo == null || codigo.trim().isEmpty()) {
+                throw new ValidacaoException("Código não pode ser vazio");
+            }
+
+            if (quantidade == 0) {
+                throw new ValidacaoException("Quantidade da movimentação não pode ser zero");
+            }
+
+            Medicamento atual = dao.buscarPorCodigo(codigo);
+            if (atual == null) {
+                throw new ValidacaoException("Medicamento não encontrado");
+            }
+
+            // O catálogo em cache é compartilhado: altera-se uma cópia
+            Medicamento atualizado = new Medicamento(atual);
+            if (atual.temLotes()) {
+                movimentarLotes(atualizado, quantidade);
+            } else {
+                long novoEstoque = (long) atual.getQuantidadeEstoque() + quantidade;
+                if (novoEstoque < 0) {
+                    throw new ValidacaoException("Estoque insuficiente: disponível " + atual.getQuantidadeEstoque());
+                }
+
+                if (novoEstoque > Integer.MAX_VALUE) {
+                    throw new ValidacaoException("Quantidade em estoque excede o limite permitido");
+                }
+                atualizado.setQuantidadeEstoque((int) novoEstoque);
+            }
+            dao.atualizar(atualizado);
+            alterado();
+
+            sucesso = true;
+            return atualizado;
+        } finally {
+            M_MOVIMENTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Saída de um medicamento controlado por lote: baixa FEFO nos lotes dentro da validade.
+     * Entradas precisam do lote ({@link #receberLote}).
+     */
+    private static void movimentarLotes(Medicamento medicamento, int quantidade) throws ValidacaoException {
+        if (quantidade > 0) {
+            throw new ValidacaoException("Medicamento controlado por lote: a entrada exige número e validade do lote");
+        }
+        LocalDate hoje = LocalDate.now();
+        try {
+            medicamento.dispensar(-quantidade, hoje);
+        } catch (IllegalStateException e) {
+            // Só na falta: somar os lotes para a mensagem percorre todos eles
+            throw new ValidacaoException("Estoque insuficiente: disponível " + medicamento.quantidadeDispensavel(hoje)
+                    + " em lotes dentro da validade (de " + medicamento.getQuantidadeEstoque() + " no total)");
+        }
+    }
+
+    /**
+     * Entrada de um lote no estoque. No primeiro lote, o estoque que o medicamento já tinha vira o
+     * lote {@value Medicamento#LOTE_INICIAL}. Retorna o medicamento atualizado.
+     */
+    public synchronized Medicamento receberLote(String codigo, Lote lote) throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            if (codigo == null || codigo.trim().isEmpty()) {
+                throw new ValidacaoException("Código não pode ser vazio");
+            }
+            validarLote(lote);
+            if (lote.getQuantidade() <= 0) {
+                throw new ValidacaoException("Quantidade do lote deve ser positiva");
+            }
+
+            Medicamento atual = dao.buscarPorCodigo(codigo);
+            if (atual == null) {
+                throw new ValidacaoException("Medicamento não encontrado");
+            }
+            if ((long) atual.getQuantidadeEstoque() + lote.getQuantidade() > Integer.MAX_VALUE) {
+                throw new ValidacaoException("Quantidade em estoque excede o limite permitido");
+            }
+
+            Medicamento atualizado = new Medicamento(atual);
+            try {
+                atualizado.receberLote(lote);
+            } catch (IllegalArgumentException e) {
+                throw new ValidacaoException(e.getMessage());
+            }
+            dao.atualizar(atualizado);
+            alterado();
+
+            sucesso = true;
+            return atualizado;
+        } finally {
+            M_RECEBER_LOTE.registrar(System.nanoTime() - inicio, !sucesso);
         }
     }
 
+    /**
+     * Junta registros com o mesmo código (o mesmo produto cadastrado várias vezes, um por
+     * validade) num único medicamento controlado por lote. Cada registro sem lotes vira o lote
+     * {@code <codigo>-<validade>}; os demais campos vêm do primeiro registro.
+     * Retorna quantos registros foram absorvidos.
+     *
+     * @throws ValidacaoException se um código não pode ser consolidado (mesmo número de lote com
+     *         validades diferentes, ou soma acima do limite); nada é gravado
+     */
+    public synchronized int consolidarLotes() throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Map<String, Medicamento> porCodigo = new LinkedHashMap<>();
+            Map<String, List<Medicamento>> repetidos = new LinkedHashMap<>();
+            for (Medicamento m : dao.catalogo().getTodos()) {
+                String chave = m.getCodigo().toUpperCase();
+                if (porCodigo.putIfAbsent(chave, m) != null) {
+                    repetidos.computeIfAbsent(chave, c -> new ArrayList<>()).add(m);
+                }
+            }
+            if (repetidos.isEmpty()) {
+                sucesso = true;
+                return 0;
+            }
+
+            int absorvidos = 0;
+            for (Map.Entry<String, List<Medicamento>> entrada : repetidos.entrySet()) {
+                Medicamento consolidado = new Medicamento(porCodigo.get(entrada.getKey()));
+                List<Lote> lotes = new ArrayList<>(lotesDe(porCodigo.get(entrada.getKey())));
+                for (Medicamento repetido : entrada.getValue()) {
+                    lotes.addAll(lotesDe(repetido));
+                    absorvidos++;
+                }
+                long total = 0;
+                for (Lote lote : lotes) {
+                    total += Math.max(lote.getQuantidade(), 0);
+                }
+                if (total > Integer.MAX_VALUE) {
+                    throw new ValidacaoException("Medicamento " + consolidado.getCodigo()
+                            + ": quantidade em estoque consolidada excede o limite permitido");
+                }
+                try {
+                    consolidado.setLotes(lotes);
+                } catch (IllegalArgumentException e) {
+                    throw new ValidacaoException("Medicamento " + consolidado.getCodigo() + ": " + e.getMessage());
+                }
+                porCodigo.put(entrada.getKey(), consolidado);
+            }
+
+            dao.salvarTodos(new ArrayList<>(porCodigo.values()));
+            alterado();
+            sucesso = true;
+            return absorvidos;
+        } finally {
+            M_CONSOLIDAR_LOTES.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    private static List<Lote> lotesDe(Medicamento m) {
+        if (m.temLotes()) {
+            return m.getLotes();
+        }
+        return Collections.singletonList(new Lote(m.getCodigo() + "-" + m.getDataValidade(),
+                m.getDataValidade(), m.getQuantidadeEstoque()));
+    }
+
+    /**
+     * Importa um lote: códigos novos são inseridos e existentes atualizados. Registros inválidos
+     * são rejeitados sem interromper o lote; o repositório é regravado uma única vez.
+     */
+    public synchronized ResultadoImportacao importar(List<Medicamento> lote) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            ResultadoImportacao resultado = new ResultadoImportacao();
+            Map<String, Medicamento> porCodigo = new LinkedHashMap<>();
+            for (Medicamento m : dao.catalogo().getTodos()) {
+                porCodigo.put(m.getCodigo(), m);
+            }
+
+            for (Medicamento medicamento : lote) {
+                try {
+                    validarMedicamento(medicamento);
+                } catch (ValidacaoException e) {
+                    resultado.rejeitado(medicamento.getCodigo(), e.getMessage());
+                    continue;
+                }
+
+                if (porCodigo.put(medicamento.getCodigo(), medicamento) == null) {
+                    resultado.inserido();
+                } else {
+                    resultado.atualizado();
+                }
+            }
+
+            if (resultado.getInseridos() + resultado.getAtualizados() > 0) {
+                dao.salvarTodos(new ArrayList<>(porCodigo.values()));
+                alterado();
+            }
+
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_IMPORTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Compacta o armazenamento do repositório (no embarcado, encerra a conexão)
+     */
+    public synchronized void compactarRepositorio() throws PersistenciaException {
+        dao.compactar();
+    }
+
+    /**
+     * true se outro processo grava no repositório e este só o acompanha (escritas são recusadas)
+     */
+    public boolean isSomenteLeitura() {
+        return dao.isSomenteLeitura();
+    }
+
+    /**
+     * Descrição do repositório em uso (tipo e local)
+     */
+    public String descricaoRepositorio() {
+        return dao.descricao();
+    }
+
     /**
      * Consulta um medicamento por código
      */
     public Medicamento consultar(String codigo) throws ValidacaoException, PersistenciaException {
-        if (codigo == null || codigo.trim().isEmpty()) {
-            throw new ValidacaoException("Código não pode ser vazio");
-        }
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            if (codigo == null || codigo.trim().isEmpty()) {
+                throw new ValidacaoException("Código não pode ser vazio");
+            }
 
-        return dao.buscarPorCodigo(codigo);
+            Medicamento medicamento = dao.buscarPorCodigo(codigo);
+            sucesso = true;
+            return medicamento;
+        } finally {
+            M_CONSULTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
      * Lista todos os medicamentos
      */
     public List<Medicamento> listarTodos() throws PersistenciaException {
-        return dao.carregarTodos();
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            List<Medicamento> medicamentos = dao.carregarTodos();
+            sucesso = true;
+            return medicamentos;
+        } finally {
+            M_LISTAR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Visão imutável do catálogo num ponto do tempo, obtida sem copiar a lista e sem esperar
+     * por escritas em andamento (que publicam uma nova versão ao terminar). Exportações e
+     * relatórios longos devem trabalhar sobre ela.
+     */
+    public CatalogoIndexado instantaneoCatalogo() throws PersistenciaException {
+        return dao.catalogo();
+    }
+
+    /**
+     * Percorre o armazenamento sem carregar o catálogo em memória, para exportações maiores que o
+     * heap (ver {@link com.farmacia.exportacao.ExportacaoOrdenada})
+     */
+    public void percorrerArmazenamento(Consumer<Medicamento> consumidor) throws PersistenciaException {
+        dao.percorrer(consumidor);
+    }
+
+    /**
+     * Movimentos de medicamentos controlados entre as datas (inclusive), pelo livro de controlados.
+     * Código nulo traz os movimentos de todos os controlados; datas nulas deixam o período aberto.
+     */
+    public List<MovimentoControlado> movimentosControlados(String codigo, LocalDate de, LocalDate ate)
+            throws ValidacaoException, PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            if (livroControlados == null) {
+                throw new ValidacaoException("Livro de controlados desativado (farmacia.controlados.ativo)");
+            }
+            if (de != null && ate != null && de.isAfter(ate)) {
+                throw new ValidacaoException("Data inicial posterior à data final");
+            }
+            List<MovimentoControlado> movimentos = livroControlados.consultar(
+                    codigo == null ? null : codigo.trim().toUpperCase(),
+                    de == null ? null : de.atStartOfDay(),
+                    ate == null ? null : ate.plusDays(1).atStartOfDay());
+            sucesso = true;
+            return movimentos;
+        } finally {
+            M_CONTROLADOS.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Total de medicamentos cadastrados
+     */
+    public int contarMedicamentos() throws PersistenciaException {
+        return dao.contar();
+    }
+
+    /**
+     * Lista uma janela da listagem ordenada (acesso por posição, usado pela tabela paginada)
+     */
+    public List<Medicamento> listarJanela(OrdemListagem ordem, int inicio, int tamanho) throws PersistenciaException {
+        long inicioNanos = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            List<Medicamento> janela = dao.listarJanela(ordem, inicio, tamanho);
+            sucesso = true;
+            return janela;
+        } finally {
+            M_LISTAR_PAGINA.registrar(System.nanoTime() - inicioNanos, !sucesso);
+        }
+    }
+
+    /**
+     * Lista a página seguinte a {@code apos} (paginação por chave; null = primeira página)
+     */
+    public Pagina listarPagina(OrdemListagem ordem, Medicamento apos, int tamanho) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Pagina pagina = dao.listarApos(ordem, apos, tamanho);
+            sucesso = true;
+            return pagina;
+        } finally {
+            M_LISTAR_PAGINA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Executa uma consulta ad hoc (filtros, ordenação, paginação e projeção) sobre o catálogo indexado
+     */
+    public ResultadoConsulta executarConsulta(Consulta consulta) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            ResultadoConsulta resultado = PlanejadorConsulta.executar(consulta, dao.catalogo());
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_CONSULTA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Descreve o plano que seria usado para a consulta, sem executá-la
+     */
+    public String explicarConsulta(Consulta consulta) throws PersistenciaException {
+        return PlanejadorConsulta.planejar(consulta, dao.catalogo()).explicar();
     }
 
     /**
@@ -113,7 +578,12 @@ public class MedicamentoService {
             throw new ValidacaoException("Data de validade é obrigatória");
         }
 
-        if (med.getDataValidade().isBefore(LocalDate.now())) {
+        // Com lotes, a validade é a do primeiro lote a vencer, que pode já ter vencido
+        if (med.temLotes()) {
+            for (Lote lote : med.getLotes()) {
+                validarLote(lote);
+            }
+        } else if (med.getDataValidade().isBefore(LocalDate.now())) {
             throw new ValidacaoException("Data de validade não pode ser no passado");
         }
 
@@ -123,7 +593,7 @@ public class MedicamentoService {
         }
 
         // Validar preço
-        if (med.getPreco() == null || med.getPreco().compareTo(BigDecimal.ZERO) <= 0) {
+        if (med.getPrecoCentavos() <= 0) {
             throw new ValidacaoException("Preço deve ser maior que zero");
         }
 
@@ -135,6 +605,15 @@ public class MedicamentoService {
         validarFornecedor(med.getFornecedor());
     }
 
+    private static void validarLote(Lote lote) throws ValidacaoException {
+        if (lote == null || !Lote.numeroValido(lote.getNumero())) {
+            throw new ValidacaoException("Número do lote é obrigatório e não pode conter ';', '|' ou ':'");
+        }
+        if (lote.getQuantidade() < 0) {
+            throw new ValidacaoException("Quantidade do lote não pode ser negativa");
+        }
+    }
+
     /**
      * Valida dados do fornecedor
      */
@@ -225,83 +704,304 @@ public class MedicamentoService {
         }
     }
 
+    /**
+     * Fluxo de alterações do catálogo, para assinantes (interface, exportadores); null se desativado
+     */
+    public FluxoAlteracoes fluxoAlteracoes() {
+        return fluxo;
+    }
+
+    /**
+     * Após uma escrita: sem fluxo de alterações, o cache de relatórios é invalidado aqui
+     */
+    private void alterado() {
+        if (fluxo == null) {
+            cacheRelatorios.invalidar();
+        }
+    }
+
     // ========== RELATÓRIOS COM STREAM API ==========
+    // Resultados guardados em cache (imutáveis) até a próxima alteração do catálogo
 
     /**
      * Relatório: Medicamentos próximos ao vencimento (30 dias)
      */
     public List<Medicamento> relatorioProximosVencimento() throws PersistenciaException {
-        LocalDate dataLimite = LocalDate.now().plusDays(30);
+        return relatorioProximosVencimento(DIAS_VENCIMENTO);
+    }
 
-        return dao.carregarTodos().stream()
-                .filter(m -> m.getDataValidade().isBefore(dataLimite))
-                .sorted((m1, m2) -> m1.getDataValidade().compareTo(m2.getDataValidade()))
-                .collect(Collectors.toList());
+    /**
+     * Relatório: Medicamentos que vencem nos próximos {@code dias} dias (ou já vencidos).
+     * Com controle por lote, entra o medicamento que tem algum lote com saldo vencendo no período.
+     */
+    public List<Medicamento> relatorioProximosVencimento(int dias) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            List<Medicamento> resultado = cacheRelatorios.obter("vencimento:" + dias, catalogo, true, () -> {
+                LocalDate dataLimite = LocalDate.now().plusDays(dias);
+
+                // Pelo índice de validade (a do primeiro lote a vencer), sem percorrer o catálogo
+                List<Medicamento> lista = new ArrayList<>();
+                for (List<Medicamento> mesmaData : catalogo.indiceValidade().headMap(dataLimite, false).values()) {
+                    lista.addAll(mesmaData);
+                }
+                lista.sort(OrdemListagem.VALIDADE.comparador());
+                return Collections.unmodifiableList(lista);
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_VENCIMENTO.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
-     * Relatório: Medicamentos com estoque baixo (menos de 5)
+     * Relatório: Medicamentos abaixo do ponto de pedido, calculado pelo consumo do histórico de
+     * estoque (ou menos de 5 unidades, sem histórico suficiente), do menor estoque para o maior
      */
     public List<Medicamento> relatorioEstoqueBaixo() throws PersistenciaException {
-        return dao.carregarTodos().stream()
-                .filter(m -> m.getQuantidadeEstoque() < 5)
-                .sorted((m1, m2) -> Integer.compare(m1.getQuantidadeEstoque(), m2.getQuantidadeEstoque()))
-                .collect(Collectors.toList());
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            List<Medicamento> resultado = cacheRelatorios.obter("estoque-baixo", catalogo, true, () -> {
+                LocalDate hoje = LocalDate.now();
+                return Collections.unmodifiableList(fluxoDe(catalogo.getTodos())
+                        .filter(m -> prever(m, hoje).precisaRepor())
+                        .sorted((m1, m2) -> Integer.compare(m1.getQuantidadeEstoque(), m2.getQuantidadeEstoque()))
+                        .collect(Collectors.toList()));
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_ESTOQUE.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
-     * Relatório: Valor total do estoque por fornecedor
+     * Relatório: Medicamentos com menos de {@code limite} unidades em estoque
      */
-    public Map<String, BigDecimal> relatorioValorTotalPorFornecedor() throws PersistenciaException {
-        return dao.carregarTodos().stream()
-                .collect(Collectors.groupingBy(
-                        m -> m.getFornecedor().getRazaoSocial(),
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                m -> m.getPreco().multiply(new BigDecimal(m.getQuantidadeEstoque())),
-                                BigDecimal::add
-                        )
-                ));
+    public List<Medicamento> relatorioEstoqueBaixo(int limite) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            List<Medicamento> resultado = cacheRelatorios.obter("estoque-baixo:" + limite, catalogo, false, () ->
+                    Collections.unmodifiableList(catalogo.getTodos().stream()
+                            .filter(m -> m.getQuantidadeEstoque() < limite)
+                            .sorted((m1, m2) -> Integer.compare(m1.getQuantidadeEstoque(), m2.getQuantidadeEstoque()))
+                            .collect(Collectors.toList())));
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_ESTOQUE.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Relatório: Previsão de ruptura dos medicamentos cujo estoque acaba em até 30 dias no consumo
+     * médio do histórico, do primeiro a acabar para o último. Calculado em paralelo para catálogos grandes.
+     */
+    public List<PrevisaoRuptura> relatorioRuptura() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            List<PrevisaoRuptura> resultado = cacheRelatorios.obter("ruptura", catalogo, true, () -> {
+                LocalDate hoje = LocalDate.now();
+                return Collections.unmodifiableList(fluxoDe(catalogo.getTodos())
+                        .map(m -> prever(m, hoje))
+                        .filter(p -> p.rompeEm(DIAS_RUPTURA))
+                        .sorted(PrevisaoRuptura.ORDEM)
+                        .collect(Collectors.toList()));
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_RUPTURA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Previsão de ruptura e ponto de pedido de um medicamento (limite fixo sem histórico)
+     */
+    public PrevisaoRuptura previsaoRuptura(String codigo) throws ValidacaoException, PersistenciaException {
+        Medicamento medicamento = dao.buscarPorCodigo(codigo.trim().toUpperCase());
+        if (medicamento == null) {
+            throw new ValidacaoException("Medicamento não encontrado: " + codigo);
+        }
+        return prever(medicamento, LocalDate.now());
+    }
+
+    /**
+     * Pedidos de compra de reposição, um por fornecedor (CNPJ), com os medicamentos cujo estoque
+     * útil (sem o que vence antes da reposição chegar) está abaixo do ponto de pedido; agrupados
+     * numa passada paralela para catálogos grandes
+     */
+    public List<PedidoCompra> pedidosCompra() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            List<PedidoCompra> resultado = cacheRelatorios.obter("pedidos", catalogo, true, () -> {
+                LocalDate hoje = LocalDate.now();
+                int prazo = historico != null ? historico.getPrazo() : HistoricoEstoque.PRAZO_PADRAO;
+                List<Medicamento> medicamentos = catalogo.getTodos();
+                return Collections.unmodifiableList(new GeradorPedidos(m -> prever(m, hoje), hoje, prazo,
+                        GeradorPedidos.COBERTURA_PADRAO).gerar(medicamentos, medicamentos.size() >= LIMIAR_PARALELO));
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_PEDIDOS.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    private PrevisaoRuptura prever(Medicamento medicamento, LocalDate hoje) {
+        return historico == null ? PrevisaoRuptura.fixa(medicamento, LIMITE_ESTOQUE_BAIXO, 0)
+                : historico.prever(medicamento, hoje, LIMITE_ESTOQUE_BAIXO);
+    }
+
+    /**
+     * Fluxo paralelo (pool fork-join comum) a partir de {@value #LIMIAR_PARALELO} medicamentos
+     */
+    private static Stream<Medicamento> fluxoDe(List<Medicamento> medicamentos) {
+        return medicamentos.size() >= LIMIAR_PARALELO ? medicamentos.parallelStream() : medicamentos.stream();
+    }
+
+    /**
+     * Relatório: Grupos de possíveis produtos duplicados (mesmo nome, princípio ativo e dosagem
+     * normalizados, com similaridade de Jaccard de pelo menos {@code limiar}), dos maiores para os
+     * menores. Usa MinHash/LSH sobre um instantâneo, sem comparar todos os pares do catálogo.
+     */
+    public List<GrupoDuplicados> relatorioDuplicados(double limiar) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            List<GrupoDuplicados> grupos = new DetectorDuplicados(limiar).detectar(dao.catalogo().getTodos());
+            sucesso = true;
+            return grupos;
+        } finally {
+            M_REL_DUPLICADOS.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Relatório: Valor total do estoque por fornecedor (razão social e CNPJ, para não somar homônimos)
+     */
+    public Map<String, Dinheiro> relatorioValorTotalPorFornecedor() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            Map<String, Dinheiro> resultado = cacheRelatorios.obter("valor-por-fornecedor", catalogo, false, () ->
+                    Collections.unmodifiableMap(catalogo.getTodos().stream()
+                            .collect(Collectors.groupingBy(
+                                    m -> m.getFornecedor().getIdentificacao(),
+                                    Dinheiro.somando(Medicamento::getValorEstoqueCentavos)
+                            ))));
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_FORNECEDOR.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
      * Relatório: Medicamentos controlados vs não controlados
      */
     public Map<String, Long> relatorioControladosVsNaoControlados() throws PersistenciaException {
-        return dao.carregarTodos().stream()
-                .collect(Collectors.groupingBy(
-                        m -> m.isControlado() ? "Controlados" : "Não Controlados",
-                        Collectors.counting()
-                ));
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            Map<String, Long> resultado = cacheRelatorios.obter("controlados", catalogo, false, () ->
+                    Collections.unmodifiableMap(catalogo.getTodos().stream()
+                            .collect(Collectors.groupingBy(
+                                    m -> m.isControlado() ? "Controlados" : "Não Controlados",
+                                    Collectors.counting()
+                            ))));
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_CONTROLADOS.registrar(System.nanoTime() - inicio, !sucesso);
+        }
     }
 
     /**
      * Relatório: Estatísticas gerais
      */
     public Map<String, Object> relatorioEstatisticas() throws PersistenciaException {
-        List<Medicamento> medicamentos = dao.carregarTodos();
-
-        long totalMedicamentos = medicamentos.size();
-
-        int quantidadeTotal = medicamentos.stream()
-                .mapToInt(Medicamento::getQuantidadeEstoque)
-                .sum();
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            Map<String, Object> resultado = cacheRelatorios.obter("estatisticas", catalogo, false, () -> {
+                List<Medicamento> medicamentos = catalogo.getTodos();
+
+                long totalMedicamentos = medicamentos.size();
+
+                // Soma de ints em long: muitos estoques grandes passam de Integer.MAX_VALUE
+                long quantidadeTotal = medicamentos.stream()
+                        .mapToLong(Medicamento::getQuantidadeEstoque)
+                        .reduce(0, Math::addExact);
+
+                Dinheiro valorTotal = medicamentos.stream()
+                        .collect(Dinheiro.somando(Medicamento::getValorEstoqueCentavos));
+
+                Dinheiro precoMedio = medicamentos.isEmpty() ? Dinheiro.ZERO : Dinheiro.deCentavos(Dinheiro.media(
+                        medicamentos.stream().collect(Dinheiro.somando(Medicamento::getPrecoCentavos)).getCentavos(),
+                        medicamentos.size()));
+
+                return Map.<String, Object>of(
+                        "totalMedicamentos", totalMedicamentos,
+                        "quantidadeTotalEstoque", quantidadeTotal,
+                        "valorTotalEstoque", valorTotal,
+                        "precoMedio", precoMedio
+                );
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_ESTATISTICAS.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
 
-        BigDecimal valorTotal = medicamentos.stream()
-                .map(m -> m.getPreco().multiply(new BigDecimal(m.getQuantidadeEstoque())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Instantâneo dos seis relatórios (parâmetros padrão) sobre uma única leitura do catálogo,
+     * calculados numa só passada, em paralelo no pool fork-join comum para catálogos grandes
+     */
+    public InstantaneoRelatorios instantaneoRelatorios() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CatalogoIndexado catalogo = dao.catalogo();
+            long versao = cacheRelatorios.versao();
+            InstantaneoRelatorios resultado = cacheRelatorios.obter("instantaneo", catalogo, true, () -> {
+                LocalDate hoje = LocalDate.now();
+                return fluxoDe(catalogo.getTodos()).collect(AcumuladorRelatorios.coletor(
+                        hoje.plusDays(DIAS_VENCIMENTO), m -> prever(m, hoje), DIAS_RUPTURA, versao));
+            });
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_REL_INSTANTANEO.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
 
-        BigDecimal precoMedio = medicamentos.isEmpty() ? BigDecimal.ZERO :
-                medicamentos.stream()
-                        .map(Medicamento::getPreco)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add)
-                        .divide(new BigDecimal(medicamentos.size()), 2, BigDecimal.ROUND_HALF_UP);
+    /**
+     * Estatísticas do cache de relatórios (acertos, falhas, invalidações, expirações)
+     */
+    public MetricaCache estatisticasCacheRelatorios() {
+        return cacheRelatorios.getMetrica();
+    }
 
-        return Map.of(
-                "totalMedicamentos", totalMedicamentos,
-                "quantidadeTotalEstoque", quantidadeTotal,
-                "valorTotalEstoque", valorTotal,
-                "precoMedio", precoMedio
-        );
+    /**
+     * Versão do catálogo: incrementada a cada alteração (com o fluxo ativo, uma vez por medicamento alterado)
+     */
+    public long versaoCatalogo() {
+        return cacheRelatorios.versao();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,171 @@
+package com.farmacia.service;
+
+import com.farmacia.config.Configuracao;
+import com.farmacia.consulta.Consulta;
+import com.farmacia.consulta.ResultadoConsulta;
+import com.farmacia.dao.RepositorioLojas;
+import com.farmacia.exception.PersistenciaException;
+import com.farmacia.exception.ValidacaoException;
+import com.farmacia.metricas.MetricaOperacao;
+import com.farmacia.metricas.Metricas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Rede de lojas: um {@link MedicamentoService} por loja (cada um com o seu cache de relatórios)
+ * e consultas e relatórios consolidados, executados em paralelo (uma tarefa por loja no pool
+ * fork-join comum) e mesclados na ordem das lojas.
+ */
+public class RedeLojas {
+    private static final MetricaOperacao M_INSTANTANEO = Metricas.operacao("rede.instantaneoRelatorios");
+    private static final MetricaOperacao M_CONSULTA = Metricas.operacao("rede.executarConsulta");
+
+    @FunctionalInterface
+    private interface TarefaLoja<T> {
+        T executar(MedicamentoService service) throws PersistenciaException;
+    }
+
+    private final RepositorioLojas repositorio;
+    private final Map<String, MedicamentoService> servicos = new LinkedHashMap<>();
+
+    public RedeLojas(RepositorioLojas repositorio) {
+        this.repositorio = repositorio;
+        for (String loja : repositorio.lojas()) {
+            servicos.put(loja, new MedicamentoService(repositorio.particao(loja)));
+        }
+    }
+
+    /**
+     * Abre a rede no diretório configurado (farmacia.lojas.diretorio)
+     */
+    public static RedeLojas abrir() throws PersistenciaException {
+        return new RedeLojas(RepositorioLojas.abrir(Configuracao.diretorioLojas()));
+    }
+
+    /**
+     * Nomes das lojas, na ordem da rede
+     */
+    public synchronized List<String> lojas() {
+        return Collections.unmodifiableList(new ArrayList<>(servicos.keySet()));
+    }
+
+    /**
+     * Service de uma loja, para cadastro, movimentação e relatórios locais
+     */
+    public synchronized MedicamentoService servico(String loja) throws ValidacaoException {
+        MedicamentoService service = servicos.get(loja);
+        if (service == null) {
+            throw new ValidacaoException("Loja não encontrada: " + loja);
+        }
+        return service;
+    }
+
+    /**
+     * Acrescenta uma loja vazia à rede
+     */
+    public synchronized MedicamentoService criarLoja(String loja) throws PersistenciaException {
+        MedicamentoService service = new MedicamentoService(repositorio.criarLoja(loja));
+        servicos.put(loja, service);
+        return service;
+    }
+
+    /**
+     * Total de medicamentos em cada loja
+     */
+    public Map<String, Integer> contarPorLoja() throws PersistenciaException {
+        return emCadaLoja(MedicamentoService::contarMedicamentos);
+    }
+
+    /**
+     * Relatórios consolidados da rede: cada loja calcula o seu instantâneo (em paralelo, aproveitando
+     * o cache da loja) e os resultados são recombinados sem reler nenhum catálogo
+     */
+    public InstantaneoRede instantaneoRelatorios() throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Map<String, InstantaneoRelatorios> porLoja = emCadaLoja(MedicamentoService::instantaneoRelatorios);
+
+            AcumuladorRelatorios consolidado = null;
+            long versao = 0;
+            for (InstantaneoRelatorios loja : porLoja.values()) {
+                AcumuladorRelatorios parcial = AcumuladorRelatorios.de(loja);
+                consolidado = consolidado == null ? parcial : consolidado.combinar(parcial);
+                versao += loja.getVersaoCatalogo();
+            }
+            if (consolidado == null) {
+                consolidado = new AcumuladorRelatorios(null, null, 0);
+            }
+
+            InstantaneoRede resultado = new InstantaneoRede(consolidado.concluir(versao), porLoja);
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_INSTANTANEO.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Executa a mesma consulta em todas as lojas, em paralelo; o resultado de cada loja
+     * respeita a ordenação, o deslocamento e o limite da consulta
+     */
+    public Map<String, ResultadoConsulta> executarConsulta(Consulta consulta) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Map<String, ResultadoConsulta> resultado = emCadaLoja(s -> s.executarConsulta(consulta));
+            sucesso = true;
+            return resultado;
+        } finally {
+            M_CONSULTA.registrar(System.nanoTime() - inicio, !sucesso);
+        }
+    }
+
+    /**
+     * Fecha os repositórios de todas as lojas
+     */
+    public void fechar() {
+        repositorio.fechar();
+    }
+
+    /**
+     * Executa a tarefa em cada loja no pool fork-join comum e devolve os resultados na ordem das lojas
+     */
+    private <T> Map<String, T> emCadaLoja(TarefaLoja<T> tarefa) throws PersistenciaException {
+        Map<String, MedicamentoService> atuais;
+        synchronized (this) {
+            atuais = new LinkedHashMap<>(servicos);
+        }
+
+        List<Callable<T>> tarefas = new ArrayList<>();
+        for (MedicamentoService service : atuais.values()) {
+            tarefas.add(() -> tarefa.executar(service));
+        }
+
+        List<Future<T>> futuros = ForkJoinPool.commonPool().invokeAll(tarefas);
+        Map<String, T> resultados = new LinkedHashMap<>();
+        int i = 0;
+        for (String loja : atuais.keySet()) {
+            try {
+                resultados.put(loja, futuros.get(i++).get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PersistenciaException) {
+                    throw new PersistenciaException("Loja " + loja + ": " + e.getCause().getMessage(), e.getCause());
+                }
+                throw new PersistenciaException("Erro na loja " + loja, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PersistenciaException("Consulta à rede interrompida", e);
+            }
+        }
+        return resultados;
+    }
+}
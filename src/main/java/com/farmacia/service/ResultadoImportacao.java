@@ -0,0 +1,27 @@
+package com.farmacia.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resumo de uma importação em lote: registros inseridos, atualizados e rejeitados (com o motivo)
+ */
+public class ResultadoImportacao {
+    private int inseridos;
+    private int atualizados;
+    private final List<String> rejeitados = new ArrayList<>();
+
+    void inserido() { inseridos++; }
+    void atualizado() { atualizados++; }
+    void rejeitado(String codigo, String motivo) { rejeitados.add(codigo + ": " + motivo); }
+
+    public int getInseridos() { return inseridos; }
+    public int getAtualizados() { return atualizados; }
+    public List<String> getRejeitados() { return Collections.unmodifiableList(rejeitados); }
+
+    @Override
+    public String toString() {
+        return "inseridos=" + inseridos + " atualizados=" + atualizados + " rejeitados=" + rejeitados.size();
+    }
+}
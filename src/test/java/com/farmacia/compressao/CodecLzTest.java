@@ -0,0 +1,184 @@
+package com.farmacia.compressao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecLzTest {
+
+    @TempDir
+    File diretorio;
+
+    // ========== CODEC ==========
+
+    @Test
+    void blocosVaziosECurtosVoltamIguais() {
+        for (int tamanho = 0; tamanho <= 12; tamanho++) {
+            byte[] dados = new byte[tamanho];
+            for (int i = 0; i < tamanho; i++) {
+                dados[i] = (byte) ('a' + i);
+            }
+            assertArrayEquals(dados, idaEVolta(dados), "tamanho " + tamanho);
+        }
+    }
+
+    @Test
+    void csvRepetitivoComprimeEVoltaIgual() {
+        byte[] dados = csv(5000);
+        byte[] comprimido = CodecLz.comprimir(dados, 0, dados.length);
+        assertTrue(comprimido.length < dados.length / 2, "taxa: " + comprimido.length + " de " + dados.length);
+        assertArrayEquals(dados, CodecLz.descomprimir(comprimido, 0, comprimido.length, dados.length));
+    }
+
+    @Test
+    void dadosAleatoriosNaoPassamDoLimite() {
+        Random aleatorio = new Random(7);
+        for (int tamanho : new int[] {100, 4096, 200_000}) {
+            byte[] dados = new byte[tamanho];
+            aleatorio.nextBytes(dados);
+            byte[] comprimido = CodecLz.comprimir(dados, 0, dados.length);
+            assertTrue(comprimido.length <= CodecLz.limiteComprimido(tamanho));
+            assertArrayEquals(dados, CodecLz.descomprimir(comprimido, 0, comprimido.length, dados.length));
+        }
+    }
+
+    @Test
+    void repeticaoSobrepostaELongaVoltaIgual() {
+        // Um só byte repetido: repetições com deslocamento 1 e comprimento com vários bytes de continuação
+        byte[] dados = new byte[70_000];
+        Arrays.fill(dados, (byte) 'x');
+        assertArrayEquals(dados, idaEVolta(dados));
+
+        // Padrão curto repetido, depois literais longos (continuação do número de literais)
+        byte[] misto = new byte[3000];
+        for (int i = 0; i < 1000; i++) {
+            misto[i] = (byte) "abc".charAt(i % 3);
+        }
+        Random aleatorio = new Random(3);
+        for (int i = 1000; i < misto.length; i++) {
+            misto[i] = (byte) aleatorio.nextInt(256);
+        }
+        assertArrayEquals(misto, idaEVolta(misto));
+    }
+
+    @Test
+    void respeitaInicioETamanhoDaOrigem() {
+        byte[] dados = csv(200);
+        byte[] comprimido = CodecLz.comprimir(dados, 100, dados.length - 150);
+
+        byte[] moldura = new byte[comprimido.length + 20];
+        System.arraycopy(comprimido, 0, moldura, 10, comprimido.length);
+        byte[] lido = CodecLz.descomprimir(moldura, 10, comprimido.length, dados.length - 150);
+        assertArrayEquals(Arrays.copyOfRange(dados, 100, dados.length - 50), lido);
+    }
+
+    @Test
+    void blocoCorrompidoOuTamanhoErradoSaoRecusados() {
+        byte[] dados = csv(500);
+        byte[] comprimido = CodecLz.comprimir(dados, 0, dados.length);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CodecLz.descomprimir(comprimido, 0, comprimido.length, dados.length + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> CodecLz.descomprimir(comprimido, 0, comprimido.length / 2, dados.length));
+    }
+
+    // ========== ARQUIVO EM BLOCOS ==========
+
+    @Test
+    void arquivoEmBlocosVoltaIgualComBlocosTerminandoEmFimDeLinha() throws IOException {
+        byte[] dados = csv(3000);
+        File arquivo = gravarBlocos(dados, 4096);
+
+        try (ArquivoBlocos blocos = ArquivoBlocos.abrir(arquivo)) {
+            assertTrue(blocos.quantidadeBlocos() > 1);
+            assertEquals(dados.length, blocos.tamanhoOriginal());
+            ByteArrayOutputStream lido = new ByteArrayOutputStream();
+            for (int i = 0; i < blocos.quantidadeBlocos(); i++) {
+                byte[] bloco = blocos.lerBloco(i);
+                assertEquals('\n', bloco[bloco.length - 1], "bloco " + i);
+                lido.write(bloco);
+            }
+            assertArrayEquals(dados, lido.toByteArray());
+        }
+    }
+
+    @Test
+    void linhaMaiorQueOBlocoFicaNumBloco() throws IOException {
+        byte[] linha = ("X".repeat(10_000) + "\n").getBytes(StandardCharsets.UTF_8);
+        File arquivo = gravarBlocos(linha, 1024);
+
+        try (ArquivoBlocos blocos = ArquivoBlocos.abrir(arquivo)) {
+            assertEquals(1, blocos.quantidadeBlocos());
+            assertArrayEquals(linha, blocos.lerBloco(0));
+        }
+    }
+
+    @Test
+    void arquivoSemIndiceOuComBlocoAlteradoERecusado() throws IOException {
+        byte[] dados = csv(1000);
+        File arquivo = gravarBlocos(dados, 4096);
+        long tamanho = arquivo.length();
+
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+            acesso.seek(ArquivoBlocos.TAMANHO_CABECALHO + 20);
+            int original = acesso.read();
+            acesso.seek(ArquivoBlocos.TAMANHO_CABECALHO + 20);
+            acesso.write(original ^ 0x55);
+        }
+        try (ArquivoBlocos blocos = ArquivoBlocos.abrir(arquivo)) {
+            assertThrows(IOException.class, () -> blocos.lerBloco(0));
+        }
+
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+            acesso.setLength(tamanho - 5);
+        }
+        assertThrows(IOException.class, () -> ArquivoBlocos.abrir(arquivo));
+    }
+
+    // ========== AUXILIARES ==========
+
+    private static byte[] idaEVolta(byte[] dados) {
+        byte[] comprimido = CodecLz.comprimir(dados, 0, dados.length);
+        return CodecLz.descomprimir(comprimido, 0, comprimido.length, dados.length);
+    }
+
+    private File gravarBlocos(byte[] dados, int tamanhoBloco) throws IOException {
+        File arquivo = new File(diretorio, "dados.csvz");
+        try (SaidaBlocos saida = new SaidaBlocos(new FileOutputStream(arquivo), tamanhoBloco)) {
+            // Em pedaços de tamanhos variados, como um escritor com buffer
+            int posicao = 0;
+            int pedaco = 1;
+            while (posicao < dados.length) {
+                int parte = Math.min(pedaco, dados.length - posicao);
+                saida.write(dados, posicao, parte);
+                posicao += parte;
+                pedaco = pedaco * 3 % 997 + 1;
+            }
+        }
+        return arquivo;
+    }
+
+    private static byte[] csv(int linhas) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < linhas; i++) {
+            sb.append("MED").append(i).append(";Medicamento ").append(i % 97).append(";Descrição;Princípio ")
+                    .append(i % 13).append(";2027-01-").append(10 + i % 18).append(';').append(i % 500)
+                    .append(";12.50;false;11222333000181;Distribuidora Central;1133334444;vendas@dist.com.br;São Paulo;SP;\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
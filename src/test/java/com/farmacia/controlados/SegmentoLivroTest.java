@@ -0,0 +1,204 @@
+package com.farmacia.controlados;
+
+import com.farmacia.exception.PersistenciaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentoLivroTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 3, 1, 8, 0);
+    // Segmentos pequenos: poucas dezenas de registros cada
+    private static final long TAMANHO_SEGMENTO = 2048;
+
+    @TempDir
+    File diretorio;
+
+    // ========== REGISTROS ==========
+
+    @Test
+    void registroVoltaIgualEConfereOCrc() {
+        MovimentoControlado movimento = new MovimentoControlado(42, INICIO, TipoMovimento.SAIDA,
+                "MED0042", "Clonazepam 2mg — caixa", "L-2026/03", -3, 17);
+        byte[] registro = SegmentoLivro.codificar(movimento);
+        int conteudo = registro.length - 8;
+        int crc = ByteBuffer.wrap(registro, 4, 4).getInt();
+
+        MovimentoControlado lido = SegmentoLivro.decodificar(registro, 8, conteudo, crc);
+        assertEquals(texto(movimento), texto(lido));
+
+        registro[20] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> SegmentoLivro.decodificar(registro, 8, conteudo, crc));
+    }
+
+    // ========== LIVRO ==========
+
+    @Test
+    void livroReabertoDevolveOsMesmosMovimentos() throws Exception {
+        List<MovimentoControlado> gravados = gravar(120);
+        LivroControlados livro = abrir();
+        try {
+            assertTrue(livro.quantidadeSegmentos() > 2);
+            assertEquals(120, livro.ultimaSequencia());
+            assertEquals(120, livro.verificar());
+            assertEquals(textos(gravados), textos(livro.consultar(null, null, null)));
+            assertEquals(textos(doCodigo(gravados, "MED3")), textos(livro.consultar("MED3", null, null)));
+
+            List<MovimentoControlado> periodo = livro.consultar(null, INICIO.plusMinutes(30), INICIO.plusMinutes(60));
+            assertEquals(30, periodo.size());
+            assertEquals(31, periodo.get(0).getSequencia());
+        } finally {
+            livro.fechar();
+        }
+    }
+
+    @Test
+    void caudaIncompletaDoUltimoSegmentoEDescartada() throws Exception {
+        gravar(50);
+        File ultimo = segmentos()[segmentos().length - 1];
+        try (RandomAccessFile acesso = new RandomAccessFile(ultimo, "rw")) {
+            acesso.setLength(acesso.length() - 5);
+        }
+
+        LivroControlados livro = abrir();
+        try {
+            assertEquals(49, livro.ultimaSequencia());
+            assertEquals(49, livro.verificar());
+            // A gravação seguinte continua do último registro inteiro
+            MovimentoControlado novo = livro.registrar(List.of(movimento(0, "MED9")), INICIO.plusHours(2)).get(0);
+            assertEquals(50, novo.getSequencia());
+            assertEquals(50, livro.verificar());
+        } finally {
+            livro.fechar();
+        }
+    }
+
+    @Test
+    void crcInvalidoNumSegmentoSeladoERecusado() throws Exception {
+        gravar(120);
+        File selado = segmentos()[0];
+        corromper(selado, SegmentoLivro.TAMANHO_CABECALHO + 30);
+
+        // Com o índice gravado o segmento não é varrido na abertura, mas a verificação acha a falha
+        LivroControlados livro = abrir();
+        try {
+            assertThrows(PersistenciaException.class, livro::verificar);
+        } finally {
+            livro.fechar();
+        }
+
+        // Sem o índice, a abertura varre o segmento e recusa o livro (só a cauda do último é descartável)
+        assertTrue(SegmentoLivro.indiceDe(selado).delete());
+        long tamanho = selado.length();
+        assertThrows(PersistenciaException.class, this::abrir);
+        assertEquals(tamanho, selado.length());
+    }
+
+    @Test
+    void indiceDeOutroSegmentoOuCorrompidoEIgnorado() throws Exception {
+        List<MovimentoControlado> gravados = gravar(120);
+        File[] arquivos = segmentos();
+        File primeiro = SegmentoLivro.indiceDe(arquivos[0]);
+        File segundo = SegmentoLivro.indiceDe(arquivos[1]);
+        assertNotEquals(arquivos[0].length(), arquivos[1].length());
+
+        // Índice antigo: o do segundo segmento no lugar do primeiro (outro tamanho de segmento)
+        Files.copy(segundo.toPath(), primeiro.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // Índice com um byte trocado: o CRC não confere
+        corromper(segundo, 12);
+
+        LivroControlados livro = abrir();
+        try {
+            assertEquals(120, livro.ultimaSequencia());
+            assertEquals(textos(doCodigo(gravados, "MED1")), textos(livro.consultar("MED1", null, null)));
+            assertEquals(textos(gravados), textos(livro.consultar(null, null, null)));
+        } finally {
+            livro.fechar();
+        }
+
+        // Os segmentos varridos tiveram o índice regravado
+        SegmentoLivro relido = new SegmentoLivro(arquivos[0], 1);
+        assertTrue(relido.carregarIndice());
+        assertEquals(arquivos[1].getName(), String.format("%020d.seg", relido.ultimaSequencia + 1));
+    }
+
+    // ========== AUXILIARES ==========
+
+    /**
+     * Grava {@code quantidade} movimentos, um por minuto, alternando entre cinco códigos, e fecha o livro
+     */
+    private List<MovimentoControlado> gravar(int quantidade) throws PersistenciaException {
+        LivroControlados livro = abrir();
+        List<MovimentoControlado> gravados = new ArrayList<>();
+        try {
+            for (int i = 0; i < quantidade; i++) {
+                gravados.addAll(livro.registrar(List.of(movimento(i, "MED" + i % 5)), INICIO.plusMinutes(i)));
+            }
+        } finally {
+            livro.fechar();
+        }
+        return gravados;
+    }
+
+    private LivroControlados abrir() throws PersistenciaException {
+        return LivroControlados.abrir(diretorio.getPath(), false, TAMANHO_SEGMENTO);
+    }
+
+    private static MovimentoControlado movimento(int i, String codigo) {
+        // Nomes de tamanhos variados: segmentos com tamanhos diferentes
+        return new MovimentoControlado(0, INICIO, i % 3 == 0 ? TipoMovimento.ENTRADA : TipoMovimento.SAIDA, codigo,
+                "Medicamento controlado " + "x".repeat(i % 7), "L" + i, i % 3 == 0 ? 10 : -1, 100 + i);
+    }
+
+    private File[] segmentos() {
+        File[] arquivos = diretorio.listFiles((d, nome) -> nome.endsWith(".seg"));
+        Arrays.sort(arquivos);
+        return arquivos;
+    }
+
+    private static void corromper(File arquivo, long posicao) throws IOException {
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+            acesso.seek(posicao);
+            int original = acesso.read();
+            acesso.seek(posicao);
+            acesso.write(original ^ 0x40);
+        }
+    }
+
+    private static List<MovimentoControlado> doCodigo(List<MovimentoControlado> movimentos, String codigo) {
+        List<MovimentoControlado> filtrados = new ArrayList<>();
+        for (MovimentoControlado movimento : movimentos) {
+            if (movimento.getCodigo().equals(codigo)) {
+                filtrados.add(movimento);
+            }
+        }
+        return filtrados;
+    }
+
+    private static List<String> textos(List<MovimentoControlado> movimentos) {
+        List<String> textos = new ArrayList<>();
+        for (MovimentoControlado movimento : movimentos) {
+            textos.add(texto(movimento));
+        }
+        return textos;
+    }
+
+    private static String texto(MovimentoControlado m) {
+        return m.getSequencia() + ";" + m.getInstante() + ";" + m.getTipo() + ";" + m.getCodigo() + ";" + m.getNome()
+                + ";" + m.getLote() + ";" + m.getQuantidade() + ";" + m.getSaldo();
+    }
+}